@@ -19,6 +19,8 @@ CREATE TABLE `file` (
   `watch_marked_as_done` tinyint NOT NULL CHECK (`watch_marked_as_done` in (0,1)),
   `watch_last_is_same` tinyint NOT NULL CHECK (`watch_last_is_same` in (0,1)),
   `watch_done_but_changed` tinyint NOT NULL CHECK (`watch_done_but_changed` in (0,1)),
+  `dir_last_modified` bigint DEFAULT NULL,
+  `dir_children` int DEFAULT NULL,
   PRIMARY KEY (`id`),
   KEY `file_hash_path_idx` (`hash_path`),
   KEY `file_parent_hash_path_idx` (`parent_hash_path`),
@@ -26,6 +28,15 @@ CREATE TABLE `file` (
   KEY `file_storage_idx` (`storage`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
+CREATE TABLE `storage_generation` (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `realm` varchar(64) NOT NULL,
+  `storage` varchar(64) NOT NULL,
+  `generation` bigint NOT NULL,
+  PRIMARY KEY (`id`),
+  CONSTRAINT storage_generation_uc UNIQUE (`realm`, `storage`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
 CREATE TABLE `instance` (
   `id` int NOT NULL AUTO_INCREMENT,
   `create_date` datetime NOT NULL,
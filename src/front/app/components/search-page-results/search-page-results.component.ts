@@ -103,6 +103,7 @@ export class SearchPageResultsComponent {
             storages: [],
             parentPath: "",
             parentHashPath: "",
+            metadataRanges: [],
         }
 
         this.searchConstraints.set({
@@ -0,0 +1,17 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+export interface DelayedSyncStats {
+    flushWorkers: number;
+    queued: number;
+    maxQueuedEntries: number;
+    syncs: number;
+    syncedEntries: number;
+    meanBatchSize: number;
+    maxBatchSize: number;
+    meanSyncMillis: number;
+    maxSyncMillis: number;
+    backpressureWaits: number;
+}
\ No newline at end of file
@@ -4,6 +4,7 @@
   FROM THE JAVA SIDE OF THIS PROJECT
 */
 import { SearchConstraintCondition } from './search-constraint-condition.enum';
+import { SearchConstraintMetadataRange } from './search-constraint-metadata-range.interface';
 import { SearchConstraintRange } from './search-constraint-range.interface';
 
 export interface FileSearchConstraints {
@@ -16,4 +17,5 @@ export interface FileSearchConstraints {
     storages: Array<string>;
     parentPath: string;
     parentHashPath: string;
+    metadataRanges: Array<SearchConstraintMetadataRange>;
 }
\ No newline at end of file
@@ -10,4 +10,5 @@ export interface FileSearchResult {
     parentPath: string;
     score: number;
     explain: string;
+    highlight: string;
 }
\ No newline at end of file
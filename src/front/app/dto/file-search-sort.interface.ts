@@ -0,0 +1,13 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+import { SortOrder } from './sort-order.enum';
+
+export interface FileSearchSort {
+    name: SortOrder;
+    type: SortOrder;
+    date: SortOrder;
+    size: SortOrder;
+}
\ No newline at end of file
@@ -4,6 +4,7 @@
   FROM THE JAVA SIDE OF THIS PROJECT
 */
 import { FileItemResponse } from './file-item-response.interface';
+import { FileSearchSort } from './file-search-sort.interface';
 import { SearchConstraintsRequest } from './search-constraints-request.interface';
 import { SearchResult } from './search-result.interface';
 
@@ -13,4 +14,7 @@ export interface OpenSearchResponse {
     limit: number;
     relatedFiles: Record<string, FileItemResponse>;
     constraints: SearchConstraintsRequest;
+    fullText: boolean;
+    cursor: string;
+    sort: FileSearchSort;
 }
\ No newline at end of file
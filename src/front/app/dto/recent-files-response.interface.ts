@@ -0,0 +1,15 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+import { FileItemResponse } from './file-item-response.interface';
+import { SearchResult } from './search-result.interface';
+
+export interface RecentFilesResponse {
+    result: SearchResult;
+    lastMinutes: number;
+    limit: number;
+    relatedFiles: Record<string, FileItemResponse>;
+    cursor: string;
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+export interface SearchCacheStats {
+    hits: number;
+    misses: number;
+    evictions: number;
+    entries: number;
+    weight: number;
+    maxWeight: number;
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+export interface SearchConstraintMetadataRange {
+    classifier: string;
+    key: string;
+    min: number;
+    max: number;
+}
\ No newline at end of file
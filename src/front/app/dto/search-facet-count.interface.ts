@@ -0,0 +1,9 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+export interface SearchFacetCount {
+    value: string;
+    count: number;
+}
\ No newline at end of file
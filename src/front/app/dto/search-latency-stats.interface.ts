@@ -0,0 +1,11 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+export interface SearchLatencyStats {
+    searchThreads: number;
+    searches: number;
+    meanMillis: number;
+    maxMillis: number;
+}
\ No newline at end of file
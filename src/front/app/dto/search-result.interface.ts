@@ -4,8 +4,13 @@
   FROM THE JAVA SIDE OF THIS PROJECT
 */
 import { FileSearchResult } from './file-search-result.interface';
+import { SearchFacetCount } from './search-facet-count.interface';
 
 export interface SearchResult {
     foundedFiles: Array<FileSearchResult>;
     totalFounded: number;
+    nextCursor: string;
+    facets: Record<string, Array<SearchFacetCount>>;
+    partial: boolean;
+    degraded: boolean;
 }
\ No newline at end of file
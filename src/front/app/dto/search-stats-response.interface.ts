@@ -0,0 +1,14 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+import { DelayedSyncStats } from './delayed-sync-stats.interface';
+import { SearchCacheStats } from './search-cache-stats.interface';
+import { SearchLatencyStats } from './search-latency-stats.interface';
+
+export interface SearchStatsResponse {
+    cache: SearchCacheStats;
+    latency: SearchLatencyStats;
+    indexUpdates: DelayedSyncStats;
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+/*
+  AUTOGENERATED FILE! DO NOT EDIT!
+  GENERATED BY 'DTORecordToAngularInterfaceConverter.java'
+  FROM THE JAVA SIDE OF THIS PROJECT
+*/
+export interface SuggestResponse {
+    q: string;
+    suggestions: Array<string>;
+}
\ No newline at end of file
@@ -29,6 +29,7 @@ import org.springframework.stereotype.Component;
 import lombok.extern.slf4j.Slf4j;
 import media.mexm.mydmam.configuration.MyDMAMConfigurationProperties;
 import media.mexm.mydmam.repository.InstanceDao;
+import media.mexm.mydmam.service.MediaAssetService;
 import media.mexm.mydmam.service.PendingActivityService;
 import tv.hd3g.jobkit.engine.BackgroundService;
 import tv.hd3g.jobkit.engine.JobKitEngine;
@@ -39,6 +40,8 @@ public class DbPollers implements InternalService {
 
     private final InstanceDao instanceDao;
     private final PendingActivityService pendingActivityService;
+    private final MediaAssetService mediaAssetService;
+    private final Indexer indexer;
     private final JobKitEngine jobKit;
     private final MyDMAMConfigurationProperties configuration;
     private final AtomicBoolean firstRestartPendingActivities;
@@ -46,10 +49,14 @@ public class DbPollers implements InternalService {
 
     public DbPollers(@Autowired final InstanceDao instanceDao,
                      @Autowired final PendingActivityService pendingActivityService,
+                     @Autowired final MediaAssetService mediaAssetService,
+                     @Autowired final Indexer indexer,
                      @Autowired final JobKitEngine jobKit,
                      @Autowired final MyDMAMConfigurationProperties configuration) {
         this.instanceDao = instanceDao;
         this.pendingActivityService = pendingActivityService;
+        this.mediaAssetService = mediaAssetService;
+        this.indexer = indexer;
         this.jobKit = jobKit;
         this.configuration = configuration;
         firstRestartPendingActivities = new AtomicBoolean(true);
@@ -72,6 +79,23 @@ public class DbPollers implements InternalService {
                 pendingActivityMaxAgeGraceRestart,
                 () -> pendingActivityService.restartPendingActivities(firstRestartPendingActivities.getAndSet(false)),
                 nothing));
+
+        /**
+         * The journals are only left by the previous run: no need to check them again later.
+         */
+        jobKit.runOneShot("Replay not committed index updates", spoolName, 0,
+                mediaAssetService::replayIndexerJournals,
+                e -> {
+                    if (e != null) {
+                        log.error("Can't replay the not committed index updates", e);
+                    }
+                });
+
+        /**
+         * Like the rebuilds started on open for the indexes made with an older format. The searches are still done on
+         * the current indexes until each swap.
+         */
+        indexer.resumeRebuilds("admin-ops", mediaAssetService);
     }
 
     @Override
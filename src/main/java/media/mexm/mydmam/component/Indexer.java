@@ -19,9 +19,12 @@ package media.mexm.mydmam.component;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import lombok.extern.slf4j.Slf4j;
@@ -31,7 +34,11 @@ import media.mexm.mydmam.repository.FileDao;
 import media.mexm.mydmam.service.MediaAssetService;
 import tv.hd3g.jobkit.engine.JobKitEngine;
 
+/**
+ * Started before the other internal services: they can use the realm indexes (like the index journals replay).
+ */
 @Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
 @Slf4j
 public class Indexer implements InternalService {
 
@@ -71,7 +78,8 @@ public class Indexer implements InternalService {
                     realmName,
                     workingDirectory,
                     conf.env().explainSearchResults(),
-                    entry.getValue().delayedSync());
+                    entry.getValue().delayedSync(),
+                    entry.getValue().index());
             indexerByRealmName.put(realmName, realmIndexer);
         }
     }
@@ -105,4 +113,49 @@ public class Indexer implements InternalService {
 
     }
 
+    /**
+     * Rebuild side by side each realm index, then swap it. The searches are still done on the current indexes during
+     * the rebuild. A stopped rebuild will be resumed from its last checkpoint.
+     */
+    public void rebuild(final String spoolName, final MediaAssetService mediaAssetService) {
+        jobKit.runOneShot("Rebuild all indexes", spoolName, 0, () -> {
+            indexerByRealmName.forEach((realm, indexer) -> rebuild(realm, indexer, mediaAssetService));
+            log.info("All indexes are now rebuilded");
+        }, e -> {
+            if (e != null) {
+                log.error("Can't rebuild indexes", e);
+            }
+        });
+    }
+
+    /**
+     * Resume the not ended rebuilds, and the ones started on open for the indexes made with an older format.
+     */
+    public void resumeRebuilds(final String spoolName, final MediaAssetService mediaAssetService) {
+        final var pendingRealms = indexerByRealmName.entrySet().stream()
+                .filter(entry -> entry.getValue().isRebuildPending())
+                .map(Entry::getKey)
+                .toList();
+        if (pendingRealms.isEmpty()) {
+            return;
+        }
+        jobKit.runOneShot("Resume indexes rebuild", spoolName, 0, () -> {
+            pendingRealms.forEach(realm -> rebuild(realm, indexerByRealmName.get(realm), mediaAssetService));
+            log.info("Pending indexes rebuilds are now done");
+        }, e -> {
+            if (e != null) {
+                log.error("Can't resume indexes rebuild", e);
+            }
+        });
+    }
+
+    private static void rebuild(final String realm,
+                                final RealmIndexer indexer,
+                                final MediaAssetService mediaAssetService) {
+        log.info("Start to rebuild indexes on realm {}", realm);
+        final var rebuild = indexer.startRebuild();
+        mediaAssetService.rebuildIndexer(realm, rebuild);
+        indexer.swapRebuild();
+    }
+
 }
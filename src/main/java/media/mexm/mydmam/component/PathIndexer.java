@@ -18,7 +18,9 @@ package media.mexm.mydmam.component;
 
 import static java.util.Collections.unmodifiableMap;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,22 +33,29 @@ import org.springframework.stereotype.Component;
 
 import lombok.extern.slf4j.Slf4j;
 import media.mexm.mydmam.configuration.MyDMAMConfigurationProperties;
+import media.mexm.mydmam.configuration.PathIndexingStorage;
 import media.mexm.mydmam.configuration.RealmConf;
 import media.mexm.mydmam.configuration.TechnicalName;
 import media.mexm.mydmam.pathindexing.RealmStorageFolderActivity;
 import media.mexm.mydmam.pathindexing.RealmStorageWatchedFilesDb;
+import media.mexm.mydmam.pathindexing.StorageChangeWatcher;
 import media.mexm.mydmam.service.PathIndexerService;
 import tv.hd3g.jobkit.engine.JobKitEngine;
 import tv.hd3g.jobkit.watchfolder.Watchfolders;
+import tv.hd3g.transfertfiles.AbstractFileSystemURL;
+import tv.hd3g.transfertfiles.local.LocalFile;
 
 @Slf4j
 @Component
 public class PathIndexer implements InternalService {
 
+    private static final Duration WATCH_COALESCE_DELAY = Duration.ofSeconds(2);
+
     private final JobKitEngine jobKitEngine;
     private final PathIndexerService pathIndexerService;
     private final MyDMAMConfigurationProperties configuration;
     private final Map<RealmStorageFolderActivity, Watchfolders> watchfolders;
+    private final List<StorageChangeWatcher> changeWatchers;
 
     public PathIndexer(@Autowired final JobKitEngine jobKitEngine,
                        @Autowired final PathIndexerService pathIndexerService,
@@ -55,6 +64,7 @@ public class PathIndexer implements InternalService {
         this.configuration = configuration;
         this.pathIndexerService = pathIndexerService;
         watchfolders = new HashMap<>();
+        changeWatchers = new ArrayList<>();
     }
 
     @Override
@@ -98,6 +108,7 @@ public class PathIndexer implements InternalService {
                                 realmConf,
                                 storageName,
                                 storage);
+                        final var changeWatcher = makeChangeWatcher(realmName, storageName, storage);
 
                         final var newWatchfolder = new Watchfolders(
                                 List.of(storage.makeObservedFolder(realmName, storageName)),
@@ -110,7 +121,8 @@ public class PathIndexer implements InternalService {
                                         pathIndexerService,
                                         realmName,
                                         storageName,
-                                        storage));
+                                        storage,
+                                        changeWatcher));
 
                         watchfolders.put(folderActivity, newWatchfolder);
                     });
@@ -122,10 +134,41 @@ public class PathIndexer implements InternalService {
 
     @Override
     public void internalServiceStop() throws Exception {
+        changeWatchers.forEach(StorageChangeWatcher::close);
+        changeWatchers.clear();
         watchfolders.values().forEach(Watchfolders::stopScans);
         watchfolders.clear();
     }
 
+    /**
+     * @return null if not enabled, or if it can't watch: only the periodic scans will be done.
+     */
+    private StorageChangeWatcher makeChangeWatcher(final String realmName,
+                                                   final String storageName,
+                                                   final PathIndexingStorage storage) {
+        if (storage.watchChanges() == false) {
+            return null;
+        }
+        final var minFixedStateTime = Optional.ofNullable(storage.minFixedStateTime()).orElse(Duration.ZERO);
+        try (final var fileSystem = new AbstractFileSystemURL(storage.path())) {
+            if (fileSystem.getFromPath("/") instanceof final LocalFile localRoot) {
+                final var changeWatcher = new StorageChangeWatcher(
+                        localRoot.getInternalFile().toPath(),
+                        realmName + ":" + storageName,
+                        storage.maxDeep(),
+                        WATCH_COALESCE_DELAY,
+                        minFixedStateTime,
+                        () -> scanNow(realmName, storageName));
+                changeWatchers.add(changeWatcher);
+                return changeWatcher;
+            }
+            log.warn("Can't watch changes on a non-local storage {}:{}", realmName, storageName);
+        } catch (final IOException e) {
+            log.warn("Can't watch changes on {}:{}, only periodic scans will be done", realmName, storageName, e);
+        }
+        return null;
+    }
+
     Map<RealmStorageFolderActivity, Watchfolders> getWatchfolders() {
         return unmodifiableMap(watchfolders);
     }
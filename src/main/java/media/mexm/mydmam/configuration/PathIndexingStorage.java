@@ -31,6 +31,7 @@ import org.springframework.validation.annotation.Validated;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import media.mexm.mydmam.activity.ActivityLimitPolicy;
 import media.mexm.mydmam.dto.StorageCategory;
@@ -60,7 +61,22 @@ public record PathIndexingStorage(@DefaultValue("") String description,
                                   @DefaultValue("false") boolean noScans,
                                   @DefaultValue("pathindexing") @NotEmpty String spoolScans,
                                   @DefaultValue("false") boolean disablePathCheckOnBoot,
-                                  ActivityLimitPolicy activityLimit) {
+                                  ActivityLimitPolicy activityLimit,
+                                  /**
+                                   * Between two full scans, the scans only list the directories with a changed
+                                   * mtime: in-place file changes in the other directories are only seen by the
+                                   * next full scan. Null = always full scans.
+                                   */
+                                  @DefaultValue("24h") Duration timeBetweenFullScans,
+                                  /**
+                                   * DAS only: watch the tree changes with the OS file events, and scan only the
+                                   * touched directories just after. The periodic scans are still done.
+                                   */
+                                  @DefaultValue("false") boolean watchChanges,
+                                  /**
+                                   * Max directories listed at the same time by a scan, each with its own connection.
+                                   */
+                                  @Valid @Positive @Max(64) @DefaultValue("1") int scanParallelism) {
 
     private static final String FILE_PROTOCOL = "file://";
 
@@ -68,6 +84,13 @@ public record PathIndexingStorage(@DefaultValue("") String description,
         if (timeBetweenScans != null && (timeBetweenScans == Duration.ZERO || timeBetweenScans.isNegative())) {
             throw new IllegalArgumentException("Invalid mockTimeBetweenScans=" + timeBetweenScans);
         }
+        if (scanParallelism < 1) {
+            throw new IllegalArgumentException("Invalid scanParallelism=" + scanParallelism);
+        }
+        if (timeBetweenFullScans != null
+            && (timeBetweenFullScans.isZero() || timeBetweenFullScans.isNegative())) {
+            throw new IllegalArgumentException("Invalid timeBetweenFullScans=" + timeBetweenFullScans);
+        }
 
         try {
             final var localPath = new File(path);
@@ -85,6 +108,9 @@ public record PathIndexingStorage(@DefaultValue("") String description,
             throw new IllegalArgumentException(
                     "Can't found directory, or it doesn't seem to be an valid URL: \"" + path + "\"", e);
         }
+        if (watchChanges && path.startsWith(FILE_PROTOCOL) == false) {
+            throw new IllegalArgumentException("Can't watch changes on a non-local storage: \"" + path + "\"");
+        }
     }
 
     /**
@@ -56,7 +56,8 @@ public record RealmConf(@Valid Map<TechnicalName, PathIndexingStorage> storages,
                         DelayedSyncConfiguration delayedSync,
                         @DefaultValue @Valid @NotNull AllowBlockLists activityHandlers,
                         @DefaultValue @Valid @NotNull RealmAboutConf about,
-                        ActivityLimitPolicy activityLimit) {
+                        ActivityLimitPolicy activityLimit,
+                        @DefaultValue @Valid @NotNull RealmIndexConf index) {
 
     public RealmConf {
         storages = Optional.ofNullable(storages).orElse(Map.of());
@@ -69,7 +70,10 @@ public record RealmConf(@Valid Map<TechnicalName, PathIndexingStorage> storages,
         }
 
         if (delayedSync == null) {
-            delayedSync = new DelayedSyncConfiguration(2000, ofMinutes(10));
+            delayedSync = new DelayedSyncConfiguration(2000, ofMinutes(10), 1, 100000);
+        }
+        if (index == null) {
+            index = RealmIndexConf.DEFAULT;
         }
     }
 
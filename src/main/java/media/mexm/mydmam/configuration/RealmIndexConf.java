@@ -0,0 +1,90 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.configuration;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+
+@Validated
+public record RealmIndexConf(/**
+                              * In MiB, 0 = no search result cache
+                              */
+                             @DefaultValue("32") @Min(0) int searchCacheMaxMemory,
+                             /**
+                              * Keep the index sorted by file date, most recent first, for early terminated recent
+                              * files searches. An existing non-sorted index will be rebuilt on the next startup.
+                              */
+                             @DefaultValue("false") boolean sortedByDate,
+                             /**
+                              * Threads used by each search to visit the index segments in parallel.
+                              * 0 = all the segments are visited by the caller thread.
+                              */
+                             @DefaultValue("0") @Min(0) int searchThreads,
+                             /**
+                              * Threads used to make the documents during a full index rebuild.
+                              */
+                             @DefaultValue("4") @Min(1) int rebuildThreads,
+                             /**
+                              * Time budget for each search, in milliseconds. After it, the search returns the
+                              * already collected results, flagged as partial. 0 = no time limit.
+                              */
+                             @DefaultValue("2000") @Min(0) int searchTimeoutMillis,
+                             /**
+                              * Max concurrent searches on this realm. Over half of it, the expensive clauses are
+                              * dropped from the open searches. 0 = no limit.
+                              */
+                             @DefaultValue("16") @Min(0) int maxConcurrentSearches,
+                             /**
+                              * Max wait time, in milliseconds, for a search slot before rejecting the search.
+                              */
+                             @DefaultValue("500") @Min(0) int searchQueueTimeoutMillis,
+                             /**
+                              * Chars stored from the start of each extracted text, only used for the full-text
+                              * search highlight snippets. Held in memory with each queued index update, so keep it
+                              * small. 0 = no snippets.
+                              */
+                             @DefaultValue("1000") @Min(0) int fullTextExcerptSize) {
+
+    public static final RealmIndexConf DEFAULT = new RealmIndexConf(32, false, 0, 4, 2000, 16, 500, 1000);
+
+    public RealmIndexConf {
+        if (searchCacheMaxMemory < 0) {
+            throw new IllegalArgumentException("Invalid searchCacheMaxMemory=" + searchCacheMaxMemory);
+        }
+        if (searchThreads < 0) {
+            throw new IllegalArgumentException("Invalid searchThreads=" + searchThreads);
+        }
+        if (rebuildThreads < 1) {
+            throw new IllegalArgumentException("Invalid rebuildThreads=" + rebuildThreads);
+        }
+        if (searchTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid searchTimeoutMillis=" + searchTimeoutMillis);
+        }
+        if (maxConcurrentSearches < 0) {
+            throw new IllegalArgumentException("Invalid maxConcurrentSearches=" + maxConcurrentSearches);
+        }
+        if (searchQueueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid searchQueueTimeoutMillis=" + searchQueueTimeoutMillis);
+        }
+        if (fullTextExcerptSize < 0) {
+            throw new IllegalArgumentException("Invalid fullTextExcerptSize=" + fullTextExcerptSize);
+        }
+    }
+
+}
@@ -17,13 +17,17 @@
 package media.mexm.mydmam.controller;
 
 import static java.lang.Math.min;
+import static java.time.Duration.ofMinutes;
 import static java.util.function.Function.identity;
+import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.toUnmodifiableMap;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 import static media.mexm.mydmam.App.CONTROLLER_BASE_MAPPING_API_PATH;
 import static media.mexm.mydmam.dto.FileItemResponse.createFromEntity;
 import static media.mexm.mydmam.entity.FileEntity.MAX_NAME_SIZE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
@@ -32,10 +36,12 @@ import static org.springframework.web.bind.annotation.RequestMethod.PUT;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -54,10 +60,18 @@ import media.mexm.mydmam.component.Indexer;
 import media.mexm.mydmam.configuration.MyDMAMConfigurationProperties;
 import media.mexm.mydmam.dto.FileItemResponse;
 import media.mexm.mydmam.dto.OpenSearchResponse;
+import media.mexm.mydmam.dto.RecentFilesResponse;
 import media.mexm.mydmam.dto.SearchConstraintsRequest;
+import media.mexm.mydmam.dto.SearchStatsResponse;
+import media.mexm.mydmam.dto.SuggestResponse;
 import media.mexm.mydmam.indexer.FileSearchResult;
+import media.mexm.mydmam.indexer.FileSearchSort;
+import media.mexm.mydmam.indexer.InvalidSearchRequestException;
+import media.mexm.mydmam.indexer.SearchCursor;
+import media.mexm.mydmam.indexer.SearchResult;
 import media.mexm.mydmam.repository.FileRepository;
 import media.mexm.mydmam.service.MediaAssetService;
+import media.mexm.mydmam.tools.SortOrder;
 
 @RestController
 @Validated
@@ -83,29 +97,47 @@ public class SearchController {
                                                                        defaultValue = "0") @Min(0) final Integer limit,
                                                          @RequestParam(required = false,
                                                                        defaultValue = "0") @Min(0) @Max(1) final Integer resolveHashPaths,
+                                                         @RequestParam(required = false,
+                                                                       defaultValue = "0") @Min(0) @Max(1) final Integer fullText,
+                                                         @RequestParam(required = false) @Size(max = 4096) final String cursor,
+                                                         @RequestParam(required = false,
+                                                                       defaultValue = "none") final SortOrder sortByName,
+                                                         @RequestParam(required = false,
+                                                                       defaultValue = "none") final SortOrder sortByType,
+                                                         @RequestParam(required = false,
+                                                                       defaultValue = "none") final SortOrder sortByDate,
+                                                         @RequestParam(required = false,
+                                                                       defaultValue = "none") final SortOrder sortBySize,
                                                          @RequestBody(required = false) @Validated @Nullable final SearchConstraintsRequest constraints) {
 
         final var oRealmIndexer = indexer.getIndexerByRealm(realm);
         if (oRealmIndexer.isEmpty()) {
             return new ResponseEntity<>(UNPROCESSABLE_ENTITY);
         }
+        final var oCursor = Optional.ofNullable(cursor).filter(not(String::isEmpty));
+        if (oCursor.isPresent() && SearchCursor.isValid(oCursor.get()) == false) {
+            return new ResponseEntity<>(BAD_REQUEST);
+        }
 
         final var maxAllowedEntries = min(
                 conf.env().searchResultMaxSize(),
                 limit == 0 ? conf.env().searchResultMaxSize() : limit);
         final var oFileConstraints = Optional.ofNullable(constraints).map(SearchConstraintsRequest::fileConstraints);
+        final var sort = new FileSearchSort(sortByName, sortByType, sortByDate, sortBySize);
 
-        final var searchResult = oRealmIndexer.get().openSearch(q.trim(), oFileConstraints, maxAllowedEntries);
-
-        Map<String, FileItemResponse> relatedFiles = Map.of();
-        if (resolveHashPaths == 1 && searchResult.foundedFiles().isEmpty() == false) {
-            final var hashPathsToResolve = searchResult.foundedFiles().stream()
-                    .map(FileSearchResult::hashPath)
-                    .distinct()
-                    .collect(toUnmodifiableSet());
-            relatedFiles = fileRepository.getByHashPath(hashPathsToResolve, realm).stream()
-                    .map(f -> createFromEntity(f, realm, f.getStorage()))
-                    .collect(toUnmodifiableMap(FileItemResponse::hashPath, identity()));
+        final SearchResult searchResult;
+        try {
+            searchResult = fullText == 1
+                                         ? oRealmIndexer.get().fullTextSearch(q.trim(), oFileConstraints,
+                                                 maxAllowedEntries, oCursor, sort)
+                                         : oRealmIndexer.get().openSearch(q.trim(), oFileConstraints,
+                                                 maxAllowedEntries, oCursor, sort);
+        } catch (final InvalidSearchRequestException e) {
+            log.warn("Bad search request: {}", e.getMessage());
+            return new ResponseEntity<>(BAD_REQUEST);
+        } catch (final RejectedExecutionException e) {
+            log.warn("Search request rejected: {}", e.getMessage());
+            return new ResponseEntity<>(TOO_MANY_REQUESTS);
         }
 
         return new ResponseEntity<>(
@@ -113,15 +145,107 @@ public class SearchController {
                         searchResult,
                         q.trim(),
                         maxAllowedEntries,
-                        relatedFiles,
-                        constraints),
+                        resolveHashPaths(realm, resolveHashPaths == 1, searchResult),
+                        constraints,
+                        fullText == 1,
+                        oCursor.orElse(null),
+                        sort),
                 OK);
     }
 
+    @GetMapping("/{realm}/recent")
+    @Transactional
+    public ResponseEntity<RecentFilesResponse> recent(@PathVariable @NotBlank @Size(max = MAX_NAME_SIZE) final String realm,
+                                                      @RequestParam(required = false,
+                                                                    defaultValue = "60") @Min(1) @Max(525_600) final Integer lastMinutes,
+                                                      @RequestParam(required = false,
+                                                                    defaultValue = "0") @Min(0) final Integer limit,
+                                                      @RequestParam(required = false,
+                                                                    defaultValue = "0") @Min(0) @Max(1) final Integer resolveHashPaths,
+                                                      @RequestParam(required = false) @Size(max = 4096) final String cursor) {
+        final var oRealmIndexer = indexer.getIndexerByRealm(realm);
+        if (oRealmIndexer.isEmpty()) {
+            return new ResponseEntity<>(UNPROCESSABLE_ENTITY);
+        }
+        final var oCursor = Optional.ofNullable(cursor).filter(not(String::isEmpty));
+        if (oCursor.isPresent() && SearchCursor.isValid(oCursor.get()) == false) {
+            return new ResponseEntity<>(BAD_REQUEST);
+        }
+
+        final var maxAllowedEntries = min(
+                conf.env().searchResultMaxSize(),
+                limit == 0 ? conf.env().searchResultMaxSize() : limit);
+
+        final SearchResult searchResult;
+        try {
+            searchResult = oRealmIndexer.get().recentSearch(ofMinutes(lastMinutes), maxAllowedEntries, oCursor);
+        } catch (final InvalidSearchRequestException e) {
+            log.warn("Bad recent files request: {}", e.getMessage());
+            return new ResponseEntity<>(BAD_REQUEST);
+        } catch (final RejectedExecutionException e) {
+            log.warn("Recent files request rejected: {}", e.getMessage());
+            return new ResponseEntity<>(TOO_MANY_REQUESTS);
+        }
+
+        return new ResponseEntity<>(
+                new RecentFilesResponse(
+                        searchResult,
+                        lastMinutes,
+                        maxAllowedEntries,
+                        resolveHashPaths(realm, resolveHashPaths == 1, searchResult),
+                        oCursor.orElse(null)),
+                OK);
+    }
+
+    @GetMapping("/{realm}/suggest")
+    public ResponseEntity<SuggestResponse> suggest(@PathVariable @NotBlank @Size(max = MAX_NAME_SIZE) final String realm,
+                                                   @RequestParam(required = true) @NotBlank @Size(max = 256) final String q,
+                                                   @RequestParam(required = false,
+                                                                 defaultValue = "10") @Min(1) @Max(50) final Integer limit) {
+        return indexer.getIndexerByRealm(realm)
+                .map(realmIndexer -> new ResponseEntity<>(
+                        new SuggestResponse(q.trim(), realmIndexer.suggest(q.trim(), limit)),
+                        OK))
+                .orElseGet(() -> new ResponseEntity<>(UNPROCESSABLE_ENTITY));
+    }
+
+    private Map<String, FileItemResponse> resolveHashPaths(final String realm,
+                                                           final boolean resolve,
+                                                           final SearchResult searchResult) {
+        if (resolve == false || searchResult.foundedFiles().isEmpty()) {
+            return Map.of();
+        }
+        final var hashPathsToResolve = searchResult.foundedFiles().stream()
+                .map(FileSearchResult::hashPath)
+                .distinct()
+                .collect(toUnmodifiableSet());
+        return fileRepository.getByHashPath(hashPathsToResolve, realm).stream()
+                .map(f -> createFromEntity(f, realm, f.getStorage()))
+                .collect(toUnmodifiableMap(FileItemResponse::hashPath, identity()));
+    }
+
+    @GetMapping("/{realm}/stats")
+    public ResponseEntity<SearchStatsResponse> getStats(@PathVariable @NotBlank @Size(max = MAX_NAME_SIZE) final String realm) {
+        return indexer.getIndexerByRealm(realm)
+                .map(realmIndexer -> new ResponseEntity<>(
+                        new SearchStatsResponse(
+                                realmIndexer.getSearchCacheStats(),
+                                realmIndexer.getSearchLatencyStats(),
+                                realmIndexer.getIndexUpdateStats()),
+                        OK))
+                .orElseGet(() -> new ResponseEntity<>(UNPROCESSABLE_ENTITY));
+    }
+
     @PostMapping("/reset-all-indexes")
     public ResponseEntity<Void> reset() {
         indexer.reset("admin-ops", mediaAssetService);
         return new ResponseEntity<>(OK);
     }
 
+    @PostMapping("/rebuild-all-indexes")
+    public ResponseEntity<Void> rebuild() {
+        indexer.rebuild("admin-ops", mediaAssetService);
+        return new ResponseEntity<>(OK);
+    }
+
 }
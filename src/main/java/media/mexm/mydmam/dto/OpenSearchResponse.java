@@ -19,12 +19,16 @@ package media.mexm.mydmam.dto;
 import java.util.Map;
 
 import jakarta.annotation.Nullable;
+import media.mexm.mydmam.indexer.FileSearchSort;
 import media.mexm.mydmam.indexer.SearchResult;
 
 public record OpenSearchResponse(SearchResult result,
 								 String q,
 								 int limit,
 								 Map<String, FileItemResponse> relatedFiles,
-								 @Nullable SearchConstraintsRequest constraints) {
+								 @Nullable SearchConstraintsRequest constraints,
+								 boolean fullText,
+								 @Nullable String cursor,
+								 FileSearchSort sort) {
 
 }
@@ -127,6 +127,18 @@ public class FileEntity {
     @Column(name = "watch_done_but_changed", columnDefinition = "TINYINT")
     private boolean watchDoneButChanged;
 
+    /**
+     * Directories only: the directory mtime when it was last listed by a scan. Null if never listed.
+     */
+    @Column(name = "dir_last_modified")
+    private Long dirLastModified;
+
+    /**
+     * Directories only: the accepted children count when it was last listed by a scan. Null if never listed.
+     */
+    @Column(name = "dir_children")
+    private Integer dirChildren;
+
     @OneToMany(mappedBy = "file", fetch = LAZY, orphanRemoval = true, cascade = REMOVE)
     private final Set<PendingActivityEntity> pendingActivities = new HashSet<>();
 
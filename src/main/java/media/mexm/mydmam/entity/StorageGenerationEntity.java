@@ -0,0 +1,70 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.entity;
+
+import static jakarta.persistence.GenerationType.IDENTITY;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A counter by storage, bumped in the same transaction by each write on the file rows of the storage.
+ * Only read and written by FileBulkDao, with plain JDBC.
+ */
+@Entity
+@Table(name = StorageGenerationEntity.TABLE_NAME,
+       uniqueConstraints = {
+                             @UniqueConstraint(columnNames = { "realm", "storage" },
+                                               name = StorageGenerationEntity.TABLE_NAME + "_uc") })
+@Getter
+@ToString
+public class StorageGenerationEntity {
+
+    public static final String TABLE_NAME = "storage_generation";
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    private Integer id;
+
+    @NotBlank
+    @Column(length = FileEntity.MAX_NAME_SIZE, name = "realm", updatable = false)
+    private String realm;
+
+    @NotBlank
+    @Column(length = FileEntity.MAX_NAME_SIZE, name = "storage", updatable = false)
+    private String storage;
+
+    @NotNull
+    @Column(name = "generation")
+    private Long generation;
+
+    /**
+     * NEVER USE DIRECTLY, ONLY SET FOR HIBERNATE
+     */
+    public StorageGenerationEntity() {
+        // ONLY SET FOR HIBERNATE
+    }
+
+}
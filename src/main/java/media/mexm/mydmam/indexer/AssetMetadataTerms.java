@@ -0,0 +1,202 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.util.stream.Collectors.toUnmodifiableSet;
+import static media.mexm.mydmam.indexer.NamedIndexField.ASSET_METADATA;
+import static media.mexm.mydmam.indexer.NamedIndexField.ASSET_METADATA_NUMERIC;
+import static media.mexm.mydmam.indexer.NamedIndexField.ASSET_METADATA_PATH;
+import static org.apache.lucene.document.Field.Store.NO;
+import static org.apache.lucene.search.BooleanClause.Occur.SHOULD;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import lombok.extern.slf4j.Slf4j;
+import media.mexm.mydmam.mtdthesaurus.MetadataThesaurusLogic;
+
+/**
+ * All the asset metadata of a document in two fields, with prefix-encoded terms, in place of one field by
+ * classifier, key and layer:
+ * - ASSET_METADATA: "value SEP classifier SEP key SEP layer", to search a value on any level of classifier.key.layer
+ * - ASSET_METADATA_PATH: "classifier SEP key SEP layer", to search the documents with a classifier/key/layer
+ * The index field infos stay the same whatever the metadata count, and each metadata entry adds only two terms.
+ * The MetadataThesaurusNumeric entries are also indexed as doubles (points and doc values), one field by
+ * classifier.key for all the layers, to be searched by ranges.
+ */
+@Slf4j
+public final class AssetMetadataTerms {
+
+	static final char SEPARATOR = '\u0000';
+	private static final int MAX_PATH_LEVELS = 3;
+	private static final Set<String> NUMERIC_PATHS;
+	private static final Set<String> SUGGESTED_PATHS;
+
+	static {
+		final var logic = new MetadataThesaurusLogic();
+		logic.defaultRegister();
+		NUMERIC_PATHS = logic.getNumericEntries().stream()
+				.map(entry -> makePath(entry.classifier(), entry.key()))
+				.collect(toUnmodifiableSet());
+		SUGGESTED_PATHS = logic.getSuggestedEntries().stream()
+				.map(entry -> makePath(entry.classifier(), entry.key()))
+				.collect(toUnmodifiableSet());
+	}
+
+	private AssetMetadataTerms() {
+	}
+
+	public static boolean isNumeric(final String classifier, final String key) {
+		return NUMERIC_PATHS.contains(makePath(classifier, key));
+	}
+
+	public static boolean isSuggested(final String classifier, final String key) {
+		return SUGGESTED_PATHS.contains(makePath(classifier, key));
+	}
+
+	static String numericField(final String classifier, final String key) {
+		return new NamedIndexField(new NamedIndexField(ASSET_METADATA_NUMERIC, classifier), key).toString();
+	}
+
+	static String makePath(final String... path) {
+		if (path.length > MAX_PATH_LEVELS) {
+			throw new IllegalArgumentException("Invalid path (classifier, key, layer): " + String.join(".", path));
+		}
+		final var sb = new StringBuilder();
+		for (var pos = 0; pos < path.length; pos++) {
+			final var level = Objects.requireNonNull(path[pos], "\"path\" level can't to be null");
+			if (level.indexOf(SEPARATOR) > -1) {
+				throw new IllegalArgumentException("Invalid path level: \"" + level + "\"");
+			}
+			if (pos > 0) {
+				sb.append(SEPARATOR);
+			}
+			sb.append(level);
+		}
+		return sb.toString();
+	}
+
+	static void addMetadata(final Document document,
+							final String classifier,
+							final String key,
+							final int layer,
+							final String value) {
+		final var path = makePath(classifier, key, String.valueOf(layer));
+		document.add(new StringField(ASSET_METADATA, value + SEPARATOR + path, NO));
+		document.add(new StringField(ASSET_METADATA_PATH, path, NO));
+
+		if (isNumeric(classifier, key)) {
+			try {
+				final var number = Double.parseDouble(value);
+				if (Double.isFinite(number)) {
+					document.add(new DoubleField(numericField(classifier, key), number, NO));
+				}
+			} catch (final NumberFormatException e) {
+				log.debug("Can't index {}.{} as number: \"{}\"", classifier, key, value);
+			}
+		}
+	}
+
+	/**
+	 * @return the documents with at least one layer value between min and max (inclusive)
+	 * @throws IllegalArgumentException if classifier.key is not a MetadataThesaurusNumeric entry
+	 */
+	public static Query makeNumericRangeQuery(final String classifier,
+											  final String key,
+											  final double min,
+											  final double max) {
+		if (isNumeric(classifier, key) == false) {
+			throw new IllegalArgumentException("Not a numeric metadata: " + classifier + "." + key);
+		}
+		return DoubleField.newRangeQuery(numericField(classifier, key), min, max);
+	}
+
+	/**
+	 * @param path nothing (any metadata), classifier, classifier and key, or classifier, key and layer
+	 * @return the documents with this metadata value, on this path level
+	 */
+	public static Query makeValueQuery(final String value, final String... path) {
+		Objects.requireNonNull(value, "\"value\" can't to be null");
+		if (path.length == MAX_PATH_LEVELS) {
+			return new TermQuery(new Term(ASSET_METADATA, value + SEPARATOR + makePath(path)));
+		}
+		final var prefix = path.length == 0 ? value + SEPARATOR : value + SEPARATOR + makePath(path) + SEPARATOR;
+		return new PrefixQuery(new Term(ASSET_METADATA, prefix));
+	}
+
+	/**
+	 * @return the documents with this value on any MetadataThesaurusSuggested entry
+	 */
+	static Query makeSuggestedValueQuery(final String value) {
+		Objects.requireNonNull(value, "\"value\" can't to be null");
+		final var query = new BooleanQuery.Builder();
+		SUGGESTED_PATHS.forEach(path -> query.add(
+				new PrefixQuery(new Term(ASSET_METADATA, value + SEPARATOR + path + SEPARATOR)), SHOULD));
+		return query.build();
+	}
+
+	/**
+	 * @param term an ASSET_METADATA term, "value SEP classifier SEP key SEP layer"
+	 * @return the value, only if it's a MetadataThesaurusSuggested entry
+	 */
+	static Optional<String> getSuggestedValue(final String term) {
+		final var layerPos = term.lastIndexOf(SEPARATOR);
+		final var keyPos = term.lastIndexOf(SEPARATOR, layerPos - 1);
+		final var classifierPos = keyPos > 0 ? term.lastIndexOf(SEPARATOR, keyPos - 1) : -1;
+		if (classifierPos < 0
+			|| SUGGESTED_PATHS.contains(term.substring(classifierPos + 1, layerPos)) == false) {
+			return Optional.empty();
+		}
+		return Optional.of(term.substring(0, classifierPos));
+	}
+
+	/**
+	 * @return the MetadataThesaurusSuggested values added to this document
+	 */
+	static Stream<String> getSuggestedValues(final Document document) {
+		return Stream.of(document.getFields(ASSET_METADATA))
+				.map(IndexableField::stringValue)
+				.map(AssetMetadataTerms::getSuggestedValue)
+				.flatMap(Optional::stream);
+	}
+
+	/**
+	 * @param path classifier, classifier and key, or classifier, key and layer
+	 * @return the documents with any value on this path level
+	 */
+	public static Query makePathQuery(final String... path) {
+		if (path.length == 0) {
+			throw new IllegalArgumentException("Empty path");
+		} else if (path.length == MAX_PATH_LEVELS) {
+			return new TermQuery(new Term(ASSET_METADATA_PATH, makePath(path)));
+		}
+		return new PrefixQuery(new Term(ASSET_METADATA_PATH, makePath(path) + SEPARATOR));
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.Collections.unmodifiableMap;
+import static org.apache.commons.io.FilenameUtils.getExtension;
+import static org.apache.lucene.facet.FacetsConfig.DEFAULT_INDEX_FIELD_NAME;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexReader;
+
+import tv.hd3g.transfertfiles.FileAttributesReference;
+
+/**
+ * Counts by storage, mime type, extension, year and size, with SortedSetDocValues facets: no side taxonomy index,
+ * and counted during the same collect as the search hits.
+ */
+class FileFacets {
+
+	static final String STORAGE = "storage";
+	static final String MIME_TYPE = "mimeType";
+	static final String EXTENSION = "extension";
+	static final String YEAR = "year";
+	static final String SIZE = "size";
+	static final List<String> DIMENSIONS = List.of(STORAGE, MIME_TYPE, EXTENSION, YEAR, SIZE);
+	static final int MAX_VALUES_BY_DIMENSION = 20;
+
+	private static final long KB = 1024l;
+	private static final long MB = KB * 1024l;
+	private static final long GB = MB * 1024l;
+	private static final long[] SIZE_BOUNDS = { KB, MB, 100 * MB, GB, 10 * GB };
+	private static final String[] SIZE_LABELS = { "<1KB", "<1MB", "<100MB", "<1GB", "<10GB", ">=10GB" };
+
+	private final FacetsConfig config;
+	private SortedSetDocValuesReaderState readerState;
+
+	FileFacets() {
+		config = new FacetsConfig();
+		config.setMultiValued(MIME_TYPE, true);
+	}
+
+	static String sizeBucket(final long length) {
+		for (var pos = 0; pos < SIZE_BOUNDS.length; pos++) {
+			if (length < SIZE_BOUNDS[pos]) {
+				return SIZE_LABELS[pos];
+			}
+		}
+		return SIZE_LABELS[SIZE_BOUNDS.length];
+	}
+
+	void addFileFacets(final Document document, final FileAttributesReference file, final String storageName) {
+		document.add(new SortedSetDocValuesFacetField(STORAGE, storageName));
+		document.add(new SortedSetDocValuesFacetField(YEAR,
+				String.valueOf(Instant.ofEpochMilli(file.lastModified()).atZone(UTC).getYear())));
+		if (file.isDirectory()) {
+			return;
+		}
+		document.add(new SortedSetDocValuesFacetField(SIZE, sizeBucket(file.length())));
+		final var extension = getExtension(file.getName()).toLowerCase();
+		if (extension.isEmpty() == false) {
+			document.add(new SortedSetDocValuesFacetField(EXTENSION, extension));
+		}
+	}
+
+	void addMimeType(final Document document, final String mimeType) {
+		if (mimeType.isBlank() == false) {
+			document.add(new SortedSetDocValuesFacetField(MIME_TYPE, mimeType));
+		}
+	}
+
+	/**
+	 * Must be called on each document before add it to the index.
+	 */
+	Document build(final Document document) {
+		try {
+			return config.build(document);
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't build facets", e);
+		}
+	}
+
+	/**
+	 * The ordinals state is computed once by IndexReader, and kept until the next refresh.
+	 */
+	private synchronized SortedSetDocValuesReaderState getReaderState(final IndexReader reader) throws IOException {
+		if (readerState == null || readerState.getReader() != reader) {
+			readerState = new DefaultSortedSetDocValuesReaderState(reader, config);
+		}
+		return readerState;
+	}
+
+	Map<String, List<SearchFacetCount>> count(final IndexReader reader,
+											  final FacetsCollector facetsCollector) throws IOException {
+		if (FieldInfos.getMergedFieldInfos(reader).fieldInfo(DEFAULT_INDEX_FIELD_NAME) == null) {
+			return Map.of();
+		}
+
+		final var counts = new SortedSetDocValuesFacetCounts(getReaderState(reader), facetsCollector);
+		final var result = new LinkedHashMap<String, List<SearchFacetCount>>();
+		for (final var dimension : DIMENSIONS) {
+			final var facetResult = counts.getTopChildren(MAX_VALUES_BY_DIMENSION, dimension);
+			if (facetResult != null) {
+				result.put(dimension, Stream.of(facetResult.labelValues)
+						.map(lv -> new SearchFacetCount(lv.label, lv.value.intValue()))
+						.toList());
+			}
+		}
+		return unmodifiableMap(result);
+	}
+
+}
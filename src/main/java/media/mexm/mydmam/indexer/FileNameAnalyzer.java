@@ -0,0 +1,95 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.ngram.NGramTokenFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.util.CharTokenizer;
+
+/**
+ * File names words: "THIS_IS_A_tést NUM8ERS.mov" &gt; "[this, is, a, test, num, 8, ers, mov]".
+ * Not compatible with other chars than western chars.
+ * Same words as the previous String based normalization (lower case, NFKD, marks removal, and split on all but
+ * a-z/0-9): "ß", "æ", "œ", "ø" are word separators, "Größe" &gt; "[gro, e]". Changing this needs a reindex.
+ * The same analyzer is used to index and to query, by field, with a PerFieldAnalyzerWrapper.
+ */
+final class FileNameAnalyzer extends Analyzer {
+
+	private final int nGramSize;
+
+	FileNameAnalyzer() {
+		this(0);
+	}
+
+	/**
+	 * @param nGramSize if more than 0, produce all the 1 to nGramSize ngrams of each word, in place of the word:
+	 *        "abcd" &gt; "[a, b, c, d, ab, bc, cd, abc, bcd]"
+	 */
+	FileNameAnalyzer(final int nGramSize) {
+		if (nGramSize < 0) {
+			throw new IllegalArgumentException("Invalid nGramSize=" + nGramSize);
+		}
+		this.nGramSize = nGramSize;
+	}
+
+	@Override
+	protected TokenStreamComponents createComponents(final String fieldName) {
+		final var tokenizer = CharTokenizer.fromSeparatorCharPredicate(Character::isWhitespace);
+		TokenStream stream = new LowerCaseFilter(tokenizer);
+		stream = new NfkdFoldingFilter(stream);
+		stream = new LetterDigitSplitFilter(stream);
+		if (nGramSize > 0) {
+			stream = new NGramTokenFilter(stream, 1, nGramSize, false);
+		}
+		return new TokenStreamComponents(tokenizer, stream);
+	}
+
+	@Override
+	protected TokenStream normalize(final String fieldName, final TokenStream in) {
+		return new NfkdFoldingFilter(new LowerCaseFilter(in));
+	}
+
+	/**
+	 * For query time only.
+	 */
+	static List<String> analyze(final Analyzer analyzer, final String field, final String text) {
+		if (text == null || text.isBlank()) {
+			return List.of();
+		}
+		final var result = new ArrayList<String>();
+		try (final var stream = analyzer.tokenStream(field, text)) {
+			final var termAttribute = stream.addAttribute(CharTermAttribute.class);
+			stream.reset();
+			while (stream.incrementToken()) {
+				result.add(termAttribute.toString());
+			}
+			stream.end();
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't analyze \"" + text + "\"", e);
+		}
+		return result;
+	}
+
+}
@@ -22,9 +22,9 @@ import static media.mexm.mydmam.indexer.NamedIndexField.FILE_HIDDEN;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_LENGTH;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_LINK;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_PARENT_HASH_PATH;
-import static media.mexm.mydmam.indexer.NamedIndexField.FILE_PARENT_PATH;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_SPECIAL;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_STORAGE;
+import static media.mexm.mydmam.indexer.RealmIndexer.makeSubtreeQuery;
 import static media.mexm.mydmam.indexer.SearchConstraintCondition.IGNORE;
 import static org.apache.lucene.document.IntField.newExactQuery;
 import static org.apache.lucene.search.BooleanClause.Occur.MUST;
@@ -34,7 +34,6 @@ import java.util.List;
 
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.TermQuery;
 
 import jakarta.annotation.Nullable;
@@ -48,7 +47,8 @@ public record FileSearchConstraints(@NotNull SearchConstraintCondition directory
 									@NotNull SearchConstraintRange size,
 									@NotNull List<String> storages,
 									@Nullable String parentPath,
-									@Nullable String parentHashPath) {
+									@Nullable String parentHashPath,
+									@Nullable List<SearchConstraintMetadataRange> metadataRanges) {
 
 	void apply(final BooleanQuery.Builder booleanQuery) {
 		if (directory != IGNORE) {
@@ -73,10 +73,14 @@ public record FileSearchConstraints(@NotNull SearchConstraintCondition directory
 		}
 
 		if (parentPath != null && parentPath.isEmpty() == false) {
-			booleanQuery.add(new PrefixQuery(new Term(FILE_PARENT_PATH, parentPath)), MUST);
+			booleanQuery.add(makeSubtreeQuery(parentPath), MUST);
 		} else if (parentHashPath != null && parentHashPath.isEmpty() == false) {
 			booleanQuery.add(new TermQuery(new Term(FILE_PARENT_HASH_PATH, parentHashPath)), MUST);
 		}
+
+		if (metadataRanges != null) {
+			metadataRanges.forEach(range -> range.apply(booleanQuery));
+		}
 	}
 
 }
@@ -18,12 +18,15 @@ package media.mexm.mydmam.indexer;
 
 import static java.lang.Float.compare;
 
+import jakarta.annotation.Nullable;
+
 public record FileSearchResult(String hashPath,
 							   String storage,
 							   String name,
 							   String parentPath,
 							   float score,
-							   String explain) implements
+							   @Nullable String explain,
+							   @Nullable String highlight) implements
 							  Comparable<FileSearchResult> {
 
 	@Override
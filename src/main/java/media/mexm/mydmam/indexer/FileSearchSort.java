@@ -0,0 +1,95 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_DATE;
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_DIRECTORY;
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_HASH_PATH;
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_LENGTH;
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_NAME;
+import static media.mexm.mydmam.tools.SortOrder.desc;
+import static media.mexm.mydmam.tools.SortOrder.none;
+import static org.apache.lucene.search.SortField.FIELD_SCORE;
+import static org.apache.lucene.search.SortField.Type.INT;
+import static org.apache.lucene.search.SortField.Type.LONG;
+import static org.apache.lucene.search.SortField.Type.STRING;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+
+import jakarta.validation.constraints.NotNull;
+import media.mexm.mydmam.tools.SortOrder;
+
+/**
+ * All none = by relevance.
+ */
+public record FileSearchSort(@NotNull SortOrder name,
+							 @NotNull SortOrder type,
+							 @NotNull SortOrder date,
+							 @NotNull SortOrder size) {
+
+	public static final FileSearchSort RELEVANCE = new FileSearchSort(none, none, none, none);
+	/**
+	 * Also used as index sort on realms sorted by date.
+	 */
+	public static final FileSearchSort RECENT = new FileSearchSort(none, none, desc, none);
+
+	private static final SortField HASH_PATH_TIEBREAK = new SortField(FILE_HASH_PATH, STRING);
+
+	public boolean byRelevance() {
+		return Stream.of(name, type, date, size).allMatch(none::equals);
+	}
+
+	/**
+	 * Always ends by the unique hashPath as tiebreak: a stable order for cursors.
+	 * Only the relevance sort needs to compute scores.
+	 */
+	Sort makeSort() {
+		if (byRelevance()) {
+			return new Sort(FIELD_SCORE, HASH_PATH_TIEBREAK);
+		}
+		return new Sort(Stream.of(
+				makeNumericSortField(type, FILE_DIRECTORY, INT),
+				makeNumericSortField(date, FILE_DATE, LONG),
+				makeNumericSortField(size, FILE_LENGTH, LONG),
+				makeNameSortField(),
+				Optional.of(HASH_PATH_TIEBREAK))
+				.flatMap(Optional::stream)
+				.toArray(SortField[]::new));
+	}
+
+	private static Optional<SortField> makeNumericSortField(final SortOrder order,
+															final String field,
+															final SortField.Type type) {
+		if (order == none) {
+			return Optional.empty();
+		}
+		return Optional.of(new SortedNumericSortField(field, type, order == desc));
+	}
+
+	private Optional<SortField> makeNameSortField() {
+		if (name == none) {
+			return Optional.empty();
+		}
+		return Optional.of(new SortField(FILE_NAME, STRING, name == desc));
+	}
+
+}
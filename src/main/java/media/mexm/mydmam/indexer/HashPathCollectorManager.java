@@ -0,0 +1,83 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.util.Objects.requireNonNull;
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_HASH_PATH;
+import static org.apache.lucene.search.ScoreMode.COMPLETE_NO_SCORES;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+/**
+ * Non-scoring and streamed collect of the founded hashPaths, read from doc values: no priority queue,
+ * no stored fields loading. With a search executor, the consumer is called by the search threads, but never
+ * concurrently.
+ */
+class HashPathCollectorManager implements CollectorManager<Collector, Void> {
+
+	private final Consumer<String> onHashPath;
+
+	HashPathCollectorManager(final Consumer<String> onHashPath) {
+		this.onHashPath = requireNonNull(onHashPath, "\"onHashPath\" can't to be null");
+	}
+
+	private synchronized void push(final String hashPath) {
+		onHashPath.accept(hashPath);
+	}
+
+	@Override
+	public Collector newCollector() {
+		return new SimpleCollector() {
+
+			private SortedDocValues hashPaths;
+
+			@Override
+			protected void doSetNextReader(final LeafReaderContext context) throws IOException {
+				hashPaths = DocValues.getSorted(context.reader(), FILE_HASH_PATH);
+			}
+
+			@Override
+			public void collect(final int doc) throws IOException {
+				if (hashPaths.advanceExact(doc)) {
+					push(hashPaths.lookupOrd(hashPaths.ordValue()).utf8ToString());
+				}
+			}
+
+			@Override
+			public ScoreMode scoreMode() {
+				return COMPLETE_NO_SCORES;
+			}
+
+		};
+	}
+
+	@Override
+	public Void reduce(final Collection<Collector> collectors) {
+		return null;
+	}
+
+}
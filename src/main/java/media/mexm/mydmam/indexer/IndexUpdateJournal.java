@@ -0,0 +1,219 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of the hashPaths with a not yet committed document update (queued in a DelayedSync), one by
+ * line. After a crash, the journal content is loaded as "to replay": the callers should update again these
+ * documents, then call endReplay.
+ * The appends are grouped on disk by a background sync each SYNC_INTERVAL_MILLIS: the callers never wait a fsync,
+ * and a crash can lose the last interval appends.
+ * The committed hashPaths stay in the journal (and would be replayed after a crash) until the next compaction, done
+ * when the journal is at least COMPACT_MIN_SIZE and twice its last compacted size, to only keep the pending and to
+ * replay hashPaths.
+ * Threadsafe.
+ */
+@Slf4j
+class IndexUpdateJournal {
+
+	static final long SYNC_INTERVAL_MILLIS = 100;
+	static final long COMPACT_MIN_SIZE = 1024l * 1024l;
+
+	private final File journalFile;
+	private final File compactFile;
+	/**
+	 * Appended minus committed, by hashPath. A commit can be counted before its append.
+	 */
+	private final Map<String, Integer> pending;
+	private final Set<String> toReplay;
+	private final ScheduledExecutorService syncExecutor;
+	private FileChannel channel;
+	private long size;
+	private long compactedSize;
+	private boolean notSynced;
+
+	IndexUpdateJournal(final File journalFile) throws IOException {
+		this.journalFile = journalFile;
+		compactFile = new File(journalFile.getParentFile(), journalFile.getName() + ".compact");
+		pending = new HashMap<>();
+		toReplay = new LinkedHashSet<>();
+
+		if (journalFile.exists()) {
+			final var content = Files.readString(journalFile.toPath(), UTF_8);
+			final var lines = content.split("\n");
+			/**
+			 * A not ended last line is a not ended write
+			 */
+			final var validLines = content.endsWith("\n") ? lines.length : lines.length - 1;
+			for (var pos = 0; pos < validLines; pos++) {
+				if (lines[pos].isBlank() == false) {
+					toReplay.add(lines[pos]);
+				}
+			}
+			if (toReplay.isEmpty() == false) {
+				log.warn("{} not committed index update(s) to replay from \"{}\"", toReplay.size(), journalFile);
+			}
+		}
+		rewrite();
+
+		syncExecutor = Executors.newSingleThreadScheduledExecutor(
+				Thread.ofPlatform().name("index-journal-sync").daemon().factory());
+		syncExecutor.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, MILLISECONDS);
+	}
+
+	private static Integer sumOrRemove(final Integer count, final Integer delta) {
+		final var result = count + delta;
+		return result == 0 ? null : result;
+	}
+
+	/**
+	 * Written, but not synced on disk.
+	 */
+	synchronized void append(final String hashPath) {
+		pending.merge(hashPath, 1, IndexUpdateJournal::sumOrRemove);
+		final var line = (hashPath + "\n").getBytes(UTF_8);
+		try {
+			channel.write(ByteBuffer.wrap(line));
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't write to journal " + journalFile, e);
+		}
+		size += line.length;
+		notSynced = true;
+	}
+
+	/**
+	 * Force on disk the last appends, outside the lock: the appends can continue during the fsync.
+	 */
+	private void sync() {
+		final FileChannel toSync;
+		synchronized (this) {
+			if (notSynced == false) {
+				return;
+			}
+			notSynced = false;
+			toSync = channel;
+		}
+		try {
+			toSync.force(false);
+		} catch (final ClosedChannelException e) {
+			/**
+			 * Closed by a compaction, which has synced all the content
+			 */
+		} catch (final IOException e) {
+			log.error("Can't sync journal {}", journalFile, e);
+		}
+	}
+
+	/**
+	 * @param hashPaths now committed in the index
+	 */
+	synchronized void committed(final Collection<String> hashPaths) {
+		hashPaths.forEach(hashPath -> pending.merge(hashPath, -1, IndexUpdateJournal::sumOrRemove));
+		if (size >= COMPACT_MIN_SIZE && size >= compactedSize * 2) {
+			compact();
+		}
+	}
+
+	synchronized Set<String> getToReplay() {
+		return Set.copyOf(toReplay);
+	}
+
+	/**
+	 * Call it after all the getToReplay() hashPaths are updated again (and journaled again).
+	 */
+	synchronized void endReplay() {
+		toReplay.clear();
+		compact();
+	}
+
+	synchronized int size() {
+		return (int) pending.values().stream().filter(count -> count > 0).count() + toReplay.size();
+	}
+
+	private void compact() {
+		try {
+			channel.close();
+			rewrite();
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't compact journal " + journalFile, e);
+		}
+	}
+
+	/**
+	 * Write all the pending and to replay hashPaths in a side file, and atomically replace the journal by it.
+	 */
+	private void rewrite() throws IOException {
+		final var sb = new StringBuilder();
+		toReplay.forEach(hashPath -> sb.append(hashPath).append('\n'));
+		pending.entrySet().stream()
+				.filter(entry -> entry.getValue() > 0)
+				.map(Map.Entry::getKey)
+				.filter(hashPath -> toReplay.contains(hashPath) == false)
+				.forEach(hashPath -> sb.append(hashPath).append('\n'));
+		final var content = sb.toString().getBytes(UTF_8);
+
+		try (final var compactChannel = FileChannel.open(compactFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+			compactChannel.write(ByteBuffer.wrap(content));
+			compactChannel.force(true);
+		}
+		Files.move(compactFile.toPath(), journalFile.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+		channel = FileChannel.open(journalFile.toPath(), CREATE, WRITE, APPEND);
+		size = content.length;
+		compactedSize = content.length;
+		notSynced = false;
+	}
+
+	/**
+	 * Compact before closing: after a clean stop, only the not committed hashPaths are kept.
+	 */
+	synchronized void close() {
+		syncExecutor.shutdown();
+		compact();
+		try {
+			channel.close();
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't close journal " + journalFile, e);
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+/**
+ * A search request input can't be used as is (like a non-valid cursor, or a cursor made for another sort).
+ * Checked before running the search: any other exception during the search is not the caller fault.
+ */
+public class InvalidSearchRequestException extends IllegalArgumentException {
+
+	public InvalidSearchRequestException(final String message) {
+		super(message);
+	}
+
+	public InvalidSearchRequestException(final String message, final Throwable cause) {
+		super(message, cause);
+	}
+
+}
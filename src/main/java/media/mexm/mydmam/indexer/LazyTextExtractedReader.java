@@ -0,0 +1,73 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.NoSuchFileException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open the source on the first read, as Lucene consume this Reader on (delayed) write time.
+ * A missing source is read as empty.
+ */
+@Slf4j
+class LazyTextExtractedReader extends Reader {
+
+	private final TextExtractedSource source;
+	private Reader reader;
+
+	LazyTextExtractedReader(final TextExtractedSource source) {
+		this.source = requireNonNull(source, "\"source\" can't to be null");
+	}
+
+	static Reader openOrEmpty(final TextExtractedSource source) throws IOException {
+		try {
+			return source.open();
+		} catch (final FileNotFoundException | NoSuchFileException e) {
+			log.warn("Can't found text extracted source, ignore it: {}", e.getMessage());
+			return nullReader();
+		}
+	}
+
+	/**
+	 * @return a new not opened reader on the same source
+	 */
+	LazyTextExtractedReader copy() {
+		return new LazyTextExtractedReader(source);
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		if (reader == null) {
+			reader = openOrEmpty(source);
+		}
+		return reader.read(cbuf, off, len);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (reader != null) {
+			reader.close();
+		}
+	}
+
+}
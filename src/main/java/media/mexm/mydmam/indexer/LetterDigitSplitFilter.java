@@ -0,0 +1,143 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * After a lower case and a NfkdFoldingFilter: split each token on the letters/digits changes, and on all the chars
+ * other than a-z and 0-9. The combining marks are removed. "num8ers" &gt; "[num, 8, ers]".
+ * The sub-tokens are copied from the source token buffer, without intermediate String.
+ */
+final class LetterDigitSplitFilter extends TokenFilter {
+
+	private static final int LETTER = 1;
+	private static final int DIGIT = 2;
+	private static final int MARK = 3;
+	private static final int OTHER = 0;
+
+	private final CharTermAttribute termAttribute;
+	private final PositionIncrementAttribute positionIncrementAttribute;
+
+	private char[] buffer;
+	private int length;
+	private int position;
+	private int pendingPositionIncrement;
+	private boolean firstOfSource;
+	private State sourceState;
+
+	LetterDigitSplitFilter(final TokenStream input) {
+		super(input);
+		termAttribute = addAttribute(CharTermAttribute.class);
+		positionIncrementAttribute = addAttribute(PositionIncrementAttribute.class);
+		buffer = new char[64];
+	}
+
+	static boolean isMark(final int codePoint) {
+		final var type = Character.getType(codePoint);
+		return type == Character.NON_SPACING_MARK
+			   || type == Character.COMBINING_SPACING_MARK
+			   || type == Character.ENCLOSING_MARK;
+	}
+
+	private static int charType(final char c) {
+		if (c >= 'a' && c <= 'z') {
+			return LETTER;
+		} else if (c >= '0' && c <= '9') {
+			return DIGIT;
+		} else if (isMark(c)) {
+			return MARK;
+		}
+		return OTHER;
+	}
+
+	private static boolean isWordChar(final char c) {
+		final var type = charType(c);
+		return type == LETTER || type == DIGIT;
+	}
+
+	@Override
+	public boolean incrementToken() throws IOException {
+		while (true) {
+			if (sourceState == null) {
+				if (input.incrementToken() == false) {
+					return false;
+				}
+				length = termAttribute.length();
+				buffer = ArrayUtil.grow(buffer, length);
+				System.arraycopy(termAttribute.buffer(), 0, buffer, 0, length);
+				position = 0;
+				pendingPositionIncrement += positionIncrementAttribute.getPositionIncrement();
+				firstOfSource = true;
+				sourceState = captureState();
+			}
+
+			while (position < length && isWordChar(buffer[position]) == false) {
+				position++;
+			}
+			if (position == length) {
+				sourceState = null;
+				continue;
+			}
+
+			restoreState(sourceState);
+			termAttribute.setEmpty();
+			final var type = charType(buffer[position]);
+			while (position < length) {
+				final var currentType = charType(buffer[position]);
+				if (currentType == type) {
+					termAttribute.append(buffer[position]);
+				} else if (currentType != MARK) {
+					break;
+				}
+				position++;
+			}
+			if (firstOfSource) {
+				positionIncrementAttribute.setPositionIncrement(pendingPositionIncrement);
+				pendingPositionIncrement = 0;
+				firstOfSource = false;
+			} else {
+				positionIncrementAttribute.setPositionIncrement(1);
+			}
+			return true;
+		}
+	}
+
+	@Override
+	public void end() throws IOException {
+		super.end();
+		positionIncrementAttribute.setPositionIncrement(positionIncrementAttribute.getPositionIncrement()
+														+ pendingPositionIncrement);
+	}
+
+	@Override
+	public void reset() throws IOException {
+		super.reset();
+		sourceState = null;
+		length = 0;
+		position = 0;
+		pendingPositionIncrement = 0;
+		firstOfSource = false;
+	}
+
+}
@@ -36,10 +36,16 @@ public final class NamedIndexField {
     public static final String FILE_LENGTH = new NamedIndexField(FILE, "length").toString();
     public static final String FILE_NAME = new NamedIndexField(FILE, "name").toString();
     public static final String FILE_BASE_NAME = new NamedIndexField(FILE, "baseName").toString();
+    public static final String FILE_BASE_NAME_NGRAM = new NamedIndexField(FILE, "baseNameNGram").toString();
     public static final String FILE_HASH_PATH = new NamedIndexField(FILE, "hashPath").toString();
     public static final String FILE_PARENT_PATH = new NamedIndexField(FILE, "parentPath").toString();
     public static final String FILE_PARENT_HASH_PATH = new NamedIndexField(FILE, "parentHashPath").toString();
+    public static final String FILE_ANCESTORS = new NamedIndexField(FILE, "ancestors").toString();
     public static final String ASSET_FULL_TEXT = new NamedIndexField(ASSET, "full-text").toString();
+    public static final String ASSET_FULL_TEXT_EXCERPT = new NamedIndexField(ASSET, "full-text-excerpt").toString();
+    public static final String ASSET_METADATA = new NamedIndexField(ASSET, "metadata").toString();
+    public static final String ASSET_METADATA_PATH = new NamedIndexField(ASSET, "metadata-path").toString();
+    public static final NamedIndexField ASSET_METADATA_NUMERIC = new NamedIndexField(ASSET, "numeric");
 
     private final Optional<NamedIndexField> oParent;
     private final String name;
@@ -0,0 +1,77 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.text.Normalizer.Form.NFKD;
+import static media.mexm.mydmam.indexer.LetterDigitSplitFilter.isMark;
+
+import java.io.IOException;
+import java.text.Normalizer;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+/**
+ * NFKD decomposition, and removal of the combining marks, as TechnicalName does: "tést" &gt; "test", "ﬁ" &gt; "fi".
+ * Unlike an ASCII folding, the letters without decomposition are kept as is: "ß", "æ", "œ" and "ø" are not
+ * replaced by "ss", "ae", "oe" and "o".
+ * The pure ASCII tokens are left untouched, without intermediate String.
+ */
+final class NfkdFoldingFilter extends TokenFilter {
+
+	private final CharTermAttribute termAttribute;
+
+	NfkdFoldingFilter(final TokenStream input) {
+		super(input);
+		termAttribute = addAttribute(CharTermAttribute.class);
+	}
+
+	private boolean isAscii() {
+		final var buffer = termAttribute.buffer();
+		for (var pos = 0; pos < termAttribute.length(); pos++) {
+			if (buffer[pos] >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean incrementToken() throws IOException {
+		if (input.incrementToken() == false) {
+			return false;
+		}
+		if (isAscii()) {
+			return true;
+		}
+
+		final var decomposed = Normalizer.normalize(termAttribute, NFKD);
+		termAttribute.setEmpty();
+		var pos = 0;
+		while (pos < decomposed.length()) {
+			final var codePoint = decomposed.codePointAt(pos);
+			final var next = pos + Character.charCount(codePoint);
+			if (isMark(codePoint) == false) {
+				termAttribute.append(decomposed, pos, next);
+			}
+			pos = next;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.util.Objects.requireNonNull;
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_HASH_PATH;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import lombok.extern.slf4j.Slf4j;
+import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.entity.FileMetadataEntity;
+
+/**
+ * A full index rebuild, side by side with the index which still serves the searches, until the swap.
+ * All the writes done on the serving index during the rebuild are also done here, to not lose them on the swap.
+ * The deletes are also applied again after the swap: an add() can re-add a file deleted after it was read.
+ * Resumable after a stop from the last checkpoint (the last file id with all the previous ones indexed).
+ */
+@Slf4j
+public class RealmIndexRebuild {
+
+	static final String CHECKPOINT_KEY = "mydmam.rebuild.checkpoint";
+
+	private final RealmIndexer realmIndexer;
+	private final File indexDir;
+	private final Directory directory;
+	private final IndexWriter writer;
+	private final int checkpoint;
+	/**
+	 * Only for this run: a resumed rebuild can't apply again the deletes done before its stop.
+	 */
+	private final Set<String> deletedHashPaths;
+	private boolean allDeleted;
+
+	RealmIndexRebuild(final RealmIndexer realmIndexer,
+					  final File indexDir,
+					  final IndexWriterConfig writerConfig) throws IOException {
+		this.realmIndexer = requireNonNull(realmIndexer, "\"realmIndexer\" can't to be null");
+		this.indexDir = requireNonNull(indexDir, "\"indexDir\" can't to be null");
+		forceMkdir(indexDir);
+		directory = FSDirectory.open(indexDir.toPath());
+		writer = new IndexWriter(directory, writerConfig);
+
+		var lastCheckpoint = 0;
+		final var commitData = writer.getLiveCommitData();
+		if (commitData != null) {
+			for (final var entry : commitData) {
+				if (entry.getKey().equals(CHECKPOINT_KEY)) {
+					lastCheckpoint = Integer.parseInt(entry.getValue());
+				}
+			}
+		}
+		checkpoint = lastCheckpoint;
+		deletedHashPaths = new HashSet<>();
+		log.info("Open rebuild Lucene index on \"{}\", from checkpoint {}", indexDir, checkpoint);
+	}
+
+	/**
+	 * @return the last file id saved with checkpoint(), 0 for a new rebuild
+	 */
+	public int getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * Thread safe.
+	 */
+	public void add(final FileEntity fileEntity,
+					final Collection<FileMetadataEntity> fileMetadataEntites,
+					final Collection<TextExtractedSource> texts) {
+		final var document = realmIndexer.makeAssetDocument(fileEntity, fileMetadataEntites, texts);
+		try {
+			writer.updateDocument(new Term(FILE_HASH_PATH, fileEntity.getHashPath()), document);
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't write to rebuild Lucene index on " + indexDir, e);
+		}
+	}
+
+	/**
+	 * @param lastFileId all the files with an id lower or equals are now indexed
+	 */
+	public synchronized void checkpoint(final int lastFileId) {
+		try {
+			writer.setLiveCommitData(Map.of(CHECKPOINT_KEY, String.valueOf(lastFileId)).entrySet());
+			writer.commit();
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't commit rebuild Lucene index on " + indexDir, e);
+		}
+	}
+
+	/**
+	 * Replay a write done on the serving index.
+	 * @param cWriter must make new documents, and not reuse the ones written on the serving index
+	 */
+	synchronized void apply(final LuceneWriterConsumer cWriter) throws IOException {
+		cWriter.accept(writer);
+		writer.commit();
+	}
+
+	/**
+	 * @param hashPaths deleted from the serving index during the rebuild
+	 */
+	synchronized void deleted(final Collection<String> hashPaths) {
+		deletedHashPaths.addAll(hashPaths);
+	}
+
+	/**
+	 * All the file documents were deleted from the serving index during the rebuild.
+	 */
+	synchronized void allDeleted() {
+		allDeleted = true;
+	}
+
+	/**
+	 * After closeWriter(), just before the swap.
+	 * @return the terms to delete again after the swap: the ones deleted during the rebuild, and still absent from the
+	 *         serving index (not added again since).
+	 */
+	synchronized Term[] getDeletesToReplay(final IndexSearcher servingSearcher) throws IOException {
+		final var hashPaths = new HashSet<>(deletedHashPaths);
+		if (allDeleted) {
+			try (final var reader = DirectoryReader.open(directory)) {
+				RealmIndexer.forEachTerm(reader, FILE_HASH_PATH, (hashPath, _) -> hashPaths.add(hashPath));
+			}
+		}
+
+		final var result = new ArrayList<Term>();
+		for (final var hashPath : hashPaths) {
+			final var term = new Term(FILE_HASH_PATH, hashPath);
+			if (servingSearcher.count(new TermQuery(term)) == 0) {
+				result.add(term);
+			}
+		}
+		if (result.isEmpty() == false) {
+			log.info("Delete again {} document(s) deleted during the rebuild on \"{}\"", result.size(), indexDir);
+		}
+		return result.toArray(Term[]::new);
+	}
+
+	Directory getDirectory() {
+		return directory;
+	}
+
+	synchronized void closeWriter() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Keep the rebuild index on disk, for a later resume.
+	 */
+	void close() throws IOException {
+		closeWriter();
+		directory.close();
+	}
+
+	/**
+	 * After closeWriter() and the swap.
+	 */
+	void delete() throws IOException {
+		directory.close();
+		deleteDirectory(indexDir);
+		log.info("Rebuild Lucene index on \"{}\" is now deleted", indexDir);
+	}
+
+}
@@ -16,19 +16,26 @@
  */
 package media.mexm.mydmam.indexer;
 
-import static java.lang.Character.isWhitespace;
-import static java.lang.Integer.MAX_VALUE;
-import static java.text.Normalizer.normalize;
-import static java.text.Normalizer.Form.NFKD;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
-import static media.mexm.mydmam.App.REPLACE_NORMALIZED;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static media.mexm.mydmam.entity.FileEntity.hashPath;
-import static media.mexm.mydmam.indexer.NamedIndexField.ASSET;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.addMetadata;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.getSuggestedValues;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.makeSuggestedValueQuery;
+import static media.mexm.mydmam.indexer.FileNameAnalyzer.analyze;
+import static media.mexm.mydmam.indexer.FileSearchSort.RECENT;
+import static media.mexm.mydmam.indexer.FileSearchSort.RELEVANCE;
+import static media.mexm.mydmam.indexer.LazyTextExtractedReader.openOrEmpty;
 import static media.mexm.mydmam.indexer.NamedIndexField.ASSET_FULL_TEXT;
+import static media.mexm.mydmam.indexer.NamedIndexField.ASSET_FULL_TEXT_EXCERPT;
+import static media.mexm.mydmam.indexer.NamedIndexField.ASSET_METADATA;
 import static media.mexm.mydmam.indexer.NamedIndexField.DOCUMENT_TYPE;
 import static media.mexm.mydmam.indexer.NamedIndexField.DOCUMENT_TYPE_FILE;
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_ANCESTORS;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_BASE_NAME;
+import static media.mexm.mydmam.indexer.NamedIndexField.FILE_BASE_NAME_NGRAM;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_DATE;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_DIRECTORY;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_HASH_PATH;
@@ -41,8 +48,11 @@ import static media.mexm.mydmam.indexer.NamedIndexField.FILE_PARENT_PATH;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_SPECIAL;
 import static media.mexm.mydmam.indexer.NamedIndexField.FILE_STORAGE;
 import static media.mexm.mydmam.indexer.SearchConstraintCondition.IGNORE;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
 import static org.apache.commons.io.FileUtils.forceMkdir;
+import static org.apache.commons.io.FileUtils.moveDirectory;
 import static org.apache.commons.io.FilenameUtils.getBaseName;
+import static org.apache.commons.io.IOUtils.read;
 import static org.apache.lucene.document.Field.Store.NO;
 import static org.apache.lucene.document.Field.Store.YES;
 import static org.apache.lucene.document.IntField.newExactQuery;
@@ -52,182 +62,443 @@ import static org.apache.lucene.search.BooleanClause.Occur.SHOULD;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.index.CodecReader;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.QueryTimeoutImpl;
+import org.apache.lucene.index.SlowCodecReaderWrapper;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.FuzzyQuery;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollectorManager;
 import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.QueryBuilder;
 
 import lombok.extern.slf4j.Slf4j;
+import media.mexm.mydmam.configuration.RealmIndexConf;
 import media.mexm.mydmam.entity.FileEntity;
 import media.mexm.mydmam.entity.FileMetadataEntity;
+import media.mexm.mydmam.mtdthesaurus.MetadataThesaurusClassifier;
+import media.mexm.mydmam.mtdthesaurus.MtdThesaurusDefDublinCore;
 import media.mexm.mydmam.tools.DelayedSync;
 import media.mexm.mydmam.tools.DelayedSyncConfiguration;
+import media.mexm.mydmam.tools.DelayedSyncStats;
 import tv.hd3g.jobkit.watchfolder.WatchedFiles;
 import tv.hd3g.transfertfiles.FileAttributesReference;
 
 @Slf4j
 public class RealmIndexer {
 
-    private static final Pattern REMOVE_NON_VALID_CHARS = Pattern.compile("[^a-z0-9]+"); // NOSONAR S5869
+    /**
+     * Max substring size indexed for each base name word.
+     */
+    static final int NGRAM_SIZE = 3;
+    /**
+     * Version of the fields needed by the searches on all the file documents, stamped in the index commit user data.
+     * 1: FILE_ANCESTORS terms and FILE_HASH_PATH doc values. Bump it when a search needs a new field on all documents:
+     * the older indexes will be fully rebuilt on open.
+     */
+    static final int INDEX_FORMAT_VERSION = 1;
+    static final String INDEX_FORMAT_VERSION_KEY = "mydmam.index.format";
+    /**
+     * Indexed like a StringField, but with the words and the ngrams from the FileNameAnalyzer.
+     */
+    private static final FieldType FILE_NAME_WORDS_TYPE = new FieldType(StringField.TYPE_NOT_STORED);
+
+    static {
+        FILE_NAME_WORDS_TYPE.setTokenized(true);
+        FILE_NAME_WORDS_TYPE.freeze();
+    }
+    private static final int FULL_TEXT_MAX_PASSAGES = 3;
+    private static final int EXPENSIVE_WILDCARD_MAX_LITERAL_CHARS = 3;
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+    private static final long SUGGESTIONS_UPDATE_INTERVAL_MILLIS = 1000;
+    private static final String MIME_TYPE_CLASSIFIER = MtdThesaurusDefDublinCore.class
+            .getAnnotation(MetadataThesaurusClassifier.class).value();
+    private static final String MIME_TYPE_KEY = "format";
 
     private final String realmName;
     private final File indexDir;
     private final Directory fsDirectoryIndex;
-    private final StandardAnalyzer analyzer;
+    private final Analyzer analyzer;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
     private final boolean computeExplainOnResults;
     private final DelayedSync<UpdateDocument> delayedSyncDocument;
+    private final SearchResultCache searchResultCache;
+    private final FileFacets fileFacets;
+    private final ExecutorService searchExecutor;
+    private final SearchLatencyMeter searchLatencyMeter;
+    private final boolean sortedByDate;
+    private final File rebuildIndexDir;
+    private final Object writeLock;
+    private final IndexUpdateJournal journal;
+    private final RealmSuggester suggester;
+    /**
+     * Texts written since the last suggestions update.
+     */
+    private final Set<String> pendingSuggestions;
+    private final Object suggestionsLock;
+    private final ScheduledExecutorService suggestionsExecutor;
+    private final int searchTimeoutMillis;
+    private final int maxConcurrentSearches;
+    private final int searchQueueTimeoutMillis;
+    /**
+     * Stored text size by extracted text, used only for highlight snippets.
+     */
+    private final int fullTextExcerptSize;
+    private final Semaphore searchPermits;
+    private final AtomicInteger activeSearches;
+    private volatile RealmIndexRebuild currentRebuild;
 
     public RealmIndexer(final String realmName,
                         final File workingDir,
                         final boolean computeExplainOnResults,
-                        final DelayedSyncConfiguration delayedSyncConfiguration) throws IOException {
+                        final DelayedSyncConfiguration delayedSyncConfiguration,
+                        final RealmIndexConf indexConf) throws IOException {
         this.realmName = realmName;
         indexDir = new File(workingDir, "index");
+        rebuildIndexDir = new File(workingDir, "index-rebuild");
+        writeLock = new Object();
+        journal = new IndexUpdateJournal(new File(workingDir, "index-journal.log"));
         this.computeExplainOnResults = computeExplainOnResults;
+        requireNonNull(indexConf, "\"indexConf\" can't to be null");
+        searchResultCache = new SearchResultCache(indexConf.searchCacheMaxMemory() * 1024l * 1024l);
+        fileFacets = new FileFacets();
+        searchLatencyMeter = new SearchLatencyMeter(indexConf.searchThreads());
+        if (indexConf.searchThreads() > 0) {
+            searchExecutor = Executors.newFixedThreadPool(indexConf.searchThreads(),
+                    Thread.ofPlatform().name("search-" + realmName + "-", 0).daemon().factory());
+        } else {
+            searchExecutor = null;
+        }
+        searchTimeoutMillis = indexConf.searchTimeoutMillis();
+        maxConcurrentSearches = indexConf.maxConcurrentSearches();
+        searchQueueTimeoutMillis = indexConf.searchQueueTimeoutMillis();
+        fullTextExcerptSize = indexConf.fullTextExcerptSize();
+        searchPermits = maxConcurrentSearches > 0 ? new Semaphore(maxConcurrentSearches, true) : null;
+        activeSearches = new AtomicInteger();
 
         forceMkdir(indexDir);
+        analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(), Map.of(
+                FILE_BASE_NAME, new FileNameAnalyzer(),
+                FILE_BASE_NAME_NGRAM, new FileNameAnalyzer(NGRAM_SIZE)));
+        sortedByDate = indexConf.sortedByDate();
+        final var writerConfig = makeWriterConfig();
+        if (sortedByDate) {
+            migrateToIndexSort(writerConfig.getIndexSort());
+        }
         fsDirectoryIndex = FSDirectory.open(indexDir.toPath());
-        analyzer = new StandardAnalyzer();
+
+        log.info("Open Lucene index on \"{}\" in write mode", indexDir);
+        writer = new IndexWriter(fsDirectoryIndex, writerConfig);
+        if (rebuildIndexDir.exists()) {
+            /**
+             * Keep the stopped rebuild up to date with the next writes, until it's resumed.
+             */
+            currentRebuild = new RealmIndexRebuild(this, rebuildIndexDir, makeWriterConfig());
+            log.warn("An index rebuild was not ended for realm {}, it will be resumed", realmName);
+        }
+        if (writer.getDocStats().numDocs == 0) {
+            stampIndexFormat(writer);
+        } else if (getIndexFormatVersion(writer) < INDEX_FORMAT_VERSION && currentRebuild == null) {
+            /**
+             * A rescan doesn't rewrite the unchanged files: only a rebuild can add the missing fields.
+             */
+            currentRebuild = new RealmIndexRebuild(this, rebuildIndexDir, makeWriterConfig());
+            log.warn("Index for realm {} is in an older format (v{}), start a full index rebuild",
+                    realmName, getIndexFormatVersion(writer));
+        }
+        searcherManager = new SearcherManager(writer, new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(final IndexReader reader,
+                                             final IndexReader previousReader) throws IOException {
+                return new IndexSearcher(reader, searchExecutor);
+            }
+        });
+
+        final var suggestDir = new File(workingDir, "suggest");
+        forceMkdir(suggestDir);
+        suggester = new RealmSuggester(suggestDir);
+        pendingSuggestions = ConcurrentHashMap.newKeySet();
+        suggestionsLock = new Object();
+        if (suggester.isEmpty()) {
+            rebuildSuggester();
+        }
 
         delayedSyncDocument = new DelayedSync<>(
                 requireNonNull(delayedSyncConfiguration, "\"delayedSyncConfiguration\" can't to be null"),
-                updateDocumentList -> write(
-                        writer -> {
-                            log.debug("Update {} document(s) in \"{}\" Lucene index",
-                                    updateDocumentList.size(), indexDir);
-                            for (final var docUpd : updateDocumentList) {
-                                writer.updateDocument(docUpd.termToUpdate(), docUpd.document());
-                            }
-                            writer.commit();
-                        }));
+                updateDocumentList -> {
+                    write(writer -> {
+                        log.debug("Update {} document(s) in \"{}\" Lucene index",
+                                updateDocumentList.size(), indexDir);
+                        for (final var docUpd : updateDocumentList) {
+                            writer.updateDocument(docUpd.termToUpdate(), docUpd.makeDocument());
+                        }
+                    });
+                    journal.committed(updateDocumentList.stream()
+                            .map(docUpd -> docUpd.termToUpdate().text())
+                            .toList());
+                    updateDocumentList.stream()
+                            .map(UpdateDocument::document)
+                            .flatMap(document -> Stream.concat(
+                                    Stream.ofNullable(document.get(FILE_NAME)),
+                                    getSuggestedValues(document)))
+                            .forEach(pendingSuggestions::add);
+                });
+
+        suggestionsExecutor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("suggest-" + realmName).daemon().factory());
+        suggestionsExecutor.scheduleWithFixedDelay(this::updatePendingSuggestions,
+                SUGGESTIONS_UPDATE_INTERVAL_MILLIS, SUGGESTIONS_UPDATE_INTERVAL_MILLIS, MILLISECONDS);
     }
 
-    public synchronized void close() {
-        try {
-            fsDirectoryIndex.close();
-        } catch (final IOException e) {
-            log.error("Can't close Lucene index on " + indexDir.getAbsolutePath(), e);
+    private IndexWriterConfig makeWriterConfig() {
+        final var writerConfig = new IndexWriterConfig(analyzer);
+        if (sortedByDate) {
+            writerConfig.setIndexSort(RECENT.makeSort());
         }
+        return writerConfig;
     }
 
-    private synchronized void write(final LuceneWriterConsumer cWriter) {
-        try {
-            log.info("Open Lucene index on \"{}\" in write mode", indexDir);
-            final var indexWriterConfig = new IndexWriterConfig(analyzer);
-            final var writer = new IndexWriter(fsDirectoryIndex, indexWriterConfig);
-            cWriter.accept(writer);
-            writer.close();
-            log.debug("Close Lucene index on \"{}\" in write mode", indexDir);
-        } catch (final IOException e) {
-            throw new UncheckedIOException("Can't write to Lucene index on " + indexDir.getAbsolutePath(), e);
+    /**
+     * An index can't change its sort: rebuild a non-sorted (or differently sorted) index, side by side, and swap the
+     * directories. addIndexes with CodecReaders re-sorts the documents, and drops the deleted ones.
+     * Nothing to do to go back to a non-sorted index.
+     */
+    private void migrateToIndexSort(final Sort indexSort) throws IOException {
+        try (final var directory = FSDirectory.open(indexDir.toPath())) {
+            if (DirectoryReader.indexExists(directory) == false) {
+                return;
+            }
+            try (final var reader = DirectoryReader.open(directory)) {
+                final var leaves = reader.leaves();
+                if (leaves.stream().allMatch(leaf -> indexSort.equals(leaf.reader().getMetaData().sort()))) {
+                    return;
+                }
+
+                final var sortedIndexDir = new File(indexDir.getParentFile(), indexDir.getName() + "-sorted");
+                log.info("Rebuild Lucene index \"{}\" ({} document(s)) sorted by {} in \"{}\"",
+                        indexDir, reader.numDocs(), indexSort, sortedIndexDir);
+                deleteDirectory(sortedIndexDir);
+                forceMkdir(sortedIndexDir);
+
+                try (final var sortedDirectory = FSDirectory.open(sortedIndexDir.toPath());
+                     final var sortedWriter = new IndexWriter(sortedDirectory, makeWriterConfig())) {
+                    final var codecReaders = new CodecReader[leaves.size()];
+                    for (var pos = 0; pos < codecReaders.length; pos++) {
+                        codecReaders[pos] = SlowCodecReaderWrapper.wrap(leaves.get(pos).reader());
+                    }
+                    sortedWriter.addIndexes(codecReaders);
+                    sortedWriter.setLiveCommitData(reader.getIndexCommit().getUserData().entrySet());
+                    sortedWriter.commit();
+                }
+            }
         }
+
+        final var previousIndexDir = new File(indexDir.getParentFile(), indexDir.getName() + "-previous");
+        deleteDirectory(previousIndexDir);
+        moveDirectory(indexDir, previousIndexDir);
+        moveDirectory(new File(indexDir.getParentFile(), indexDir.getName() + "-sorted"), indexDir);
+        deleteDirectory(previousIndexDir);
+        log.info("Lucene index \"{}\" is now sorted", indexDir);
     }
 
-    static Stream<String> splitSpaces(final String word) {
-        final var result = new ArrayList<String>();
-        final var buffer = new StringBuilder();
-
-        var currentSpace = false;
-        for (var pos = 0; pos < word.length(); pos++) {
-            final var character = word.charAt(pos);
-            final var isSpace = isWhitespace(character);
-            if (pos == 0) {
-                currentSpace = isSpace;
+    private static int getIndexFormatVersion(final IndexWriter writer) {
+        final var commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (final var entry : commitData) {
+                if (entry.getKey().equals(INDEX_FORMAT_VERSION_KEY)) {
+                    return Integer.parseInt(entry.getValue());
+                }
             }
+        }
+        return 0;
+    }
+
+    /**
+     * Keep the other commit user data entries, persisted on the next commit.
+     */
+    private static void stampIndexFormat(final IndexWriter writer) {
+        final var commitData = new HashMap<String, String>();
+        final var previousCommitData = writer.getLiveCommitData();
+        if (previousCommitData != null) {
+            previousCommitData.forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+        }
+        commitData.put(INDEX_FORMAT_VERSION_KEY, String.valueOf(INDEX_FORMAT_VERSION));
+        writer.setLiveCommitData(commitData.entrySet());
+    }
 
-            if (isSpace ^ currentSpace) {
-                if (buffer.isEmpty() == false) {
-                    result.add(buffer.toString());
-                    buffer.setLength(0);
+    public synchronized void close() {
+        try {
+            /**
+             * Commit the queued updates before closing the writer.
+             */
+            delayedSyncDocument.close();
+            suggestionsExecutor.shutdown();
+            updatePendingSuggestions();
+            searcherManager.close();
+            synchronized (writeLock) {
+                if (currentRebuild != null) {
+                    currentRebuild.close();
+                    currentRebuild = null;
                 }
-                currentSpace = isSpace;
             }
-            if (isSpace == false) {
-                buffer.append(character);
+            writer.close();
+            log.debug("Close Lucene index on \"{}\" in write mode", indexDir);
+            fsDirectoryIndex.close();
+            suggester.close();
+            journal.close();
+            if (searchExecutor != null) {
+                searchExecutor.shutdown();
             }
+        } catch (final IOException e) {
+            log.error("Can't close Lucene index on " + indexDir.getAbsolutePath(), e);
         }
-        if (buffer.isEmpty() == false) {
-            result.add(buffer.toString());
-        }
-        return result.stream();
+    }
+
+    private void write(final LuceneWriterConsumer cWriter) {
+        write(cWriter, _ -> {
+        });
     }
 
     /**
-     * @return "8AAA123BB5" &gt; "[8, AAA, 123, BB, 5]"
+     * Shared writer, commit and refresh the near-real-time searcher after each write session.
+     * During a rebuild, the same write session is replayed on the rebuild index: cWriter is called twice, and must
+     * make new documents on each call.
+     * @param onRebuild called with the current rebuild, if any, in the same write lock.
      */
-    static Stream<String> splitNumbers(final String word) {
-        final var result = new ArrayList<String>();
-        final var buffer = new StringBuilder();
-        var currentDigit = false;
-
-        for (var pos = 0; pos < word.length(); pos++) {
-            final var character = word.charAt(pos);
-            final var isDigit = Character.isDigit(character);
-            if (pos == 0) {
-                currentDigit = isDigit;
+    private void write(final LuceneWriterConsumer cWriter, final Consumer<RealmIndexRebuild> onRebuild) {
+        try {
+            synchronized (writeLock) {
+                cWriter.accept(writer);
+                if (currentRebuild != null) {
+                    currentRebuild.apply(cWriter);
+                    onRebuild.accept(currentRebuild);
+                }
+                writer.commit();
             }
+            searcherManager.maybeRefresh();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't write to Lucene index on " + indexDir.getAbsolutePath(), e);
+        }
+    }
 
-            if (isDigit ^ currentDigit) {
-                result.add(buffer.toString());
-                buffer.setLength(0);
-                currentDigit = isDigit;
+    private <T> T read(final LuceneSearcherFunction<T> function) {
+        try {
+            final var searcher = searcherManager.acquire();
+            try {
+                return function.apply(searcher);
+            } finally {
+                searcherManager.release(searcher);
             }
-            buffer.append(character);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't read from Lucene index on " + indexDir.getAbsolutePath(), e);
         }
-        result.add(buffer.toString());
-        return result.stream();
     }
 
     /**
-     * Not compatible with other chars than western chars.
+     * Substring match with terms lookups only: the word itself if it's short enough, else all its ngrams.
+     * Long words can match beyond the real substring (all the ngrams are present, but not contiguous).
      */
-    public static List<String> normalizeSearchString(final String value) {
-        if (value == null) {
-            return List.of();
+    static Query makeSubstringQuery(final String word) {
+        if (word.length() <= NGRAM_SIZE) {
+            return new ConstantScoreQuery(new TermQuery(new Term(FILE_BASE_NAME_NGRAM, word)));
         }
-        final var trimValue = value.toLowerCase().trim();
-        if (trimValue.isEmpty()) {
-            return List.of();
+        final var builder = new BooleanQuery.Builder();
+        for (var pos = 0; pos + NGRAM_SIZE <= word.length(); pos++) {
+            builder.add(new TermQuery(new Term(FILE_BASE_NAME_NGRAM, word.substring(pos, pos + NGRAM_SIZE))), MUST);
         }
+        return new ConstantScoreQuery(builder.build());
+    }
 
-        final var normalized = REPLACE_NORMALIZED.matcher(normalize(trimValue, NFKD)).replaceAll("");
-        final var cleaned = REMOVE_NON_VALID_CHARS.matcher(normalized).replaceAll(" ").trim();
+    /**
+     * @return "a/b/" &gt; "/a/b"
+     */
+    static String normalizeAncestorPath(final String path) {
+        var result = path.startsWith("/") ? path : "/" + path;
+        while (result.length() > 1 && result.endsWith("/")) {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result;
+    }
 
-        if (cleaned.isEmpty()) {
-            return List.of();
+    /**
+     * @return "/a/b" &gt; "[/, /a, /a/b]"
+     */
+    static Stream<String> ancestorPaths(final String parentPath) {
+        final var normalized = normalizeAncestorPath(parentPath);
+        final var result = new ArrayList<String>();
+        result.add("/");
+        for (var pos = normalized.indexOf('/', 1); pos > 0; pos = normalized.indexOf('/', pos + 1)) {
+            result.add(normalized.substring(0, pos));
+        }
+        if (normalized.length() > 1) {
+            result.add(normalized);
         }
+        return result.stream();
+    }
 
-        return splitSpaces(cleaned)
-                .flatMap(RealmIndexer::splitNumbers)
-                .toList();
+    /**
+     * All the files and directories under this path, at any depth, with a single term lookup.
+     */
+    static Query makeSubtreeQuery(final String path) {
+        return new TermQuery(new Term(FILE_ANCESTORS, normalizeAncestorPath(path)));
     }
 
     private Document makeDocumentFromFileRef(final FileAttributesReference file,
@@ -238,12 +509,17 @@ public class RealmIndexer {
 
         document.add(new StringField(DOCUMENT_TYPE, DOCUMENT_TYPE_FILE, YES));
         document.add(new StringField(FILE_HASH_PATH, hashPath, YES));
+        document.add(new SortedDocValuesField(FILE_HASH_PATH, new BytesRef(hashPath)));
         document.add(new StringField(FILE_STORAGE, storageName, YES));
         document.add(new StringField(FILE_NAME, file.getName(), YES));
+        document.add(new SortedDocValuesField(FILE_NAME, new BytesRef(file.getName())));
         document.add(new StringField(FILE_PARENT_PATH, file.getParentPath(), YES));
+        ancestorPaths(file.getParentPath())
+                .forEach(ancestor -> document.add(new StringField(FILE_ANCESTORS, ancestor, NO)));
 
-        normalizeSearchString(getBaseName(file.getName()))
-                .forEach(baseName -> document.add(new StringField(FILE_BASE_NAME, baseName, NO)));
+        final var baseName = getBaseName(file.getName());
+        document.add(new Field(FILE_BASE_NAME, baseName, FILE_NAME_WORDS_TYPE));
+        document.add(new Field(FILE_BASE_NAME_NGRAM, baseName, FILE_NAME_WORDS_TYPE));
 
         document.add(new IntField(FILE_DIRECTORY, file.isDirectory() ? 1 : 0, NO));
         document.add(new IntField(FILE_HIDDEN, file.isHidden() ? 1 : 0, NO));
@@ -254,12 +530,24 @@ public class RealmIndexer {
         document.add(new LongField(FILE_LENGTH, file.length(), NO));
         document.add(new StringField(FILE_PARENT_HASH_PATH,
                 hashPath(realmName, storageName, file.getParentPath()), NO));
+        fileFacets.addFileFacets(document, file, storageName);
         return document;
     }
 
     public void updateAsset(final FileEntity fileEntity,
                             final Collection<FileMetadataEntity> fileMetadataEntites,
-                            final Collection<String> texts) {
+                            final Collection<TextExtractedSource> texts) {
+        final var document = makeAssetDocument(fileEntity, fileMetadataEntites, texts);
+        delayedSyncDocument.add(new UpdateDocument(document, new Term(FILE_HASH_PATH, fileEntity.getHashPath())));
+        /**
+         * Only journal what was queued. The journal accepts a commit before its append.
+         */
+        journal.append(fileEntity.getHashPath());
+    }
+
+    Document makeAssetDocument(final FileEntity fileEntity,
+                               final Collection<FileMetadataEntity> fileMetadataEntites,
+                               final Collection<TextExtractedSource> texts) {
         if (fileEntity.getRealm().equals(realmName) == false) {
             throw new IllegalArgumentException("Invalid realm (wants " + realmName + ") for " + fileEntity);
         }
@@ -270,25 +558,200 @@ public class RealmIndexer {
                 fileEntity.getHashPath());
 
         fileMetadataEntites.forEach(fileMetadata -> {
-            final var classifier = new NamedIndexField(ASSET, fileMetadata.getClassifier());
-            final var key = new NamedIndexField(classifier, fileMetadata.getKey());
-            final var layer = new NamedIndexField(key, String.valueOf(fileMetadata.getLayer()));
             final var value = fileMetadata.getValue();
+            addMetadata(document,
+                    fileMetadata.getClassifier(),
+                    fileMetadata.getKey(),
+                    fileMetadata.getLayer(),
+                    value);
+
+            if (MIME_TYPE_CLASSIFIER.equals(fileMetadata.getClassifier())
+                && MIME_TYPE_KEY.equals(fileMetadata.getKey())
+                && fileMetadata.getLayer() == 0) {
+                fileFacets.addMimeType(document, value);
+            }
+        });
 
-            document.add(new StringField(ASSET.toString(), value, NO));
-            document.add(new StringField(classifier.toString(), value, NO));
-            document.add(new StringField(key.toString(), value, NO));
-            document.add(new StringField(layer.toString(), value, NO));
+        texts.forEach(textSource -> {
+            if (fullTextExcerptSize > 0) {
+                document.add(new StoredField(ASSET_FULL_TEXT_EXCERPT, readExcerpt(textSource)));
+            }
+            document.add(new TextField(ASSET_FULL_TEXT, new LazyTextExtractedReader(textSource)));
         });
 
-        texts.forEach(text -> document.add(new StringField(ASSET_FULL_TEXT, text, NO)));
+        return fileFacets.build(document);
+    }
 
-        delayedSyncDocument.add(new UpdateDocument(document, new Term(FILE_HASH_PATH, fileEntity.getHashPath())));
+    private String readExcerpt(final TextExtractedSource source) {
+        try (final var reader = openOrEmpty(source)) {
+            final var buffer = new char[fullTextExcerptSize];
+            return new String(buffer, 0, read(reader, buffer));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Can't read text extracted source", e);
+        }
+    }
+
+    /**
+     * @return the hashPaths queued to update but never committed before the last stop (like after a crash).
+     */
+    public Set<String> getJournalToReplay() {
+        return journal.getToReplay();
+    }
+
+    /**
+     * Call it after all the getJournalToReplay() hashPaths were updated again with updateAsset.
+     */
+    public void endJournalReplay() {
+        journal.endReplay();
+    }
+
+    /**
+     * Start, or get the not ended, full rebuild for this realm. Until the swap, the searches are still done on the
+     * current index.
+     */
+    public RealmIndexRebuild startRebuild() {
+        synchronized (writeLock) {
+            if (currentRebuild == null) {
+                try {
+                    currentRebuild = new RealmIndexRebuild(this, rebuildIndexDir, makeWriterConfig());
+                } catch (final IOException e) {
+                    throw new UncheckedIOException("Can't open rebuild Lucene index on " + rebuildIndexDir, e);
+                }
+                log.info("Start a full index rebuild for realm {}", realmName);
+            }
+            return currentRebuild;
+        }
+    }
+
+    public boolean isRebuildPending() {
+        return currentRebuild != null;
+    }
+
+    /**
+     * Replace all the current index content by the rebuild index content, in one commit: the searchers will never see
+     * an empty or partial index. The deletes done during the rebuild are applied again after it.
+     */
+    public void swapRebuild() {
+        synchronized (writeLock) {
+            final var rebuild = currentRebuild;
+            if (rebuild == null) {
+                throw new IllegalStateException("No started rebuild for realm " + realmName);
+            }
+            currentRebuild = null;
+            write(writer -> {
+                rebuild.closeWriter();
+                final Term[] deletesToReplay;
+                try (final var servingReader = DirectoryReader.open(writer)) {
+                    deletesToReplay = rebuild.getDeletesToReplay(new IndexSearcher(servingReader));
+                }
+                writer.deleteAll();
+                writer.addIndexes(rebuild.getDirectory());
+                writer.deleteDocuments(deletesToReplay);
+                stampIndexFormat(writer);
+            });
+            try {
+                rebuild.delete();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Can't delete rebuild Lucene index on " + rebuildIndexDir, e);
+            }
+            log.info("Full index rebuild is now done for realm {}", realmName);
+            rebuildSuggester();
+        }
     }
 
     public void reset() {
         log.info("Wipe all file type documents on a reset session for realm {}", realmName);
-        write(writer -> writer.deleteDocuments(new TermQuery(new Term(DOCUMENT_TYPE, DOCUMENT_TYPE_FILE))));
+        write(writer -> {
+            writer.deleteDocuments(new TermQuery(new Term(DOCUMENT_TYPE, DOCUMENT_TYPE_FILE)));
+            stampIndexFormat(writer);
+        }, RealmIndexRebuild::allDeleted);
+        rebuildSuggester();
+    }
+
+    /**
+     * @return file names and MetadataThesaurusSuggested values, with all the q words (the last as prefix), only if
+     *         they are still present on a realm document, the more present first.
+     */
+    public List<String> suggest(final String q, final int limit) {
+        return read(searcher -> {
+            final var result = new ArrayList<String>(limit);
+            for (final var text : suggester.lookup(q, limit * 2)) {
+                if (searcher.count(makeSuggestionQuery(text)) > 0) {
+                    result.add(text);
+                }
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+            return result;
+        });
+    }
+
+    private static Query makeSuggestionQuery(final String text) {
+        return new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(FILE_NAME, text)), SHOULD)
+                .add(makeSuggestedValueQuery(text), SHOULD)
+                .build();
+    }
+
+    /**
+     * Off the index writes, on the suggestions executor (or on a wait/close): the texts written since the last run
+     * get the realm documents count as weight, with one suggester commit for all.
+     */
+    private void updatePendingSuggestions() {
+        synchronized (suggestionsLock) {
+            final var texts = new HashSet<String>();
+            final var iterator = pendingSuggestions.iterator();
+            while (iterator.hasNext()) {
+                texts.add(iterator.next());
+                iterator.remove();
+            }
+            if (texts.isEmpty()) {
+                return;
+            }
+            try {
+                final var weightByText = read(searcher -> {
+                    final var result = new HashMap<String, Long>();
+                    for (final var text : texts) {
+                        result.put(text, (long) searcher.count(makeSuggestionQuery(text)));
+                    }
+                    return result;
+                });
+                suggester.update(weightByText);
+            } catch (final IOException | RuntimeException e) {
+                log.error("Can't update suggestions for realm {}", realmName, e);
+            }
+        }
+    }
+
+    /**
+     * Streamed from the terms, in their order. Weights from the terms document frequencies: they can also count the
+     * deleted and not yet merged documents.
+     */
+    private void rebuildSuggester() {
+        synchronized (suggestionsLock) {
+            final var count = read(searcher -> {
+                final var reader = searcher.getIndexReader();
+                return suggester.build(List.of(
+                        RealmSuggester.fromTerms(reader, FILE_NAME, Optional::of),
+                        RealmSuggester.fromTerms(reader, ASSET_METADATA, AssetMetadataTerms::getSuggestedValue)));
+            });
+            log.info("Suggestions are builded for realm {} with {} entries", realmName, count);
+        }
+    }
+
+    static void forEachTerm(final IndexReader reader,
+                            final String field,
+                            final BiConsumer<String, Long> onTerm) throws IOException {
+        final var terms = MultiTerms.getTerms(reader, field);
+        if (terms == null) {
+            return;
+        }
+        final var termsEnum = terms.iterator();
+        BytesRef term;
+        while ((term = termsEnum.next()) != null) {
+            onTerm.accept(term.utf8ToString(), (long) termsEnum.docFreq());
+        }
     }
 
     public void updateIndexAfterScan(final WatchedFiles scanResult, final String storageName) {
@@ -304,6 +767,10 @@ public class RealmIndexer {
                 scanResult.updated().size(),
                 scanResult.losted().size());
 
+        final var lostedHashPaths = scanResult.losted().stream()
+                .map(f -> hashPath(realmName, storageName, f.getPath()))
+                .toList();
+
         write(writer -> {
             if (scanResult.founded().isEmpty() == false) {
                 log.trace("Add to update Lucene index \"{}\": {}", indexDir, scanResult.founded());
@@ -311,6 +778,7 @@ public class RealmIndexer {
                 writer.addDocuments(scanResult.founded().stream()
                         .map(f -> makeDocumentFromFileRef(f, storageName, hashPath(realmName, storageName, f
                                 .getPath())))
+                        .map(fileFacets::build)
                         .toList());
             }
 
@@ -318,80 +786,240 @@ public class RealmIndexer {
                 log.trace("Update Lucene index \"{}\": {}", indexDir, file);
 
                 final var hashPath = hashPath(realmName, storageName, file.getPath());
-                writer.updateDocument(new Term(FILE_HASH_PATH, hashPath), makeDocumentFromFileRef(file, storageName,
-                        hashPath));
+                writer.updateDocument(new Term(FILE_HASH_PATH, hashPath),
+                        fileFacets.build(makeDocumentFromFileRef(file, storageName, hashPath)));
             }
 
-            if (scanResult.losted().isEmpty() == false) {
+            if (lostedHashPaths.isEmpty() == false) {
                 log.trace("Remove from Lucene index \"{}\": {}", indexDir, scanResult.losted());
 
-                final var terms = scanResult.losted().stream()
-                        .map(f -> new Term(FILE_HASH_PATH, hashPath(realmName, storageName, f.getPath())))
+                final var terms = lostedHashPaths.stream()
+                        .map(hashPath -> new Term(FILE_HASH_PATH, hashPath))
                         .toArray(Term[]::new);
                 writer.deleteDocuments(terms);
             }
+        }, rebuild -> rebuild.deleted(lostedHashPaths));
 
-            writer.commit();
+        Stream.of(scanResult.founded(), scanResult.updated(), scanResult.losted())
+                .flatMap(Set::stream)
+                .map(FileAttributesReference::getName)
+                .forEach(pendingSuggestions::add);
+
+    }
+
+    /**
+     * Search results are cached until the next index generation (after any write).
+     * Partial and degraded results are never cached.
+     */
+    private SearchResult cachedSearch(final SearchResultCacheKey key,
+                                      final LuceneAdmittedSearchFunction search) {
+        return read(searcher -> {
+            final var generation = ((DirectoryReader) searcher.getIndexReader()).getVersion();
+            final var cached = searchResultCache.get(generation, key);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+            final var result = admittedSearch(searcher, search);
+            if (result.isCacheable()) {
+                searchResultCache.put(generation, key, result);
+            }
+            return result;
         });
+    }
 
+    /**
+     * Run the search only with a free search slot, and within the search time budget.
+     * @throws RejectedExecutionException if no search slot was freed during searchQueueTimeoutMillis
+     */
+    private SearchResult admittedSearch(final IndexSearcher sharedSearcher,
+                                        final LuceneAdmittedSearchFunction search) throws IOException {
+        acquireSearchPermit();
+        try {
+            final var underLoad = isUnderLoad();
+            final var searcher = makeTimedSearcher(sharedSearcher);
+            final var result = measureSearch(searcher, s -> search.apply(s, underLoad));
+            if (searcher.timedOut()) {
+                log.warn("Search timed out after {} ms on realm {}, returns partial results",
+                        searchTimeoutMillis, realmName);
+                return result.withFlags(true, result.degraded());
+            }
+            return result;
+        } finally {
+            releaseSearchPermit();
+        }
     }
 
-    private SearchResult processSearch(final Optional<FileSearchConstraints> oFileSearchConstraints,
-                                       final Query query,
-                                       final int limit) {
-        try (var reader = DirectoryReader.open(fsDirectoryIndex)) {
-            final var searcher = new IndexSearcher(reader);
-
-            final var builder = new BooleanQuery.Builder();
-            oFileSearchConstraints.ifPresent(fileSearchConstraints -> fileSearchConstraints.apply(builder));
-            builder.add(query, MUST);
-            final var finalQuery = builder.build();
-
-            final var totalFounded = searcher.count(finalQuery);
-            final var sortedTopDoc = searcher.search(finalQuery, limit);
-            final var storedFields = searcher.storedFields();
-            final var foundedFiles = new ArrayList<FileSearchResult>();
-
-            Explanation explain = null;
-            for (final var scoredDoc : sortedTopDoc.scoreDocs) {
-                final var doc = storedFields.document(scoredDoc.doc,
-                        Set.of(FILE_HASH_PATH,
-                                FILE_STORAGE,
-                                FILE_NAME,
-                                FILE_PARENT_PATH,
-                                DOCUMENT_TYPE));
-
-                if (computeExplainOnResults) {
-                    explain = searcher.explain(finalQuery, scoredDoc.doc);
-                }
+    /**
+     * The shared searchers can't get a timeout: each timed search gets its own (cheap) searcher on the same reader.
+     */
+    private IndexSearcher makeTimedSearcher(final IndexSearcher sharedSearcher) {
+        if (searchTimeoutMillis == 0) {
+            return sharedSearcher;
+        }
+        final var searcher = new IndexSearcher(sharedSearcher.getIndexReader(), searchExecutor);
+        searcher.setTimeout(new QueryTimeoutImpl(searchTimeoutMillis));
+        return searcher;
+    }
 
-                final var documentType = Optional.ofNullable(doc.getField(DOCUMENT_TYPE))
-                        .map(IndexableField::stringValue)
-                        .orElseThrow();
-
-                if (documentType.equals(DOCUMENT_TYPE_FILE)) {
-                    final var hashPath = doc.getField(FILE_HASH_PATH);
-                    final var storage = doc.getField(FILE_STORAGE);
-                    final var name = doc.getField(FILE_NAME);
-                    final var parentPath = doc.getField(FILE_PARENT_PATH);
-
-                    foundedFiles.add(new FileSearchResult(
-                            hashPath.stringValue(),
-                            storage.stringValue(),
-                            name.stringValue(),
-                            parentPath.stringValue(),
-                            scoredDoc.score,
-                            Optional.ofNullable(explain).map(Explanation::toString).orElse(null)));
-
-                } else {
-                    log.warn("Can't manage this document type: {}", documentType);
+    void acquireSearchPermit() {
+        if (searchPermits != null) {
+            try {
+                if (searchPermits.tryAcquire(searchQueueTimeoutMillis, MILLISECONDS) == false) {
+                    throw new RejectedExecutionException("Too many concurrent searches on realm " + realmName);
                 }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting a search slot on " + realmName, e);
             }
+        }
+        activeSearches.incrementAndGet();
+    }
 
-            return new SearchResult(foundedFiles.stream().sorted().toList(), totalFounded);
-        } catch (final IOException e) {
-            throw new UncheckedIOException("Can't read from Lucene index on " + indexDir.getAbsolutePath(), e);
+    void releaseSearchPermit() {
+        activeSearches.decrementAndGet();
+        if (searchPermits != null) {
+            searchPermits.release();
+        }
+    }
+
+    /**
+     * @return true if the other running searches use at least the half of the search slots
+     */
+    boolean isUnderLoad() {
+        return maxConcurrentSearches > 0
+               && (activeSearches.get() - 1) * 2 >= maxConcurrentSearches;
+    }
+
+    public SearchCacheStats getSearchCacheStats() {
+        return searchResultCache.getStats();
+    }
+
+    private SearchResult measureSearch(final IndexSearcher searcher,
+                                       final LuceneSearcherFunction<SearchResult> search) throws IOException {
+        final var start = System.nanoTime();
+        try {
+            return search.apply(searcher);
+        } finally {
+            searchLatencyMeter.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * To compare the latencies with and without searchThreads.
+     */
+    public SearchLatencyStats getSearchLatencyStats() {
+        return searchLatencyMeter.getStats();
+    }
+
+    public DelayedSyncStats getIndexUpdateStats() {
+        return delayedSyncDocument.getStats();
+    }
+
+    /**
+     * Wait until all the updateAsset calls are committed, and their suggestions updated.
+     */
+    void waitToSync() {
+        delayedSyncDocument.waitToSync();
+        updatePendingSuggestions();
+    }
+
+    private SearchResult processSearch(final IndexSearcher searcher,
+                                       final Optional<FileSearchConstraints> oFileSearchConstraints,
+                                       final Query query,
+                                       final int limit,
+                                       final Optional<FieldDoc> oAfter,
+                                       final FileSearchSort fileSearchSort,
+                                       final Optional<Query> oHighlightQuery,
+                                       final boolean exhaustive) throws IOException {
+        final var builder = new BooleanQuery.Builder();
+        oFileSearchConstraints.ifPresent(fileSearchConstraints -> fileSearchConstraints.apply(builder));
+        builder.add(query, MUST);
+        final var finalQuery = builder.build();
+
+        final var sort = fileSearchSort.makeSort();
+        final var after = oAfter.orElse(null);
+        final int totalFounded;
+        final TopDocs sortedTopDoc;
+        Map<String, List<SearchFacetCount>> facets = Map.of();
+        if (exhaustive) {
+            /**
+             * Hits, total count and facets in the same collect.
+             */
+            final var facetsResult = FacetsCollectorManager.searchAfter(
+                    searcher, after, finalQuery, limit, sort, fileSearchSort.byRelevance(),
+                    new FacetsCollectorManager());
+            sortedTopDoc = facetsResult.topDocs();
+            totalFounded = (int) sortedTopDoc.totalHits.value();
+            facets = fileFacets.count(searcher.getIndexReader(), facetsResult.facetsCollector());
+        } else {
+            /**
+             * Stop to count after limit: on an index sorted like the search, the collect can stop early.
+             */
+            sortedTopDoc = searcher.search(finalQuery, new TopFieldCollectorManager(sort, limit, after, limit));
+            totalFounded = (int) sortedTopDoc.totalHits.value();
         }
+        final var storedFields = searcher.storedFields();
+        final var foundedFiles = new ArrayList<FileSearchResult>();
+        final var highlights = oHighlightQuery.isPresent()
+                                                           ? highlight(searcher, oHighlightQuery.get(), sortedTopDoc)
+                                                           : new String[sortedTopDoc.scoreDocs.length];
+
+        Explanation explain = null;
+        for (var pos = 0; pos < sortedTopDoc.scoreDocs.length; pos++) {
+            final var scoredDoc = sortedTopDoc.scoreDocs[pos];
+            final var doc = storedFields.document(scoredDoc.doc,
+                    Set.of(FILE_HASH_PATH,
+                            FILE_STORAGE,
+                            FILE_NAME,
+                            FILE_PARENT_PATH,
+                            DOCUMENT_TYPE));
+
+            if (computeExplainOnResults) {
+                explain = searcher.explain(finalQuery, scoredDoc.doc);
+            }
+
+            final var documentType = Optional.ofNullable(doc.getField(DOCUMENT_TYPE))
+                    .map(IndexableField::stringValue)
+                    .orElseThrow();
+
+            if (documentType.equals(DOCUMENT_TYPE_FILE)) {
+                final var hashPath = doc.getField(FILE_HASH_PATH);
+                final var storage = doc.getField(FILE_STORAGE);
+                final var name = doc.getField(FILE_NAME);
+                final var parentPath = doc.getField(FILE_PARENT_PATH);
+
+                foundedFiles.add(new FileSearchResult(
+                        hashPath.stringValue(),
+                        storage.stringValue(),
+                        name.stringValue(),
+                        parentPath.stringValue(),
+                        Float.isNaN(scoredDoc.score) ? 0f : scoredDoc.score,
+                        Optional.ofNullable(explain).map(Explanation::toString).orElse(null),
+                        highlights[pos]));
+
+            } else {
+                log.warn("Can't manage this document type: {}", documentType);
+            }
+        }
+
+        String nextCursor = null;
+        if (sortedTopDoc.scoreDocs.length == limit) {
+            nextCursor = SearchCursor.encode((FieldDoc) sortedTopDoc.scoreDocs[limit - 1], sort);
+        }
+        return new SearchResult(unmodifiableList(foundedFiles), totalFounded, nextCursor, facets);
+    }
+
+    /**
+     * Snippets are computed from the stored excerpts, never from the extracted text files.
+     * @return one entry per topDocs.scoreDocs, null if no passage was found for a document.
+     */
+    private String[] highlight(final IndexSearcher searcher,
+                               final Query query,
+                               final TopDocs topDocs) throws IOException {
+        final var highlighter = UnifiedHighlighter.builder(searcher, analyzer)
+                .withHighlightPhrasesStrictly(true)
+                .build();
+        return highlighter.highlight(ASSET_FULL_TEXT_EXCERPT, query, topDocs, FULL_TEXT_MAX_PASSAGES);
     }
 
     private static void addShouldBooleanBoostedQuery(final BooleanQuery.Builder builder,
@@ -405,49 +1033,103 @@ public class RealmIndexer {
     public Set<String> getHashPathsByRecursiveSearch(final String storage,
                                                      final String parentPath,
                                                      final SearchConstraintCondition directory) {
-        try (var reader = DirectoryReader.open(fsDirectoryIndex)) {
-            final var searcher = new IndexSearcher(reader);
+        final var result = new HashSet<String>();
+        forEachHashPathByRecursiveSearch(storage, parentPath, directory, result::add);
+        return unmodifiableSet(result);
+    }
 
+    /**
+     * Streamed from the hashPath doc values, without scores and without founded count limit.
+     * @param onHashPath never called concurrently
+     */
+    public void forEachHashPathByRecursiveSearch(final String storage,
+                                                 final String parentPath,
+                                                 final SearchConstraintCondition directory,
+                                                 final Consumer<String> onHashPath) {
+        read(searcher -> {
             final var booleanQuery = new BooleanQuery.Builder();
             booleanQuery.add(new TermQuery(new Term(DOCUMENT_TYPE, DOCUMENT_TYPE_FILE)), MUST);
             booleanQuery.add(new TermQuery(new Term(FILE_STORAGE, storage)), MUST);
-            booleanQuery.add(new PrefixQuery(new Term(FILE_PARENT_PATH, parentPath)), MUST);
+            booleanQuery.add(makeSubtreeQuery(parentPath), MUST);
 
             if (directory.equals(IGNORE) == false) {
                 booleanQuery.add(newExactQuery(FILE_DIRECTORY, directory.getIndexedValue()), MUST);
             }
 
-            final var query = booleanQuery.build();
+            return searcher.search(booleanQuery.build(), new HashPathCollectorManager(onHashPath));
+        });
+    }
 
-            final var storedFields = searcher.storedFields();
-            final var sortedTopDoc = searcher.search(query, MAX_VALUE);
-            if (sortedTopDoc.scoreDocs.length == 0) {
-                return Set.of();
-            }
+    public SearchResult openSearch(final String q,
+                                   final Optional<FileSearchConstraints> oConstraints,
+                                   final int limit) {
+        return openSearch(q, oConstraints, limit, Optional.empty(), RELEVANCE);
+    }
 
-            final var result = new HashSet<String>(sortedTopDoc.scoreDocs.length);
-            for (final var scoredDoc : sortedTopDoc.scoreDocs) {
-                final var doc = storedFields.document(scoredDoc.doc, Set.of(FILE_HASH_PATH));
-                result.add(doc.getField(FILE_HASH_PATH).stringValue());
-            }
+    /**
+     * @param oCursor from a previous SearchResult.nextCursor, with the same q, constraints and sort.
+     * @throws InvalidSearchRequestException on a non-valid cursor or limit
+     */
+    public SearchResult openSearch(final String q,
+                                   final Optional<FileSearchConstraints> oConstraints,
+                                   final int limit,
+                                   final Optional<String> oCursor,
+                                   final FileSearchSort sort) {
+        final var oAfter = checkSearchRequest(limit, oCursor, sort);
+        final var normalizedQ = normalizeSpaces(q);
+        return cachedSearch(
+                new SearchResultCacheKey(
+                        normalizedQ, oConstraints.orElse(null), limit, oCursor.orElse(null), sort, false),
+                (searcher, underLoad) -> processSearch(
+                        searcher, oConstraints, makeOpenSearchQuery(normalizedQ, underLoad), limit, oAfter, sort,
+                        Optional.empty(), true).withFlags(false, underLoad));
+    }
 
-            return unmodifiableSet(result);
-        } catch (final IOException e) {
-            throw new UncheckedIOException("Can't read from Lucene index on " + indexDir.getAbsolutePath(), e);
+    /**
+     * Done before the search: only the request inputs can throw an InvalidSearchRequestException.
+     * @return the decoded cursor
+     */
+    private static Optional<FieldDoc> checkSearchRequest(final int limit,
+                                                         final Optional<String> oCursor,
+                                                         final FileSearchSort sort) {
+        if (limit < 1) {
+            throw new InvalidSearchRequestException("Invalid limit: " + limit);
         }
+        return oCursor.map(cursor -> SearchCursor.decode(cursor, sort.makeSort()));
     }
 
-    public SearchResult openSearch(final String q,
-                                   final Optional<FileSearchConstraints> oConstraints,
-                                   final int limit) {
+    /**
+     * Trimmed, with all the whitespace runs collapsed to a single space.
+     * The case is kept: the exact, wildcard and fuzzy file name clauses are case-sensitive.
+     */
+    static String normalizeSpaces(final String q) {
+        return WHITESPACES.matcher(q.strip()).replaceAll(" ");
+    }
+
+    /**
+     * Cost estimation: a wildcard pattern starting by a wildcard must visit all the terms of the field, and
+     * with few literal chars, most of them will match.
+     */
+    static boolean isExpensiveWildcard(final String q) {
+        final var literalChars = q.chars().filter(c -> c != '*' && c != '?').count();
+        return (q.startsWith("*") || q.startsWith("?"))
+               && literalChars < EXPENSIVE_WILDCARD_MAX_LITERAL_CHARS;
+    }
+
+    /**
+     * @param underLoad drop the expensive clauses: fuzzy, substring, and expensive wildcards.
+     */
+    Query makeOpenSearchQuery(final String q, final boolean underLoad) {
         final var mainQuery = new BooleanQuery.Builder();
 
         if (q.contains("*") || q.contains("?")) {
             /**
              * Contains wildcards
              */
-            addShouldBooleanBoostedQuery(mainQuery, new WildcardQuery(new Term(FILE_NAME, q)), 10f);
-            addShouldBooleanBoostedQuery(mainQuery, new WildcardQuery(new Term(FILE_BASE_NAME, q)), 8f);
+            if (underLoad == false || isExpensiveWildcard(q) == false) {
+                addShouldBooleanBoostedQuery(mainQuery, new WildcardQuery(new Term(FILE_NAME, q)), 10f);
+                addShouldBooleanBoostedQuery(mainQuery, new WildcardQuery(new Term(FILE_BASE_NAME, q)), 8f);
+            }
         } else {
             /**
              * Exact file name match
@@ -456,9 +1138,11 @@ public class RealmIndexer {
             addShouldBooleanBoostedQuery(mainQuery, new TermQuery(new Term(FILE_BASE_NAME, q)), 8f);
         }
 
-        addShouldBooleanBoostedQuery(mainQuery, new FuzzyQuery(new Term(FILE_NAME, q)), 0.5f);
+        if (underLoad == false) {
+            addShouldBooleanBoostedQuery(mainQuery, new FuzzyQuery(new Term(FILE_NAME, q)), 0.5f);
+        }
 
-        final var normalizeQ = normalizeSearchString(q);
+        final var normalizeQ = analyze(analyzer, FILE_BASE_NAME, q);
 
         addShouldBooleanBoostedQuery(mainQuery,
                 new BooleanQuery.Builder()
@@ -478,6 +1162,10 @@ public class RealmIndexer {
                                 .toList())
                         .build(), 3f);
 
+        if (underLoad) {
+            return mainQuery.build();
+        }
+
         addShouldBooleanBoostedQuery(mainQuery,
                 new BooleanQuery.Builder()
                         .add(normalizeQ.stream()
@@ -487,18 +1175,69 @@ public class RealmIndexer {
                                                         new Term(FILE_BASE_NAME, word)),
                                                 SHOULD))
                                         .add(new BooleanClause(
-                                                new WildcardQuery(
-                                                        new Term(FILE_BASE_NAME, "*" + word + "*")),
+                                                makeSubstringQuery(word),
                                                 SHOULD))
                                         .build())
                                 .map(toBooleanMustClause)
                                 .toList())
                         .build(), 0.1f);
 
-        return processSearch(
-                oConstraints,
-                mainQuery.build(),
-                limit);
+        return mainQuery.build();
+    }
+
+    /**
+     * Search on extracted texts from assets, and returns highlighted snippets.
+     * The search covers the whole texts, but the snippets only cover the stored excerpts (the first
+     * fullTextExcerptSize chars of each text): a match after it is returned without highlight.
+     */
+    public SearchResult fullTextSearch(final String q,
+                                       final Optional<FileSearchConstraints> oConstraints,
+                                       final int limit) {
+        return fullTextSearch(q, oConstraints, limit, Optional.empty(), RELEVANCE);
+    }
+
+    /**
+     * @param oCursor from a previous SearchResult.nextCursor, with the same q, constraints and sort.
+     * @throws InvalidSearchRequestException on a non-valid cursor or limit
+     */
+    public SearchResult fullTextSearch(final String q,
+                                       final Optional<FileSearchConstraints> oConstraints,
+                                       final int limit,
+                                       final Optional<String> oCursor,
+                                       final FileSearchSort sort) {
+        final var oAfter = checkSearchRequest(limit, oCursor, sort);
+        final var queryBuilder = new QueryBuilder(analyzer);
+        final var query = queryBuilder.createBooleanQuery(ASSET_FULL_TEXT, q, MUST);
+        if (query == null) {
+            return new SearchResult(List.of(), 0, null, Map.of());
+        }
+        final var highlightQuery = queryBuilder.createBooleanQuery(ASSET_FULL_TEXT_EXCERPT, q, SHOULD);
+        return cachedSearch(
+                new SearchResultCacheKey(
+                        query.toString(), oConstraints.orElse(null), limit, oCursor.orElse(null), sort, true),
+                (searcher, underLoad) -> processSearch(
+                        searcher, oConstraints, query, limit, oAfter, sort, Optional.ofNullable(highlightQuery),
+                        true));
+    }
+
+    /**
+     * Most recent files first, modified during the last period. Never cached, as "now" always moves.
+     * Early terminated on realms sorted by date.
+     * @param oCursor from a previous SearchResult.nextCursor
+     * @return totalFounded is only a lower bound
+     * @throws InvalidSearchRequestException on a non-valid cursor or limit
+     */
+    public SearchResult recentSearch(final Duration period,
+                                     final int limit,
+                                     final Optional<String> oCursor) {
+        final var oAfter = checkSearchRequest(limit, oCursor, RECENT);
+        final var since = System.currentTimeMillis() - period.toMillis();
+        final var query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(DOCUMENT_TYPE, DOCUMENT_TYPE_FILE)), MUST)
+                .add(LongField.newRangeQuery(FILE_DATE, since, Long.MAX_VALUE), MUST)
+                .build();
+        return read(searcher -> admittedSearch(searcher, (s, underLoad) -> processSearch(
+                s, Optional.empty(), query, limit, oAfter, RECENT, Optional.empty(), false)));
     }
 
 }
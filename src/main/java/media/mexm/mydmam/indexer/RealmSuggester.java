@@ -0,0 +1,237 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static org.apache.lucene.search.suggest.analyzing.AnalyzingInfixSuggester.DEFAULT_MIN_PREFIX_CHARS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingInfixSuggester;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Type-ahead suggestions (file names and MetadataThesaurusSuggested values), in a side Lucene index, weighted by the
+ * count of realm documents with them. Any word of a suggestion can match by prefix.
+ * AnalyzingInfixSuggester can't delete: a not anymore used suggestion is kept with a zero weight (sorted last), and
+ * never returned. A full build drops them.
+ */
+class RealmSuggester {
+
+	private final Directory fsDirectory;
+	private final AnalyzingInfixSuggester suggester;
+
+	RealmSuggester(final File directory) throws IOException {
+		fsDirectory = FSDirectory.open(directory.toPath());
+		final var analyzer = new FileNameAnalyzer();
+		suggester = new AnalyzingInfixSuggester(fsDirectory, analyzer, analyzer, DEFAULT_MIN_PREFIX_CHARS, true);
+	}
+
+	boolean isEmpty() throws IOException {
+		return suggester.getCount() == 0;
+	}
+
+	/**
+	 * A suggestion text, with its weight.
+	 */
+	record Suggestion(BytesRef text, long weight) {
+	}
+
+	/**
+	 * Replace all the suggestions. The sources are streamed and merged, never loaded.
+	 * @param sources each one sorted by text, like a TermsEnum. The weights of a same text, on consecutive entries
+	 *        or on several sources, are summed.
+	 * @return the suggestions count
+	 */
+	long build(final List<Iterator<Suggestion>> sources) throws IOException {
+		final var input = new MergedInputIterator(sources);
+		suggester.build(input);
+		return input.count;
+	}
+
+	/**
+	 * Streamed in the terms order, without the terms without text.
+	 * @param toText the suggestion text of a term, if any. Must keep the terms order.
+	 */
+	static Iterator<Suggestion> fromTerms(final IndexReader reader,
+										  final String field,
+										  final Function<String, Optional<String>> toText) throws IOException {
+		final var terms = MultiTerms.getTerms(reader, field);
+		if (terms == null) {
+			return List.<Suggestion> of().iterator();
+		}
+		return new TermsIterator(terms.iterator(), toText);
+	}
+
+	/**
+	 * Add or update suggestions. Set a zero weight to hide a suggestion.
+	 */
+	void update(final Map<String, Long> weightByText) throws IOException {
+		if (weightByText.isEmpty()) {
+			return;
+		}
+		for (final var entry : weightByText.entrySet()) {
+			suggester.update(new BytesRef(entry.getKey()), null, entry.getValue(), null);
+		}
+		suggester.commit();
+		suggester.refresh();
+	}
+
+	/**
+	 * @return the suggestions, heaviest first, with all the q words (the last as prefix)
+	 */
+	List<String> lookup(final String q, final int limit) throws IOException {
+		if (isEmpty()) {
+			return List.of();
+		}
+		return suggester.lookup(q, limit, true, false).stream()
+				.filter(result -> result.value > 0)
+				.map(result -> result.key.toString())
+				.toList();
+	}
+
+	void close() throws IOException {
+		suggester.close();
+		fsDirectory.close();
+	}
+
+	private static class TermsIterator implements Iterator<Suggestion> {
+
+		private final TermsEnum termsEnum;
+		private final Function<String, Optional<String>> toText;
+		private Suggestion next;
+
+		TermsIterator(final TermsEnum termsEnum, final Function<String, Optional<String>> toText) {
+			this.termsEnum = termsEnum;
+			this.toText = toText;
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				BytesRef term;
+				while (next == null && (term = termsEnum.next()) != null) {
+					final var docFreq = termsEnum.docFreq();
+					next = toText.apply(term.utf8ToString())
+							.map(text -> new Suggestion(new BytesRef(text), docFreq))
+							.orElse(null);
+				}
+			} catch (final IOException e) {
+				throw new UncheckedIOException("Can't read terms", e);
+			}
+			return next != null;
+		}
+
+		@Override
+		public Suggestion next() {
+			if (hasNext() == false) {
+				throw new NoSuchElementException();
+			}
+			final var result = next;
+			next = null;
+			return result;
+		}
+	}
+
+	/**
+	 * K-way merge of the sorted sources, on their current entries.
+	 */
+	private static class MergedInputIterator implements InputIterator {
+
+		private record Head(Suggestion current, Iterator<Suggestion> source) {
+		}
+
+		private final PriorityQueue<Head> heads;
+		private long weight;
+		private long count;
+
+		MergedInputIterator(final List<Iterator<Suggestion>> sources) {
+			heads = new PriorityQueue<>(Math.max(1, sources.size()),
+					Comparator.comparing((final Head head) -> head.current().text()));
+			sources.forEach(this::pushNext);
+		}
+
+		private void pushNext(final Iterator<Suggestion> source) {
+			if (source.hasNext()) {
+				heads.add(new Head(source.next(), source));
+			}
+		}
+
+		private Suggestion pollNext() {
+			final var head = heads.poll();
+			pushNext(head.source());
+			return head.current();
+		}
+
+		@Override
+		public BytesRef next() {
+			if (heads.isEmpty()) {
+				return null;
+			}
+			final var first = pollNext();
+			weight = first.weight();
+			while (heads.isEmpty() == false && heads.peek().current().text().equals(first.text())) {
+				weight += pollNext().weight();
+			}
+			count++;
+			return first.text();
+		}
+
+		@Override
+		public long weight() {
+			return weight;
+		}
+
+		@Override
+		public BytesRef payload() {
+			return null;
+		}
+
+		@Override
+		public boolean hasPayloads() {
+			return false;
+		}
+
+		@Override
+		public Set<BytesRef> contexts() {
+			return null; // NOSONAR S1168
+		}
+
+		@Override
+		public boolean hasContexts() {
+			return false;
+		}
+
+	}
+
+}
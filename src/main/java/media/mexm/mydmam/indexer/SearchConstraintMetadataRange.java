@@ -0,0 +1,52 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.util.Objects.requireNonNull;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.isNumeric;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.makeNumericRangeQuery;
+import static org.apache.lucene.search.BooleanClause.Occur.MUST;
+
+import org.apache.lucene.search.BooleanQuery;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * Only for the MetadataThesaurusNumeric entries, like technical.width or pdf.page-count.
+ * Matches if a value, on any layer, is between min and max (inclusive).
+ */
+public record SearchConstraintMetadataRange(@NotBlank String classifier,
+											@NotBlank String key,
+											double min,
+											double max) {
+
+	public SearchConstraintMetadataRange {
+		requireNonNull(classifier, "\"classifier\" can't to be null");
+		requireNonNull(key, "\"key\" can't to be null");
+		if (isNumeric(classifier, key) == false) {
+			throw new IllegalArgumentException("Not a numeric metadata: " + classifier + "." + key);
+		}
+		if (min > max) {
+			throw new IllegalArgumentException("Invalid range: " + min + " > " + max);
+		}
+	}
+
+	void apply(final BooleanQuery.Builder booleanQuery) {
+		booleanQuery.add(makeNumericRangeQuery(classifier, key, min, max), MUST);
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.lang.Integer.MAX_VALUE;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Opaque, url-safe, pagination cursor: the sort values of the last document of a page, tied to the used sort.
+ * As the sort always ends by the (unique) file hashPath, the Lucene doc id is not needed.
+ */
+public final class SearchCursor {
+
+	private static final byte TYPE_NULL = 0;
+	private static final byte TYPE_FLOAT = 1;
+	private static final byte TYPE_LONG = 2;
+	private static final byte TYPE_INT = 3;
+	private static final byte TYPE_DOUBLE = 4;
+	private static final byte TYPE_BYTES = 5;
+	private static final int MAX_VALUES = 16;
+
+	private SearchCursor() {
+	}
+
+	public static String encode(final FieldDoc fieldDoc, final Sort sort) {
+		final var bytes = new ByteArrayOutputStream();
+		try (final var out = new DataOutputStream(bytes)) {
+			out.writeInt(sortSignature(sort));
+			out.writeByte(fieldDoc.fields.length);
+			for (final var value : fieldDoc.fields) {
+				switch (value) {
+				case null -> out.writeByte(TYPE_NULL);
+				case final Float f -> {
+					out.writeByte(TYPE_FLOAT);
+					out.writeFloat(f);
+				}
+				case final Long l -> {
+					out.writeByte(TYPE_LONG);
+					out.writeLong(l);
+				}
+				case final Integer i -> {
+					out.writeByte(TYPE_INT);
+					out.writeInt(i);
+				}
+				case final Double d -> {
+					out.writeByte(TYPE_DOUBLE);
+					out.writeDouble(d);
+				}
+				case final BytesRef b -> {
+					out.writeByte(TYPE_BYTES);
+					out.writeShort(b.length);
+					out.write(b.bytes, b.offset, b.length);
+				}
+				default -> throw new IllegalArgumentException("Can't manage sort value type: " + value.getClass());
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+	}
+
+	private static int sortSignature(final Sort sort) {
+		return sort.toString().hashCode();
+	}
+
+	/**
+	 * @throws InvalidSearchRequestException on a non-valid cursor, or if it was made for another sort
+	 */
+	static FieldDoc decode(final String cursor, final Sort sort) {
+		final var decoded = decode(cursor);
+		if (decoded.sortSignature() != sortSignature(sort) || decoded.fields().length != sort.getSort().length) {
+			throw new InvalidSearchRequestException("This cursor was not made for this sort");
+		}
+		return new FieldDoc(MAX_VALUE, Float.NaN, decoded.fields());
+	}
+
+	private record DecodedCursor(int sortSignature, Object[] fields) {
+	}
+
+	private static DecodedCursor decode(final String cursor) {
+		final byte[] bytes;
+		try {
+			bytes = Base64.getUrlDecoder().decode(cursor);
+		} catch (final IllegalArgumentException e) {
+			throw new InvalidSearchRequestException("Invalid cursor encoding", e);
+		}
+		try (final var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			final var signature = in.readInt();
+			final var count = in.readUnsignedByte();
+			if (count == 0 || count > MAX_VALUES) {
+				throw new InvalidSearchRequestException("Invalid cursor values count: " + count);
+			}
+			final var fields = new Object[count];
+			for (var pos = 0; pos < count; pos++) {
+				fields[pos] = switch (in.readByte()) {
+				case TYPE_NULL -> null;
+				case TYPE_FLOAT -> in.readFloat();
+				case TYPE_LONG -> in.readLong();
+				case TYPE_INT -> in.readInt();
+				case TYPE_DOUBLE -> in.readDouble();
+				case TYPE_BYTES -> {
+					final var value = new byte[in.readUnsignedShort()];
+					in.readFully(value);
+					yield new BytesRef(value);
+				}
+				default -> throw new InvalidSearchRequestException("Invalid cursor value type");
+				};
+			}
+			if (in.available() > 0) {
+				throw new InvalidSearchRequestException("Invalid cursor, trailing bytes");
+			}
+			return new DecodedCursor(signature, fields);
+		} catch (final IOException e) {
+			throw new InvalidSearchRequestException("Invalid cursor", e);
+		}
+	}
+
+	/**
+	 * Only check the cursor format.
+	 */
+	public static boolean isValid(final String cursor) {
+		try {
+			decode(cursor);
+			return true;
+		} catch (final InvalidSearchRequestException e) {
+			return false;
+		}
+	}
+
+}
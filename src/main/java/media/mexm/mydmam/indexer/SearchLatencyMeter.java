@@ -0,0 +1,56 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free, as it's updated by all the concurrent searches.
+ */
+class SearchLatencyMeter {
+
+	private static final double NANOS_BY_MILLIS = 1_000_000d;
+
+	private final int searchThreads;
+	private final LongAdder searches;
+	private final LongAdder totalNanos;
+	private final LongAccumulator maxNanos;
+
+	SearchLatencyMeter(final int searchThreads) {
+		this.searchThreads = searchThreads;
+		searches = new LongAdder();
+		totalNanos = new LongAdder();
+		maxNanos = new LongAccumulator(Long::max, 0);
+	}
+
+	void add(final long durationNanos) {
+		searches.increment();
+		totalNanos.add(durationNanos);
+		maxNanos.accumulate(durationNanos);
+	}
+
+	SearchLatencyStats getStats() {
+		final var count = searches.sum();
+		return new SearchLatencyStats(
+				searchThreads,
+				count,
+				count == 0 ? 0d : totalNanos.sum() / NANOS_BY_MILLIS / count,
+				maxNanos.get() / NANOS_BY_MILLIS);
+	}
+
+}
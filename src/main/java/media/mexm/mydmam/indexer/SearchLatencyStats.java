@@ -0,0 +1,28 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+/**
+ * @param searchThreads 0 if the searches don't run in parallel on the index segments
+ * @param searches only the searches really run on the index (not the cached results)
+ */
+public record SearchLatencyStats(int searchThreads,
+								 long searches,
+								 double meanMillis,
+								 double maxMillis) {
+
+}
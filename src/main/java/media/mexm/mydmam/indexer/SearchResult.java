@@ -17,8 +17,39 @@
 package media.mexm.mydmam.indexer;
 
 import java.util.List;
+import java.util.Map;
 
+import jakarta.annotation.Nullable;
+
+/**
+ * @param nextCursor set if the page is full, to get the next page
+ * @param facets counts by facet dimension, on all founded files (not only on this page)
+ * @param partial the search time budget was exhausted: founded files, count and facets are incomplete
+ * @param degraded the expensive clauses (fuzzy, substring) were dropped, as the realm index was under load
+ */
 public record SearchResult(List<FileSearchResult> foundedFiles,
-						   int totalFounded) {
+						   int totalFounded,
+						   @Nullable String nextCursor,
+						   Map<String, List<SearchFacetCount>> facets,
+						   boolean partial,
+						   boolean degraded) {
+
+	public SearchResult(final List<FileSearchResult> foundedFiles,
+						final int totalFounded,
+						final String nextCursor,
+						final Map<String, List<SearchFacetCount>> facets) {
+		this(foundedFiles, totalFounded, nextCursor, facets, false, false);
+	}
+
+	public SearchResult withFlags(final boolean partial, final boolean degraded) {
+		return new SearchResult(foundedFiles, totalFounded, nextCursor, facets, partial, degraded);
+	}
+
+	/**
+	 * Only complete and non-degraded results can be cached.
+	 */
+	public boolean isCacheable() {
+		return partial == false && degraded == false;
+	}
 
 }
@@ -0,0 +1,145 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import java.util.LinkedHashMap;
+import java.util.Optional;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LRU, evicted by an estimated weight in bytes, and fully invalidated on each index generation change.
+ * Threadsafe.
+ */
+@Slf4j
+class SearchResultCache {
+
+	private static final int OBJECT_OVERHEAD = 48;
+
+	private final long maxWeight;
+	private final LinkedHashMap<SearchResultCacheKey, WeightedSearchResult> entries;
+	private long generation;
+	private long weight;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	private record WeightedSearchResult(SearchResult result, long weight) {
+	}
+
+	SearchResultCache(final long maxWeight) {
+		if (maxWeight < 0) {
+			throw new IllegalArgumentException("Invalid maxWeight=" + maxWeight);
+		}
+		this.maxWeight = maxWeight;
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+		generation = -1;
+	}
+
+	/**
+	 * @param generation the current index reader version
+	 */
+	synchronized Optional<SearchResult> get(final long generation, final SearchResultCacheKey key) {
+		if (isCurrentGeneration(generation) == false) {
+			misses++;
+			return Optional.empty();
+		}
+		final var entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+			return Optional.empty();
+		}
+		hits++;
+		return Optional.of(entry.result());
+	}
+
+	/**
+	 * @param generation the index reader version used to compute result. Ignored if it's an older one.
+	 */
+	synchronized void put(final long generation, final SearchResultCacheKey key, final SearchResult result) {
+		if (isCurrentGeneration(generation) == false) {
+			return;
+		}
+		final var entryWeight = estimateWeight(key, result);
+		if (entryWeight > maxWeight) {
+			return;
+		}
+
+		final var previous = entries.put(key, new WeightedSearchResult(result, entryWeight));
+		weight += entryWeight;
+		if (previous != null) {
+			weight -= previous.weight();
+		}
+
+		final var iterator = entries.values().iterator();
+		while (weight > maxWeight && iterator.hasNext()) {
+			weight -= iterator.next().weight();
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Move to a newer generation if needed, and drop all previous entries.
+	 * @return false if generation is older than the current one
+	 */
+	private boolean isCurrentGeneration(final long generation) {
+		if (generation < this.generation) {
+			return false;
+		} else if (generation > this.generation) {
+			if (entries.isEmpty() == false) {
+				log.trace("Invalidate {} search result(s) on index generation change", entries.size());
+			}
+			entries.clear();
+			weight = 0;
+			this.generation = generation;
+		}
+		return true;
+	}
+
+	synchronized SearchCacheStats getStats() {
+		return new SearchCacheStats(hits, misses, evictions, entries.size(), weight, maxWeight);
+	}
+
+	static long estimateWeight(final SearchResultCacheKey key, final SearchResult result) {
+		var total = OBJECT_OVERHEAD * 2l + stringWeight(key.q());
+		for (final var file : result.foundedFiles()) {
+			total += OBJECT_OVERHEAD
+					 + stringWeight(file.hashPath())
+					 + stringWeight(file.storage())
+					 + stringWeight(file.name())
+					 + stringWeight(file.parentPath())
+					 + stringWeight(file.explain())
+					 + stringWeight(file.highlight());
+		}
+		for (final var facet : result.facets().entrySet()) {
+			total += OBJECT_OVERHEAD + stringWeight(facet.getKey());
+			for (final var count : facet.getValue()) {
+				total += OBJECT_OVERHEAD + stringWeight(count.value());
+			}
+		}
+		return total;
+	}
+
+	private static long stringWeight(final String value) {
+		if (value == null) {
+			return 0;
+		}
+		return OBJECT_OVERHEAD + value.length() * 2l;
+	}
+
+}
@@ -0,0 +1,33 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Realm-less, as each RealmIndexer owns its cache.
+ * @param q normalized, so the same search typed differently shares its entry: with collapsed whitespaces for
+ *        an open search, and the analyzed (lower-cased) query for a full text search.
+ */
+record SearchResultCacheKey(String q,
+							@Nullable FileSearchConstraints constraints,
+							int limit,
+							@Nullable String cursor,
+							FileSearchSort sort,
+							boolean fullText) {
+
+}
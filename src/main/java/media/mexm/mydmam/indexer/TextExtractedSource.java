@@ -0,0 +1,30 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Opened only when the text is really needed (excerpt, then on Lucene write), and closed by the caller.
+ */
+@FunctionalInterface
+public interface TextExtractedSource {
+
+	Reader open() throws IOException;
+
+}
@@ -17,7 +17,28 @@
 package media.mexm.mydmam.indexer;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.index.Term;
 
+/**
+ * @param document never written as is, see makeDocument()
+ */
 public record UpdateDocument(Document document, Term termToUpdate) {
+
+	/**
+	 * Lucene consumes and closes the text readers on write: each write, like its replay on a rebuild index, needs its
+	 * own document, with new (not opened) readers on the same text sources.
+	 */
+	Document makeDocument() {
+		final var result = new Document();
+		for (final var field : document) {
+			if (field.readerValue() instanceof final LazyTextExtractedReader textReader) {
+				result.add(new Field(field.name(), textReader.copy(), field.fieldType()));
+			} else {
+				result.add(field);
+			}
+		}
+		return result;
+	}
+
 }
@@ -18,12 +18,16 @@ package media.mexm.mydmam.mtdthesaurus;
 
 import static java.lang.reflect.Proxy.newProxyInstance;
 import static java.util.Collections.unmodifiableMap;
+import static java.util.stream.Collectors.toUnmodifiableSet;
 import static media.mexm.mydmam.mtdthesaurus.MetadataThesaurusInstanceDefinition.extractClassifier;
 
+import java.lang.annotation.Annotation;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -69,6 +73,28 @@ public class MetadataThesaurusLogic implements MetadataThesaurusDefaultRegister
         return unmodifiableMap(result);
     }
 
+    /**
+     * @return the entries (without values) declared with MetadataThesaurusNumeric, on all the made instances
+     */
+    public Set<MetadataThesaurusEntry> getNumericEntries() {
+        return getAnnotatedEntries(MetadataThesaurusNumeric.class);
+    }
+
+    /**
+     * @return the entries (without values) declared with MetadataThesaurusSuggested, on all the made instances
+     */
+    public Set<MetadataThesaurusEntry> getSuggestedEntries() {
+        return getAnnotatedEntries(MetadataThesaurusSuggested.class);
+    }
+
+    private Set<MetadataThesaurusEntry> getAnnotatedEntries(final Class<? extends Annotation> annotation) {
+        return definitions.values().stream()
+                .flatMap(definition -> definition.getEntries().entrySet().stream())
+                .filter(entry -> entry.getKey().isAnnotationPresent(annotation))
+                .map(Entry::getValue)
+                .collect(toUnmodifiableSet());
+    }
+
     @Override
     public String toString() {
         return getImplements().toString();
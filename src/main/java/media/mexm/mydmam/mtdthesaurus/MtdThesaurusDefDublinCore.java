@@ -23,6 +23,7 @@ public interface MtdThesaurusDefDublinCore {
 
     MetadataThesaurusEntry coverage();
 
+    @MetadataThesaurusSuggested
     MetadataThesaurusEntry creator();
 
     MetadataThesaurusEntry date();
@@ -48,6 +49,7 @@ public interface MtdThesaurusDefDublinCore {
 
     MetadataThesaurusEntry subject();
 
+    @MetadataThesaurusSuggested
     MetadataThesaurusEntry title();
 
     MetadataThesaurusEntry type();
@@ -19,6 +19,7 @@ package media.mexm.mydmam.mtdthesaurus;
 @MetadataThesaurusClassifier(value = "pdf")
 public interface MtdThesaurusDefPDF {
 
+    @MetadataThesaurusNumeric
     MetadataThesaurusEntry pageCount();
 
     MetadataThesaurusEntry encrypted();
@@ -45,8 +46,10 @@ public interface MtdThesaurusDefPDF {
 
     MetadataThesaurusEntry permissionAddNotes();
 
+    @MetadataThesaurusNumeric
     MetadataThesaurusEntry pageWidthMm();
 
+    @MetadataThesaurusNumeric
     MetadataThesaurusEntry pageHeightMm();
 
     MetadataThesaurusEntry pageRotated();
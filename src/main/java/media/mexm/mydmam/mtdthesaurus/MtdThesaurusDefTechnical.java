@@ -19,8 +19,10 @@ package media.mexm.mydmam.mtdthesaurus;
 @MetadataThesaurusClassifier(value = "technical")
 public interface MtdThesaurusDefTechnical {
 
+    @MetadataThesaurusNumeric
     MetadataThesaurusEntry width();
 
+    @MetadataThesaurusNumeric
     MetadataThesaurusEntry height();
 
     MetadataThesaurusEntry colorspace();
@@ -29,6 +31,7 @@ public interface MtdThesaurusDefTechnical {
 
     MetadataThesaurusEntry type();
 
+    @MetadataThesaurusNumeric
     MetadataThesaurusEntry aspectRatio();
 
     /**
@@ -0,0 +1,49 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import java.util.List;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * A directory state, as stored by the previous scans.
+ * @param lastModified the directory mtime when it was listed, null if never listed
+ * @param children the accepted children count when it was listed, null if never listed
+ * @param storedChildren the children rows actually in database
+ * @param pendingChildren the children rows not yet marked as done
+ * @param childDirectories the paths of the stored children directories
+ */
+public record KnownDirectory(@Nullable Long lastModified,
+							 @Nullable Integer children,
+							 int storedChildren,
+							 int pendingChildren,
+							 List<String> childDirectories) {
+
+	/**
+	 * A directory mtime only moves when its direct entries are added, removed or renamed.
+	 * @return true if the stored children can be trusted without listing the directory again
+	 */
+	public boolean isUnchanged(final long currentLastModified) {
+		return lastModified != null
+			   && lastModified == currentLastModified
+			   && children != null
+			   && children == storedChildren
+			   && pendingChildren == 0;
+	}
+
+}
@@ -16,14 +16,17 @@
  */
 package media.mexm.mydmam.pathindexing;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
 import java.util.Set;
 
+import jakarta.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import media.mexm.mydmam.configuration.PathIndexingStorage;
 import media.mexm.mydmam.service.PathIndexerService;
 import tv.hd3g.jobkit.watchfolder.ObservedFolder;
 import tv.hd3g.jobkit.watchfolder.WatchFolderPickupType;
-import tv.hd3g.jobkit.watchfolder.WatchedFileScanner;
 import tv.hd3g.jobkit.watchfolder.WatchedFiles;
 import tv.hd3g.jobkit.watchfolder.WatchedFilesDb;
 import tv.hd3g.transfertfiles.AbstractFileSystemURL;
@@ -32,19 +35,28 @@ import tv.hd3g.transfertfiles.CachedFileAttributes;
 @Slf4j
 public class RealmStorageWatchedFilesDb implements WatchedFilesDb {
 
-	private final WatchedFileScanner scanner;
+	private final StorageTreeScanner scanner;
 	private final String realmName;
 	private final String storageName;
 	private final PathIndexerService pathIndexerService;
+	private final Duration timeBetweenFullScans;
+	private final StorageChangeWatcher changeWatcher;
+	private Instant lastFullScan;
 
+	/**
+	 * @param changeWatcher if not null, the scans only list the touched directories, until the next full scan.
+	 */
 	public RealmStorageWatchedFilesDb(final PathIndexerService pathIndexerService,
 									  final String realmName,
 									  final String storageName,
-									  final PathIndexingStorage storage) {
+									  final PathIndexingStorage storage,
+									  @Nullable final StorageChangeWatcher changeWatcher) {
 		this.pathIndexerService = pathIndexerService;
 		this.realmName = realmName;
 		this.storageName = storageName;
-		scanner = new WatchedFileScanner(storage.makeObservedFolder(realmName, storageName), storage.maxDeep());
+		this.changeWatcher = changeWatcher;
+		scanner = new StorageTreeScanner(storage);
+		timeBetweenFullScans = storage.timeBetweenFullScans();
 	}
 
 	@Override
@@ -54,10 +66,24 @@ public class RealmStorageWatchedFilesDb implements WatchedFilesDb {
 		 */
 	}
 
+	/**
+	 * The first scan after start is always a full scan, like the first one after lost changes.
+	 */
 	@Override
 	public WatchedFiles update(final ObservedFolder observedFolder, final AbstractFileSystemURL fileSystem) {
-		return pathIndexerService.updateFoundedFiles(
-				scanner, realmName, storageName, observedFolder, fileSystem);
+		final var changes = Optional.ofNullable(changeWatcher).map(StorageChangeWatcher::pollChanges);
+		final var now = Instant.now();
+		final var fullScan = timeBetweenFullScans == null
+							 || lastFullScan == null
+							 || lastFullScan.plus(timeBetweenFullScans).isAfter(now) == false
+							 || changes.map(StorageChanges::overflow).orElse(false);
+		final var touchedDirectories = changes.map(StorageChanges::directories).orElse(null);
+		final var result = pathIndexerService.updateFoundedFiles(
+				scanner, realmName, storageName, observedFolder, fileSystem, fullScan, touchedDirectories);
+		if (fullScan) {
+			lastFullScan = now;
+		}
+		return result;
 	}
 
 	@Override
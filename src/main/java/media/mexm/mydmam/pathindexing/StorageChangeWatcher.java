@@ -0,0 +1,240 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import static java.lang.Thread.currentThread;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watch a local storage tree, up to maxDeep, with the OS file events (inotify on Linux).
+ * The events are coalesced by directory: onChanges is called coalesceDelay after the first event, and called again
+ * confirmationDelay after, to let the scan qualify the new files. The scan pulls the touched directories with
+ * pollChanges().
+ * If some events are lost (queue overflow, too many watched directories), pollChanges() asks for a full scan.
+ * Threadsafe.
+ */
+@Slf4j
+public class StorageChangeWatcher implements AutoCloseable {
+
+	private static final long POLL_MILLIS = 100;
+	private static final String ROOT_PATH = "/";
+
+	private final Path rootDirectory;
+	private final int maxDeep;
+	private final long coalesceDelayMillis;
+	private final long confirmationDelayMillis;
+	private final Runnable onChanges;
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> watchedDirectories;
+	private final Set<String> touchedDirectories;
+	private final Thread worker;
+	private boolean overflow;
+	private volatile boolean closed;
+
+	public StorageChangeWatcher(final Path rootDirectory,
+								final String label,
+								final int maxDeep,
+								final Duration coalesceDelay,
+								final Duration confirmationDelay,
+								final Runnable onChanges) throws IOException {
+		this.rootDirectory = requireNonNull(rootDirectory, "\"rootDirectory\" can't to be null");
+		this.maxDeep = maxDeep;
+		coalesceDelayMillis = coalesceDelay.toMillis();
+		confirmationDelayMillis = coalesceDelay.plus(confirmationDelay).toMillis();
+		this.onChanges = requireNonNull(onChanges, "\"onChanges\" can't to be null");
+		watchService = rootDirectory.getFileSystem().newWatchService();
+		watchedDirectories = new ConcurrentHashMap<>();
+		touchedDirectories = new HashSet<>();
+
+		register(rootDirectory, 0);
+		log.info("Watch changes on {} ({}): {} directories", label, rootDirectory, watchedDirectories.size());
+
+		worker = Thread.ofPlatform()
+				.name("watch-" + label)
+				.daemon()
+				.uncaughtExceptionHandler((_, e) -> log.error("Can't watch changes on {}", label, e))
+				.start(this::work);
+	}
+
+	/**
+	 * @return the changes since the last call, and forget them
+	 */
+	public synchronized StorageChanges pollChanges() {
+		final var changes = new StorageChanges(Set.copyOf(touchedDirectories), overflow);
+		touchedDirectories.clear();
+		overflow = false;
+		return changes;
+	}
+
+	int getWatchedDirectoriesCount() {
+		return watchedDirectories.size();
+	}
+
+	/**
+	 * @param depth of directory, from the root directory
+	 */
+	private void register(final Path directory, final int depth) {
+		final var visitor = new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(final Path dir,
+													 final BasicFileAttributes attrs) throws IOException {
+				watchedDirectories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+				return CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+				log.debug("Can't watch {}", file, e);
+				return CONTINUE;
+			}
+		};
+
+		try {
+			/**
+			 * The directories at the max depth are only visited as files.
+			 */
+			Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), maxDeep - depth + 1, visitor);
+		} catch (final IOException e) {
+			log.warn("Can't watch all the directories from {}, the next scan will be a full one", directory, e);
+			synchronized (this) {
+				overflow = true;
+			}
+		}
+	}
+
+	private void work() {
+		var firstEventTime = -1l;
+		var confirmationTime = -1l;
+		while (closed == false) {
+			final WatchKey key;
+			try {
+				key = watchService.poll(POLL_MILLIS, MILLISECONDS);
+			} catch (final InterruptedException e) {
+				currentThread().interrupt();
+				return;
+			} catch (final ClosedWatchServiceException e) {
+				return;
+			}
+
+			final var now = System.currentTimeMillis();
+			if (key != null && onEvents(key) && firstEventTime < 0) {
+				firstEventTime = now;
+			}
+			if (firstEventTime >= 0 && now - firstEventTime >= coalesceDelayMillis) {
+				firstEventTime = -1;
+				confirmationTime = now + confirmationDelayMillis;
+				fire();
+			} else if (confirmationTime >= 0 && now >= confirmationTime) {
+				confirmationTime = -1;
+				fire();
+			}
+		}
+	}
+
+	/**
+	 * @return true if some events was founded
+	 */
+	private boolean onEvents(final WatchKey key) {
+		final var directory = watchedDirectories.get(key);
+		final var events = key.pollEvents();
+		if (directory != null) {
+			for (final var event : events) {
+				if (event.kind() == OVERFLOW) {
+					log.info("Too many changes on {}, the next scan will be a full one", rootDirectory);
+					synchronized (this) {
+						overflow = true;
+					}
+					continue;
+				}
+				final var child = directory.resolve((Path) event.context());
+				synchronized (this) {
+					touchedDirectories.add(toStoragePath(directory));
+				}
+				if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, NOFOLLOW_LINKS)) {
+					final var depth = rootDirectory.relativize(child).getNameCount();
+					if (depth <= maxDeep) {
+						register(child, depth);
+					}
+				}
+			}
+		}
+		if (key.reset() == false) {
+			watchedDirectories.remove(key);
+		}
+		return events.isEmpty() == false;
+	}
+
+	private void fire() {
+		try {
+			onChanges.run();
+		} catch (final RuntimeException e) {
+			log.error("Can't handle changes on {}", rootDirectory, e);
+		}
+	}
+
+	private String toStoragePath(final Path directory) {
+		if (directory.equals(rootDirectory)) {
+			return ROOT_PATH;
+		}
+		return ROOT_PATH + rootDirectory.relativize(directory).toString().replace(File.separatorChar, '/');
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			watchService.close();
+		} catch (final IOException e) {
+			log.warn("Can't close watch service on {}", rootDirectory, e);
+		}
+		try {
+			worker.join();
+		} catch (final InterruptedException e) {
+			log.warn("Can't wait the end of {}", worker.getName(), e);
+			currentThread().interrupt();
+		}
+	}
+
+}
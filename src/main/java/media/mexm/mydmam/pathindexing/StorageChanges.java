@@ -0,0 +1,27 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import java.util.Set;
+
+/**
+ * @param directories the storage paths of the directories with changed entries, since the last poll
+ * @param overflow some events were lost since the last poll: only a full scan can catch up
+ */
+public record StorageChanges(Set<String> directories, boolean overflow) {
+
+}
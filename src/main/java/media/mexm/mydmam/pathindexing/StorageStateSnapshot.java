@@ -0,0 +1,330 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A compact on-disk image of the file rows of a storage, as StoredFileState, sorted by hashPath.
+ * The scan diffs read it via a memory mapping instead of loading all the rows from the database.
+ * It's only a cache: the next version is written during a scan and replace it only after the database commit, and
+ * it can be deleted at any time (it will be rebuilt from the database by the next scan).
+ * It's stamped with the storage generation of its rows: any other write on the rows bumps it, and makes this snapshot
+ * outdated.
+ * File format: a header (magic, version, records count, generation), then fixed size records: hashPath and
+ * parentHashPath as raw sha256 bytes (the unsigned bytes order is the hex strings order), modified, length,
+ * watchLast, flags.
+ * Not threadsafe: only one scan at a time by storage.
+ */
+@Slf4j
+public class StorageStateSnapshot {
+
+	static final int MAGIC = 0x4D445353;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 24;
+	static final int RECORD_SIZE = 96;
+	static final String DIRECTORY_NAME = "storage-states";
+
+	private static final int HASH_SIZE = 32;
+	private static final int PARENT_HASH_POS = 32;
+	private static final int MODIFIED_POS = 64;
+	private static final int LENGTH_POS = 72;
+	private static final int WATCH_LAST_POS = 80;
+	private static final int FLAGS_POS = 88;
+	private static final int FLAG_DIRECTORY = 1;
+	private static final int FLAG_MARKED_AS_DONE = 2;
+	private static final int FLAG_LAST_IS_SAME = 4;
+	private static final int FLAG_DONE_BUT_CHANGED = 8;
+	private static final int WRITE_BUFFER_RECORDS = 1024;
+
+	private static final ValueLayout.OfInt INT = JAVA_INT_UNALIGNED.withOrder(BIG_ENDIAN);
+	private static final ValueLayout.OfLong LONG = JAVA_LONG_UNALIGNED.withOrder(BIG_ENDIAN);
+	private static final HexFormat HEX = HexFormat.of();
+
+	@Getter
+	private final File file;
+
+	public StorageStateSnapshot(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @param workingDirectory the realm working directory
+	 */
+	public static StorageStateSnapshot forStorage(final File workingDirectory,
+												  final String realmName,
+												  final String storageName) {
+		return new StorageStateSnapshot(
+				new File(new File(workingDirectory, DIRECTORY_NAME), realmName + "." + storageName + ".bin"));
+	}
+
+	/**
+	 * @return empty if the file is missing or not valid
+	 */
+	public Optional<Reader> openReader() {
+		if (file.exists() == false) {
+			return Optional.empty();
+		}
+		final var arena = Arena.ofConfined();
+		try (final var channel = FileChannel.open(file.toPath(), READ)) {
+			final var size = channel.size();
+			if (size >= HEADER_SIZE) {
+				final var segment = channel.map(READ_ONLY, 0, size, arena);
+				final var count = segment.get(LONG, 8);
+				if (segment.get(INT, 0) == MAGIC
+					&& segment.get(INT, 4) == VERSION
+					&& count >= 0
+					&& HEADER_SIZE + count * RECORD_SIZE == size) {
+					return Optional.of(new Reader(arena, segment, count, segment.get(LONG, 16)));
+				}
+			}
+		} catch (final IOException e) {
+			arena.close();
+			throw new UncheckedIOException("Can't read storage state snapshot " + file, e);
+		}
+		arena.close();
+		log.warn("Invalid storage state snapshot, ignore it: {}", file);
+		return Optional.empty();
+	}
+
+	/**
+	 * The snapshot is not changed until Writer.publish.
+	 */
+	public Writer openWriter() {
+		try {
+			return new Writer(new File(file.getParentFile(), file.getName() + ".next"));
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't write storage state snapshot " + file, e);
+		}
+	}
+
+	public void delete() {
+		try {
+			if (Files.deleteIfExists(file.toPath())) {
+				log.debug("Delete storage state snapshot {}", file);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Can't delete storage state snapshot " + file, e);
+		}
+	}
+
+	private static int getFlags(final StoredFileState state) {
+		return (state.directory() ? FLAG_DIRECTORY : 0)
+			   | (state.watchMarkedAsDone() ? FLAG_MARKED_AS_DONE : 0)
+			   | (state.watchLastIsSame() ? FLAG_LAST_IS_SAME : 0)
+			   | (state.watchDoneButChanged() ? FLAG_DONE_BUT_CHANGED : 0);
+	}
+
+	/**
+	 * Records are read on demand from the mapping, in the file order.
+	 */
+	public static class Reader implements Iterator<StoredFileState>, AutoCloseable {
+
+		private final Arena arena;
+		private final MemorySegment segment;
+		private final long count;
+		private final long generation;
+		private long position;
+
+		private Reader(final Arena arena, final MemorySegment segment, final long count, final long generation) {
+			this.arena = arena;
+			this.segment = segment;
+			this.count = count;
+			this.generation = generation;
+		}
+
+		public long count() {
+			return count;
+		}
+
+		/**
+		 * @return the storage generation of the rows written in this snapshot
+		 */
+		public long generation() {
+			return generation;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return position < count;
+		}
+
+		@Override
+		public StoredFileState next() {
+			if (hasNext() == false) {
+				throw new NoSuchElementException();
+			}
+			final var offset = HEADER_SIZE + position * RECORD_SIZE;
+			position++;
+			final var flags = segment.get(INT, offset + FLAGS_POS);
+			return new StoredFileState(
+					readHash(offset),
+					readHash(offset + PARENT_HASH_POS),
+					(flags & FLAG_DIRECTORY) != 0,
+					segment.get(LONG, offset + MODIFIED_POS),
+					segment.get(LONG, offset + LENGTH_POS),
+					segment.get(LONG, offset + WATCH_LAST_POS),
+					(flags & FLAG_MARKED_AS_DONE) != 0,
+					(flags & FLAG_LAST_IS_SAME) != 0,
+					(flags & FLAG_DONE_BUT_CHANGED) != 0);
+		}
+
+		private String readHash(final long offset) {
+			return HEX.formatHex(segment.asSlice(offset, HASH_SIZE).toArray(JAVA_BYTE));
+		}
+
+		@Override
+		public void close() {
+			arena.close();
+		}
+
+	}
+
+	/**
+	 * Sequential writes in a side file. Records must be added in the hashPath order.
+	 */
+	public class Writer {
+
+		private final File nextFile;
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long count;
+		private String lastHashPath;
+		private boolean finished;
+
+		private Writer(final File nextFile) throws IOException {
+			this.nextFile = nextFile;
+			Files.createDirectories(nextFile.getParentFile().toPath());
+			channel = FileChannel.open(nextFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING);
+			buffer = ByteBuffer.allocate(RECORD_SIZE * WRITE_BUFFER_RECORDS);
+			buffer.position(HEADER_SIZE);
+		}
+
+		public void add(final StoredFileState state) {
+			if (lastHashPath != null && lastHashPath.compareTo(state.hashPath()) >= 0) {
+				throw new IllegalStateException("Not sorted hashPath: " + state.hashPath() + " after " + lastHashPath);
+			}
+			lastHashPath = state.hashPath();
+			if (buffer.remaining() < RECORD_SIZE) {
+				flush();
+			}
+			buffer.put(HEX.parseHex(state.hashPath()))
+					.put(HEX.parseHex(state.parentHashPath()))
+					.putLong(state.modified())
+					.putLong(state.length())
+					.putLong(state.watchLast())
+					.putInt(getFlags(state))
+					.putInt(0);
+			count++;
+		}
+
+		private void flush() {
+			try {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				buffer.clear();
+			} catch (final IOException e) {
+				throw new UncheckedIOException("Can't write storage state snapshot " + nextFile, e);
+			}
+		}
+
+		/**
+		 * Write the header and sync the side file on disk.
+		 * @param generation the storage generation after the last write of the rows written here
+		 */
+		public void finish(final long generation) {
+			flush();
+			try {
+				channel.write(ByteBuffer.allocate(HEADER_SIZE)
+						.putInt(MAGIC)
+						.putInt(VERSION)
+						.putLong(count)
+						.putLong(generation)
+						.flip(), 0);
+				channel.force(false);
+				channel.close();
+			} catch (final IOException e) {
+				throw new UncheckedIOException("Can't write storage state snapshot " + nextFile, e);
+			}
+			finished = true;
+		}
+
+		/**
+		 * Atomically replace the current snapshot by this one.
+		 */
+		public void publish() {
+			if (finished == false) {
+				throw new IllegalStateException("Not finished snapshot " + nextFile);
+			}
+			try {
+				Files.move(nextFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+			} catch (final IOException e) {
+				/**
+				 * The current snapshot is outdated now
+				 */
+				discard();
+				deleteQuietly(file);
+				throw new UncheckedIOException("Can't publish storage state snapshot " + nextFile, e);
+			}
+			log.debug("Publish storage state snapshot {}, {} record(s)", file, count);
+		}
+
+		/**
+		 * Drop this snapshot, and keep the current one.
+		 */
+		public void discard() {
+			try {
+				channel.close();
+				Files.deleteIfExists(nextFile.toPath());
+			} catch (final IOException e) {
+				log.warn("Can't discard storage state snapshot {}", nextFile, e);
+			}
+		}
+
+	}
+
+}
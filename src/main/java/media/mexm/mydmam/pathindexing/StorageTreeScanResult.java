@@ -0,0 +1,33 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import java.util.List;
+import java.util.Set;
+
+import tv.hd3g.transfertfiles.CachedFileAttributes;
+
+/**
+ * @param detected the accepted entries of the listed directories
+ * @param skippedDirectories the paths of the unchanged directories, not listed: their stored children are kept as is
+ * @param listedDirectories the listed directories states (without the root directory)
+ */
+public record StorageTreeScanResult(List<CachedFileAttributes> detected,
+									Set<String> skippedDirectories,
+									List<ScannedDirectory> listedDirectories) {
+
+}
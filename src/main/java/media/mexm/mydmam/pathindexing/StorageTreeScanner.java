@@ -0,0 +1,350 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.stream.Collectors.toUnmodifiableSet;
+import static org.apache.commons.io.FilenameUtils.getExtension;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+import media.mexm.mydmam.configuration.PathIndexingStorage;
+import tv.hd3g.transfertfiles.AbstractFile;
+import tv.hd3g.transfertfiles.AbstractFileSystemURL;
+import tv.hd3g.transfertfiles.CachedFileAttributes;
+
+/**
+ * Walk a storage tree up to maxDeep, with the storage filters.
+ * With known directories, the unchanged ones are not listed: only their stored children directories are checked.
+ * With touched directories (from a StorageChangeWatcher), there is no walk: only the touched ones are listed.
+ * The sibling directories can be listed in parallel, up to the storage scanParallelism.
+ */
+@Slf4j
+public class StorageTreeScanner {
+
+	private static final String ROOT_PATH = "/";
+
+	private final int maxDeep;
+	private final boolean allowedHidden;
+	private final boolean allowedLinks;
+	private final Set<String> allowedExtentions;
+	private final Set<String> blockedExtentions;
+	private final Set<String> ignoreRelativePaths;
+	private final Set<String> ignoreFiles;
+	private final Set<String> allowedFileNames;
+	private final Set<String> allowedDirNames;
+	private final Set<String> blockedFileNames;
+	private final Set<String> blockedDirNames;
+	private final String storagePath;
+	private final int scanParallelism;
+
+	public StorageTreeScanner(final PathIndexingStorage storage) {
+		storagePath = storage.path();
+		scanParallelism = Math.max(1, storage.scanParallelism());
+		maxDeep = storage.maxDeep();
+		allowedHidden = storage.allowedHidden();
+		allowedLinks = storage.allowedLinks();
+		allowedExtentions = normalize(storage.allowedExtentions(), StorageTreeScanner::normalizeExtention);
+		blockedExtentions = normalize(storage.blockedExtentions(), StorageTreeScanner::normalizeExtention);
+		ignoreRelativePaths = normalize(storage.ignoreRelativePaths(), StorageTreeScanner::normalizeRelativePath);
+		ignoreFiles = normalize(storage.ignoreFiles(), String::toLowerCase);
+		allowedFileNames = normalize(storage.allowedFileNames(), Function.identity());
+		allowedDirNames = normalize(storage.allowedDirNames(), Function.identity());
+		blockedFileNames = normalize(storage.blockedFileNames(), Function.identity());
+		blockedDirNames = normalize(storage.blockedDirNames(), Function.identity());
+	}
+
+	private static Set<String> normalize(final Set<String> items, final Function<String, String> normalizer) {
+		return Optional.ofNullable(items)
+				.orElse(Set.of())
+				.stream()
+				.map(normalizer)
+				.collect(toUnmodifiableSet());
+	}
+
+	private static String normalizeExtention(final String extention) {
+		return extention.startsWith(".") ? extention.substring(1).toLowerCase() : extention.toLowerCase();
+	}
+
+	private static String normalizeRelativePath(final String path) {
+		var result = path;
+		while (result.startsWith("/")) {
+			result = result.substring(1);
+		}
+		while (result.endsWith("/")) {
+			result = result.substring(0, result.length() - 1);
+		}
+		return result;
+	}
+
+	/**
+	 * @param knownDirectories by path, from the previous scans. Empty for a full scan.
+	 */
+	public StorageTreeScanResult scan(final AbstractFileSystemURL fileSystem,
+									  final Map<String, KnownDirectory> knownDirectories) {
+		try (final var session = new ScanSession(fileSystem, knownDirectories, true)) {
+			session.run(() -> session.list(session.getFileSystem().getFromPath(ROOT_PATH), ROOT_PATH, 0, maxDeep));
+			log.debug("Scan {}: {} detected, {} listed directories, {} skipped directories",
+					fileSystem, session.detected.size(), session.listed.size(), session.skipped.size());
+			return new StorageTreeScanResult(
+					List.copyOf(session.detected),
+					Set.copyOf(session.skipped),
+					List.copyOf(session.listed));
+		}
+	}
+
+	/**
+	 * No tree walk: only list the touched directories, the directories with pending children, and the new
+	 * directories founded in them. All the other known directories are skipped.
+	 * @param knownDirectories by path, from the previous scans, with the root directory
+	 * @param touchedDirectories the paths of the directories with changed entries
+	 */
+	public StorageTreeScanResult scanTouched(final AbstractFileSystemURL fileSystem,
+											 final Map<String, KnownDirectory> knownDirectories,
+											 final Set<String> touchedDirectories) {
+		final var toList = new TreeSet<>(touchedDirectories);
+		knownDirectories.forEach((path, known) -> {
+			if (known.pendingChildren() > 0) {
+				toList.add(path);
+			}
+		});
+
+		try (final var session = new ScanSession(fileSystem, knownDirectories, false)) {
+			session.run(() -> session.forEach(toList, path -> {
+				final var deep = maxDeep - getDepth(path);
+				if (ROOT_PATH.equals(path)) {
+					session.list(session.getFileSystem().getFromPath(ROOT_PATH), ROOT_PATH, 0, maxDeep);
+				} else if (deep >= 0 && knownDirectories.containsKey(path)) {
+					/**
+					 * Only the known directories: the new ones are listed from their parent, with the filters.
+					 */
+					final var directory = session.getFileSystem().getFromPath(path);
+					if (directory.exists() && directory.isDirectory()) {
+						session.list(directory, path, directory.lastModified(), deep);
+					}
+				}
+			}));
+			return makeTouchedResult(fileSystem, knownDirectories, touchedDirectories, session);
+		}
+	}
+
+	private static StorageTreeScanResult makeTouchedResult(final AbstractFileSystemURL fileSystem,
+														   final Map<String, KnownDirectory> knownDirectories,
+														   final Set<String> touchedDirectories,
+														   final ScanSession session) {
+		/**
+		 * A known directory removed from a listed directory is gone with all its subdirectories: not skipped.
+		 */
+		final var detectedPaths = session.detected.stream()
+				.map(CachedFileAttributes::getPath)
+				.collect(toUnmodifiableSet());
+		final var gone = new HashSet<String>();
+		final var skipped = new HashSet<String>();
+		for (final var path : new TreeSet<>(knownDirectories.keySet())) {
+			if (ROOT_PATH.equals(path) || session.listedPaths.contains(path)) {
+				continue;
+			}
+			final var parent = getParentPath(path);
+			if (gone.contains(parent)
+				|| session.listedPaths.contains(parent) && detectedPaths.contains(path) == false) {
+				gone.add(path);
+			} else {
+				skipped.add(path);
+			}
+		}
+		if (session.listedPaths.contains(ROOT_PATH) == false) {
+			skipped.add(ROOT_PATH);
+		}
+
+		log.debug("Scan touched {}: {} touched, {} detected, {} listed directories, {} skipped directories",
+				fileSystem, touchedDirectories.size(), session.detected.size(), session.listed.size(), skipped.size());
+		return new StorageTreeScanResult(
+				List.copyOf(session.detected),
+				unmodifiableSet(skipped),
+				List.copyOf(session.listed));
+	}
+
+	private static int getDepth(final String path) {
+		if (ROOT_PATH.equals(path)) {
+			return 0;
+		}
+		return (int) path.chars().filter(c -> c == '/').count();
+	}
+
+	private static String getParentPath(final String path) {
+		final var pos = path.lastIndexOf('/');
+		if (pos < 1) {
+			return ROOT_PATH;
+		}
+		return path.substring(0, pos);
+	}
+
+	boolean isAccepted(final CachedFileAttributes file) {
+		if (allowedHidden == false && file.isHidden()
+			|| allowedLinks == false && file.isLink()
+			|| file.isSpecial()) {
+			return false;
+		}
+		final var name = file.getName();
+		if (ignoreFiles.contains(name.toLowerCase())
+			|| ignoreRelativePaths.contains(normalizeRelativePath(file.getPath()))) {
+			return false;
+		}
+		if (file.isDirectory()) {
+			return (allowedDirNames.isEmpty() || allowedDirNames.contains(name))
+				   && blockedDirNames.contains(name) == false;
+		}
+		final var extention = getExtension(name).toLowerCase();
+		return (allowedExtentions.isEmpty() || allowedExtentions.contains(extention))
+			   && blockedExtentions.contains(extention) == false
+			   && (allowedFileNames.isEmpty() || allowedFileNames.contains(name))
+			   && blockedFileNames.contains(name) == false;
+	}
+
+	/**
+	 * With a scanParallelism > 1, the directories are listed in parallel, and each worker thread gets its own
+	 * file system connection.
+	 */
+	private class ScanSession implements AutoCloseable {
+		private final AbstractFileSystemURL fileSystem;
+		private final Map<String, KnownDirectory> knownDirectories;
+		private final Queue<CachedFileAttributes> detected;
+		private final Set<String> skipped;
+		private final Queue<ScannedDirectory> listed;
+		private final Set<String> listedPaths;
+		/**
+		 * Check the children directories of the skipped directories
+		 */
+		private final boolean walk;
+		private final ForkJoinPool pool;
+		private final Map<Thread, AbstractFileSystemURL> workerFileSystems;
+
+		private ScanSession(final AbstractFileSystemURL fileSystem,
+							final Map<String, KnownDirectory> knownDirectories,
+							final boolean walk) {
+			this.fileSystem = fileSystem;
+			this.knownDirectories = knownDirectories;
+			this.walk = walk;
+			detected = new ConcurrentLinkedQueue<>();
+			skipped = ConcurrentHashMap.newKeySet();
+			listed = new ConcurrentLinkedQueue<>();
+			listedPaths = ConcurrentHashMap.newKeySet();
+			pool = scanParallelism > 1 ? new ForkJoinPool(scanParallelism) : null;
+			workerFileSystems = new ConcurrentHashMap<>();
+		}
+
+		private void run(final Runnable action) {
+			if (pool == null) {
+				action.run();
+			} else {
+				pool.invoke(ForkJoinTask.adapt(action));
+			}
+		}
+
+		/**
+		 * Only call it from run()
+		 */
+		private <T> void forEach(final Collection<T> items, final Consumer<T> action) {
+			if (pool == null || items.size() < 2) {
+				items.forEach(action);
+				return;
+			}
+			ForkJoinTask.invokeAll(items.stream()
+					.<ForkJoinTask<?>> map(item -> ForkJoinTask.adapt(() -> action.accept(item)))
+					.toList());
+		}
+
+		private AbstractFileSystemURL getFileSystem() {
+			if (pool == null) {
+				return fileSystem;
+			}
+			return workerFileSystems.computeIfAbsent(currentThread(), _ -> new AbstractFileSystemURL(storagePath));
+		}
+
+		private void visit(final String path, final long lastModified, final int deep) {
+			final var known = knownDirectories.get(path);
+			if (known == null || known.isUnchanged(lastModified) == false) {
+				list(getFileSystem().getFromPath(path), path, lastModified, deep);
+				return;
+			}
+
+			/**
+			 * No listing, but the children directories can have changed.
+			 * A removed child directory would have changed this directory mtime: it's just ignored here.
+			 */
+			skipped.add(path);
+			if (deep == 0 || walk == false) {
+				return;
+			}
+			forEach(known.childDirectories(), childPath -> {
+				final var child = getFileSystem().getFromPath(childPath);
+				if (child.exists() && child.isDirectory()) {
+					visit(childPath, child.lastModified(), deep - 1);
+				}
+			});
+		}
+
+		private void list(final AbstractFile directory, final String path, final long lastModified, final int deep) {
+			if (listedPaths.add(path) == false) {
+				return;
+			}
+			final var children = directory.toCachedList()
+					.filter(StorageTreeScanner.this::isAccepted)
+					.toList();
+			detected.addAll(children);
+			if (ROOT_PATH.equals(path) == false) {
+				listed.add(new ScannedDirectory(path, lastModified, children.size()));
+			}
+			if (deep == 0) {
+				return;
+			}
+			forEach(children.stream().filter(CachedFileAttributes::isDirectory).toList(),
+					child -> visit(child.getPath(), child.lastModified(), deep - 1));
+		}
+
+		@Override
+		public void close() {
+			if (pool == null) {
+				return;
+			}
+			pool.close();
+			workerFileSystems.values().forEach(workerFileSystem -> {
+				try {
+					workerFileSystem.close();
+				} catch (final Exception e) {
+					log.warn("Can't close {}", workerFileSystem, e);
+				}
+			});
+		}
+	}
+
+}
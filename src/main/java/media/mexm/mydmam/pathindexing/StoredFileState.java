@@ -0,0 +1,94 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import static java.lang.Math.round;
+
+import java.time.Duration;
+
+import media.mexm.mydmam.entity.FileEntity;
+import tv.hd3g.transfertfiles.CachedFileAttributes;
+
+/**
+ * The scan relevant columns of a file row, without the path and the relations: all a scan diff needs to update it.
+ * Immutable, the watch rules are the same as FileEntity.update / isTimeQualified.
+ * @param modified rounded to the second, in ms
+ * @param watchLast in ms
+ */
+public record StoredFileState(String hashPath,
+							  String parentHashPath,
+							  boolean directory,
+							  long modified,
+							  long length,
+							  long watchLast,
+							  boolean watchMarkedAsDone,
+							  boolean watchLastIsSame,
+							  boolean watchDoneButChanged) {
+
+	public static StoredFileState of(final FileEntity entity) {
+		return new StoredFileState(
+				entity.getHashPath(),
+				entity.getParentHashPath(),
+				entity.isDirectory(),
+				entity.getModified().getTime(),
+				entity.getLength(),
+				entity.getWatchLast().getTime(),
+				entity.isWatchMarkedAsDone(),
+				entity.isWatchLastIsSame(),
+				entity.isWatchDoneButChanged());
+	}
+
+	private static long roundModified(final CachedFileAttributes file) {
+		return round(file.lastModified() / 1000d) * 1000;
+	}
+
+	public StoredFileState update(final CachedFileAttributes seeAgainFile) {
+		if (directory) {
+			if (watchMarkedAsDone) {
+				return this;
+			}
+			return new StoredFileState(hashPath, parentHashPath, directory,
+					roundModified(seeAgainFile), seeAgainFile.length(),
+					watchLast, watchMarkedAsDone, watchLastIsSame, watchDoneButChanged);
+		}
+		final var newModified = roundModified(seeAgainFile);
+		final var lastIsSame = modified == newModified && length == seeAgainFile.length();
+		return new StoredFileState(hashPath, parentHashPath, directory,
+				newModified, seeAgainFile.length(),
+				lastIsSame ? watchLast : System.currentTimeMillis(),
+				watchMarkedAsDone,
+				lastIsSame,
+				watchDoneButChanged || lastIsSame == false && watchMarkedAsDone);
+	}
+
+	public boolean isTimeQualified(final Duration minFixedStateTime) {
+		final var notTooRecent = watchLast < System.currentTimeMillis() - minFixedStateTime.toMillis();
+		return directory
+			   || watchLastIsSame && notTooRecent;
+	}
+
+	public StoredFileState resetDoneButChanged() {
+		return new StoredFileState(hashPath, parentHashPath, directory, modified, length,
+				watchLast, watchMarkedAsDone, watchLastIsSame, false);
+	}
+
+	public StoredFileState setMarkedAsDone() {
+		return new StoredFileState(hashPath, parentHashPath, directory, modified, length,
+				watchLast, true, watchLastIsSame, watchDoneButChanged);
+	}
+
+}
@@ -16,6 +16,7 @@
  */
 package media.mexm.mydmam.repository;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -47,4 +48,11 @@ public interface AssetTextExtractedFileRepository extends JpaRepository<AssetTex
             """)
     Set<AssetTextExtractedFileEntity> getAllTextExtracted(FileEntity file);
 
+    @Query("""
+            SELECT ate
+            FROM AssetTextExtractedFileEntity ate
+            WHERE ate.file IN :files
+            """)
+    Set<AssetTextExtractedFileEntity> getAllTextExtracted(Collection<FileEntity> files);
+
 }
@@ -0,0 +1,61 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.pathindexing.ScannedDirectory;
+import media.mexm.mydmam.pathindexing.StoredFileState;
+
+/**
+ * Plain JDBC writes on the file table, for the scans. It never goes through the persistence context:
+ * the passed entities are neither attached nor refreshed (the new ones don't get their ids).
+ * Each write bumps, in the same transaction, the generation of the written storage.
+ */
+public interface FileBulkDao {
+
+	/**
+	 * Multi-row INSERTs, the ids are set by the database.
+	 */
+	void insert(List<FileEntity> newFiles);
+
+	/**
+	 * Batched UPDATEs of the watch columns (modified, length, watch_*), by hash path.
+	 */
+	void updateWatch(String realm, String storage, List<StoredFileState> files);
+
+	void deleteByHashPath(String realm, String storage, Collection<String> hashPaths);
+
+	/**
+	 * Batched UPDATEs of the dir_* columns, by hash path.
+	 */
+	void updateDirectoryStates(String realm, String storage, List<ScannedDirectory> directories);
+
+	/**
+	 * Locks the storage generation row until the end of the current transaction.
+	 * @return the storage generation, with the bumps done by the current transaction
+	 */
+	long lockGeneration(String realm, String storage);
+
+	/**
+	 * For the file rows writes done outside this DAO. Call it before them.
+	 */
+	void bumpGeneration(String realm, String storage);
+
+}
@@ -0,0 +1,227 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.repository;
+
+import static java.util.Collections.nCopies;
+import static java.util.stream.Collectors.toUnmodifiableSet;
+import static media.mexm.mydmam.entity.FileEntity.TABLE_NAME;
+import static media.mexm.mydmam.entity.FileEntity.hashPath;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.entity.StorageGenerationEntity;
+import media.mexm.mydmam.pathindexing.ScannedDirectory;
+import media.mexm.mydmam.pathindexing.StoredFileState;
+
+@Repository
+@Slf4j
+public class FileBulkDaoImpl implements FileBulkDao {
+
+	/**
+	 * 13 params by row: stay far below the drivers max params by statement.
+	 */
+	static final int ROWS_BY_STATEMENT = 500;
+
+	private static final String INSERT_COLUMNS = """
+			directory, realm, storage, path, hash_path, parent_hash_path, modified, length,
+			watch_first, watch_last, watch_marked_as_done, watch_last_is_same, watch_done_but_changed""";
+	private static final int INSERT_COLUMNS_COUNT = 13;
+	private static final String UPDATE_WATCH_SQL = "UPDATE " + TABLE_NAME
+												   + " SET modified = ?, length = ?, watch_last = ?,"
+												   + " watch_marked_as_done = ?, watch_last_is_same = ?,"
+												   + " watch_done_but_changed = ?"
+												   + " WHERE hash_path = ?";
+	private static final String UPDATE_DIRECTORY_SQL = "UPDATE " + TABLE_NAME
+													   + " SET dir_last_modified = ?, dir_children = ?"
+													   + " WHERE hash_path = ?";
+	private static final String SELECT_GENERATION_SQL = "SELECT generation FROM " + StorageGenerationEntity.TABLE_NAME
+														+ " WHERE realm = ? AND storage = ? FOR UPDATE";
+	private static final String INSERT_GENERATION_SQL = "INSERT IGNORE INTO " + StorageGenerationEntity.TABLE_NAME
+														+ " (realm, storage, generation) VALUES (?, ?, 0)";
+	private static final String BUMP_GENERATION_SQL = "UPDATE " + StorageGenerationEntity.TABLE_NAME
+													  + " SET generation = generation + 1"
+													  + " WHERE realm = ? AND storage = ?";
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Override
+	@Transactional
+	public void insert(final List<FileEntity> newFiles) {
+		newFiles.stream()
+				.map(file -> List.of(file.getRealm(), file.getStorage()))
+				.collect(toUnmodifiableSet())
+				.forEach(realmStorage -> bumpGeneration(realmStorage.get(0), realmStorage.get(1)));
+		for (var from = 0; from < newFiles.size(); from += ROWS_BY_STATEMENT) {
+			final var rows = newFiles.subList(from, Math.min(from + ROWS_BY_STATEMENT, newFiles.size()));
+			final var rowPlaceholders = "(" + String.join(",", nCopies(INSERT_COLUMNS_COUNT, "?")) + ")";
+			final var sql = "INSERT INTO " + TABLE_NAME + " (" + INSERT_COLUMNS + ") VALUES "
+							+ String.join(",", nCopies(rows.size(), rowPlaceholders));
+			jdbcTemplate.update(sql, ps -> {
+				var pos = 1;
+				for (final var file : rows) {
+					ps.setInt(pos++, toInt(file.isDirectory()));
+					ps.setString(pos++, file.getRealm());
+					ps.setString(pos++, file.getStorage());
+					ps.setString(pos++, file.getPath());
+					ps.setString(pos++, file.getHashPath());
+					ps.setString(pos++, file.getParentHashPath());
+					ps.setTimestamp(pos++, file.getModified());
+					ps.setLong(pos++, file.getLength());
+					ps.setTimestamp(pos++, new Timestamp(file.getWatchFirst().getTime()));
+					pos = setWatchStatus(ps, pos, file);
+				}
+			});
+		}
+		log.trace("Insert {} file(s)", newFiles.size());
+	}
+
+	@Override
+	@Transactional
+	public void updateWatch(final String realm,
+							final String storage,
+							final List<StoredFileState> files) {
+		if (files.isEmpty()) {
+			return;
+		}
+		bumpGeneration(realm, storage);
+		jdbcTemplate.batchUpdate(UPDATE_WATCH_SQL,
+				new BatchPreparedStatementSetter() {
+
+					@Override
+					public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+						final var file = files.get(i);
+						ps.setTimestamp(1, new Timestamp(file.modified()));
+						ps.setLong(2, file.length());
+						ps.setTimestamp(3, new Timestamp(file.watchLast()));
+						ps.setInt(4, toInt(file.watchMarkedAsDone()));
+						ps.setInt(5, toInt(file.watchLastIsSame()));
+						ps.setInt(6, toInt(file.watchDoneButChanged()));
+						ps.setString(7, file.hashPath());
+					}
+
+					@Override
+					public int getBatchSize() {
+						return files.size();
+					}
+				});
+		log.trace("Update {} file(s)", files.size());
+	}
+
+	@Override
+	@Transactional
+	public void deleteByHashPath(final String realm,
+								 final String storage,
+								 final Collection<String> hashPaths) {
+		if (hashPaths.isEmpty()) {
+			return;
+		}
+		bumpGeneration(realm, storage);
+		final var allHashPaths = new ArrayList<>(hashPaths);
+		for (var from = 0; from < allHashPaths.size(); from += ROWS_BY_STATEMENT) {
+			final var rows = allHashPaths.subList(from, Math.min(from + ROWS_BY_STATEMENT, allHashPaths.size()));
+			jdbcTemplate.update(
+					"DELETE FROM " + TABLE_NAME + " WHERE hash_path IN ("
+								+ String.join(",", nCopies(rows.size(), "?")) + ")",
+					rows.toArray());
+		}
+		log.trace("Delete {} file(s)", hashPaths.size());
+	}
+
+	@Override
+	@Transactional
+	public void updateDirectoryStates(final String realm,
+									  final String storage,
+									  final List<ScannedDirectory> directories) {
+		if (directories.isEmpty()) {
+			return;
+		}
+		bumpGeneration(realm, storage);
+		jdbcTemplate.batchUpdate(UPDATE_DIRECTORY_SQL,
+				new BatchPreparedStatementSetter() {
+
+					@Override
+					public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+						final var directory = directories.get(i);
+						ps.setLong(1, directory.lastModified());
+						ps.setInt(2, directory.children());
+						ps.setString(3, hashPath(realm, storage, directory.path()));
+					}
+
+					@Override
+					public int getBatchSize() {
+						return directories.size();
+					}
+				});
+		log.trace("Update {} directory state(s)", directories.size());
+	}
+
+	@Override
+	@Transactional
+	public long lockGeneration(final String realm, final String storage) {
+		var generation = jdbcTemplate.queryForList(SELECT_GENERATION_SQL, Long.class, realm, storage);
+		if (generation.isEmpty()) {
+			jdbcTemplate.update(INSERT_GENERATION_SQL, realm, storage);
+			generation = jdbcTemplate.queryForList(SELECT_GENERATION_SQL, Long.class, realm, storage);
+		}
+		return generation.getFirst();
+	}
+
+	@Override
+	@Transactional
+	public void bumpGeneration(final String realm, final String storage) {
+		if (jdbcTemplate.update(BUMP_GENERATION_SQL, realm, storage) == 0) {
+			jdbcTemplate.update(INSERT_GENERATION_SQL, realm, storage);
+			jdbcTemplate.update(BUMP_GENERATION_SQL, realm, storage);
+		}
+	}
+
+	/**
+	 * watch_last, watch_marked_as_done, watch_last_is_same, watch_done_but_changed
+	 * @return next pos
+	 */
+	private static int setWatchStatus(final PreparedStatement ps,
+									  final int pos,
+									  final FileEntity file) throws SQLException {
+		ps.setTimestamp(pos, file.getWatchLast());
+		ps.setInt(pos + 1, toInt(file.isWatchMarkedAsDone()));
+		ps.setInt(pos + 2, toInt(file.isWatchLastIsSame()));
+		ps.setInt(pos + 3, toInt(file.isWatchDoneButChanged()));
+		return pos + 4;
+	}
+
+	/**
+	 * Like NumericBooleanConverter
+	 */
+	private static int toInt(final boolean value) {
+		return value ? 1 : 0;
+	}
+
+}
@@ -16,10 +16,14 @@
  */
 package media.mexm.mydmam.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.pathindexing.KnownDirectory;
+import media.mexm.mydmam.pathindexing.StoredFileState;
 import media.mexm.mydmam.tools.FileEntityConsumer;
 
 public interface FileDao {
@@ -30,4 +34,35 @@ public interface FileDao {
 
 	void getAllFromRealm(String realm, FileEntityConsumer onFile);
 
+	/**
+	 * Keyset pagination, ordered by id.
+	 */
+	List<FileEntity> getRealmPageAfterId(String realm, int afterId, int size);
+
+	/**
+	 * Keyset pagination, ordered by hashPath. Start with an empty afterHashPath.
+	 * Loaded as read-only entities: changes on them are never flushed, write them with FileBulkDao.
+	 */
+	List<FileEntity> getStoragePageAfterHashPath(String realm, String storage, String afterHashPath, int size);
+
+	/**
+	 * Keyset pagination, ordered by hashPath. Start with an empty afterHashPath.
+	 * Only the scan relevant columns are loaded, without any entity.
+	 */
+	List<StoredFileState> getStoredStatePageAfterHashPath(String realm,
+														  String storage,
+														  String afterHashPath,
+														  int size);
+
+	/**
+	 * @return hashPath -> path, only for the founded rows
+	 */
+	Map<String, String> getPathsByHashPath(Collection<String> hashPaths);
+
+	/**
+	 * For incremental scans, only loads the directories rows and the children counts.
+	 * @return by directory path, with the root directory "/" if it has children
+	 */
+	Map<String, KnownDirectory> getKnownDirectoriesByPath(String realm, String storage);
+
 }
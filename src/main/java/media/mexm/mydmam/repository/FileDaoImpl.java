@@ -16,7 +16,17 @@
  */
 package media.mexm.mydmam.repository;
 
+import static java.util.Collections.unmodifiableMap;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +37,8 @@ import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.pathindexing.KnownDirectory;
+import media.mexm.mydmam.pathindexing.StoredFileState;
 import media.mexm.mydmam.tools.FileEntityConsumer;
 
 @Repository
@@ -35,6 +47,7 @@ public class FileDaoImpl implements FileDao {
 
 	private static final String PARENT_HASH_PATH_PARAM = "parentHashPath";
 	private static final String REALM_PARAM = "realm";
+	private static final String ROOT_PATH = "/";
 	@Autowired
 	@PersistenceContext
 	EntityManager entityManager;
@@ -86,4 +99,156 @@ public class FileDaoImpl implements FileDao {
 				.forEach(onFile);
 	}
 
+	@Override
+	@Transactional
+	public List<FileEntity> getRealmPageAfterId(final String realm, final int afterId, final int size) {
+		return entityManager.createQuery("""
+				SELECT f FROM FileEntity f
+				WHERE f.realm = :realm
+				AND f.id > :afterId
+				ORDER BY f.id
+				""", FileEntity.class)
+				.setParameter(REALM_PARAM, realm)
+				.setParameter("afterId", afterId)
+				.setMaxResults(size)
+				.getResultList();
+	}
+
+	@Override
+	@Transactional
+	public List<FileEntity> getStoragePageAfterHashPath(final String realm,
+														final String storage,
+														final String afterHashPath,
+														final int size) {
+		return entityManager.createQuery("""
+				SELECT f FROM FileEntity f
+				WHERE f.realm = :realm
+				AND f.storage = :storage
+				AND f.hashPath > :afterHashPath
+				ORDER BY f.hashPath
+				""", FileEntity.class)
+				.setParameter(REALM_PARAM, realm)
+				.setParameter("storage", storage)
+				.setParameter("afterHashPath", afterHashPath)
+				.setHint(HINT_READ_ONLY, true)
+				.setMaxResults(size)
+				.getResultList();
+	}
+
+	@Override
+	@Transactional
+	public List<StoredFileState> getStoredStatePageAfterHashPath(final String realm,
+																 final String storage,
+																 final String afterHashPath,
+																 final int size) {
+		return entityManager.createQuery("""
+				SELECT f.hashPath, f.parentHashPath, f.directory, f.modified, f.length, f.watchLast,
+				f.watchMarkedAsDone, f.watchLastIsSame, f.watchDoneButChanged
+				FROM FileEntity f
+				WHERE f.realm = :realm
+				AND f.storage = :storage
+				AND f.hashPath > :afterHashPath
+				ORDER BY f.hashPath
+				""", Object[].class)
+				.setParameter(REALM_PARAM, realm)
+				.setParameter("storage", storage)
+				.setParameter("afterHashPath", afterHashPath)
+				.setMaxResults(size)
+				.getResultStream()
+				.map(row -> new StoredFileState(
+						(String) row[0],
+						(String) row[1],
+						(boolean) row[2],
+						((Date) row[3]).getTime(),
+						(long) row[4],
+						((Date) row[5]).getTime(),
+						(boolean) row[6],
+						(boolean) row[7],
+						(boolean) row[8]))
+				.toList();
+	}
+
+	@Override
+	@Transactional
+	public Map<String, String> getPathsByHashPath(final Collection<String> hashPaths) {
+		if (hashPaths.isEmpty()) {
+			return Map.of();
+		}
+		final var result = new HashMap<String, String>(hashPaths.size());
+		entityManager.createQuery("""
+				SELECT f.hashPath, f.path
+				FROM FileEntity f
+				WHERE f.hashPath IN :hashPaths
+				""", Object[].class)
+				.setParameter("hashPaths", hashPaths)
+				.getResultStream()
+				.forEach(row -> result.put((String) row[0], (String) row[1]));
+		return unmodifiableMap(result);
+	}
+
+	@Override
+	@Transactional
+	public Map<String, KnownDirectory> getKnownDirectoriesByPath(final String realm, final String storage) {
+		/**
+		 * parentHashPath -> [children count, not done children count]
+		 */
+		final var childrenByParent = new HashMap<String, int[]>();
+		entityManager.createQuery("""
+				SELECT f.parentHashPath, COUNT(f),
+				SUM(CASE WHEN f.watchMarkedAsDone = true THEN 0 ELSE 1 END)
+				FROM FileEntity f
+				WHERE f.realm = :realm
+				AND f.storage = :storage
+				GROUP BY f.parentHashPath
+				""", Object[].class)
+				.setParameter(REALM_PARAM, realm)
+				.setParameter("storage", storage)
+				.getResultStream()
+				.forEach(row -> {
+					final var counts = new int[] { ((Number) row[1]).intValue(), ((Number) row[2]).intValue() };
+					childrenByParent.put((String) row[0], counts);
+				});
+
+		final var directories = entityManager.createQuery("""
+				SELECT f.path, f.hashPath, f.parentHashPath, f.dirLastModified, f.dirChildren
+				FROM FileEntity f
+				WHERE f.realm = :realm
+				AND f.storage = :storage
+				AND f.directory = true
+				""", Object[].class)
+				.setParameter(REALM_PARAM, realm)
+				.setParameter("storage", storage)
+				.getResultList();
+
+		final var childDirectoriesByParent = directories.stream()
+				.collect(groupingBy(row -> (String) row[2], mapping(row -> (String) row[0], toUnmodifiableList())));
+
+		final var result = new HashMap<String, KnownDirectory>(directories.size());
+		for (final var row : directories) {
+			final var hashPath = (String) row[1];
+			final var children = childrenByParent.getOrDefault(hashPath, new int[] { 0, 0 });
+			result.put((String) row[0], new KnownDirectory(
+					(Long) row[3],
+					(Integer) row[4],
+					children[0],
+					children[1],
+					childDirectoriesByParent.getOrDefault(hashPath, List.of())));
+		}
+
+		/**
+		 * The root directory don't have a row, only children.
+		 */
+		final var rootHashPath = FileEntity.hashPath(realm, storage, ROOT_PATH);
+		if (childrenByParent.containsKey(rootHashPath)) {
+			final var children = childrenByParent.get(rootHashPath);
+			result.put(ROOT_PATH, new KnownDirectory(
+					null,
+					null,
+					children[0],
+					children[1],
+					childDirectoriesByParent.getOrDefault(rootHashPath, List.of())));
+		}
+		return unmodifiableMap(result);
+	}
+
 }
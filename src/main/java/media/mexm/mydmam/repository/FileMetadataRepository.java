@@ -16,6 +16,7 @@
  */
 package media.mexm.mydmam.repository;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -41,4 +42,11 @@ public interface FileMetadataRepository extends JpaRepository<FileMetadataEntity
             """)
     Set<FileMetadataEntity> getByFile(FileEntity file);
 
+    @Query("""
+            SELECT fm
+            FROM FileMetadataEntity fm
+            WHERE fm.file IN :files
+            """)
+    Set<FileMetadataEntity> getByFiles(Collection<FileEntity> files);
+
 }
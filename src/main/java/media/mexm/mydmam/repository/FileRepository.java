@@ -51,32 +51,6 @@ public interface FileRepository extends JpaRepository<FileEntity, Long> {
 			""")
 	Set<FileEntity> getByParentHashPath(Set<String> parentHashPath, String realm, Set<String> storages);
 
-	@Query("""
-			SELECT f FROM FileEntity f
-			WHERE f.watchMarkedAsDone = true
-			AND f.hashPath NOT IN :detectedHashPath
-			AND f.realm = :realm
-			AND f.storage = :storage
-			""")
-	Set<FileEntity> getDoneAndLostedByHashPath(Set<String> detectedHashPath,
-											   String realm,
-											   String storage);
-
-	@Query("""
-			SELECT f FROM FileEntity f
-			WHERE f.watchMarkedAsDone = true
-			AND f.realm = :realm
-			AND f.storage = :storage
-			""")
-	Set<FileEntity> getDoneLostedForEmptyDir(String realm,
-											 String storage);
-
-	@Query("""
-			SELECT f.hashPath FROM FileEntity f WHERE f.realm = :realm AND f.storage = :storage
-			""")
-	Set<String> getAllHashPathByStorage(String realm,
-										String storage);
-
 	@Query("""
 			SELECT DISTINCT f.realm FROM FileEntity f
 			""")
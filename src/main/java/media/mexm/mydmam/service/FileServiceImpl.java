@@ -17,11 +17,12 @@
 package media.mexm.mydmam.service;
 
 import static java.util.function.Function.identity;
-import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 import static media.mexm.mydmam.entity.FileEntity.FILE_FULL_PATH_COMPARATOR;
 import static media.mexm.mydmam.indexer.SearchConstraintCondition.MUST_NOT;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -48,6 +49,11 @@ public class FileServiceImpl implements FileService {
 	@Autowired
 	FileRepository fileRepository;
 
+	/**
+	 * Max hashPaths by database query, during the recursive resolves.
+	 */
+	static final int RESOLVE_CHUNK_SIZE = 500;
+
 	@Override
 	public List<FileEntity> resolveHashPaths(final Set<String> hashPaths,
 											 final Set<StorageCategory> limitCategory,
@@ -93,18 +99,31 @@ public class FileServiceImpl implements FileService {
 				.map(FileEntity::getHashPath)
 				.collect(toUnmodifiableSet());
 
-		final var subHashPaths = selectedDirContent.stream()
+		/**
+		 * The sub hashPaths are streamed from the index, and resolved by chunks: only the entities are kept.
+		 */
+		final var subFiles = new ArrayList<FileEntity>();
+		final var pendingHashPaths = new HashSet<String>();
+		final Runnable resolvePendings = () -> {
+			subFiles.addAll(fileRepository.getByHashPath(Set.copyOf(pendingHashPaths), realmName));
+			pendingHashPaths.clear();
+		};
+		selectedDirContent.stream()
 				.filter(FileEntity::isDirectory)
-				.map(dirEntity -> realmIndexer.getHashPathsByRecursiveSearch(
+				.forEach(dirEntity -> realmIndexer.forEachHashPathByRecursiveSearch(
 						dirEntity.getStorage(),
 						dirEntity.getPath(),
-						MUST_NOT))
-				.flatMap(Set::stream)
-				.distinct()
-				.filter(not(actualSelectedHashPaths::contains))
-				.collect(toUnmodifiableSet());
-
-		final var subFiles = fileRepository.getByHashPath(subHashPaths, realmName);
+						MUST_NOT,
+						hashPath -> {
+							if (actualSelectedHashPaths.contains(hashPath) == false
+								&& pendingHashPaths.add(hashPath)
+								&& pendingHashPaths.size() >= RESOLVE_CHUNK_SIZE) {
+								resolvePendings.run();
+							}
+						}));
+		if (pendingHashPaths.isEmpty() == false) {
+			resolvePendings.run();
+		}
 
 		return Stream.of(
 				allSelected.stream(),
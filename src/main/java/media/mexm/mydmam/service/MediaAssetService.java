@@ -26,6 +26,8 @@ import media.mexm.mydmam.entity.AssetRenderedFileEntity;
 import media.mexm.mydmam.entity.AssetTextExtractedFileEntity;
 import media.mexm.mydmam.entity.FileEntity;
 import media.mexm.mydmam.entity.RelativePathProvider;
+import media.mexm.mydmam.indexer.RealmIndexRebuild;
+import media.mexm.mydmam.indexer.TextExtractedSource;
 import tv.hd3g.transfertfiles.FileAttributesReference;
 
 public interface MediaAssetService {
@@ -59,8 +61,22 @@ public interface MediaAssetService {
                                   File workingTextFile,
                                   String name) throws IOException;
 
+    /**
+     * Text files are not read here: each source opens a gzip Reader on demand.
+     */
     void forEachTextExtractedFile(FileEntity fileEntity,
-                                  BiConsumer<AssetTextExtractedFileEntity, String> onTextExtracted);
+                                  BiConsumer<AssetTextExtractedFileEntity, TextExtractedSource> onTextExtracted);
+
+    /**
+     * Add all the realm files to the rebuild index, by pages ordered by file id, from the rebuild last checkpoint.
+     */
+    void rebuildIndexer(String realm, RealmIndexRebuild rebuild);
+
+    /**
+     * Update again the indexed files queued but never committed before the last stop, from each realm index journal.
+     * Only needed once, after the startup.
+     */
+    void replayIndexerJournals();
 
     File getPhysicalRenderedFile(FileEntity fileEntity, AssetRenderedFileEntity assetRenderedFileEntity, String realm);
 
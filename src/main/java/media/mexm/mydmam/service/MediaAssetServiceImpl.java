@@ -20,7 +20,10 @@ import static jakarta.transaction.Transactional.TxType.REQUIRES_NEW;
 import static java.lang.Integer.toHexString;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.function.Predicate.not;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 import static java.util.stream.Stream.concat;
 import static media.mexm.mydmam.audittrail.AuditTrailObjectType.RENDERED_FILE_ENTRY;
@@ -42,6 +45,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
 import java.util.function.BiConsumer;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -61,10 +66,13 @@ import media.mexm.mydmam.entity.AssetRenderedFileEntity;
 import media.mexm.mydmam.entity.AssetTextExtractedFileEntity;
 import media.mexm.mydmam.entity.FileEntity;
 import media.mexm.mydmam.entity.RelativePathProvider;
+import media.mexm.mydmam.indexer.RealmIndexRebuild;
+import media.mexm.mydmam.indexer.TextExtractedSource;
 import media.mexm.mydmam.repository.AssetRenderedFileDao;
 import media.mexm.mydmam.repository.AssetRenderedFileRepository;
 import media.mexm.mydmam.repository.AssetTextExtractedFileDao;
 import media.mexm.mydmam.repository.AssetTextExtractedFileRepository;
+import media.mexm.mydmam.repository.FileDao;
 import media.mexm.mydmam.repository.FileMetadataDao;
 import media.mexm.mydmam.repository.FileMetadataRepository;
 import media.mexm.mydmam.repository.FileRepository;
@@ -74,11 +82,19 @@ import tv.hd3g.transfertfiles.FileAttributesReference;
 @Service
 public class MediaAssetServiceImpl implements MediaAssetService {
 
+    private static final int REBUILD_PAGE_SIZE = 1000;
+    /**
+     * Max hashPaths by database query, during the index journals replays.
+     */
+    static final int JOURNAL_REPLAY_CHUNK_SIZE = 500;
+
     @Autowired
     MyDMAMConfigurationProperties configuration;
     @Autowired
     FileRepository fileRepository;
     @Autowired
+    FileDao fileDao;
+    @Autowired
     AssetRenderedFileDao assetRenderedFileDao;
     @Autowired
     AssetRenderedFileRepository assetRenderedFileRepository;
@@ -151,8 +167,8 @@ public class MediaAssetServiceImpl implements MediaAssetService {
                 .ifPresent(idx -> {
                     log.info("Update indexer for {}", fileEntity);
                     final var fileMetadataEntites = fileMetadataRepository.getByFile(fileEntity);
-                    final var texts = new ArrayList<String>();
-                    forEachTextExtractedFile(fileEntity, (_, text) -> texts.add(text));
+                    final var texts = new ArrayList<TextExtractedSource>();
+                    forEachTextExtractedFile(fileEntity, (_, textSource) -> texts.add(textSource));
                     idx.updateAsset(fileEntity, fileMetadataEntites, texts);
                 });
     }
@@ -194,21 +210,79 @@ public class MediaAssetServiceImpl implements MediaAssetService {
     @Override
     @Transactional
     public void forEachTextExtractedFile(final FileEntity fileEntity,
-                                         final BiConsumer<AssetTextExtractedFileEntity, String> onTextExtracted) {
+                                         final BiConsumer<AssetTextExtractedFileEntity, TextExtractedSource> onTextExtracted) {
         assetTextExtractedFileRepository.getAllTextExtracted(fileEntity)
-                .forEach(entity -> {
-                    try {
-                        final var renderedFile = getAbsolutePath(fileEntity, entity);
-                        log.info("Start to read gzip text file \"{}\" to import text ({} bytes)",
-                                renderedFile, renderedFile.length());
-                        try (final var isr = new InputStreamReader(
-                                new GZIPInputStream(new FileInputStream(renderedFile)), UTF_8)) {
-                            onTextExtracted.accept(entity, isr.readAllAsString());
-                        }
-                    } catch (final IOException e) {
-                        throw new UncheckedIOException("Can't extract text extracted file from " + entity, e);
-                    }
-                });
+                .forEach(entity -> onTextExtracted.accept(entity, makeTextExtractedSource(fileEntity, entity)));
+    }
+
+    private TextExtractedSource makeTextExtractedSource(final FileEntity fileEntity,
+                                                        final AssetTextExtractedFileEntity entity) {
+        final var renderedFile = getAbsolutePath(fileEntity, entity);
+        return () -> {
+            log.debug("Open gzip text file \"{}\" to import text ({} bytes)",
+                    renderedFile, renderedFile.length());
+            return new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(renderedFile)), UTF_8);
+        };
+    }
+
+    @Override
+    public void rebuildIndexer(final String realm, final RealmIndexRebuild rebuild) {
+        final var threads = configuration.getRealmByName(realm)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown realm " + realm))
+                .index()
+                .rebuildThreads();
+
+        var lastId = rebuild.getCheckpoint();
+        var count = 0;
+        log.info("Start to rebuild index for realm {} from file id {}, with {} thread(s)", realm, lastId, threads);
+        try (final var executor = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("index-rebuild-" + realm + "-", 0).factory())) {
+            List<FileEntity> page;
+            while ((page = fileDao.getRealmPageAfterId(realm, lastId, REBUILD_PAGE_SIZE)).isEmpty() == false) {
+                final var metadatasByFileId = fileMetadataRepository.getByFiles(page).stream()
+                        .collect(groupingBy(fm -> fm.getFile().getId()));
+                final var textsByFileId = assetTextExtractedFileRepository.getAllTextExtracted(page).stream()
+                        .collect(groupingBy(ate -> ate.getFile().getId()));
+
+                final var adds = page.stream()
+                        .map(fileEntity -> runAsync(() -> rebuild.add(
+                                fileEntity,
+                                metadatasByFileId.getOrDefault(fileEntity.getId(), List.of()),
+                                textsByFileId.getOrDefault(fileEntity.getId(), List.of()).stream()
+                                        .map(entity -> makeTextExtractedSource(fileEntity, entity))
+                                        .toList()),
+                                executor))
+                        .toArray(CompletableFuture[]::new);
+                allOf(adds).join();
+
+                lastId = page.getLast().getId();
+                count += page.size();
+                rebuild.checkpoint(lastId);
+                log.info("Rebuild index for realm {}: {} file(s) added, last file id {}", realm, count, lastId);
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public void replayIndexerJournals() {
+        configuration.getRealmNames()
+                .forEach(realm -> indexer.getIndexerByRealm(realm)
+                        .ifPresent(idx -> {
+                            final var toReplay = idx.getJournalToReplay();
+                            if (toReplay.isEmpty()) {
+                                return;
+                            }
+                            log.info("Replay {} not committed index update(s) for realm {}", toReplay.size(), realm);
+                            final var hashPaths = new ArrayList<>(toReplay);
+                            for (var from = 0; from < hashPaths.size(); from += JOURNAL_REPLAY_CHUNK_SIZE) {
+                                final var chunk = hashPaths.subList(
+                                        from, Math.min(from + JOURNAL_REPLAY_CHUNK_SIZE, hashPaths.size()));
+                                fileRepository.getByHashPath(Set.copyOf(chunk), realm).forEach(this::updateIndexer);
+                            }
+                            idx.endJournalReplay();
+                        }));
     }
 
     @Override
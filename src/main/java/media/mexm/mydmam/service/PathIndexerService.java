@@ -19,11 +19,12 @@ package media.mexm.mydmam.service;
 import java.time.Duration;
 import java.util.Set;
 
+import jakarta.annotation.Nullable;
 import media.mexm.mydmam.audittrail.RealmAuditTrail;
 import media.mexm.mydmam.configuration.PathIndexingStorage;
 import media.mexm.mydmam.configuration.RealmConf;
+import media.mexm.mydmam.pathindexing.StorageTreeScanner;
 import tv.hd3g.jobkit.watchfolder.ObservedFolder;
-import tv.hd3g.jobkit.watchfolder.WatchedFileScanner;
 import tv.hd3g.jobkit.watchfolder.WatchedFiles;
 import tv.hd3g.transfertfiles.AbstractFileSystemURL;
 import tv.hd3g.transfertfiles.CachedFileAttributes;
@@ -31,11 +32,18 @@ import tv.hd3g.transfertfiles.FileAttributesReference;
 
 public interface PathIndexerService {
 
-	WatchedFiles updateFoundedFiles(WatchedFileScanner scanner,
+	/**
+	 * @param fullScan if false, only list the directories changed since the last scans.
+	 * @param touchedDirectories if not null (and not a full scan), don't walk the tree: only list these directories,
+	 *        and the ones with pending files.
+	 */
+	WatchedFiles updateFoundedFiles(StorageTreeScanner scanner,
 									String realmName,
 									String storageName,
 									ObservedFolder observedFolder,
-									AbstractFileSystemURL fileSystem);
+									AbstractFileSystemURL fileSystem,
+									boolean fullScan,
+									@Nullable Set<String> touchedDirectories);
 
 	void resetFoundedFiles(String realmName,
 						   String storageName,
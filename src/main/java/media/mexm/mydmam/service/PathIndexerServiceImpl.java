@@ -16,8 +16,8 @@
  */
 package media.mexm.mydmam.service;
 
-import static java.util.function.Predicate.not;
-import static java.util.stream.Collectors.toUnmodifiableMap;
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.unmodifiableSet;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 import static media.mexm.mydmam.activity.ActivityEventType.NEW_FOUNDED_FILE;
 import static media.mexm.mydmam.activity.ActivityEventType.UPDATED_FILE;
@@ -25,13 +25,20 @@ import static media.mexm.mydmam.audittrail.AuditTrailObjectType.FILE;
 import static media.mexm.mydmam.entity.FileEntity.hashPath;
 
 import java.time.Duration;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
@@ -43,10 +50,16 @@ import media.mexm.mydmam.configuration.MyDMAMConfigurationProperties;
 import media.mexm.mydmam.configuration.PathIndexingStorage;
 import media.mexm.mydmam.configuration.RealmConf;
 import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.pathindexing.KnownDirectory;
+import media.mexm.mydmam.pathindexing.StorageStateSnapshot;
+import media.mexm.mydmam.pathindexing.StorageTreeScanResult;
+import media.mexm.mydmam.pathindexing.StorageTreeScanner;
+import media.mexm.mydmam.pathindexing.StoredFileState;
+import media.mexm.mydmam.repository.FileBulkDao;
+import media.mexm.mydmam.repository.FileDao;
 import media.mexm.mydmam.repository.FileRepository;
 import tv.hd3g.jobkit.engine.JobKitEngine;
 import tv.hd3g.jobkit.watchfolder.ObservedFolder;
-import tv.hd3g.jobkit.watchfolder.WatchedFileScanner;
 import tv.hd3g.jobkit.watchfolder.WatchedFiles;
 import tv.hd3g.transfertfiles.AbstractFileSystemURL;
 import tv.hd3g.transfertfiles.CachedFileAttributes;
@@ -59,6 +72,10 @@ public class PathIndexerServiceImpl implements PathIndexerService {
 	@Autowired
 	FileRepository fileRepository;
 	@Autowired
+	FileDao fileDao;
+	@Autowired
+	FileBulkDao fileBulkDao;
+	@Autowired
 	AuditTrail auditTrail;
 	@Autowired
 	JobKitEngine jobKitEngine;
@@ -69,131 +86,375 @@ public class PathIndexerServiceImpl implements PathIndexerService {
 	@Autowired
 	Indexer indexer;
 
+	/**
+	 * Max database rows loaded by page, and max pending row writes before a flush, during a scan diff.
+	 */
+	static final int SCAN_DIFF_CHUNK_SIZE = 500;
+
 	@Override
 	@Transactional
-	public WatchedFiles updateFoundedFiles(final WatchedFileScanner scanner,
+	public WatchedFiles updateFoundedFiles(final StorageTreeScanner scanner,
 										   final String realmName,
 										   final String storageName,
 										   final ObservedFolder observedFolder,
-										   final AbstractFileSystemURL fileSystem) {
-		final var minFixedStateTime = observedFolder.getMinFixedStateTime();
-		final var allWatchedFilesHashPath = fileRepository
-				.getAllHashPathByStorage(realmName, storageName);
-		final var detected = scanner.scan(fileSystem);
-
-		/**
-		 * Update all founded
-		 */
-		final var detectedByhashKey = detected.stream()
-				.collect(Collectors.toUnmodifiableMap(
-						d -> hashPath(realmName, storageName, d.getPath()), d -> d));
-		log.trace("detectedByhashKey={}", detectedByhashKey.size());
-
-		Map<String, FileEntity> entitiesByHashKey;
-		if (detectedByhashKey.isEmpty() == false) {
-			entitiesByHashKey = fileRepository.getByHashPath(detectedByhashKey.keySet(), realmName).stream()
-					.collect(toUnmodifiableMap(FileEntity::getHashPath, wf -> wf));
+										   final AbstractFileSystemURL fileSystem,
+										   final boolean fullScan,
+										   final Set<String> touchedDirectories) {
+		Map<String, KnownDirectory> knownDirectories = Map.of();
+		if (fullScan == false) {
+			knownDirectories = fileDao.getKnownDirectoriesByPath(realmName, storageName);
+		}
+		final StorageTreeScanResult scanResult;
+		if (fullScan == false && touchedDirectories != null) {
+			scanResult = scanner.scanTouched(fileSystem, knownDirectories, touchedDirectories);
 		} else {
-			entitiesByHashKey = new HashMap<>();
+			scanResult = scanner.scan(fileSystem, knownDirectories);
 		}
-
-		final var updateFounded = entitiesByHashKey.entrySet().stream()
-				.map(entry -> entry.getValue().update(detectedByhashKey.get(entry.getKey())))
-				.toList();
+		final var detected = scanResult.detected();
 
 		/**
-		 * Get updated
+		 * The rows in the not listed directories are kept as is.
 		 */
-		final var updatedChangedFounded = updateFounded.stream()
-				.filter(FileEntity::isWatchMarkedAsDone)
-				.filter(u -> u.isTimeQualified(minFixedStateTime))
-				.filter(FileEntity::isWatchDoneButChanged)
-				.map(FileEntity::resetDoneButChanged)
-				.map(FileEntity::getHashPath)
-				.map(detectedByhashKey::get)
+		final var skippedDirHashPaths = scanResult.skippedDirectories().stream()
+				.map(path -> hashPath(realmName, storageName, path))
 				.collect(toUnmodifiableSet());
 
 		/**
-		 * Get qualified, set them marked
-		 */
-		final var qualifyFounded = updateFounded.stream()
-				.filter(not(FileEntity::isWatchMarkedAsDone))
-				.filter(u -> u.isTimeQualified(minFixedStateTime))
-				.map(FileEntity::setMarkedAsDone)
-				.toList();
-
-		/**
-		 * Get only them can be callbacked
+		 * Scanner output, sorted like the database cursor
 		 */
-		final var qualifiedAndCallbacked = qualifyFounded.stream()
-				.filter(u -> u.isTimeQualified(minFixedStateTime))
-				.map(FileEntity::getHashPath)
-				.map(detectedByhashKey::get)
-				.collect(toUnmodifiableSet());
-
-		Set<FileAttributesReference> lostedAndCallbacked;
-		if (detectedByhashKey.isEmpty() == false) {
-			lostedAndCallbacked = fileRepository
-					.getDoneAndLostedByHashPath(
-							detectedByhashKey.keySet(),
-							realmName, storageName)
-					.stream()
-					.map(f -> f.toFileAttributesReference(false))
-					.collect(toUnmodifiableSet());
-		} else {
-			lostedAndCallbacked = fileRepository
-					.getDoneLostedForEmptyDir(realmName, storageName).stream()
-					.map(f -> f.toFileAttributesReference(false))
-					.collect(toUnmodifiableSet());
-		}
+		final var detectedByhashKey = new TreeMap<String, CachedFileAttributes>();
+		detected.forEach(d -> detectedByhashKey.put(hashPath(realmName, storageName, d.getPath()), d));
+		log.trace("detectedByhashKey={}", detectedByhashKey.size());
 
 		/**
-		 * Add new files
+		 * Merge-join the stored rows with the scanner output, both ordered by hashPath. The rows are read from the
+		 * storage state snapshot if it's usable, else from the database, and a new snapshot is written on the way.
+		 * The storage generation stays locked until the commit: no other write can happen between the snapshot
+		 * check and the new snapshot stamp.
 		 */
-		final var addNewEntites = detected.stream()
-				.filter(f -> (allWatchedFilesHashPath.contains(hashPath(realmName, storageName, f.getPath())) == false))
-				.map(f -> new FileEntity(realmName, storageName, f))
-				.toList();
-		if (addNewEntites.isEmpty() == false) {
-			fileRepository.saveAll(addNewEntites);
+		final var snapshot = getStateSnapshot(realmName, storageName);
+		final var generation = snapshot != null ? fileBulkDao.lockGeneration(realmName, storageName) : 0l;
+		final var nextSnapshot = snapshot != null ? snapshot.openWriter() : null;
+		final var diff = new ScanDiff(realmName, storageName, observedFolder.getMinFixedStateTime(), nextSnapshot);
+		try (final var snapshotReader = openSnapshotReader(snapshot, generation)) {
+			final Iterator<StoredFileState> storedStates;
+			if (snapshotReader != null) {
+				storedStates = snapshotReader;
+			} else {
+				storedStates = new StoredStatePages(realmName, storageName);
+			}
+			mergeJoin(diff, storedStates, detectedByhashKey.entrySet().iterator(), skippedDirHashPaths);
+			fileBulkDao.updateDirectoryStates(realmName, storageName, scanResult.listedDirectories());
+			if (nextSnapshot != null) {
+				nextSnapshot.finish(fileBulkDao.lockGeneration(realmName, storageName));
+			}
+		} catch (final RuntimeException e) {
+			if (nextSnapshot != null) {
+				nextSnapshot.discard();
+			}
+			throw e;
 		}
-
-		/**
-		 * Clean deleted files
-		 */
-		final var toClean = allWatchedFilesHashPath.stream()
-				.filter(not(detectedByhashKey::containsKey))
-				.collect(toUnmodifiableSet());
-		if (toClean.isEmpty() == false) {
-			fileRepository.deleteByHashPath(toClean);
+		if (snapshot != null) {
+			/**
+			 * Until the commit, the current snapshot may not match the rows anymore.
+			 */
+			snapshot.delete();
+			publishAfterCommit(nextSnapshot);
 		}
 
 		log.trace(
-				"Lists detected={}, addNewEntites={}, updateFounded={}, updatedChangedFounded={}, qualifyFounded={}, qualifiedAndCallbacked={}, lostedAndCallbacked={}, toClean={}",
+				"Lists fullScan={}, touchedDirs={}, detected={}, skippedDirs={}, addNewEntites={}, updateFounded={}, writtenUpdates={}, updatedChangedFounded={}, qualifiedAndCallbacked={}, lostedAndCallbacked={}, toClean={}",
+				fullScan,
+				touchedDirectories == null ? "-" : touchedDirectories.size(),
 				detected.size(),
-				addNewEntites.size(),
-				updateFounded.size(),
-				updatedChangedFounded.size(),
-				qualifyFounded.size(),
-				qualifiedAndCallbacked.size(),
-				lostedAndCallbacked.size(),
-				toClean.size());
+				skippedDirHashPaths.size(),
+				diff.addedCount,
+				diff.foundedCount,
+				diff.updatedCount,
+				diff.updatedChangedFounded.size(),
+				diff.qualifiedAndCallbacked.size(),
+				diff.lostedAndCallbacked.size(),
+				diff.cleanedCount);
 
 		final var size = fileRepository.countByStorage(realmName, storageName);
 
 		log.debug("Scan watchedFilesResult for {}: {} founded, {} lost, {} total",
 				observedFolder.getLabel(),
-				qualifiedAndCallbacked.size(),
-				lostedAndCallbacked.size(),
+				diff.qualifiedAndCallbacked.size(),
+				diff.lostedAndCallbacked.size(),
 				size);
 
 		return new WatchedFiles(
-				qualifiedAndCallbacked,
-				lostedAndCallbacked,
-				updatedChangedFounded,
+				unmodifiableSet(diff.qualifiedAndCallbacked),
+				unmodifiableSet(diff.lostedAndCallbacked),
+				unmodifiableSet(diff.updatedChangedFounded),
 				size);
 	}
 
+	private static <T> T nextOrNull(final Iterator<T> iterator) {
+		if (iterator.hasNext()) {
+			return iterator.next();
+		}
+		return null;
+	}
+
+	private static void mergeJoin(final ScanDiff diff,
+								  final Iterator<StoredFileState> storedStates,
+								  final Iterator<Entry<String, CachedFileAttributes>> detectedIterator,
+								  final Set<String> skippedDirHashPaths) {
+		var nextStored = nextOrNull(storedStates);
+		var nextDetected = nextOrNull(detectedIterator);
+		while (nextStored != null || nextDetected != null) {
+			final int compare;
+			if (nextStored == null) {
+				compare = -1;
+			} else if (nextDetected == null) {
+				compare = 1;
+			} else {
+				compare = nextDetected.getKey().compareTo(nextStored.hashPath());
+			}
+
+			if (compare < 0) {
+				diff.onNew(nextDetected.getValue());
+				nextDetected = nextOrNull(detectedIterator);
+			} else if (compare == 0) {
+				diff.onFounded(nextStored, nextDetected.getValue());
+				nextDetected = nextOrNull(detectedIterator);
+				nextStored = nextOrNull(storedStates);
+			} else {
+				if (skippedDirHashPaths.contains(nextStored.parentHashPath())) {
+					diff.onKept(nextStored);
+				} else {
+					diff.onMissing(nextStored);
+				}
+				nextStored = nextOrNull(storedStates);
+			}
+			if (diff.isChunkFull()) {
+				diff.endChunk();
+			}
+		}
+		diff.endChunk();
+	}
+
+	/**
+	 * @return null if the realm don't have a working directory
+	 */
+	private StorageStateSnapshot getStateSnapshot(final String realmName, final String storageName) {
+		return configuration.getRealmByName(realmName)
+				.map(RealmConf::workingDirectory)
+				.map(workingDirectory -> StorageStateSnapshot.forStorage(workingDirectory, realmName, storageName))
+				.orElse(null);
+	}
+
+	/**
+	 * A snapshot with a different generation than the database is outdated (like after a crash, or after a write
+	 * done outside a scan).
+	 * @return null if there is no usable snapshot
+	 */
+	private StorageStateSnapshot.Reader openSnapshotReader(final StorageStateSnapshot snapshot,
+														   final long generation) {
+		if (snapshot == null) {
+			return null;
+		}
+		final var reader = snapshot.openReader().orElse(null);
+		if (reader != null && reader.generation() != generation) {
+			log.info("Outdated storage state snapshot, rebuild it from the database: {}", snapshot.getFile());
+			reader.close();
+			return null;
+		}
+		return reader;
+	}
+
+	/**
+	 * The snapshot is only replaced if the rows changes are committed.
+	 */
+	private static void publishAfterCommit(final StorageStateSnapshot.Writer nextSnapshot) {
+		if (TransactionSynchronizationManager.isSynchronizationActive() == false) {
+			nextSnapshot.publish();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(final int status) {
+				if (status == STATUS_COMMITTED) {
+					nextSnapshot.publish();
+				} else {
+					nextSnapshot.discard();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Database rows by keyset pages, without entities.
+	 */
+	private class StoredStatePages implements Iterator<StoredFileState> {
+		private final String realmName;
+		private final String storageName;
+		private Iterator<StoredFileState> page;
+		private String afterHashPath;
+		private boolean lastPage;
+
+		private StoredStatePages(final String realmName, final String storageName) {
+			this.realmName = realmName;
+			this.storageName = storageName;
+			page = emptyIterator();
+			afterHashPath = "";
+		}
+
+		/**
+		 * The rows written by the diff are never after the current position: they can't be read again.
+		 */
+		@Override
+		public boolean hasNext() {
+			if (page.hasNext() == false && lastPage == false) {
+				final var rows = fileDao.getStoredStatePageAfterHashPath(
+						realmName, storageName, afterHashPath, SCAN_DIFF_CHUNK_SIZE);
+				lastPage = rows.size() < SCAN_DIFF_CHUNK_SIZE;
+				if (rows.isEmpty() == false) {
+					afterHashPath = rows.getLast().hashPath();
+				}
+				page = rows.iterator();
+			}
+			return page.hasNext();
+		}
+
+		@Override
+		public StoredFileState next() {
+			if (hasNext() == false) {
+				throw new NoSuchElementException();
+			}
+			return page.next();
+		}
+	}
+
+	/**
+	 * Holds only the current chunk pending writes, and the (small) scan results.
+	 */
+	private class ScanDiff {
+		private final String realmName;
+		private final String storageName;
+		private final Duration minFixedStateTime;
+		private final StorageStateSnapshot.Writer nextSnapshot;
+		private final List<FileEntity> toAdd;
+		private final List<StoredFileState> toUpdate;
+		private final List<StoredFileState> toLost;
+		private final Set<String> toClean;
+
+		private final Set<CachedFileAttributes> updatedChangedFounded;
+		private final Set<CachedFileAttributes> qualifiedAndCallbacked;
+		private final Set<FileAttributesReference> lostedAndCallbacked;
+		private int addedCount;
+		private int foundedCount;
+		private int updatedCount;
+		private int cleanedCount;
+
+		/**
+		 * @param nextSnapshot nullable, gets all the kept rows, in the merge order
+		 */
+		private ScanDiff(final String realmName,
+						 final String storageName,
+						 final Duration minFixedStateTime,
+						 final StorageStateSnapshot.Writer nextSnapshot) {
+			this.realmName = realmName;
+			this.storageName = storageName;
+			this.minFixedStateTime = minFixedStateTime;
+			this.nextSnapshot = nextSnapshot;
+			toAdd = new ArrayList<>();
+			toUpdate = new ArrayList<>();
+			toLost = new ArrayList<>();
+			toClean = new HashSet<>();
+			updatedChangedFounded = new HashSet<>();
+			qualifiedAndCallbacked = new HashSet<>();
+			lostedAndCallbacked = new HashSet<>();
+		}
+
+		private void onNew(final CachedFileAttributes file) {
+			final var entity = new FileEntity(realmName, storageName, file);
+			toAdd.add(entity);
+			onKept(StoredFileState.of(entity));
+		}
+
+		/**
+		 * Get updated, or get qualified and set them marked.
+		 * States are immutable: only the changed rows are written.
+		 */
+		private void onFounded(final StoredFileState state, final CachedFileAttributes file) {
+			var updated = state.update(file);
+			foundedCount++;
+			if (updated.watchMarkedAsDone()) {
+				if (updated.isTimeQualified(minFixedStateTime) && updated.watchDoneButChanged()) {
+					updated = updated.resetDoneButChanged();
+					updatedChangedFounded.add(file);
+				}
+			} else if (updated.isTimeQualified(minFixedStateTime)) {
+				updated = updated.setMarkedAsDone();
+				qualifiedAndCallbacked.add(file);
+			}
+			if (updated.equals(state) == false) {
+				toUpdate.add(updated);
+			}
+			onKept(updated);
+		}
+
+		private void onKept(final StoredFileState state) {
+			if (nextSnapshot != null) {
+				nextSnapshot.add(state);
+			}
+		}
+
+		/**
+		 * Only done files can be callbacked as losted, but all will be cleaned.
+		 */
+		private void onMissing(final StoredFileState state) {
+			if (state.watchMarkedAsDone()) {
+				toLost.add(state);
+			}
+			toClean.add(state.hashPath());
+		}
+
+		private boolean isChunkFull() {
+			return toAdd.size() + toUpdate.size() + toClean.size() >= SCAN_DIFF_CHUNK_SIZE;
+		}
+
+		/**
+		 * Bulk JDBC writes, outside the persistence context.
+		 */
+		private void endChunk() {
+			if (toAdd.isEmpty() == false) {
+				fileBulkDao.insert(toAdd);
+				addedCount += toAdd.size();
+				toAdd.clear();
+			}
+			if (toUpdate.isEmpty() == false) {
+				fileBulkDao.updateWatch(realmName, storageName, toUpdate);
+				updatedCount += toUpdate.size();
+				toUpdate.clear();
+			}
+			if (toLost.isEmpty() == false) {
+				/**
+				 * Only the losted paths are not in the states.
+				 */
+				final var paths = fileDao.getPathsByHashPath(toLost.stream().map(StoredFileState::hashPath).toList());
+				toLost.stream()
+						.filter(state -> paths.containsKey(state.hashPath()))
+						.map(state -> new FileAttributesReference(
+								paths.get(state.hashPath()),
+								state.length(),
+								state.modified(),
+								false,
+								state.directory()))
+						.forEach(lostedAndCallbacked::add);
+				toLost.clear();
+			}
+			if (toClean.isEmpty() == false) {
+				fileBulkDao.deleteByHashPath(realmName, storageName, toClean);
+				cleanedCount += toClean.size();
+				toClean.clear();
+			}
+		}
+	}
+
 	@Override
 	@Transactional
 	public void resetFoundedFiles(final String realmName,
@@ -206,7 +467,13 @@ public class PathIndexerServiceImpl implements PathIndexerService {
 		final var hashPathListToPurge = foundedFiles.stream()
 				.map(ff -> hashPath(realmName, storageName, ff.getPath()))
 				.collect(toUnmodifiableSet());
+		fileBulkDao.bumpGeneration(realmName, storageName);
 		fileRepository.deleteByHashPath(hashPathListToPurge);
+
+		final var snapshot = getStateSnapshot(realmName, storageName);
+		if (snapshot != null) {
+			snapshot.delete();
+		}
 	}
 
 	@Override
@@ -16,94 +16,272 @@
  */
 package media.mexm.mydmam.tools;
 
+import static java.lang.Math.min;
 import static java.lang.Thread.currentThread;
-import static java.lang.Thread.onSpinWait;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ExecutionException;
+import java.util.Optional;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Threadsafe
+ * Group the added entries by batches of maxEntries, or by what was added during maxDelay after the first entry, and
+ * send each batch to onSync on the flushWorkers threads: the callers never run onSync.
+ * The batches are synced one at a time, in the order of their entries, even with several flushWorkers: an entry
+ * added after another is never synced before it.
+ * The queue is bounded by maxQueuedEntries: when it's full, add() waits for a free place.
+ * Threadsafe.
  */
 @Slf4j
 public class DelayedSync<T> {
 
+	private static final long IDLE_CHECK_NANOS = MILLISECONDS.toNanos(100);
+	private static final double NANOS_BY_MILLIS = 1_000_000d;
+
 	private final int maxEntries;
-	private final Duration maxDelay;
+	private final long maxDelayNanos;
+	private final int maxQueuedEntries;
 	private final Consumer<List<T>> onSync;
-	private final ScheduledThreadPoolExecutor scheduledExecutor;
 	private final LinkedBlockingQueue<T> queue;
-	private final AtomicReference<ScheduledFuture<?>> scheduledTaskReference;
+	/**
+	 * Only one worker at a time makes a batch, and gets its sequence number.
+	 */
+	private final ReentrantLock batchLock;
+	private final AtomicLong nextBatchSequence;
+	/**
+	 * The syncs run in the sequence number order: a worker waits here until the previous batch is synced.
+	 */
+	private final Object syncTurnMonitor;
+	private long syncTurn;
+	private final List<Thread> workers;
+	/**
+	 * Queued, or in a not ended sync.
+	 */
+	private final AtomicLong notSynced;
+	private final Object syncedMonitor;
+	private final LongAdder syncs;
+	private final LongAdder syncedEntries;
+	private final LongAdder totalSyncNanos;
+	private final LongAccumulator maxSyncNanos;
+	private final LongAccumulator maxBatchSize;
+	private final LongAdder backpressureWaits;
+	private volatile boolean closed;
+
+	private record Batch<T>(long sequence, List<T> entries) {
+	}
 
 	public DelayedSync(final DelayedSyncConfiguration configuration, final Consumer<List<T>> onSync) {
 		requireNonNull(configuration, "\"configuration\" can't to be null");
 		maxEntries = configuration.maxEntries();
-		maxDelay = configuration.maxDelay();
+		maxDelayNanos = configuration.maxDelay().toNanos();
+		maxQueuedEntries = configuration.maxQueuedEntries();
 		this.onSync = Objects.requireNonNull(onSync, "\"onSync\" can't to be null");
 
-		scheduledExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
-			final var thread = new Thread(runnable);
-			thread.setDaemon(true);
-			thread.setName("DelayedSync update");
-			thread.setPriority(Thread.MIN_PRIORITY);
-			thread.setUncaughtExceptionHandler((_, e) -> log.error("Can't update sync", e));
-			return thread;
-		});
-
-		queue = new LinkedBlockingQueue<>();
-		scheduledTaskReference = new AtomicReference<>();
+		queue = new LinkedBlockingQueue<>(maxQueuedEntries);
+		batchLock = new ReentrantLock();
+		nextBatchSequence = new AtomicLong();
+		syncTurnMonitor = new Object();
+		notSynced = new AtomicLong();
+		syncedMonitor = new Object();
+		syncs = new LongAdder();
+		syncedEntries = new LongAdder();
+		totalSyncNanos = new LongAdder();
+		maxSyncNanos = new LongAccumulator(Long::max, 0);
+		maxBatchSize = new LongAccumulator(Long::max, 0);
+		backpressureWaits = new LongAdder();
+
+		workers = IntStream.range(0, configuration.flushWorkers())
+				.mapToObj(_ -> Thread.ofPlatform()
+						.name("DelayedSync update-", 0)
+						.daemon()
+						.uncaughtExceptionHandler((_, e) -> log.error("Can't update sync", e))
+						.start(this::work))
+				.toList();
 	}
 
-	public synchronized void add(final T entry) {
-		queue.add(entry);
+	/**
+	 * Don't run onSync: only wait if the queue is full.
+	 */
+	public void add(final T entry) {
+		requireNonNull(entry, "\"entry\" can't to be null");
+		if (closed) {
+			throw new IllegalStateException("This DelayedSync is closed");
+		}
+		notSynced.incrementAndGet();
+		if (queue.offer(entry)) {
+			return;
+		}
+		backpressureWaits.increment();
+		try {
+			queue.put(entry);
+		} catch (final InterruptedException e) {
+			onSynced(1);
+			currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during the wait for a free place in the queue", e);
+		}
+	}
 
-		if (queue.size() >= maxEntries) {
-			sync();
-		} else {
-			final var task = scheduledTaskReference.get();
-			if (task == null || task.isCancelled() || task.isDone()) {
-				final var newTask = scheduledExecutor.schedule(this::sync, maxDelay.toMillis(), MILLISECONDS);
-				scheduledTaskReference.set(newTask);
+	private void work() {
+		while (closed == false || queue.isEmpty() == false) {
+			final Optional<Batch<T>> oBatch;
+			try {
+				oBatch = makeBatch();
+			} catch (final InterruptedException e) {
+				currentThread().interrupt();
+				return;
+			}
+			oBatch.ifPresent(this::sync);
+		}
+	}
+
+	/**
+	 * @return the first entry, and all the next added until maxEntries or maxDelay, or nothing after an idle check.
+	 *         Don't wait maxDelay during a close.
+	 */
+	private Optional<Batch<T>> makeBatch() throws InterruptedException {
+		final var batch = new ArrayList<T>();
+		batchLock.lockInterruptibly();
+		try {
+			final var first = queue.poll(IDLE_CHECK_NANOS, NANOSECONDS);
+			if (first == null) {
+				return Optional.empty();
+			}
+			batch.add(first);
+			final var deadline = System.nanoTime() + maxDelayNanos;
+			while (true) {
+				queue.drainTo(batch, maxEntries - batch.size());
+				final var remaining = deadline - System.nanoTime();
+				if (batch.size() >= maxEntries || remaining <= 0 || closed) {
+					return Optional.of(new Batch<>(nextBatchSequence.getAndIncrement(), batch));
+				}
+				final var next = queue.poll(min(remaining, IDLE_CHECK_NANOS), NANOSECONDS);
+				if (next != null) {
+					batch.add(next);
+				}
 			}
+		} finally {
+			batchLock.unlock();
 		}
 	}
 
-	private synchronized void sync() {
-		final var list = new ArrayList<T>();
-		queue.drainTo(list);
-		if (list.isEmpty() == false) {
-			onSync.accept(unmodifiableList(list));
+	private void sync(final Batch<T> batch) {
+		waitSyncTurn(batch.sequence());
+		final var entries = batch.entries();
+		final var start = System.nanoTime();
+		try {
+			onSync.accept(unmodifiableList(entries));
+		} catch (final RuntimeException e) {
+			log.error("Can't sync {} entries", entries.size(), e);
+		} finally {
+			final var duration = System.nanoTime() - start;
+			syncs.increment();
+			syncedEntries.add(entries.size());
+			totalSyncNanos.add(duration);
+			maxSyncNanos.accumulate(duration);
+			maxBatchSize.accumulate(entries.size());
+			endSyncTurn();
+			onSynced(entries.size());
 		}
 	}
 
-	void waitToSync() {
-		while (queue.isEmpty() == false) {
-			onSpinWait();
+	/**
+	 * Not interruptible: the next batches can't be synced before this one.
+	 */
+	private void waitSyncTurn(final long sequence) {
+		var interrupted = false;
+		synchronized (syncTurnMonitor) {
+			while (syncTurn != sequence) {
+				try {
+					syncTurnMonitor.wait();
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			currentThread().interrupt();
 		}
-		final var scRef = scheduledTaskReference.get();
-		if (scRef != null) {
+	}
+
+	private void endSyncTurn() {
+		synchronized (syncTurnMonitor) {
+			syncTurn++;
+			syncTurnMonitor.notifyAll();
+		}
+	}
+
+	private void onSynced(final int count) {
+		if (notSynced.addAndGet(-count) == 0) {
+			synchronized (syncedMonitor) {
+				syncedMonitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Sync now all the queued entries, and stop the workers. Don't add after.
+	 */
+	public void close() {
+		closed = true;
+		for (final var worker : workers) {
 			try {
-				scRef.get(1, TimeUnit.SECONDS);
-			} catch (InterruptedException | ExecutionException | TimeoutException e) {
-				log.warn("Can't wait ends task", e);
+				worker.join();
+			} catch (final InterruptedException e) {
+				log.warn("Can't wait the end of {}", worker.getName(), e);
 				currentThread().interrupt();
+				return;
+			}
+		}
+		final var remaining = new ArrayList<T>();
+		queue.drainTo(remaining);
+		if (remaining.isEmpty() == false) {
+			sync(new Batch<>(nextBatchSequence.getAndIncrement(), remaining));
+		}
+	}
+
+	/**
+	 * Wait until all the added entries are synced.
+	 */
+	public void waitToSync() {
+		synchronized (syncedMonitor) {
+			while (notSynced.get() > 0) {
+				try {
+					syncedMonitor.wait(MILLISECONDS.convert(IDLE_CHECK_NANOS, NANOSECONDS));
+				} catch (final InterruptedException e) {
+					log.warn("Can't wait ends syncs", e);
+					currentThread().interrupt();
+					return;
+				}
 			}
 		}
 	}
 
+	public DelayedSyncStats getStats() {
+		final var count = syncs.sum();
+		return new DelayedSyncStats(
+				workers.size(),
+				queue.size(),
+				maxQueuedEntries,
+				count,
+				syncedEntries.sum(),
+				count == 0 ? 0d : (double) syncedEntries.sum() / count,
+				maxBatchSize.get(),
+				count == 0 ? 0d : totalSyncNanos.sum() / NANOS_BY_MILLIS / count,
+				maxSyncNanos.get() / NANOS_BY_MILLIS,
+				backpressureWaits.sum());
+	}
+
 }
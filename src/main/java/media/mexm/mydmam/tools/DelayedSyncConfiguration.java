@@ -18,19 +18,36 @@ package media.mexm.mydmam.tools;
 
 import java.time.Duration;
 
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.validation.annotation.Validated;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 @Validated
-public record DelayedSyncConfiguration(@Min(2) int maxEntries, @NotNull Duration maxDelay) {
+public record DelayedSyncConfiguration(@Min(2) int maxEntries,
+									   @NotNull Duration maxDelay,
+									   /**
+									    * Threads making and syncing the batches. The syncs still run one at a time,
+									    * in the entries order: with more than one, a worker collects the next batch
+									    * during the current sync.
+									    */
+									   @DefaultValue("1") @Min(1) int flushWorkers,
+									   /**
+									    * The callers which add more entries will wait for a free place.
+									    */
+									   @DefaultValue("100000") @Min(2) int maxQueuedEntries) {
 
 	public DelayedSyncConfiguration {
 		if (maxEntries < 2) {
 			throw new IllegalArgumentException("Invalid maxEntries=" + maxEntries);
 		} else if (maxDelay == Duration.ZERO) {
 			throw new IllegalArgumentException("Invalid maxDelay=" + maxDelay);
+		} else if (flushWorkers < 1) {
+			throw new IllegalArgumentException("Invalid flushWorkers=" + flushWorkers);
+		} else if (maxQueuedEntries < maxEntries) {
+			throw new IllegalArgumentException("Invalid maxQueuedEntries=" + maxQueuedEntries
+											   + ", must be greater or equals than maxEntries=" + maxEntries);
 		}
 	}
 
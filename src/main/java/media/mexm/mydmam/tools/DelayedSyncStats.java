@@ -0,0 +1,34 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.tools;
+
+/**
+ * @param queued currently waiting for a sync
+ * @param backpressureWaits count of the add() which had to wait for a free place in the queue
+ */
+public record DelayedSyncStats(int flushWorkers,
+							   int queued,
+							   int maxQueuedEntries,
+							   long syncs,
+							   long syncedEntries,
+							   double meanBatchSize,
+							   long maxBatchSize,
+							   double meanSyncMillis,
+							   double maxSyncMillis,
+							   long backpressureWaits) {
+
+}
@@ -37,6 +37,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 import media.mexm.mydmam.entity.InstanceEntity;
 import media.mexm.mydmam.repository.InstanceDao;
+import media.mexm.mydmam.service.MediaAssetService;
 import media.mexm.mydmam.service.PendingActivityService;
 import tv.hd3g.commons.testtools.Fake;
 import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
@@ -51,6 +52,10 @@ class DbPollersTest {
     InstanceDao instanceDao;
     @MockitoBean
     PendingActivityService pendingActivityService;
+    @MockitoBean
+    MediaAssetService mediaAssetService;
+    @MockitoBean
+    Indexer indexer;
 
     @Mock
     InstanceEntity instanceEntity;
@@ -70,7 +75,7 @@ class DbPollersTest {
 
     @AfterEach
     void ends() {
-        verifyNoMoreInteractions(instanceDao, pendingActivityService);
+        verifyNoMoreInteractions(instanceDao, pendingActivityService, mediaAssetService, indexer);
     }
 
     @Test
@@ -88,6 +93,8 @@ class DbPollersTest {
 
         verify(instanceDao, times(1)).getSelfInstance();
         verify(instanceEntity, times(1)).getId();
+        verify(mediaAssetService, times(1)).replayIndexerJournals();
+        verify(indexer, times(1)).resumeRebuilds("admin-ops", mediaAssetService);
 
         flatJobKitEngine.runAllServicesOnce();
         verify(instanceDao, times(1)).updatePresenceInstance(instanceId);
@@ -100,6 +107,7 @@ class DbPollersTest {
         flatJobKitEngine.runAllServicesOnce();
         verify(instanceDao, times(3)).updatePresenceInstance(instanceId);
         verify(pendingActivityService, times(2)).restartPendingActivities(false);
+        verify(mediaAssetService, times(1)).replayIndexerJournals();
 
         assertThat(flatJobKitEngine.getEndEventsList()).isEmpty();
         assertFalse(flatJobKitEngine.isEmptyActiveServicesList());
@@ -115,6 +123,8 @@ class DbPollersTest {
         dbPollers.internalServiceStart();
         verify(instanceDao, times(1)).getSelfInstance();
         verify(instanceEntity, times(1)).getId();
+        verify(mediaAssetService, times(1)).replayIndexerJournals();
+        verify(indexer, times(1)).resumeRebuilds("admin-ops", mediaAssetService);
 
         dbPollers.internalServiceStop();
 
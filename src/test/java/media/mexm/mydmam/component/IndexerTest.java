@@ -53,8 +53,10 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import media.mexm.mydmam.configuration.EnvConf;
 import media.mexm.mydmam.configuration.MyDMAMConfigurationProperties;
 import media.mexm.mydmam.configuration.RealmConf;
+import media.mexm.mydmam.configuration.RealmIndexConf;
 import media.mexm.mydmam.configuration.TechnicalName;
 import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.indexer.RealmIndexRebuild;
 import media.mexm.mydmam.repository.FileDao;
 import media.mexm.mydmam.service.MediaAssetService;
 import media.mexm.mydmam.tools.DelayedSyncConfiguration;
@@ -107,11 +109,13 @@ class IndexerTest {
             forceDelete(realmWorkingDirectory);
         }
         when(conf.env()).thenReturn(envConf);
-        when(realmConf.delayedSync()).thenReturn(new DelayedSyncConfiguration(2, Duration.ofSeconds(1)));
+        when(realmConf.delayedSync()).thenReturn(new DelayedSyncConfiguration(2, Duration.ofSeconds(1), 1, 10));
+        when(realmConf.index()).thenReturn(RealmIndexConf.DEFAULT);
     }
 
     @AfterEach
-    void ends() {
+    void ends() throws Exception {
+        indexer.internalServiceStop();
         assertTrue(flatJobKitEngine.isEmptyActiveServicesList());
         assertEquals(0, flatJobKitEngine.getEndEventsList().size());
         verifyNoMoreInteractions(
@@ -152,6 +156,7 @@ class IndexerTest {
         verify(envConf, times(1)).explainSearchResults();
         verify(realmConf, times(1)).workingDirectory();
         verify(realmConf, times(1)).delayedSync();
+        verify(realmConf, times(1)).index();
     }
 
     @Test
@@ -168,6 +173,7 @@ class IndexerTest {
         verify(envConf, times(1)).explainSearchResults();
         verify(realmConf, times(1)).workingDirectory();
         verify(realmConf, times(1)).delayedSync();
+        verify(realmConf, times(1)).index();
     }
 
     @Nested
@@ -250,6 +256,7 @@ class IndexerTest {
             verify(envConf, times(1)).explainSearchResults();
             verify(realmConf, times(1)).workingDirectory();
             verify(realmConf, times(1)).delayedSync();
+            verify(realmConf, times(1)).index();
             verify(fileDao, times(1)).getAllFromRealm(eq(realmName), any());
             verify(file, atLeastOnce()).getPath();
             verify(mediaAssetService, times(1)).updateIndexer(fileEntity);
@@ -257,4 +264,47 @@ class IndexerTest {
             clearInvocations(file);
         }
     }
+
+    @Test
+    void testRebuild() throws IOException {
+        when(conf.realms()).thenReturn(Map.of(new TechnicalName(realmName), realmConf));
+        when(realmConf.workingDirectory()).thenReturn(realmWorkingDirectory);
+
+        indexer.internalServiceStart();
+        indexer.rebuild(spoolName, mediaAssetService);
+
+        assertThat(new File(realmWorkingDirectory, "index-rebuild")).doesNotExist();
+
+        verify(conf, atLeastOnce()).realms();
+        verify(conf, atLeastOnce()).env();
+        verify(envConf, times(1)).explainSearchResults();
+        verify(realmConf, times(1)).workingDirectory();
+        verify(realmConf, times(1)).delayedSync();
+        verify(realmConf, times(1)).index();
+        verify(mediaAssetService, times(1)).rebuildIndexer(eq(realmName), any(RealmIndexRebuild.class));
+    }
+
+    @Test
+    void testResumeRebuilds() throws IOException {
+        when(conf.realms()).thenReturn(Map.of(new TechnicalName(realmName), realmConf));
+        when(realmConf.workingDirectory()).thenReturn(realmWorkingDirectory);
+
+        indexer.internalServiceStart();
+        indexer.resumeRebuilds(spoolName, mediaAssetService);
+
+        indexer.getIndexerByRealm(realmName).orElseThrow().startRebuild();
+        assertThat(new File(realmWorkingDirectory, "index-rebuild")).exists();
+        indexer.resumeRebuilds(spoolName, mediaAssetService);
+
+        assertThat(new File(realmWorkingDirectory, "index-rebuild")).doesNotExist();
+        assertThat(indexer.getIndexerByRealm(realmName).orElseThrow().isRebuildPending()).isFalse();
+
+        verify(conf, atLeastOnce()).realms();
+        verify(conf, atLeastOnce()).env();
+        verify(envConf, times(1)).explainSearchResults();
+        verify(realmConf, times(1)).workingDirectory();
+        verify(realmConf, times(1)).delayedSync();
+        verify(realmConf, times(1)).index();
+        verify(mediaAssetService, times(1)).rebuildIndexer(eq(realmName), any(RealmIndexRebuild.class));
+    }
 }
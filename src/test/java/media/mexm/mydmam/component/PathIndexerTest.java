@@ -22,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -106,9 +107,9 @@ class PathIndexerTest {
                     duration,
                     0,
                     null, null, null, null, null, null, null, null, false, false,
-                    Duration.ZERO, false, "pathindexing", false, null);
+                    Duration.ZERO, false, "pathindexing", false, null, null, false, 1);
             piRealm = new RealmConf(Map.of(new TechnicalName(storage), piStorage),
-                    duration, spoolEvents, null, null, null, activityHandlers, realmAboutConf, activityLimit);
+                    duration, spoolEvents, null, null, null, activityHandlers, realmAboutConf, activityLimit, null);
 
             when(configuration.realms()).thenReturn(Map.of(new TechnicalName(realm), piRealm));
             pi = new PathIndexer(jobKitEngine, pathIndexerService, configuration);
@@ -146,7 +147,7 @@ class PathIndexerTest {
             verify(configuration, atLeastOnce()).realms();
             verify(env, atLeastOnce()).spoolEvents();
             verify(pathIndexerService, times(1)).updateFoundedFiles(
-                    any(), eq(realm), eq(storage), any(), any());
+                    any(), eq(realm), eq(storage), any(), any(), anyBoolean(), any());
         }
 
         @Test
@@ -154,7 +155,7 @@ class PathIndexerTest {
             pi.scanNow(realm, storage);
 
             verify(pathIndexerService, times(1)).updateFoundedFiles(
-                    any(), eq(realm), eq(storage), any(), any());
+                    any(), eq(realm), eq(storage), any(), any(), anyBoolean(), any());
         }
 
     }
@@ -86,16 +86,22 @@ class PathIndexingStorageTest {
     String path;
     PathIndexingStorage pis;
     Duration timeBetweenScans;
+    Duration timeBetweenFullScans;
     Duration minFixedStateTime;
     ObservedFolder observedFolder;
     boolean disablePathCheckOnBoot;
+    boolean watchChanges;
+    int scanParallelism;
 
     @BeforeEach
     void init() {
         path = new File(".").getAbsolutePath();
         timeBetweenScans = Duration.ofMillis(timeBetweenScansDuration);
+        timeBetweenFullScans = Duration.ofMillis(timeBetweenScansDuration * 2);
         minFixedStateTime = Duration.ofMillis(timeBetweenScansDuration);
         disablePathCheckOnBoot = false;
+        watchChanges = false;
+        scanParallelism = 2;
         makePis();
     }
 
@@ -104,7 +110,8 @@ class PathIndexingStorageTest {
                 path, maxDeep, timeBetweenScans, retryAfterTimeFactor, allowedExtentions,
                 blockedExtentions, ignoreRelativePaths, ignoreFiles, allowedFileNames, allowedDirNames,
                 blockedFileNames, blockedDirNames, allowedHidden, allowedLinks, minFixedStateTime, noScans,
-                spoolScans, disablePathCheckOnBoot, activityLimit);
+                spoolScans, disablePathCheckOnBoot, activityLimit, timeBetweenFullScans, watchChanges,
+                scanParallelism);
     }
 
     @Test
@@ -120,6 +127,18 @@ class PathIndexingStorageTest {
 
     }
 
+    @Test
+    void testInvalid_TimeBetweenFullScans() {
+        timeBetweenFullScans = null;
+        makePis();
+        assertThat(pis.timeBetweenFullScans()).isNull();
+
+        timeBetweenFullScans = Duration.ZERO;
+        assertThrows(IllegalArgumentException.class, this::makePis);
+        timeBetweenFullScans = Duration.ofMillis(-timeBetweenScansDuration);
+        assertThrows(IllegalArgumentException.class, this::makePis);
+    }
+
     @Test
     void testInvalid_path() {
         path = "/this-not-exists-" + spoolScans;
@@ -172,6 +191,27 @@ class PathIndexingStorageTest {
         assertThat(pis.getCategory()).isEqualTo(NAS);
     }
 
+    @Test
+    void testInvalid_scanParallelism() {
+        scanParallelism = 0;
+        assertThrows(IllegalArgumentException.class, this::makePis);
+    }
+
+    @Test
+    void testWatchChanges() {
+        watchChanges = true;
+        makePis();
+        assertThat(pis.watchChanges()).isTrue();
+    }
+
+    @Test
+    void testInvalid_watchChanges_nas() {
+        disablePathCheckOnBoot = true;
+        watchChanges = true;
+        path = "ftp://localhost";
+        assertThrows(IllegalArgumentException.class, this::makePis);
+    }
+
     @Test
     void testGetStorageStateClass_online() {
         assertThat(pis.getStorageStateClass()).isEqualTo(ONLINE);
@@ -73,6 +73,8 @@ class RealmConfTest {
     @Mock
     RealmAboutConf realmAboutConf;
     @Mock
+    RealmIndexConf realmIndexConf;
+    @Mock
     ActivityLimitPolicy activityLimit;
 
     @Fake
@@ -103,7 +105,8 @@ class RealmConfTest {
                 delayedSyncConfiguration,
                 activityHandlers,
                 realmAboutConf,
-                activityLimit);
+                activityLimit,
+                realmIndexConf);
     }
 
     @AfterEach
@@ -135,6 +138,7 @@ class RealmConfTest {
                 null,
                 null,
                 null,
+                null,
                 null);
 
         final var result = conf.storages().entrySet().stream().toList();
@@ -143,7 +147,7 @@ class RealmConfTest {
 
     @Test
     void testStoragesStream_null() {
-        conf = new RealmConf(null, mockTimeBetweenScans, spool, null, null, null, null, null, null);
+        conf = new RealmConf(null, mockTimeBetweenScans, spool, null, null, null, null, null, null, null);
 
         final var result = conf.storages().entrySet().stream().toList();
         assertThat(result).isEmpty();
@@ -151,7 +155,7 @@ class RealmConfTest {
 
     @Test
     void testGetValidWorkingDirectory_empty() {
-        conf = new RealmConf(null, mockTimeBetweenScans, spool, null, null, null, null, null, null);
+        conf = new RealmConf(null, mockTimeBetweenScans, spool, null, null, null, null, null, null, null);
         assertThat(conf.workingDirectory()).isNull();
     }
 
@@ -184,7 +188,8 @@ class RealmConfTest {
                 delayedSyncConfiguration,
                 activityHandlers,
                 realmAboutConf,
-                activityLimit));
+                activityLimit,
+                realmIndexConf));
     }
 
     @Test
@@ -192,22 +197,23 @@ class RealmConfTest {
         final var map = Map.of(new TechnicalName(storageName), piStorage);
 
         conf = new RealmConf(map, null, spool, workingDirectory, renderedMetadataDirectory,
-                delayedSyncConfiguration, null, null, null);
+                delayedSyncConfiguration, null, null, null, null);
         assertThat(conf.timeBetweenScans()).isNull();
+        assertThat(conf.index()).isEqualTo(RealmIndexConf.DEFAULT);
 
         timeBetweenScans = Duration.ofMillis(duration);
         conf = new RealmConf(map, timeBetweenScans, spool, workingDirectory, renderedMetadataDirectory,
-                delayedSyncConfiguration, null, null, null);
+                delayedSyncConfiguration, null, null, null, null);
         assertThat(conf.timeBetweenScans()).isEqualTo(Duration.ofMillis(duration));
 
         timeBetweenScans = Duration.ZERO;
         assertThrows(IllegalArgumentException.class,
                 () -> new RealmConf(map, timeBetweenScans, spool, workingDirectory, renderedMetadataDirectory,
-                        delayedSyncConfiguration, null, null, null));
+                        delayedSyncConfiguration, null, null, null, null));
         timeBetweenScans = Duration.ofMillis(-duration);
         assertThrows(IllegalArgumentException.class,
                 () -> new RealmConf(map, timeBetweenScans, spool, workingDirectory, renderedMetadataDirectory,
-                        delayedSyncConfiguration, null, null, null));
+                        delayedSyncConfiguration, null, null, null, null));
     }
 
     @Test
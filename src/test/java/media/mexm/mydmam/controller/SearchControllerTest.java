@@ -16,11 +16,17 @@
  */
 package media.mexm.mydmam.controller;
 
+import static java.time.Duration.ofMinutes;
+import static media.mexm.mydmam.indexer.FileSearchSort.RELEVANCE;
 import static media.mexm.mydmam.indexer.SearchConstraintRange.NO_RANGE;
+import static media.mexm.mydmam.tools.SortOrder.asc;
+import static media.mexm.mydmam.tools.SortOrder.desc;
+import static media.mexm.mydmam.tools.SortOrder.none;
 import static org.apache.commons.lang3.StringUtils.leftPad;
 import static org.apache.commons.lang3.StringUtils.rightPad;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anySet;
@@ -39,9 +45,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -59,18 +70,30 @@ import org.springframework.web.bind.annotation.RequestMapping;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.servlet.ServletException;
 import media.mexm.mydmam.component.Indexer;
 import media.mexm.mydmam.configuration.MyDMAMConfigurationProperties;
 import media.mexm.mydmam.dto.OpenSearchResponse;
+import media.mexm.mydmam.dto.RecentFilesResponse;
 import media.mexm.mydmam.dto.SearchConstraintsRequest;
+import media.mexm.mydmam.dto.SearchStatsResponse;
+import media.mexm.mydmam.dto.SuggestResponse;
 import media.mexm.mydmam.entity.FileEntity;
 import media.mexm.mydmam.indexer.FileSearchConstraints;
 import media.mexm.mydmam.indexer.FileSearchResult;
+import media.mexm.mydmam.indexer.FileSearchSort;
+import media.mexm.mydmam.indexer.InvalidSearchRequestException;
 import media.mexm.mydmam.indexer.RealmIndexer;
+import media.mexm.mydmam.indexer.SearchCacheStats;
 import media.mexm.mydmam.indexer.SearchConstraintCondition;
+import media.mexm.mydmam.indexer.SearchConstraintMetadataRange;
+import media.mexm.mydmam.indexer.SearchCursor;
+import media.mexm.mydmam.indexer.SearchFacetCount;
+import media.mexm.mydmam.indexer.SearchLatencyStats;
 import media.mexm.mydmam.indexer.SearchResult;
 import media.mexm.mydmam.repository.FileRepository;
 import media.mexm.mydmam.service.MediaAssetService;
+import media.mexm.mydmam.tools.DelayedSyncStats;
 import net.datafaker.Faker;
 import tv.hd3g.commons.testtools.Fake;
 import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
@@ -126,6 +149,8 @@ class SearchControllerTest {
     float score;
     @Fake
     String explain;
+    @Fake
+    String highlight;
 
     HttpHeaders baseHeaders;
     FileSearchResult foundedFile;
@@ -138,8 +163,9 @@ class SearchControllerTest {
     void init() {
         baseHeaders = new HttpHeaders();
         baseHeaders.setContentType(APPLICATION_JSON);
-        foundedFile = new FileSearchResult(hashPath, storage, name, parentPath, score, explain);
-        searchResult = new SearchResult(List.of(foundedFile), totalFounded);
+        foundedFile = new FileSearchResult(hashPath, storage, name, parentPath, score, explain, highlight);
+        searchResult = new SearchResult(List.of(foundedFile), totalFounded, null,
+                Map.of("storage", List.of(new SearchFacetCount(storage, totalFounded))));
         limit = conf.env().searchResultMaxSize() / 2;
         q = rightPad(leftPad(q, faker.number().numberBetween(1, 10)), faker.number().numberBetween(1, 10));
 
@@ -152,11 +178,13 @@ class SearchControllerTest {
                 NO_RANGE,
                 List.of(faker.numerify("storage###")),
                 parentPath,
-                faker.numerify("parentHashPath###"));
+                faker.numerify("parentHashPath###"),
+                List.of(new SearchConstraintMetadataRange("technical", "width", 4000, 10000)));
         constraintsRequest = new SearchConstraintsRequest(fileConstraints);
 
         when(indexer.getIndexerByRealm(realm)).thenReturn(Optional.ofNullable(realmIndexer));
-        when(realmIndexer.openSearch(any(), any(), anyInt())).thenReturn(searchResult);
+        when(realmIndexer.openSearch(any(), any(), anyInt(), any(), any())).thenReturn(searchResult);
+        when(realmIndexer.fullTextSearch(any(), any(), anyInt(), any(), any())).thenReturn(searchResult);
         when(fileRepository.getByHashPath(anySet(), anyString())).thenReturn(Set.of(fileEntity));
 
         when(fileEntity.getRealm()).thenReturn(realm);
@@ -207,7 +235,8 @@ class SearchControllerTest {
         assertThat(response.result()).isEqualTo(searchResult);
 
         verify(indexer, times(1)).getIndexerByRealm(realm);
-        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(), conf.env().searchResultMaxSize());
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.empty(), RELEVANCE);
     }
 
     @Test
@@ -231,7 +260,7 @@ class SearchControllerTest {
         assertThat(response.result()).isEqualTo(searchResult);
 
         verify(indexer, times(1)).getIndexerByRealm(realm);
-        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(), limit);
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(), limit, Optional.empty(), RELEVANCE);
     }
 
     @Test
@@ -257,7 +286,8 @@ class SearchControllerTest {
         assertThat(response.relatedFiles().get(hashPath).hashPath()).isEqualTo(hashPath);
 
         verify(indexer, times(1)).getIndexerByRealm(realm);
-        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(), conf.env().searchResultMaxSize());
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.empty(), RELEVANCE);
         verify(fileRepository, times(1)).getByHashPath(Set.of(hashPath), realm);
     }
 
@@ -283,13 +313,13 @@ class SearchControllerTest {
 
         verify(indexer, times(1)).getIndexerByRealm(realm);
         verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.ofNullable(fileConstraints),
-                conf.env().searchResultMaxSize());
+                conf.env().searchResultMaxSize(), Optional.empty(), RELEVANCE);
     }
 
     @Test
     void testOpenSearch_empty() throws Exception {
-        searchResult = new SearchResult(List.of(), 0);
-        when(realmIndexer.openSearch(any(), any(), anyInt())).thenReturn(searchResult);
+        searchResult = new SearchResult(List.of(), 0, null, Map.of());
+        when(realmIndexer.openSearch(any(), any(), anyInt(), any(), any())).thenReturn(searchResult);
 
         final var content = mvc.perform(get(BASE_MAPPING + "/" + realm)
                 .headers(baseHeaders)
@@ -309,7 +339,304 @@ class SearchControllerTest {
         assertThat(response.result()).isEqualTo(searchResult);
 
         verify(indexer, times(1)).getIndexerByRealm(realm);
-        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(), conf.env().searchResultMaxSize());
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.empty(), RELEVANCE);
+    }
+
+    @Test
+    void testOpenSearch_fullText() throws Exception {
+        final var content = mvc.perform(get(BASE_MAPPING + "/" + realm)
+                .headers(baseHeaders)
+                .queryParam("q", q)
+                .queryParam("fullText", "1"))
+                .andExpect(STATUS_OK)
+                .andExpect(CONTENT_TYPE)
+                .andExpect(jsonPath("$.q").exists())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        final var response = objectMapper.readValue(content, OpenSearchResponse.class);
+        assertThat(response.limit()).isEqualTo(conf.env().searchResultMaxSize());
+        assertThat(response.q()).isEqualTo(q.trim());
+        assertThat(response.fullText()).isTrue();
+        assertThat(response.result()).isEqualTo(searchResult);
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).fullTextSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.empty(), RELEVANCE);
+    }
+
+    @Test
+    void testOpenSearch_cursor() throws Exception {
+        final var cursor = SearchCursor.encode(
+                new FieldDoc(0, score, new Object[] { score, new BytesRef(hashPath) }),
+                new Sort());
+
+        final var content = mvc.perform(get(BASE_MAPPING + "/" + realm)
+                .headers(baseHeaders)
+                .queryParam("q", q)
+                .queryParam("cursor", cursor))
+                .andExpect(STATUS_OK)
+                .andExpect(CONTENT_TYPE)
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        final var response = objectMapper.readValue(content, OpenSearchResponse.class);
+        assertThat(response.cursor()).isEqualTo(cursor);
+        assertThat(response.result()).isEqualTo(searchResult);
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.of(cursor), RELEVANCE);
+    }
+
+    @Test
+    void testOpenSearch_sort() throws Exception {
+        final var content = mvc.perform(get(BASE_MAPPING + "/" + realm)
+                .headers(baseHeaders)
+                .queryParam("q", q)
+                .queryParam("sortByDate", "desc")
+                .queryParam("sortByName", "asc"))
+                .andExpect(STATUS_OK)
+                .andExpect(CONTENT_TYPE)
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        final var sort = new FileSearchSort(asc, none, desc, none);
+        final var response = objectMapper.readValue(content, OpenSearchResponse.class);
+        assertThat(response.sort()).isEqualTo(sort);
+        assertThat(response.result()).isEqualTo(searchResult);
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.empty(), sort);
+    }
+
+    @Test
+    void testOpenSearch_cursorNotForThisSort() throws Exception {
+        when(realmIndexer.openSearch(any(), any(), anyInt(), any(), any()))
+                .thenThrow(new InvalidSearchRequestException(q));
+        final var cursor = SearchCursor.encode(new FieldDoc(0, score, new Object[] { score }), new Sort());
+
+        mvc.perform(get(BASE_MAPPING + "/" + realm)
+                .headers(baseHeaders)
+                .queryParam("q", q)
+                .queryParam("cursor", cursor))
+                .andExpect(status().isBadRequest());
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.of(cursor), RELEVANCE);
+    }
+
+    @Test
+    void testOpenSearch_internalError() {
+        when(realmIndexer.openSearch(any(), any(), anyInt(), any(), any()))
+                .thenThrow(new IllegalArgumentException(q));
+        final var request = get(BASE_MAPPING + "/" + realm)
+                .headers(baseHeaders)
+                .queryParam("q", q);
+
+        assertThrows(ServletException.class, () -> mvc.perform(request));
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.empty(), RELEVANCE);
+    }
+
+    @Test
+    void testOpenSearch_rejected() throws Exception {
+        when(realmIndexer.openSearch(any(), any(), anyInt(), any(), any()))
+                .thenThrow(new RejectedExecutionException(q));
+
+        mvc.perform(get(BASE_MAPPING + "/" + realm)
+                .headers(baseHeaders)
+                .queryParam("q", q))
+                .andExpect(status().isTooManyRequests());
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).openSearch(q.trim(), Optional.empty(),
+                conf.env().searchResultMaxSize(), Optional.empty(), RELEVANCE);
+    }
+
+    @Test
+    void testRecent_rejected() throws Exception {
+        when(realmIndexer.recentSearch(any(), anyInt(), any()))
+                .thenThrow(new RejectedExecutionException(q));
+
+        mvc.perform(get(BASE_MAPPING + "/" + realm + "/recent")
+                .headers(baseHeaders))
+                .andExpect(status().isTooManyRequests());
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).recentSearch(ofMinutes(60), conf.env().searchResultMaxSize(), Optional.empty());
+    }
+
+    @Test
+    void testOpenSearch_badCursor() throws Exception {
+        mvc.perform(get(BASE_MAPPING + "/" + realm)
+                .headers(baseHeaders)
+                .queryParam("q", q)
+                .queryParam("cursor", "!" + q))
+                .andExpect(status().isBadRequest());
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+    }
+
+    @Test
+    void testRecent() throws Exception {
+        final var lastMinutes = faker.random().nextInt(1, 1000);
+        when(realmIndexer.recentSearch(any(), anyInt(), any())).thenReturn(searchResult);
+
+        final var content = mvc.perform(get(BASE_MAPPING + "/" + realm + "/recent")
+                .headers(baseHeaders)
+                .queryParam("lastMinutes", String.valueOf(lastMinutes))
+                .queryParam("limit", String.valueOf(limit))
+                .queryParam("resolveHashPaths", "1"))
+                .andExpect(STATUS_OK)
+                .andExpect(CONTENT_TYPE)
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        final var response = objectMapper.readValue(content, RecentFilesResponse.class);
+        assertThat(response.lastMinutes()).isEqualTo(lastMinutes);
+        assertThat(response.limit()).isEqualTo(limit);
+        assertThat(response.result()).isEqualTo(searchResult);
+        assertThat(response.relatedFiles()).containsOnlyKeys(hashPath);
+        assertNull(response.cursor());
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).recentSearch(ofMinutes(lastMinutes), limit, Optional.empty());
+        verify(fileRepository, times(1)).getByHashPath(Set.of(hashPath), realm);
+    }
+
+    @Test
+    void testRecent_default() throws Exception {
+        when(realmIndexer.recentSearch(any(), anyInt(), any())).thenReturn(searchResult);
+
+        final var content = mvc.perform(get(BASE_MAPPING + "/" + realm + "/recent")
+                .headers(baseHeaders))
+                .andExpect(STATUS_OK)
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        final var response = objectMapper.readValue(content, RecentFilesResponse.class);
+        assertThat(response.lastMinutes()).isEqualTo(60);
+        assertThat(response.limit()).isEqualTo(conf.env().searchResultMaxSize());
+        assertThat(response.relatedFiles()).isEmpty();
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).recentSearch(ofMinutes(60), conf.env().searchResultMaxSize(), Optional.empty());
+    }
+
+    @Test
+    void testRecent_badRealm() throws Exception {
+        when(indexer.getIndexerByRealm(realm)).thenReturn(Optional.empty());
+
+        mvc.perform(get(BASE_MAPPING + "/" + realm + "/recent")
+                .headers(baseHeaders))
+                .andExpect(STATUS_UNPROCESSABLE_ENTITY);
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+    }
+
+    @Test
+    void testGetStats() throws Exception {
+        final var stats = new SearchCacheStats(
+                faker.random().nextLong(),
+                faker.random().nextLong(),
+                faker.random().nextLong(),
+                faker.random().nextInt(),
+                faker.random().nextLong(),
+                faker.random().nextLong());
+        when(realmIndexer.getSearchCacheStats()).thenReturn(stats);
+        final var latency = new SearchLatencyStats(
+                faker.random().nextInt(0, 64),
+                faker.random().nextLong(),
+                faker.random().nextDouble(),
+                faker.random().nextDouble());
+        when(realmIndexer.getSearchLatencyStats()).thenReturn(latency);
+        final var indexUpdates = new DelayedSyncStats(
+                faker.random().nextInt(1, 8),
+                faker.random().nextInt(),
+                faker.random().nextInt(),
+                faker.random().nextLong(),
+                faker.random().nextLong(),
+                faker.random().nextDouble(),
+                faker.random().nextLong(),
+                faker.random().nextDouble(),
+                faker.random().nextDouble(),
+                faker.random().nextLong());
+        when(realmIndexer.getIndexUpdateStats()).thenReturn(indexUpdates);
+
+        final var content = mvc.perform(get(BASE_MAPPING + "/" + realm + "/stats")
+                .headers(baseHeaders))
+                .andExpect(STATUS_OK)
+                .andExpect(CONTENT_TYPE)
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        final var response = objectMapper.readValue(content, SearchStatsResponse.class);
+        assertThat(response.cache()).isEqualTo(stats);
+        assertThat(response.latency()).isEqualTo(latency);
+        assertThat(response.indexUpdates()).isEqualTo(indexUpdates);
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).getSearchCacheStats();
+        verify(realmIndexer, times(1)).getSearchLatencyStats();
+        verify(realmIndexer, times(1)).getIndexUpdateStats();
+    }
+
+    @Test
+    void testSuggest() throws Exception {
+        final var suggestion = faker.lorem().sentence();
+        when(realmIndexer.suggest(any(), anyInt())).thenReturn(List.of(suggestion));
+
+        final var content = mvc.perform(get(BASE_MAPPING + "/" + realm + "/suggest")
+                .headers(baseHeaders)
+                .queryParam("q", " sugg ")
+                .queryParam("limit", "5"))
+                .andExpect(STATUS_OK)
+                .andExpect(CONTENT_TYPE)
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        final var response = objectMapper.readValue(content, SuggestResponse.class);
+        assertThat(response.q()).isEqualTo("sugg");
+        assertThat(response.suggestions()).containsExactly(suggestion);
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+        verify(realmIndexer, times(1)).suggest("sugg", 5);
+    }
+
+    @Test
+    void testSuggest_badRealm() throws Exception {
+        when(indexer.getIndexerByRealm(realm)).thenReturn(Optional.empty());
+
+        mvc.perform(get(BASE_MAPPING + "/" + realm + "/suggest")
+                .headers(baseHeaders)
+                .queryParam("q", "sugg"))
+                .andExpect(STATUS_UNPROCESSABLE_ENTITY);
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
+    }
+
+    @Test
+    void testGetStats_badRealm() throws Exception {
+        when(indexer.getIndexerByRealm(realm)).thenReturn(Optional.empty());
+
+        mvc.perform(get(BASE_MAPPING + "/" + realm + "/stats")
+                .headers(baseHeaders))
+                .andExpect(STATUS_UNPROCESSABLE_ENTITY);
+
+        verify(indexer, times(1)).getIndexerByRealm(realm);
     }
 
     @Test
@@ -321,4 +648,13 @@ class SearchControllerTest {
         verify(indexer, times(1)).reset("admin-ops", mediaAssetService);
     }
 
+    @Test
+    void testRebuild() throws Exception {
+        mvc.perform(post(BASE_MAPPING + "/rebuild-all-indexes")
+                .headers(baseHeaders))
+                .andExpect(STATUS_OK);
+
+        verify(indexer, times(1)).rebuild("admin-ops", mediaAssetService);
+    }
+
 }
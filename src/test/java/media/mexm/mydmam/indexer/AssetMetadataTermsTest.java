@@ -0,0 +1,142 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.addMetadata;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.getSuggestedValue;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.getSuggestedValues;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.isNumeric;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.isSuggested;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.makeNumericRangeQuery;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.makePathQuery;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.makeSuggestedValueQuery;
+import static media.mexm.mydmam.indexer.AssetMetadataTerms.makeValueQuery;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AssetMetadataTermsTest {
+
+    ByteBuffersDirectory directory;
+    DirectoryReader reader;
+    IndexSearcher searcher;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = new ByteBuffersDirectory();
+        try (final var writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            final var pdf = new Document();
+            addMetadata(pdf, "dc", "format", 0, "application/pdf");
+            addMetadata(pdf, "pdf", "pagesize", 1, "A4");
+            addMetadata(pdf, "pdf", "pagesize", 2, "A3");
+            addMetadata(pdf, "pdf", "page-count", 0, "150");
+            addMetadata(pdf, "dc", "title", 0, "Annual report");
+            writer.addDocument(pdf);
+
+            final var image = new Document();
+            addMetadata(image, "dc", "format", 0, "image/jpeg");
+            addMetadata(image, "exif", "paper", 0, "A4");
+            addMetadata(image, "technical", "width", 0, "not a number");
+            writer.addDocument(image);
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+    }
+
+    @AfterEach
+    void ends() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    int count(final Query query) throws IOException {
+        return searcher.count(query);
+    }
+
+    @Test
+    void testMakeValueQuery() throws IOException {
+        assertThat(count(makeValueQuery("A4"))).isEqualTo(2);
+        assertThat(count(makeValueQuery("A4", "pdf"))).isEqualTo(1);
+        assertThat(count(makeValueQuery("A4", "pdf", "pagesize"))).isEqualTo(1);
+        assertThat(count(makeValueQuery("A4", "pdf", "pagesize", "1"))).isEqualTo(1);
+        assertThat(count(makeValueQuery("A4", "pdf", "pagesize", "2"))).isZero();
+        assertThat(count(makeValueQuery("A", "pdf"))).isZero();
+        assertThat(count(makeValueQuery("A4", "pd"))).isZero();
+        assertThat(count(makeValueQuery("image/jpeg", "dc", "format", "0"))).isEqualTo(1);
+    }
+
+    @Test
+    void testMakePathQuery() throws IOException {
+        assertThat(count(makePathQuery("dc"))).isEqualTo(2);
+        assertThat(count(makePathQuery("dc", "format"))).isEqualTo(2);
+        assertThat(count(makePathQuery("pdf", "pagesize", "2"))).isEqualTo(1);
+        assertThat(count(makePathQuery("pdf", "page"))).isZero();
+        assertThat(count(makePathQuery("exif", "paper", "1"))).isZero();
+        assertThrows(IllegalArgumentException.class, () -> makePathQuery());
+    }
+
+    @Test
+    void testMakeNumericRangeQuery() throws IOException {
+        assertThat(isNumeric("pdf", "page-count")).isTrue();
+        assertThat(isNumeric("pdf", "producer")).isFalse();
+        assertThat(count(makeNumericRangeQuery("pdf", "page-count", 100, 200))).isEqualTo(1);
+        assertThat(count(makeNumericRangeQuery("pdf", "page-count", 151, 200))).isZero();
+        assertThat(count(makeNumericRangeQuery("technical", "width", 0, Double.MAX_VALUE))).isZero();
+        assertThat(count(makeValueQuery("150", "pdf", "page-count"))).isEqualTo(1);
+        assertThrows(IllegalArgumentException.class, () -> makeNumericRangeQuery("pdf", "producer", 0, 1));
+    }
+
+    @Test
+    void testMakePath_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> makeValueQuery("A4", "a", "b", "0", "d"));
+        assertThrows(IllegalArgumentException.class, () -> makePathQuery("a\u0000b"));
+    }
+
+    @Test
+    void testSuggestedValues() throws IOException {
+        assertThat(isSuggested("dc", "title")).isTrue();
+        assertThat(isSuggested("dc", "format")).isFalse();
+        assertThat(count(makeSuggestedValueQuery("Annual report"))).isEqualTo(1);
+        assertThat(count(makeSuggestedValueQuery("Annual"))).isZero();
+        assertThat(count(makeSuggestedValueQuery("A4"))).isZero();
+
+        final var document = new Document();
+        addMetadata(document, "dc", "title", 0, "Annual report");
+        addMetadata(document, "dc", "creator", 1, "Someone");
+        addMetadata(document, "dc", "format", 0, "application/pdf");
+        assertThat(getSuggestedValues(document)).containsExactlyInAnyOrder("Annual report", "Someone");
+
+        assertThat(getSuggestedValue("Someone\u0000dc\u0000creator\u00002")).contains("Someone");
+        assertThat(getSuggestedValue("A4\u0000pdf\u0000pagesize\u00001")).isEmpty();
+        assertThat(getSuggestedValue("dc\u0000title\u00000")).isEmpty();
+        assertThat(getSuggestedValue("nothing")).isEmpty();
+    }
+
+}
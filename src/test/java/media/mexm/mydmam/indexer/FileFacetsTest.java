@@ -0,0 +1,37 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static media.mexm.mydmam.indexer.FileFacets.sizeBucket;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class FileFacetsTest {
+
+    @Test
+    void testSizeBucket() {
+        assertThat(sizeBucket(0)).isEqualTo("<1KB");
+        assertThat(sizeBucket(1023)).isEqualTo("<1KB");
+        assertThat(sizeBucket(1024)).isEqualTo("<1MB");
+        assertThat(sizeBucket(1024l * 1024l * 99l)).isEqualTo("<100MB");
+        assertThat(sizeBucket(1024l * 1024l * 100l)).isEqualTo("<1GB");
+        assertThat(sizeBucket(1024l * 1024l * 1024l * 9l)).isEqualTo("<10GB");
+        assertThat(sizeBucket(1024l * 1024l * 1024l * 20l)).isEqualTo(">=10GB");
+    }
+
+}
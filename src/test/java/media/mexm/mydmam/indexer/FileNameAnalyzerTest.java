@@ -0,0 +1,89 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static media.mexm.mydmam.indexer.FileNameAnalyzer.analyze;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FileNameAnalyzerTest {
+
+    FileNameAnalyzer analyzer;
+    FileNameAnalyzer nGramAnalyzer;
+
+    @BeforeEach
+    void init() {
+        analyzer = new FileNameAnalyzer();
+        nGramAnalyzer = new FileNameAnalyzer(3);
+    }
+
+    @AfterEach
+    void ends() {
+        analyzer.close();
+        nGramAnalyzer.close();
+    }
+
+    @Test
+    void testAnalyze() {
+        assertThat(analyze(analyzer, "f", " THIS IS_A_$tést\\WITH * NUM8ERS⚠️. "))
+                .containsExactly("this", "is", "a", "test", "with", "num", "8", "ers");
+
+        assertThat(analyze(analyzer, "f", null)).isEmpty();
+        assertThat(analyze(analyzer, "f", " \t")).isEmpty();
+        assertThat(analyze(analyzer, "f", "_")).isEmpty();
+    }
+
+    @Test
+    void testSplit() {
+        assertThat(analyze(analyzer, "f", "8AAA123BB5"))
+                .isEqualTo(List.of("8", "aaa", "123", "bb", "5"));
+        assertThat(analyze(analyzer, "f", "A B  C1 23  "))
+                .isEqualTo(List.of("a", "b", "c", "1", "23"));
+    }
+
+    @Test
+    void testCombiningMarks() {
+        assertThat(analyze(analyzer, "f", "Cafe\u0301 Café")).containsExactly("cafe", "cafe");
+    }
+
+    @Test
+    void testNotFoldedLetters() {
+        assertThat(analyze(analyzer, "f", "Größe")).containsExactly("gro", "e");
+        assertThat(analyze(analyzer, "f", "Æsop")).containsExactly("sop");
+        assertThat(analyze(analyzer, "f", "cœur")).containsExactly("c", "ur");
+        assertThat(analyze(analyzer, "f", "Ørsted")).containsExactly("rsted");
+    }
+
+    @Test
+    void testCompatibilityDecomposition() {
+        assertThat(analyze(analyzer, "f", "\uFB01le x\u00B2")).containsExactly("file", "x", "2");
+    }
+
+    @Test
+    void testNGrams() {
+        assertThat(analyze(nGramAnalyzer, "f", "abcd"))
+                .containsExactlyInAnyOrder("a", "b", "c", "d", "ab", "bc", "cd", "abc", "bcd");
+        assertThat(analyze(nGramAnalyzer, "f", "a")).containsExactly("a");
+        assertThat(analyze(nGramAnalyzer, "f", "")).isEmpty();
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static media.mexm.mydmam.indexer.IndexUpdateJournal.COMPACT_MIN_SIZE;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+import static org.apache.commons.io.FileUtils.getTempDirectory;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IndexUpdateJournalTest {
+
+    File directory;
+    File journalFile;
+    IndexUpdateJournal journal;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = new File(getTempDirectory(), "mydmam-test-journal");
+        deleteQuietly(directory);
+        forceMkdir(directory);
+        journalFile = new File(directory, "journal.log");
+        journal = new IndexUpdateJournal(journalFile);
+    }
+
+    @AfterEach
+    void ends() {
+        journal.close();
+        deleteQuietly(directory);
+    }
+
+    @Test
+    void testCommitted_noCompactBelowMinSize() throws IOException {
+        journal.append("a");
+        journal.append("b");
+        journal.committed(List.of("a"));
+
+        assertThat(journal.size()).isEqualTo(1);
+        assertThat(readFileToString(journalFile, UTF_8)).isEqualTo("a\nb\n");
+    }
+
+    @Test
+    void testCommitted_compact() throws IOException {
+        final var hashPaths = IntStream.range(0, (int) (COMPACT_MIN_SIZE / 1024))
+                .mapToObj(pos -> String.format("%01023d", pos))
+                .toList();
+        hashPaths.forEach(journal::append);
+        journal.append("pending");
+        assertThat(journalFile.length()).isGreaterThan(COMPACT_MIN_SIZE);
+
+        journal.committed(hashPaths);
+        assertThat(journal.size()).isEqualTo(1);
+        assertThat(readFileToString(journalFile, UTF_8)).isEqualTo("pending\n");
+    }
+
+    @Test
+    void testCommittedBeforeAppend() throws IOException {
+        journal.committed(List.of("a"));
+        journal.append("a");
+
+        assertThat(journal.size()).isZero();
+        journal.close();
+        assertThat(readFileToString(journalFile, UTF_8)).isEmpty();
+        journal = new IndexUpdateJournal(journalFile);
+        assertThat(journal.getToReplay()).isEmpty();
+    }
+
+    @Test
+    void testClose_compact() throws IOException {
+        journal.append("a");
+        journal.append("b");
+        journal.committed(List.of("a"));
+        journal.close();
+
+        assertThat(readFileToString(journalFile, UTF_8)).isEqualTo("b\n");
+        journal = new IndexUpdateJournal(journalFile);
+        assertThat(journal.getToReplay()).containsExactly("b");
+    }
+
+}
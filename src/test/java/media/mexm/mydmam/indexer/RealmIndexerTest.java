@@ -16,21 +16,27 @@
  */
 package media.mexm.mydmam.indexer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.Duration.ZERO;
+import static java.time.ZoneOffset.UTC;
 import static java.util.Optional.empty;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 import static media.mexm.mydmam.entity.FileEntity.hashPath;
-import static media.mexm.mydmam.indexer.RealmIndexer.normalizeSearchString;
+import static media.mexm.mydmam.indexer.FileSearchSort.RELEVANCE;
 import static media.mexm.mydmam.indexer.SearchConstraintCondition.IGNORE;
 import static media.mexm.mydmam.indexer.SearchConstraintCondition.MUST;
 import static media.mexm.mydmam.indexer.SearchConstraintCondition.MUST_NOT;
 import static media.mexm.mydmam.indexer.SearchConstraintRange.NO_RANGE;
+import static media.mexm.mydmam.tools.SortOrder.asc;
+import static media.mexm.mydmam.tools.SortOrder.desc;
+import static media.mexm.mydmam.tools.SortOrder.none;
 import static org.apache.commons.io.FileUtils.deleteQuietly;
 import static org.apache.commons.io.FileUtils.forceMkdir;
 import static org.apache.commons.io.FileUtils.getTempDirectory;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
 import static org.apache.commons.io.FilenameUtils.getBaseName;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.reset;
@@ -39,15 +45,24 @@ import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.atLeastOnce;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.FSDirectory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -59,7 +74,10 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 
+import media.mexm.mydmam.configuration.RealmIndexConf;
 import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.entity.FileMetadataEntity;
+import media.mexm.mydmam.mtdthesaurus.MetadataThesaurusEntry;
 import media.mexm.mydmam.service.MediaAssetService;
 import media.mexm.mydmam.tools.DelayedSyncConfiguration;
 import net.datafaker.Faker;
@@ -146,12 +164,15 @@ class RealmIndexerTest {
 
         when(delayedSyncConfiguration.maxDelay()).thenReturn(ZERO);
         when(delayedSyncConfiguration.maxEntries()).thenReturn(1);
+        when(delayedSyncConfiguration.flushWorkers()).thenReturn(1);
+        when(delayedSyncConfiguration.maxQueuedEntries()).thenReturn(1000);
 
         ri = new RealmIndexer(
                 realmName,
                 workingDir,
                 false,
-                delayedSyncConfiguration);
+                delayedSyncConfiguration,
+                RealmIndexConf.DEFAULT);
         fileEntity = new FileEntity(realmName, storageName, file);
         clearInvocations(file);
     }
@@ -163,6 +184,8 @@ class RealmIndexerTest {
 
         verify(delayedSyncConfiguration, atLeastOnce()).maxEntries();
         verify(delayedSyncConfiguration, atLeastOnce()).maxDelay();
+        verify(delayedSyncConfiguration, atLeastOnce()).flushWorkers();
+        verify(delayedSyncConfiguration, atLeastOnce()).maxQueuedEntries();
     }
 
     @Test
@@ -171,7 +194,8 @@ class RealmIndexerTest {
         ri = new RealmIndexer(realmName,
                 workingDir,
                 true,
-                delayedSyncConfiguration);
+                delayedSyncConfiguration,
+                RealmIndexConf.DEFAULT);
         ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
 
         assertThat(ri.openSearch(getBaseName(fileName), empty(), 10)
@@ -183,23 +207,602 @@ class RealmIndexerTest {
     }
 
     @Test
-    void testNormalizeSearchString() {
-        final var result = normalizeSearchString(" THIS IS_A_$tést\\WITH * NUM8ERS⚠️. ");
-        assertEquals(8, result.size());
-        assertEquals("this is a test with num 8 ers", result.stream().collect(Collectors.joining(" ")));
+    void testSearchThreads() throws IOException {
+        assertThat(ri.getSearchLatencyStats()).isEqualTo(new SearchLatencyStats(0, 0, 0d, 0d));
+        ri.close();
+        ri = new RealmIndexer(realmName,
+                workingDir,
+                false,
+                delayedSyncConfiguration,
+                new RealmIndexConf(0, false, 4, 4, 2000, 16, 500, 1000));
+        for (var pos = 0; pos < 3; pos++) {
+            /**
+             * Make some segments
+             */
+            ri.updateIndexAfterScan(new WatchedFiles(Set.of(makeFalseFile()), Set.of(), Set.of(), 0), storageName);
+        }
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles())
+                .extracting(FileSearchResult::hashPath)
+                .contains(fileHashPath);
+        assertThat(ri.recentSearch(Duration.ofDays(1), 10, empty()).foundedFiles()).isNotEmpty();
+
+        final var stats = ri.getSearchLatencyStats();
+        assertThat(stats.searchThreads()).isEqualTo(4);
+        assertThat(stats.searches()).isEqualTo(2);
+        assertThat(stats.maxMillis()).isGreaterThanOrEqualTo(stats.meanMillis()).isPositive();
+
+        verify(file, atLeastOnce()).getPath();
+        clearInvocations(file);
+    }
+
+    @Test
+    void testOpenSearch_underLoad() throws IOException {
+        ri.close();
+        ri = new RealmIndexer(realmName,
+                workingDir,
+                false,
+                delayedSyncConfiguration,
+                new RealmIndexConf(0, false, 0, 4, 2000, 2, 500, 1000));
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+        final var baseName = getBaseName(fileName);
+
+        var result = ri.openSearch(baseName, empty(), 10);
+        assertThat(result.degraded()).isFalse();
+        assertThat(result.partial()).isFalse();
+        assertThat(result.foundedFiles()).extracting(FileSearchResult::hashPath).contains(fileHashPath);
+
+        ri.acquireSearchPermit();
+        try {
+            result = ri.openSearch(baseName, empty(), 10);
+            assertThat(result.degraded()).isTrue();
+            assertThat(result.foundedFiles()).extracting(FileSearchResult::hashPath).contains(fileHashPath);
+
+            /**
+             * Fuzzy and substring only matches are dropped
+             */
+            assertThat(ri.openSearch(baseName.substring(2, 8), empty(), 10).foundedFiles()).isEmpty();
+            assertThat(ri.fullTextSearch(baseName, empty(), 10).degraded()).isFalse();
+        } finally {
+            ri.releaseSearchPermit();
+        }
+        assertThat(ri.openSearch(baseName.substring(2, 8), empty(), 10).degraded()).isFalse();
+
+        verify(file, atLeastOnce()).getPath();
+        clearInvocations(file);
+    }
+
+    @Test
+    void testOpenSearch_rejected() throws IOException {
+        ri.close();
+        ri = new RealmIndexer(realmName,
+                workingDir,
+                false,
+                delayedSyncConfiguration,
+                new RealmIndexConf(0, false, 0, 4, 2000, 1, 0, 1000));
+        assertThat(ri.isUnderLoad()).isFalse();
+
+        ri.acquireSearchPermit();
+        try {
+            assertThrows(RejectedExecutionException.class, () -> ri.openSearch(fileName, empty(), 10));
+            assertThrows(RejectedExecutionException.class, () -> ri.recentSearch(Duration.ofDays(1), 10, empty()));
+        } finally {
+            ri.releaseSearchPermit();
+        }
+        assertThat(ri.openSearch(fileName, empty(), 10).foundedFiles()).isEmpty();
+    }
+
+    @Test
+    void testIsExpensiveWildcard() {
+        assertThat(RealmIndexer.isExpensiveWildcard("*a*")).isTrue();
+        assertThat(RealmIndexer.isExpensiveWildcard("?ab")).isTrue();
+        assertThat(RealmIndexer.isExpensiveWildcard("*abc*")).isFalse();
+        assertThat(RealmIndexer.isExpensiveWildcard("a*")).isFalse();
+    }
 
-        assertThat(normalizeSearchString(null)).isEmpty();
-        assertThat(normalizeSearchString(" \t")).isEmpty();
-        assertThat(normalizeSearchString("_")).isEmpty();
+    @Test
+    void testFullTextSearch() {
+        final var word = faker.numerify("word#####");
+        final var text = String.join(" ",
+                faker.lorem().sentence(20),
+                word,
+                faker.lorem().sentence(20));
+        ri.updateAsset(fileEntity, List.of(), List.of(() -> new StringReader(text)));
+        ri.waitToSync();
+
+        final var result = ri.fullTextSearch(word, empty(), 10);
+        assertThat(result.totalFounded()).isEqualTo(1);
+        assertThat(result.foundedFiles()).hasSize(1);
+
+        final var founded = result.foundedFiles().get(0);
+        assertThat(founded.hashPath()).isEqualTo(fileHashPath);
+        assertThat(founded.highlight()).contains("<b>" + word + "</b>");
+
+        assertThat(ri.fullTextSearch(faker.numerify("notfound#####"), empty(), 10).foundedFiles()).isEmpty();
+        assertThat(ri.fullTextSearch(" ", empty(), 10).foundedFiles()).isEmpty();
+        assertThat(ri.openSearch(word, empty(), 10).foundedFiles()).isEmpty();
+    }
+
+    @Test
+    void testFullTextSearch_excerpt() {
+        final var word = faker.numerify("word#####");
+        final var text = "a ".repeat(RealmIndexConf.DEFAULT.fullTextExcerptSize()) + word;
+        ri.updateAsset(fileEntity, List.of(), List.of(() -> new StringReader(text)));
+        ri.waitToSync();
+
+        final var result = ri.fullTextSearch(word, empty(), 10);
+        assertThat(result.foundedFiles()).hasSize(1);
+        assertThat(result.foundedFiles().get(0).highlight()).satisfiesAnyOf(
+                highlight -> assertThat(highlight).isNull(),
+                highlight -> assertThat(highlight).doesNotContain(word));
+    }
+
+    @Test
+    void testFullTextSearch_noExcerpt() throws IOException {
+        ri.close();
+        ri = new RealmIndexer(realmName,
+                workingDir,
+                false,
+                delayedSyncConfiguration,
+                new RealmIndexConf(0, false, 0, 4, 2000, 16, 500, 0));
+        final var word = faker.numerify("word#####");
+        ri.updateAsset(fileEntity, List.of(), List.of(() -> new StringReader(word)));
+        ri.waitToSync();
+
+        final var result = ri.fullTextSearch(word, empty(), 10);
+        assertThat(result.foundedFiles()).hasSize(1);
+        assertThat(result.foundedFiles().get(0).highlight()).isNull();
     }
 
     @Test
-    void testSplit() {
-        assertThat(RealmIndexer.splitNumbers("8AAA123BB5").toList())
-                .isEqualTo(List.of("8", "AAA", "123", "BB", "5"));
+    void testFullTextSearch_missingSource() {
+        ri.updateAsset(fileEntity, List.of(), List.of(() -> {
+            throw new FileNotFoundException();
+        }));
+        ri.waitToSync();
+
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles()).hasSize(1);
+        assertThat(ri.fullTextSearch(faker.numerify("word#####"), empty(), 10).foundedFiles()).isEmpty();
+    }
 
-        assertThat(RealmIndexer.splitSpaces("A B  C1 23  ").toList())
-                .isEqualTo(List.of("A", "B", "C1", "23"));
+    @Test
+    void testSearchResultCache() {
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+        final var q = getBaseName(fileName);
+
+        final var firstResult = ri.openSearch(q, empty(), 10);
+        assertThat(ri.getSearchCacheStats().misses()).isEqualTo(1);
+        assertThat(ri.getSearchCacheStats().hits()).isZero();
+        assertThat(ri.getSearchCacheStats().entries()).isEqualTo(1);
+
+        assertThat(ri.openSearch(q, empty(), 10)).isSameAs(firstResult);
+        assertThat(ri.getSearchCacheStats().hits()).isEqualTo(1);
+
+        ri.openSearch(q, empty(), 5);
+        assertThat(ri.getSearchCacheStats().misses()).isEqualTo(2);
+        assertThat(ri.getSearchCacheStats().entries()).isEqualTo(2);
+
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(), Set.of(file), Set.of(), 0), storageName);
+        assertThat(ri.openSearch(q, empty(), 10).foundedFiles()).isEmpty();
+        assertThat(ri.getSearchCacheStats().misses()).isEqualTo(3);
+        assertThat(ri.getSearchCacheStats().entries()).isEqualTo(1);
+
+        verify(file, atLeastOnce()).getPath();
+        clearInvocations(file);
+    }
+
+    @Test
+    void testSearchResultCache_normalizedQuery() {
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+        final var q = getBaseName(fileName);
+
+        final var firstResult = ri.openSearch(q, empty(), 10);
+        assertThat(ri.openSearch("  " + q + "\t", empty(), 10)).isSameAs(firstResult);
+        assertThat(ri.getSearchCacheStats().misses()).isEqualTo(1);
+        assertThat(ri.getSearchCacheStats().hits()).isEqualTo(1);
+
+        verify(file, atLeastOnce()).getPath();
+        clearInvocations(file);
+    }
+
+    @Test
+    void testFullTextSearch_normalizedCacheKey() {
+        final var word = faker.numerify("word#####");
+        ri.updateAsset(fileEntity, List.of(), List.of(() -> new StringReader(word + " other")));
+        ri.waitToSync();
+
+        final var firstResult = ri.fullTextSearch(word + " other", empty(), 10);
+        assertThat(firstResult.foundedFiles()).hasSize(1);
+        assertThat(ri.fullTextSearch(" " + word.replace("word", "WORD") + "   OTHER ", empty(), 10))
+                .isSameAs(firstResult);
+        assertThat(ri.getSearchCacheStats().misses()).isEqualTo(1);
+        assertThat(ri.getSearchCacheStats().hits()).isEqualTo(1);
+    }
+
+    @Test
+    void testOpenSearch_cursor() {
+        final var files = IntStream.range(0, 5)
+                .mapToObj(i -> {
+                    final var fFile = makeFalseFile();
+                    when(fFile.getPath()).thenReturn("/cantusethis/" + i);
+                    return fFile;
+                })
+                .collect(toUnmodifiableSet());
+        ri.updateIndexAfterScan(new WatchedFiles(files, Set.of(), Set.of(), 0), storageName);
+
+        final var allHashPaths = new ArrayList<String>();
+        var page = ri.openSearch("cantusethis", empty(), 2);
+        assertThat(page.totalFounded()).isEqualTo(5);
+        allHashPaths.addAll(page.foundedFiles().stream().map(FileSearchResult::hashPath).toList());
+
+        while (page.nextCursor() != null) {
+            page = ri.openSearch("cantusethis", empty(), 2, Optional.ofNullable(page.nextCursor()), RELEVANCE);
+            assertThat(page.foundedFiles()).hasSizeLessThanOrEqualTo(2);
+            allHashPaths.addAll(page.foundedFiles().stream().map(FileSearchResult::hashPath).toList());
+        }
+
+        assertThat(allHashPaths).hasSize(5).doesNotHaveDuplicates();
+        final var cursor = Optional.of("!");
+        assertThrows(InvalidSearchRequestException.class,
+                () -> ri.openSearch("cantusethis", empty(), 2, cursor, RELEVANCE));
+        final var noCursor = Optional.<String> empty();
+        assertThrows(InvalidSearchRequestException.class,
+                () -> ri.openSearch("cantusethis", empty(), 0, noCursor, RELEVANCE));
+    }
+
+    @Test
+    void testOpenSearch_sort() {
+        final var files = IntStream.range(0, 5)
+                .mapToObj(i -> {
+                    final var fFile = makeFalseFile();
+                    when(fFile.getPath()).thenReturn("/cantusethis/" + i);
+                    when(fFile.getName()).thenReturn("cantusethis" + i);
+                    when(fFile.lastModified()).thenReturn(1000l * i);
+                    when(fFile.length()).thenReturn(10l - i);
+                    return fFile;
+                })
+                .collect(toUnmodifiableSet());
+        ri.updateIndexAfterScan(new WatchedFiles(files, Set.of(), Set.of(), 0), storageName);
+
+        final var byDate = ri.openSearch("cantusethis", empty(), 10, empty(), new FileSearchSort(none, none, desc, none))
+                .foundedFiles().stream().map(FileSearchResult::name).toList();
+        assertThat(byDate).containsExactly(
+                "cantusethis4", "cantusethis3", "cantusethis2", "cantusethis1", "cantusethis0");
+
+        final var bySize = ri.openSearch("cantusethis", empty(), 10, empty(), new FileSearchSort(none, none, none, asc))
+                .foundedFiles().stream().map(FileSearchResult::name).toList();
+        assertThat(bySize).isEqualTo(byDate);
+
+        final var byName = ri.openSearch("cantusethis", empty(), 2, empty(), new FileSearchSort(asc, none, none, none));
+        assertThat(byName.foundedFiles().stream().map(FileSearchResult::name).toList())
+                .containsExactly("cantusethis0", "cantusethis1");
+        final var byNameNextPage = ri.openSearch("cantusethis", empty(), 2,
+                Optional.ofNullable(byName.nextCursor()), new FileSearchSort(asc, none, none, none));
+        assertThat(byNameNextPage.foundedFiles().stream().map(FileSearchResult::name).toList())
+                .containsExactly("cantusethis2", "cantusethis3");
+    }
+
+    @Test
+    void testRecentSearch_migrateToSortedByDate() throws IOException {
+        final var now = System.currentTimeMillis();
+        final var files = IntStream.range(0, 6)
+                .mapToObj(i -> {
+                    final var fFile = makeFalseFile();
+                    when(fFile.getPath()).thenReturn("/recent/" + i);
+                    when(fFile.getName()).thenReturn("recent" + i);
+                    when(fFile.lastModified()).thenReturn(i < 5 ? now - i * 60_000l : now - 7_200_000l);
+                    return fFile;
+                })
+                .collect(toUnmodifiableSet());
+        ri.updateIndexAfterScan(new WatchedFiles(files, Set.of(), Set.of(), 0), storageName);
+        ri.close();
+
+        for (var reopen = 0; reopen < 2; reopen++) {
+            ri = new RealmIndexer(realmName,
+                    workingDir,
+                    false,
+                    delayedSyncConfiguration,
+                    new RealmIndexConf(32, true, 0, 4, 2000, 16, 500, 1000));
+            assertThat(new File(workingDir, "index-sorted")).doesNotExist();
+            assertThat(new File(workingDir, "index-previous")).doesNotExist();
+
+            final var page = ri.recentSearch(Duration.ofMinutes(30), 3, empty());
+            assertThat(page.foundedFiles().stream().map(FileSearchResult::name).toList())
+                    .containsExactly("recent0", "recent1", "recent2");
+            assertThat(page.totalFounded()).isGreaterThanOrEqualTo(3);
+
+            final var nextPage = ri.recentSearch(Duration.ofMinutes(30), 3, Optional.ofNullable(page.nextCursor()));
+            assertThat(nextPage.foundedFiles().stream().map(FileSearchResult::name).toList())
+                    .containsExactly("recent3", "recent4");
+            assertThat(nextPage.nextCursor()).isNull();
+            ri.close();
+        }
+
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        assertThat(ri.recentSearch(Duration.ofHours(3), 10, empty()).foundedFiles()).hasSize(6);
+    }
+
+    @Test
+    void testRebuild() throws IOException {
+        final var oldFile = makeFalseFile();
+        when(oldFile.getPath()).thenReturn("/rebuild/old");
+        when(oldFile.getName()).thenReturn("rebuildold");
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(oldFile), Set.of(), Set.of(), 0), storageName);
+
+        final var rebuild = ri.startRebuild();
+        assertThat(ri.startRebuild()).isSameAs(rebuild);
+        assertThat(rebuild.getCheckpoint()).isZero();
+        rebuild.add(fileEntity, List.of(), List.of());
+
+        final var newFile = makeFalseFile();
+        when(newFile.getPath()).thenReturn("/rebuild/new");
+        when(newFile.getName()).thenReturn("rebuildnew");
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(newFile), Set.of(), Set.of(), 0), storageName);
+        rebuild.checkpoint(42);
+
+        ri.close();
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        assertThat(new File(workingDir, "index-rebuild")).exists();
+        assertThat(ri.startRebuild().getCheckpoint()).isEqualTo(42);
+        assertThat(ri.openSearch("rebuildold", empty(), 10).foundedFiles()).hasSize(1);
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles()).isEmpty();
+
+        ri.swapRebuild();
+        assertThat(new File(workingDir, "index-rebuild")).doesNotExist();
+        assertThat(ri.openSearch("rebuildold", empty(), 10).foundedFiles()).isEmpty();
+        assertThat(ri.openSearch("rebuildnew", empty(), 10).foundedFiles()).hasSize(1);
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles())
+                .extracting(FileSearchResult::hashPath)
+                .containsExactly(fileHashPath);
+        assertThrows(IllegalStateException.class, ri::swapRebuild);
+    }
+
+    @Test
+    void testIndexFormat_current() throws IOException {
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+        assertThat(ri.isRebuildPending()).isFalse();
+
+        ri.close();
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        assertThat(ri.isRebuildPending()).isFalse();
+        assertThat(new File(workingDir, "index-rebuild")).doesNotExist();
+    }
+
+    @Test
+    void testIndexFormat_older() throws IOException {
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+        ri.close();
+        try (final var directory = FSDirectory.open(new File(workingDir, "index").toPath());
+             final var writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            writer.setLiveCommitData(Map.<String, String> of().entrySet());
+            writer.commit();
+        }
+
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        assertThat(ri.isRebuildPending()).isTrue();
+        assertThat(new File(workingDir, "index-rebuild")).exists();
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles()).hasSize(1);
+
+        ri.startRebuild().add(fileEntity, List.of(), List.of());
+        ri.swapRebuild();
+        ri.close();
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        assertThat(ri.isRebuildPending()).isFalse();
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles())
+                .extracting(FileSearchResult::hashPath)
+                .containsExactly(fileHashPath);
+    }
+
+    @Test
+    void testRebuild_updateAssetDuringRebuild() {
+        final var word = faker.numerify("word#####");
+        ri.startRebuild();
+        ri.updateAsset(fileEntity, List.of(), List.of(() -> new StringReader(word)));
+        ri.waitToSync();
+        assertThat(ri.fullTextSearch(word, empty(), 10).foundedFiles()).hasSize(1);
+
+        ri.swapRebuild();
+        assertThat(ri.fullTextSearch(word, empty(), 10).foundedFiles())
+                .extracting(FileSearchResult::hashPath)
+                .containsExactly(fileHashPath);
+    }
+
+    @Test
+    void testRebuild_deletedDuringRebuild() {
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+        final var rebuild = ri.startRebuild();
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(), Set.of(), Set.of(file), 0), storageName);
+        rebuild.add(fileEntity, List.of(), List.of());
+
+        ri.swapRebuild();
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles()).isEmpty();
+
+        verify(file, atLeastOnce()).getPath();
+        clearInvocations(file);
+    }
+
+    @Test
+    void testRebuild_deletedThenAddedDuringRebuild() {
+        final var rebuild = ri.startRebuild();
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(), Set.of(), Set.of(file), 0), storageName);
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+        rebuild.add(fileEntity, List.of(), List.of());
+
+        ri.swapRebuild();
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles())
+                .extracting(FileSearchResult::hashPath)
+                .containsExactly(fileHashPath);
+
+        verify(file, atLeastOnce()).getPath();
+        clearInvocations(file);
+    }
+
+    @Test
+    void testRebuild_resetDuringRebuild() {
+        final var rebuild = ri.startRebuild();
+        ri.reset();
+        rebuild.add(fileEntity, List.of(), List.of());
+
+        ri.swapRebuild();
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles()).isEmpty();
+    }
+
+    @Test
+    void testSuggest() throws IOException {
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(file), Set.of(), Set.of(), 0), storageName);
+        ri.waitToSync();
+        assertThat(ri.suggest("basena", 10)).containsExactly(fileName);
+        assertThat(ri.suggest(faker.numerify("notfound#####"), 10)).isEmpty();
+
+        ri.updateAsset(fileEntity, List.of(
+                new FileMetadataEntity(fileEntity, "test",
+                        new MetadataThesaurusEntry("dc", "title", Optional.empty()), 0, "Quarterly report")),
+                List.of());
+        ri.waitToSync();
+        assertThat(ri.suggest("quart", 10)).containsExactly("Quarterly report");
+
+        ri.close();
+        deleteQuietly(new File(workingDir, "suggest"));
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        assertThat(ri.suggest("quart", 10)).containsExactly("Quarterly report");
+        assertThat(ri.suggest("basena", 10)).containsExactly(fileName);
+
+        ri.updateIndexAfterScan(new WatchedFiles(Set.of(), Set.of(), Set.of(file), 0), storageName);
+        ri.waitToSync();
+        assertThat(ri.suggest("basena", 10)).isEmpty();
+        assertThat(ri.suggest("quart", 10)).isEmpty();
+
+        clearInvocations(file);
+    }
+
+    @Test
+    void testClose_syncQueuedUpdates() throws IOException {
+        ri.close();
+        when(delayedSyncConfiguration.maxDelay()).thenReturn(Duration.ofHours(1));
+        when(delayedSyncConfiguration.maxEntries()).thenReturn(1000);
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        final var journalFile = new File(workingDir, "index-journal.log");
+
+        ri.updateAsset(fileEntity, List.of(), List.of());
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles()).isEmpty();
+        assertThat(readFileToString(journalFile, UTF_8)).isEqualTo(fileHashPath + "\n");
+
+        ri.close();
+        assertThat(journalFile).isEmpty();
+
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        assertThat(ri.getJournalToReplay()).isEmpty();
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles())
+                .extracting(FileSearchResult::hashPath)
+                .containsExactly(fileHashPath);
+    }
+
+    @Test
+    void testJournalReplay() throws IOException {
+        ri.close();
+        final var journalFile = new File(workingDir, "index-journal.log");
+        writeStringToFile(journalFile, fileHashPath + "\n" + fileHashPath.substring(0, 10), UTF_8);
+
+        ri = new RealmIndexer(realmName, workingDir, false, delayedSyncConfiguration, RealmIndexConf.DEFAULT);
+        assertThat(ri.getJournalToReplay()).containsExactly(fileHashPath);
+
+        ri.updateAsset(fileEntity, List.of(), List.of());
+        ri.waitToSync();
+        assertThat(ri.getJournalToReplay()).containsExactly(fileHashPath);
+        ri.endJournalReplay();
+
+        assertThat(ri.getJournalToReplay()).isEmpty();
+        assertThat(journalFile).isEmpty();
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).foundedFiles()).hasSize(1);
+    }
+
+    @Test
+    void testOpenSearch_facets() {
+        final var date = LocalDate.of(2020, 6, 1).atStartOfDay(UTC).toInstant().toEpochMilli();
+        final var files = IntStream.range(0, 5)
+                .mapToObj(i -> {
+                    final var fFile = makeFalseFile();
+                    when(fFile.getPath()).thenReturn("/facets/" + i);
+                    when(fFile.getName()).thenReturn("facets" + i + (i < 3 ? ".MOV" : ".pdf"));
+                    when(fFile.isDirectory()).thenReturn(false);
+                    when(fFile.lastModified()).thenReturn(date);
+                    when(fFile.length()).thenReturn(i < 3 ? 10l : 10_000_000l);
+                    return fFile;
+                })
+                .collect(toUnmodifiableSet());
+        ri.updateIndexAfterScan(new WatchedFiles(files, Set.of(), Set.of(), 0), storageName);
+
+        final var result = ri.openSearch("facets", empty(), 2);
+        assertThat(result.foundedFiles()).hasSize(2);
+        assertThat(result.totalFounded()).isEqualTo(5);
+
+        final var facets = result.facets();
+        assertThat(facets.get(FileFacets.STORAGE)).containsExactly(new SearchFacetCount(storageName, 5));
+        assertThat(facets.get(FileFacets.EXTENSION)).containsExactly(
+                new SearchFacetCount("mov", 3), new SearchFacetCount("pdf", 2));
+        assertThat(facets.get(FileFacets.SIZE)).containsExactly(
+                new SearchFacetCount("<1KB", 3), new SearchFacetCount("<100MB", 2));
+        assertThat(facets.get(FileFacets.YEAR)).containsExactly(new SearchFacetCount("2020", 5));
+        assertThat(facets).doesNotContainKey(FileFacets.MIME_TYPE);
+    }
+
+    @Test
+    void testOpenSearch_facets_mimeType() {
+        final var mimeType = faker.numerify("video/mime###");
+        ri.updateAsset(fileEntity, List.of(
+                new FileMetadataEntity(fileEntity, "test",
+                        new MetadataThesaurusEntry("dc", "format", Optional.empty()), 0, mimeType),
+                new FileMetadataEntity(fileEntity, "test",
+                        new MetadataThesaurusEntry("dc", "format", Optional.empty()), 1, "other/mime")),
+                List.of());
+        ri.waitToSync();
+
+        assertThat(ri.openSearch(getBaseName(fileName), empty(), 10).facets().get(FileFacets.MIME_TYPE))
+                .containsExactly(new SearchFacetCount(mimeType, 1));
+    }
+
+    @Test
+    void testOpenSearch_metadataRanges() {
+        ri.updateAsset(fileEntity, List.of(
+                new FileMetadataEntity(fileEntity, "test",
+                        new MetadataThesaurusEntry("technical", "width", Optional.empty()), 0, "4096"),
+                new FileMetadataEntity(fileEntity, "test",
+                        new MetadataThesaurusEntry("pdf", "page-width-mm", Optional.empty()), 1, "210.5"),
+                new FileMetadataEntity(fileEntity, "test",
+                        new MetadataThesaurusEntry("pdf", "page-width-mm", Optional.empty()), 2, "297")),
+                List.of());
+        ri.waitToSync();
+
+        final Function<List<SearchConstraintMetadataRange>, List<FileSearchResult>> search = ranges -> ri.openSearch(
+                getBaseName(fileName),
+                Optional.ofNullable(new FileSearchConstraints(IGNORE, IGNORE, IGNORE, IGNORE,
+                        NO_RANGE, NO_RANGE, List.of(), null, null, ranges)), 10).foundedFiles();
+
+        assertThat(search.apply(List.of(new SearchConstraintMetadataRange("technical", "width", 4000, 10000))))
+                .hasSize(1);
+        assertThat(search.apply(List.of(new SearchConstraintMetadataRange("technical", "width", 5000, 10000))))
+                .isEmpty();
+        assertThat(search.apply(List.of(new SearchConstraintMetadataRange("pdf", "page-width-mm", 290, 300))))
+                .hasSize(1);
+        assertThat(search.apply(List.of(
+                new SearchConstraintMetadataRange("technical", "width", 4000, 10000),
+                new SearchConstraintMetadataRange("pdf", "page-width-mm", 211, 296))))
+                .isEmpty();
+        assertThrows(IllegalArgumentException.class,
+                () -> new SearchConstraintMetadataRange("pdf", "producer", 0, 1));
+    }
+
+    @Test
+    void testAncestorPaths() {
+        assertThat(RealmIndexer.ancestorPaths("/")).containsExactly("/");
+        assertThat(RealmIndexer.ancestorPaths("/a")).containsExactly("/", "/a");
+        assertThat(RealmIndexer.ancestorPaths("/a/bb/c")).containsExactly("/", "/a", "/a/bb", "/a/bb/c");
+        assertThat(RealmIndexer.ancestorPaths("a/bb/")).containsExactly("/", "/a", "/a/bb");
+
+        assertThat(RealmIndexer.normalizeAncestorPath("")).isEqualTo("/");
+        assertThat(RealmIndexer.normalizeAncestorPath("//")).isEqualTo("/");
+        assertThat(RealmIndexer.normalizeAncestorPath("a/b/")).isEqualTo("/a/b");
     }
 
     CachedFileAttributes makeFalseFile() {
@@ -269,6 +872,16 @@ class RealmIndexerTest {
         assertThat(results.get(0).hashPath())
                 .isEqualTo(fileHashPath);
 
+        results = ri.openSearch("asena", empty(), 10).foundedFiles();
+        assertThat(results).size().isEqualTo(1);
+        assertThat(results.get(0).hashPath())
+                .isEqualTo(fileHashPath);
+
+        results = ri.openSearch("sen", empty(), 10).foundedFiles();
+        assertThat(results).size().isEqualTo(1);
+        assertThat(results.get(0).hashPath())
+                .isEqualTo(fileHashPath);
+
         results = ri.openSearch("bas?nam*", empty(), 10).foundedFiles();
         assertThat(results).size().isEqualTo(1);
         assertThat(results.get(0).hashPath())
@@ -298,7 +911,7 @@ class RealmIndexerTest {
 
         for (var pos = 1; pos < 3; pos++) {
             constraint = new FileSearchConstraints(
-                    IGNORE, IGNORE, IGNORE, IGNORE, NO_RANGE, NO_RANGE, List.of("storage" + pos), null, null);
+                    IGNORE, IGNORE, IGNORE, IGNORE, NO_RANGE, NO_RANGE, List.of("storage" + pos), null, null, null);
 
             results = ri.openSearch("fromsto", Optional.ofNullable(constraint), 10).foundedFiles();
             assertThat(results).size().isEqualTo(1);
@@ -384,7 +997,7 @@ class RealmIndexerTest {
         assertThat(ri.openSearch("basename",
                 Optional.ofNullable(new FileSearchConstraints(
                         directoryConstraint, hiddenConstraint, linkConstraint, specialConstraint,
-                        NO_RANGE, NO_RANGE, List.of(), null, null)), 10).foundedFiles()
+                        NO_RANGE, NO_RANGE, List.of(), null, null, null)), 10).foundedFiles()
                 .stream().findFirst().map(FileSearchResult::hashPath).orElse(null)).isEqualTo(fileHashPath);
     }
 
@@ -392,7 +1005,7 @@ class RealmIndexerTest {
         assertThat(ri.openSearch("basename",
                 Optional.ofNullable(new FileSearchConstraints(
                         directoryConstraint, hiddenConstraint, linkConstraint, specialConstraint,
-                        NO_RANGE, NO_RANGE, List.of(), null, null)), 10).foundedFiles()).isEmpty();
+                        NO_RANGE, NO_RANGE, List.of(), null, null, null)), 10).foundedFiles()).isEmpty();
     }
 
     @Test
@@ -433,7 +1046,7 @@ class RealmIndexerTest {
         assertThat(ri.openSearch("basename",
                 Optional.ofNullable(new FileSearchConstraints(
                         IGNORE, IGNORE, IGNORE, IGNORE,
-                        constraintDateRange, constraintSizeRange, List.of(), null, null)), 10).foundedFiles()
+                        constraintDateRange, constraintSizeRange, List.of(), null, null, null)), 10).foundedFiles()
                 .stream().findFirst().map(FileSearchResult::hashPath).orElse(null)).isEqualTo(fileHashPath);
     }
 
@@ -441,7 +1054,7 @@ class RealmIndexerTest {
         assertThat(ri.openSearch("basename",
                 Optional.ofNullable(new FileSearchConstraints(
                         IGNORE, IGNORE, IGNORE, IGNORE,
-                        constraintDateRange, constraintSizeRange, List.of(), null, null)), 10).foundedFiles())
+                        constraintDateRange, constraintSizeRange, List.of(), null, null, null)), 10).foundedFiles())
                                 .isEmpty();
     }
 
@@ -480,7 +1093,7 @@ class RealmIndexerTest {
         assertThat(ri.openSearch("basename",
                 Optional.ofNullable(new FileSearchConstraints(
                         IGNORE, IGNORE, IGNORE, IGNORE,
-                        NO_RANGE, NO_RANGE, List.of(), parentPathConstraint, parentHashPathConstraint)), 10)
+                        NO_RANGE, NO_RANGE, List.of(), parentPathConstraint, parentHashPathConstraint, null)), 10)
                 .foundedFiles()
                 .stream().findFirst().map(FileSearchResult::hashPath).orElse(null)).isEqualTo(fileHashPath);
     }
@@ -489,7 +1102,7 @@ class RealmIndexerTest {
         assertThat(ri.openSearch("basename",
                 Optional.ofNullable(new FileSearchConstraints(
                         IGNORE, IGNORE, IGNORE, IGNORE,
-                        NO_RANGE, NO_RANGE, List.of(), parentPathConstraint, parentHashPathConstraint)), 10)
+                        NO_RANGE, NO_RANGE, List.of(), parentPathConstraint, parentHashPathConstraint, null)), 10)
                 .foundedFiles()).isEmpty();
     }
 
@@ -510,7 +1123,7 @@ class RealmIndexerTest {
         constraintSizeRange = new SearchConstraintRange(true, length - 100, length + 100);
         constraint = new FileSearchConstraints(
                 IGNORE, IGNORE, IGNORE, IGNORE,
-                NO_RANGE, constraintSizeRange, List.of(), null, null);
+                NO_RANGE, constraintSizeRange, List.of(), null, null, null);
 
         ri.updateIndexAfterScan(scanResultAdd, storageName);
         assertThat(ri.openSearch(getBaseName(fileName), Optional.ofNullable(constraint), 10).foundedFiles().stream()
@@ -570,9 +1183,8 @@ class RealmIndexerTest {
         }
 
         @Test
-        void testNoIndex() {
-            assertThrows(UncheckedIOException.class,
-                    () -> ri.getHashPathsByRecursiveSearch(storageName, "/", IGNORE));
+        void testEmptyIndex() {
+            assertThat(ri.getHashPathsByRecursiveSearch(storageName, "/", IGNORE)).isEmpty();
         }
 
         @Test
@@ -593,6 +1205,39 @@ class RealmIndexerTest {
 
         }
 
+        @Test
+        void testFounded_subtreeOnly() {
+            ri.updateIndexAfterScan(scanResult, storageName);
+
+            assertThat(ri.getHashPathsByRecursiveSearch(storageName, parentPath + "/", IGNORE))
+                    .containsExactly(fileHashPath);
+            assertThat(ri.getHashPathsByRecursiveSearch(
+                    storageName, parentPath.substring(0, parentPath.length() - 1), IGNORE))
+                    .isEmpty();
+        }
+
+        @Test
+        void testForEach_streamed() {
+            final var files = IntStream.range(0, 50)
+                    .mapToObj(i -> {
+                        final var fFile = makeFalseFile();
+                        when(fFile.getPath()).thenReturn("/streamed/" + i);
+                        when(fFile.getParentPath()).thenReturn("/streamed");
+                        return fFile;
+                    })
+                    .collect(toUnmodifiableSet());
+            ri.updateIndexAfterScan(new WatchedFiles(files, Set.of(), Set.of(), 0), storageName);
+            ri.updateIndexAfterScan(scanResult, storageName);
+
+            final var founded = new ArrayList<String>();
+            ri.forEachHashPathByRecursiveSearch(storageName, "/streamed", IGNORE, founded::add);
+
+            assertThat(founded).hasSize(50)
+                    .doesNotHaveDuplicates()
+                    .doesNotContain(fileHashPath)
+                    .contains(hashPath(realmName, storageName, "/streamed/0"));
+        }
+
     }
 
 }
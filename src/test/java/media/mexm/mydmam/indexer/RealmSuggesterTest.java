@@ -0,0 +1,149 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+import static org.apache.commons.io.FileUtils.getTempDirectory;
+import static java.util.Comparator.comparing;
+import static java.util.function.Predicate.not;
+import static org.apache.lucene.document.Field.Store.NO;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import media.mexm.mydmam.indexer.RealmSuggester.Suggestion;
+
+class RealmSuggesterTest {
+
+    File directory;
+    RealmSuggester rs;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = new File(getTempDirectory(), "mydmam-test-suggester");
+        deleteQuietly(directory);
+        forceMkdir(directory);
+        rs = new RealmSuggester(directory);
+    }
+
+    @AfterEach
+    void ends() throws IOException {
+        rs.close();
+        deleteQuietly(directory);
+    }
+
+    @Test
+    void testEmpty() throws IOException {
+        assertThat(rs.isEmpty()).isTrue();
+        assertThat(rs.lookup("any", 10)).isEmpty();
+    }
+
+    @Test
+    void testBuild() throws IOException {
+        assertThat(rs.build(List.of(sorted(Map.of(
+                "Annual report 2024.pdf", 3l,
+                "annual-budget.xlsx", 1l,
+                "holidays.jpg", 5l))))).isEqualTo(3);
+        assertThat(rs.isEmpty()).isFalse();
+
+        assertThat(rs.lookup("annu", 10)).containsExactly("Annual report 2024.pdf", "annual-budget.xlsx");
+        assertThat(rs.lookup("annual 2024", 10)).containsExactly("Annual report 2024.pdf");
+        assertThat(rs.lookup("budg", 10)).containsExactly("annual-budget.xlsx");
+        assertThat(rs.lookup("annu", 1)).containsExactly("Annual report 2024.pdf");
+        assertThat(rs.lookup("nothing", 10)).isEmpty();
+
+        rs.build(List.of(sorted(Map.of("holidays.jpg", 5l))));
+        assertThat(rs.lookup("annu", 10)).isEmpty();
+    }
+
+    @Test
+    void testBuild_mergedSources() throws IOException {
+        assertThat(rs.build(List.of(
+                sorted(Map.of("annual-budget.xlsx", 1l, "holidays.jpg", 5l)),
+                sorted(Map.of("Annual report 2024.pdf", 3l, "annual-budget.xlsx", 6l)),
+                List.of(
+                        new Suggestion(new BytesRef("zoo"), 1l),
+                        new Suggestion(new BytesRef("zoo"), 1l)).iterator(),
+                List.<Suggestion> of().iterator())))
+                .isEqualTo(4);
+
+        assertThat(rs.lookup("annu", 10)).containsExactly("annual-budget.xlsx", "Annual report 2024.pdf");
+        assertThat(rs.lookup("zoo", 10)).containsExactly("zoo");
+    }
+
+    @Test
+    void testFromTerms() throws IOException {
+        final var indexDirectory = new ByteBuffersDirectory();
+        try (final var writer = new IndexWriter(indexDirectory, new IndexWriterConfig())) {
+            for (final var name : List.of("b.txt", "a.txt", "b.txt", "skip.txt")) {
+                final var document = new Document();
+                document.add(new StringField("name", name, NO));
+                writer.addDocument(document);
+            }
+        }
+        try (final var reader = DirectoryReader.open(indexDirectory)) {
+            final var suggestions = new ArrayList<Suggestion>();
+            RealmSuggester.fromTerms(reader, "name", term -> Optional.of(term).filter(not("skip.txt"::equals)))
+                    .forEachRemaining(suggestions::add);
+            assertThat(suggestions).containsExactly(
+                    new Suggestion(new BytesRef("a.txt"), 1l),
+                    new Suggestion(new BytesRef("b.txt"), 2l));
+
+            assertThat(RealmSuggester.fromTerms(reader, "nothing", Optional::of).hasNext()).isFalse();
+        }
+    }
+
+    private static Iterator<Suggestion> sorted(final Map<String, Long> weightByText) {
+        return weightByText.entrySet().stream()
+                .map(entry -> new Suggestion(new BytesRef(entry.getKey()), entry.getValue()))
+                .sorted(comparing(Suggestion::text))
+                .iterator();
+    }
+
+    @Test
+    void testUpdate() throws IOException {
+        rs.update(Map.of("Annual report 2024.pdf", 1l));
+        rs.update(Map.of("annual-budget.xlsx", 2l));
+        assertThat(rs.lookup("annu", 10)).containsExactly("annual-budget.xlsx", "Annual report 2024.pdf");
+
+        rs.update(Map.of("annual-budget.xlsx", 0l));
+        assertThat(rs.lookup("annu", 10)).containsExactly("Annual report 2024.pdf");
+
+        rs.close();
+        rs = new RealmSuggester(directory);
+        assertThat(rs.lookup("annu", 10)).containsExactly("Annual report 2024.pdf");
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static media.mexm.mydmam.tools.SortOrder.asc;
+import static media.mexm.mydmam.tools.SortOrder.none;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import tv.hd3g.commons.testtools.Fake;
+import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
+
+@ExtendWith(MockToolsExtendsJunit.class)
+class SearchCursorTest {
+
+    @Fake
+    float score;
+    @Fake
+    long longValue;
+    @Fake
+    int intValue;
+    @Fake
+    double doubleValue;
+    @Fake
+    String hashPath;
+
+    @Test
+    void testEncodeDecode() {
+        final var sort = FileSearchSort.RELEVANCE.makeSort();
+        final var fields = new Object[] { score, longValue, intValue, doubleValue, null, new BytesRef(hashPath) };
+        final var cursor = SearchCursor.encode(new FieldDoc(0, score, fields), sort);
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+        assertThat(SearchCursor.isValid(cursor)).isTrue();
+        assertThrows(InvalidSearchRequestException.class, () -> SearchCursor.decode(cursor, sort));
+
+        final var validFields = new Object[] { score, new BytesRef(hashPath) };
+        final var validCursor = SearchCursor.encode(new FieldDoc(0, score, validFields), sort);
+        final var fieldDoc = SearchCursor.decode(validCursor, sort);
+        assertThat(fieldDoc.fields).isEqualTo(validFields);
+        assertThat(fieldDoc.doc).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void testDecode_otherSort() {
+        final var sort = FileSearchSort.RELEVANCE.makeSort();
+        final var otherSort = new FileSearchSort(asc, none, none, none).makeSort();
+        final var cursor = SearchCursor.encode(
+                new FieldDoc(0, score, new Object[] { new BytesRef(hashPath), new BytesRef(hashPath) }), otherSort);
+
+        assertThat(SearchCursor.isValid(cursor)).isTrue();
+        assertThat(SearchCursor.decode(cursor, otherSort).fields).hasSize(2);
+        assertThrows(InvalidSearchRequestException.class, () -> SearchCursor.decode(cursor, sort));
+    }
+
+    @Test
+    void testInvalid() {
+        final var sort = new Sort();
+        final var cursor = SearchCursor.encode(new FieldDoc(0, score, new Object[] { score }), sort);
+
+        assertThat(SearchCursor.isValid(cursor + "AAAA")).isFalse();
+        assertThat(SearchCursor.isValid(cursor.substring(1))).isFalse();
+        assertThat(SearchCursor.isValid("!" + hashPath)).isFalse();
+        assertThat(SearchCursor.isValid("")).isFalse();
+        assertThrows(InvalidSearchRequestException.class, () -> SearchCursor.decode("", sort));
+    }
+
+    @Test
+    void testEncode_badType() {
+        final var fieldDoc = new FieldDoc(0, score, new Object[] { hashPath });
+        final var sort = new Sort();
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.encode(fieldDoc, sort));
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.indexer;
+
+import static media.mexm.mydmam.indexer.FileSearchSort.RELEVANCE;
+import static media.mexm.mydmam.indexer.SearchResultCache.estimateWeight;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import tv.hd3g.commons.testtools.Fake;
+import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
+
+@ExtendWith(MockToolsExtendsJunit.class)
+class SearchResultCacheTest {
+
+    @Fake
+    String q;
+    @Fake
+    String hashPath;
+    @Fake
+    String storage;
+    @Fake
+    String name;
+    @Fake
+    String parentPath;
+    @Fake
+    float score;
+
+    SearchResultCacheKey key;
+    SearchResult result;
+    long entryWeight;
+    SearchResultCache cache;
+
+    @BeforeEach
+    void init() {
+        key = new SearchResultCacheKey(q, null, 10, null, RELEVANCE, false);
+        result = new SearchResult(
+                List.of(new FileSearchResult(hashPath, storage, name, parentPath, score, null, null)), 1, null, Map.of());
+        entryWeight = estimateWeight(key, result);
+        cache = new SearchResultCache(entryWeight * 2);
+    }
+
+    @Test
+    void testInvalidMaxWeight() {
+        assertThrows(IllegalArgumentException.class, () -> new SearchResultCache(-1));
+    }
+
+    @Test
+    void testGetPut() {
+        assertThat(cache.get(0, key)).isEmpty();
+        cache.put(0, key, result);
+        assertThat(cache.get(0, key)).contains(result);
+
+        assertThat(cache.getStats()).isEqualTo(
+                new SearchCacheStats(1, 1, 0, 1, entryWeight, entryWeight * 2));
+    }
+
+    @Test
+    void testNewGeneration() {
+        cache.put(0, key, result);
+        assertThat(cache.get(1, key)).isEmpty();
+        assertThat(cache.getStats().entries()).isZero();
+        assertThat(cache.getStats().weight()).isZero();
+    }
+
+    @Test
+    void testOldGeneration() {
+        cache.put(1, key, result);
+        cache.put(0, new SearchResultCacheKey(q, null, 5, null, RELEVANCE, false), result);
+        assertThat(cache.get(0, key)).isEmpty();
+        assertThat(cache.get(1, key)).contains(result);
+        assertThat(cache.getStats().entries()).isEqualTo(1);
+    }
+
+    @Test
+    void testEvictLRU() {
+        final var key2 = new SearchResultCacheKey(q, null, 5, null, RELEVANCE, false);
+        final var key3 = new SearchResultCacheKey(q, null, 5, null, RELEVANCE, true);
+        cache.put(0, key, result);
+        cache.put(0, key2, result);
+        assertThat(cache.get(0, key)).contains(result);
+
+        cache.put(0, key3, result);
+        assertThat(cache.get(0, key)).contains(result);
+        assertThat(cache.get(0, key2)).isEmpty();
+        assertThat(cache.get(0, key3)).contains(result);
+        assertThat(cache.getStats().evictions()).isEqualTo(1);
+        assertThat(cache.getStats().weight()).isEqualTo(entryWeight * 2);
+    }
+
+    @Test
+    void testTooHeavy() {
+        cache = new SearchResultCache(entryWeight - 1);
+        cache.put(0, key, result);
+        assertThat(cache.get(0, key)).isEmpty();
+
+        cache = new SearchResultCache(0);
+        cache.put(0, key, result);
+        assertThat(cache.get(0, key)).isEmpty();
+    }
+
+}
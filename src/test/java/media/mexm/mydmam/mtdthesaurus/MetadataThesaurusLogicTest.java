@@ -216,4 +216,31 @@ class MetadataThesaurusLogicTest {
         assertThat(mtl.getImplements()).isNotEmpty();
     }
 
+    @MetadataThesaurusClassifier(value = "classifier-numeric")
+    public interface TestThesaurusNumeric {
+        @MetadataThesaurusNumeric
+        MetadataThesaurusEntry pageCount();
+
+        @MetadataThesaurusSuggested
+        MetadataThesaurusEntry producer();
+    }
+
+    @Test
+    void testGetNumericEntries() {
+        assertThat(mtl.getNumericEntries()).isEmpty();
+        mtl.makeInstance(TestThesaurus.class);
+        mtl.makeInstance(TestThesaurusNumeric.class);
+        assertThat(mtl.getNumericEntries())
+                .containsExactly(new MetadataThesaurusEntry("classifier-numeric", "page-count", empty()));
+    }
+
+    @Test
+    void testGetSuggestedEntries() {
+        assertThat(mtl.getSuggestedEntries()).isEmpty();
+        mtl.makeInstance(TestThesaurus.class);
+        mtl.makeInstance(TestThesaurusNumeric.class);
+        assertThat(mtl.getSuggestedEntries())
+                .containsExactly(new MetadataThesaurusEntry("classifier-numeric", "producer", empty()));
+    }
+
 }
@@ -16,8 +16,8 @@
  */
 package media.mexm.mydmam.pathindexing;
 
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
@@ -25,6 +25,7 @@ import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.atLeastOnce;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
+import java.time.Duration;
 import java.util.Set;
 
 import org.junit.jupiter.api.AfterEach;
@@ -59,23 +60,35 @@ class RealmStorageWatchedFilesDbTest {
 	AbstractFileSystemURL fileSystem;
 	@Mock
 	Set<CachedFileAttributes> foundedFiles;
+	@Mock
+	StorageChangeWatcher changeWatcher;
 
 	RealmStorageWatchedFilesDb db;
 
 	@BeforeEach
 	void init() {
-		when(storage.makeObservedFolder(any(), any())).thenReturn(scan);
 		when(storage.maxDeep()).thenReturn(0);
+		when(storage.timeBetweenFullScans()).thenReturn(Duration.ofDays(1));
 
-		db = new RealmStorageWatchedFilesDb(pathIndexerService, realmName, storageName, storage);
-
-		verify(storage, atLeastOnce()).makeObservedFolder(realmName, storageName);
-		verify(storage, atLeastOnce()).maxDeep();
-		verify(scan, times(1)).createFileSystem();
+		db = new RealmStorageWatchedFilesDb(pathIndexerService, realmName, storageName, storage, null);
 	}
 
 	@AfterEach
 	void ends() {
+		verify(storage, atLeastOnce()).path();
+		verify(storage, atLeastOnce()).scanParallelism();
+		verify(storage, atLeastOnce()).maxDeep();
+		verify(storage, atLeastOnce()).allowedHidden();
+		verify(storage, atLeastOnce()).allowedLinks();
+		verify(storage, atLeastOnce()).allowedExtentions();
+		verify(storage, atLeastOnce()).blockedExtentions();
+		verify(storage, atLeastOnce()).ignoreRelativePaths();
+		verify(storage, atLeastOnce()).ignoreFiles();
+		verify(storage, atLeastOnce()).allowedFileNames();
+		verify(storage, atLeastOnce()).allowedDirNames();
+		verify(storage, atLeastOnce()).blockedFileNames();
+		verify(storage, atLeastOnce()).blockedDirNames();
+		verify(storage, atLeastOnce()).timeBetweenFullScans();
 		reset(scan);
 	}
 
@@ -88,7 +101,62 @@ class RealmStorageWatchedFilesDbTest {
 	void testUpdate() {
 		db.update(scan, fileSystem);
 		verify(pathIndexerService, times(1))
-				.updateFoundedFiles(notNull(), eq(realmName), eq(storageName), eq(scan), eq(fileSystem));
+				.updateFoundedFiles(notNull(), eq(realmName), eq(storageName), eq(scan), eq(fileSystem), eq(true),
+						isNull());
+	}
+
+	@Test
+	void testUpdate_incremental() {
+		db.update(scan, fileSystem);
+		db.update(scan, fileSystem);
+		verify(pathIndexerService, times(1))
+				.updateFoundedFiles(notNull(), eq(realmName), eq(storageName), eq(scan), eq(fileSystem), eq(true),
+						isNull());
+		verify(pathIndexerService, times(1))
+				.updateFoundedFiles(notNull(), eq(realmName), eq(storageName), eq(scan), eq(fileSystem), eq(false),
+						isNull());
+	}
+
+	@Test
+	void testUpdate_noTimeBetweenFullScans() {
+		when(storage.timeBetweenFullScans()).thenReturn(null);
+		db = new RealmStorageWatchedFilesDb(pathIndexerService, realmName, storageName, storage, null);
+
+		db.update(scan, fileSystem);
+		db.update(scan, fileSystem);
+		verify(pathIndexerService, times(2))
+				.updateFoundedFiles(notNull(), eq(realmName), eq(storageName), eq(scan), eq(fileSystem), eq(true),
+						isNull());
+	}
+
+	@Test
+	void testUpdate_changeWatcher() {
+		final var touched = Set.of("/" + storageName);
+		when(changeWatcher.pollChanges()).thenReturn(new StorageChanges(touched, false));
+		db = new RealmStorageWatchedFilesDb(pathIndexerService, realmName, storageName, storage, changeWatcher);
+
+		db.update(scan, fileSystem);
+		db.update(scan, fileSystem);
+		verify(pathIndexerService, times(1))
+				.updateFoundedFiles(notNull(), eq(realmName), eq(storageName), eq(scan), eq(fileSystem), eq(true),
+						eq(touched));
+		verify(pathIndexerService, times(1))
+				.updateFoundedFiles(notNull(), eq(realmName), eq(storageName), eq(scan), eq(fileSystem), eq(false),
+						eq(touched));
+		verify(changeWatcher, times(2)).pollChanges();
+	}
+
+	@Test
+	void testUpdate_changeWatcherOverflow() {
+		when(changeWatcher.pollChanges()).thenReturn(new StorageChanges(Set.of(), true));
+		db = new RealmStorageWatchedFilesDb(pathIndexerService, realmName, storageName, storage, changeWatcher);
+
+		db.update(scan, fileSystem);
+		db.update(scan, fileSystem);
+		verify(pathIndexerService, times(2))
+				.updateFoundedFiles(notNull(), eq(realmName), eq(storageName), eq(scan), eq(fileSystem), eq(true),
+						eq(Set.of()));
+		verify(changeWatcher, times(2)).pollChanges();
 	}
 
 	@Test
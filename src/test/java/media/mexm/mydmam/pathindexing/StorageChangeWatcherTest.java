@@ -0,0 +1,102 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+import static org.apache.commons.io.FileUtils.getTempDirectory;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StorageChangeWatcherTest {
+
+	static final Duration COALESCE_DELAY = Duration.ofMillis(50);
+	static final Duration CONFIRMATION_DELAY = Duration.ofMillis(100);
+
+	File root;
+	Semaphore onChanges;
+	StorageChangeWatcher watcher;
+
+	@BeforeEach
+	void init() throws IOException {
+		root = new File(getTempDirectory(), "mydmam_test-watcher");
+		deleteQuietly(root);
+		forceMkdir(new File(root, "a/b/c"));
+		onChanges = new Semaphore(0);
+		watcher = new StorageChangeWatcher(
+				root.toPath(), "test", 2, COALESCE_DELAY, CONFIRMATION_DELAY, onChanges::release);
+	}
+
+	@AfterEach
+	void ends() {
+		watcher.close();
+		deleteQuietly(root);
+	}
+
+	@Test
+	void testGetWatchedDirectoriesCount() {
+		/**
+		 * root, a, a/b: a/b/c is after maxDeep
+		 */
+		assertThat(watcher.getWatchedDirectoriesCount()).isEqualTo(3);
+		assertThat(watcher.pollChanges()).isEqualTo(new StorageChanges(Set.of(), false));
+	}
+
+	@Test
+	void testChanges() throws Exception {
+		writeStringToFile(new File(root, "a/b/new.txt"), "new", UTF_8);
+		writeStringToFile(new File(root, "root.txt"), "root", UTF_8);
+
+		assertThat(onChanges.tryAcquire(10, SECONDS)).isTrue();
+		final var changes = watcher.pollChanges();
+		assertThat(changes.directories()).contains("/", "/a/b");
+		assertThat(changes.overflow()).isFalse();
+
+		/**
+		 * The confirmation call
+		 */
+		assertThat(onChanges.tryAcquire(10, SECONDS)).isTrue();
+		assertThat(watcher.pollChanges().directories()).isEmpty();
+	}
+
+	@Test
+	void testNewDirectory() throws Exception {
+		forceMkdir(new File(root, "a/d"));
+
+		assertThat(onChanges.tryAcquire(10, SECONDS)).isTrue();
+		assertThat(watcher.pollChanges().directories()).contains("/a");
+		assertThat(watcher.getWatchedDirectoriesCount()).isEqualTo(4);
+		assertThat(onChanges.tryAcquire(10, SECONDS)).isTrue();
+
+		writeStringToFile(new File(root, "a/d/new.txt"), "new", UTF_8);
+		assertThat(onChanges.tryAcquire(10, SECONDS)).isTrue();
+		assertThat(watcher.pollChanges().directories()).contains("/a/d");
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static media.mexm.mydmam.pathindexing.StorageStateSnapshot.DIRECTORY_NAME;
+import static media.mexm.mydmam.pathindexing.StorageStateSnapshot.HEADER_SIZE;
+import static media.mexm.mydmam.pathindexing.StorageStateSnapshot.RECORD_SIZE;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.getTempDirectory;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.datafaker.Faker;
+
+class StorageStateSnapshotTest {
+
+	static final int ITEMS = 2000;
+	static Faker faker = Faker.instance();
+
+	File workingDirectory;
+	StorageStateSnapshot snapshot;
+	ArrayList<StoredFileState> states;
+
+	@BeforeEach
+	void init() {
+		workingDirectory = new File(getTempDirectory(), "mydmam_" + faker.numerify("###") + "_test-snapshot");
+		deleteQuietly(workingDirectory);
+		snapshot = StorageStateSnapshot.forStorage(workingDirectory, "realm", "storage");
+
+		final var parentHashPath = DigestUtils.sha256Hex("parent");
+		states = new ArrayList<>(IntStream.range(0, ITEMS)
+				.mapToObj(i -> new StoredFileState(
+						DigestUtils.sha256Hex(String.valueOf(i)),
+						parentHashPath,
+						i % 7 == 0,
+						faker.random().nextLong(1_000_000_000_000L),
+						faker.random().nextLong(1_000_000L),
+						faker.random().nextLong(1_000_000_000_000L),
+						faker.random().nextBoolean(),
+						faker.random().nextBoolean(),
+						faker.random().nextBoolean()))
+				.sorted((l, r) -> l.hashPath().compareTo(r.hashPath()))
+				.toList());
+	}
+
+	@AfterEach
+	void ends() {
+		deleteQuietly(workingDirectory);
+	}
+
+	@Test
+	void testWriteRead() {
+		assertThat(snapshot.getFile()).isEqualTo(
+				new File(new File(workingDirectory, DIRECTORY_NAME), "realm.storage.bin"));
+		assertThat(snapshot.openReader()).isEmpty();
+
+		final var writer = snapshot.openWriter();
+		states.forEach(writer::add);
+		writer.finish(42);
+		assertThat(snapshot.openReader()).isEmpty();
+		writer.publish();
+
+		assertThat(snapshot.getFile()).hasSize(HEADER_SIZE + (long) ITEMS * RECORD_SIZE);
+		final var readed = new ArrayList<StoredFileState>(ITEMS);
+		try (final var reader = snapshot.openReader().orElseThrow()) {
+			assertThat(reader.count()).isEqualTo(ITEMS);
+			assertThat(reader.generation()).isEqualTo(42);
+			reader.forEachRemaining(readed::add);
+		}
+		assertThat(readed).containsExactlyElementsOf(states);
+
+		snapshot.delete();
+		assertThat(snapshot.getFile()).doesNotExist();
+	}
+
+	@Test
+	void testEmpty() {
+		final var writer = snapshot.openWriter();
+		writer.finish(0);
+		writer.publish();
+
+		try (final var reader = snapshot.openReader().orElseThrow()) {
+			assertThat(reader.count()).isZero();
+			assertThat(reader.hasNext()).isFalse();
+		}
+	}
+
+	@Test
+	void testDiscard() {
+		final var writer = snapshot.openWriter();
+		states.forEach(writer::add);
+		writer.discard();
+
+		assertThat(snapshot.getFile().getParentFile().list()).isEmpty();
+		assertThat(snapshot.openReader()).isEmpty();
+	}
+
+	@Test
+	void testNotSorted() {
+		final var writer = snapshot.openWriter();
+		writer.add(states.get(1));
+		final var first = states.get(0);
+		assertThrows(IllegalStateException.class, () -> writer.add(first));
+		writer.discard();
+	}
+
+	@Test
+	void testInvalid() throws IOException {
+		writeStringToFile(snapshot.getFile(), "Not a snapshot", UTF_8);
+		assertThat(snapshot.openReader()).isEmpty();
+	}
+
+}
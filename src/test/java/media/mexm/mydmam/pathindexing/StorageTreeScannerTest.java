@@ -0,0 +1,245 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+import static org.apache.commons.io.FileUtils.getTempDirectory;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.internal.verification.VerificationModeFactory.atLeastOnce;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+
+import media.mexm.mydmam.configuration.PathIndexingStorage;
+import tv.hd3g.commons.testtools.Fake;
+import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
+import tv.hd3g.transfertfiles.AbstractFileSystemURL;
+import tv.hd3g.transfertfiles.CachedFileAttributes;
+
+@ExtendWith(MockToolsExtendsJunit.class)
+class StorageTreeScannerTest {
+
+	@Mock
+	PathIndexingStorage storage;
+	@Fake
+	String name;
+
+	File root;
+	AbstractFileSystemURL fileSystem;
+	StorageTreeScanner scanner;
+
+	@BeforeEach
+	void init() throws IOException {
+		root = new File(getTempDirectory(), "mydmam_" + name + "_test-scanner");
+		deleteQuietly(root);
+		forceMkdir(new File(root, "a/b/c"));
+		writeStringToFile(new File(root, "a/1.txt"), "1", UTF_8);
+		writeStringToFile(new File(root, "a/b/2.txt"), "2", UTF_8);
+		writeStringToFile(new File(root, "a/b/c/3.mov"), "3", UTF_8);
+		writeStringToFile(new File(root, "a/.hidden"), "h", UTF_8);
+		writeStringToFile(new File(root, "a/desktop.ini"), "i", UTF_8);
+
+		when(storage.maxDeep()).thenReturn(10);
+		when(storage.allowedHidden()).thenReturn(false);
+		when(storage.ignoreFiles()).thenReturn(Set.of("Desktop.ini"));
+		when(storage.blockedExtentions()).thenReturn(Set.of(".TMP"));
+		when(storage.path()).thenReturn("file://localhost" + root.getAbsolutePath());
+		when(storage.scanParallelism()).thenReturn(1);
+
+		fileSystem = new AbstractFileSystemURL(storage.path());
+		scanner = new StorageTreeScanner(storage);
+	}
+
+	@AfterEach
+	void ends() throws IOException {
+		verify(storage, atLeastOnce()).path();
+		verify(storage, atLeastOnce()).scanParallelism();
+		verify(storage, atLeastOnce()).maxDeep();
+		verify(storage, atLeastOnce()).allowedHidden();
+		verify(storage, atLeastOnce()).allowedLinks();
+		verify(storage, atLeastOnce()).allowedExtentions();
+		verify(storage, atLeastOnce()).blockedExtentions();
+		verify(storage, atLeastOnce()).ignoreRelativePaths();
+		verify(storage, atLeastOnce()).ignoreFiles();
+		verify(storage, atLeastOnce()).allowedFileNames();
+		verify(storage, atLeastOnce()).allowedDirNames();
+		verify(storage, atLeastOnce()).blockedFileNames();
+		verify(storage, atLeastOnce()).blockedDirNames();
+		fileSystem.close();
+		deleteQuietly(root);
+	}
+
+	private static List<String> paths(final List<CachedFileAttributes> files) {
+		return files.stream().map(CachedFileAttributes::getPath).toList();
+	}
+
+	@Test
+	void testScan_full() {
+		final var result = scanner.scan(fileSystem, Map.of());
+
+		assertThat(paths(result.detected())).containsExactlyInAnyOrder(
+				"/a", "/a/1.txt", "/a/b", "/a/b/2.txt", "/a/b/c", "/a/b/c/3.mov");
+		assertThat(result.skippedDirectories()).isEmpty();
+		assertThat(result.listedDirectories())
+				.extracting(ScannedDirectory::path)
+				.containsExactlyInAnyOrder("/a", "/a/b", "/a/b/c");
+		assertThat(result.listedDirectories())
+				.filteredOn(d -> d.path().equals("/a"))
+				.singleElement()
+				.extracting(ScannedDirectory::children)
+				.isEqualTo(2);
+	}
+
+	@Test
+	void testScan_unchangedDirectory() {
+		final var dirA = new File(root, "a");
+		final var known = Map.of(
+				"/a", new KnownDirectory(dirA.lastModified(), 2, 2, 0, List.of("/a/b")),
+				"/a/b", new KnownDirectory(dirA.lastModified() - 1000, 2, 2, 0, List.of("/a/b/c")));
+
+		final var result = scanner.scan(fileSystem, known);
+
+		assertThat(result.skippedDirectories()).containsExactly("/a");
+		assertThat(paths(result.detected())).containsExactlyInAnyOrder(
+				"/a", "/a/b/2.txt", "/a/b/c", "/a/b/c/3.mov");
+		assertThat(result.listedDirectories())
+				.extracting(ScannedDirectory::path)
+				.containsExactlyInAnyOrder("/a/b", "/a/b/c");
+	}
+
+	@Test
+	void testScan_pendingChildren() {
+		final var dirA = new File(root, "a");
+		final var known = Map.of(
+				"/a", new KnownDirectory(dirA.lastModified(), 2, 2, 1, List.of("/a/b")));
+
+		final var result = scanner.scan(fileSystem, known);
+
+		assertThat(result.skippedDirectories()).isEmpty();
+		assertThat(paths(result.detected())).contains("/a/1.txt");
+	}
+
+	@Test
+	void testScan_maxDeep() {
+		when(storage.maxDeep()).thenReturn(1);
+		scanner = new StorageTreeScanner(storage);
+
+		final var result = scanner.scan(fileSystem, Map.of());
+
+		assertThat(paths(result.detected())).containsExactlyInAnyOrder("/a", "/a/1.txt", "/a/b");
+	}
+
+	@Test
+	void testScan_blockedExtention() throws IOException {
+		writeStringToFile(new File(root, "a/4.tmp"), "4", UTF_8);
+
+		final var result = scanner.scan(fileSystem, Map.of());
+
+		assertThat(paths(result.detected())).doesNotContain("/a/4.tmp");
+	}
+
+	@Test
+	void testScanTouched() {
+		final var known = Map.of(
+				"/", new KnownDirectory(null, null, 1, 0, List.of("/a")),
+				"/a", new KnownDirectory(new File(root, "a").lastModified(), 2, 2, 0, List.of("/a/b")),
+				"/a/b", new KnownDirectory(new File(root, "a/b").lastModified(), 2, 2, 0, List.of("/a/b/c")),
+				"/a/b/c", new KnownDirectory(new File(root, "a/b/c").lastModified(), 1, 1, 0, List.of()));
+
+		final var result = scanner.scanTouched(fileSystem, known, Set.of("/a/b"));
+
+		assertThat(paths(result.detected())).containsExactlyInAnyOrder("/a/b/2.txt", "/a/b/c");
+		assertThat(result.listedDirectories())
+				.extracting(ScannedDirectory::path)
+				.containsExactly("/a/b");
+		assertThat(result.skippedDirectories()).containsExactlyInAnyOrder("/", "/a", "/a/b/c");
+	}
+
+	@Test
+	void testScanTouched_pendingAndGone() {
+		final var known = Map.of(
+				"/a", new KnownDirectory(new File(root, "a").lastModified(), 3, 3, 1, List.of("/a/b", "/a/x")),
+				"/a/b", new KnownDirectory(new File(root, "a/b").lastModified(), 2, 2, 0, List.of("/a/b/c")),
+				"/a/x", new KnownDirectory(0l, 1, 1, 0, List.of("/a/x/y")),
+				"/a/x/y", new KnownDirectory(0l, 0, 0, 0, List.of()));
+
+		final var result = scanner.scanTouched(fileSystem, known, Set.of());
+
+		assertThat(paths(result.detected())).containsExactlyInAnyOrder("/a/1.txt", "/a/b");
+		assertThat(result.listedDirectories())
+				.extracting(ScannedDirectory::path)
+				.containsExactly("/a");
+		assertThat(result.skippedDirectories()).containsExactlyInAnyOrder("/", "/a/b");
+	}
+
+	@Test
+	void testScanTouched_unknownDirectory() {
+		final var result = scanner.scanTouched(fileSystem, Map.of(), Set.of("/a/b"));
+
+		assertThat(result.detected()).isEmpty();
+		assertThat(result.listedDirectories()).isEmpty();
+		assertThat(result.skippedDirectories()).containsExactly("/");
+	}
+
+	@Test
+	void testScan_parallel() throws IOException {
+		for (var i = 0; i < 20; i++) {
+			forceMkdir(new File(root, "a/b/c/d" + i));
+			writeStringToFile(new File(root, "a/b/c/d" + i + "/" + i + ".txt"), "d", UTF_8);
+		}
+		final var expected = scanner.scan(fileSystem, Map.of());
+		final var dirB = new File(root, "a/b");
+		final var known = Map.of(
+				"/", new KnownDirectory(null, null, 1, 0, List.of("/a")),
+				"/a/b", new KnownDirectory(dirB.lastModified(), 2, 2, 0, List.of("/a/b/c")),
+				"/a/b/c", new KnownDirectory(0l, 1, 1, 0, List.of()));
+		final var expectedTouched = scanner.scanTouched(fileSystem, known, Set.of("/", "/a/b/c"));
+
+		when(storage.scanParallelism()).thenReturn(4);
+		scanner = new StorageTreeScanner(storage);
+
+		final var result = scanner.scan(fileSystem, Map.of());
+		assertThat(paths(result.detected()))
+				.hasSize(expected.detected().size())
+				.containsExactlyInAnyOrderElementsOf(paths(expected.detected()));
+		assertThat(result.listedDirectories())
+				.containsExactlyInAnyOrderElementsOf(expected.listedDirectories());
+		assertThat(result.skippedDirectories()).isEqualTo(expected.skippedDirectories());
+
+		final var resultTouched = scanner.scanTouched(fileSystem, known, Set.of("/", "/a/b/c"));
+		assertThat(paths(resultTouched.detected()))
+				.containsExactlyInAnyOrderElementsOf(paths(expectedTouched.detected()));
+		assertThat(resultTouched.listedDirectories())
+				.containsExactlyInAnyOrderElementsOf(expectedTouched.listedDirectories());
+		assertThat(resultTouched.skippedDirectories()).isEqualTo(expectedTouched.skippedDirectories());
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.pathindexing;
+
+import static java.time.Duration.ZERO;
+import static java.time.Duration.ofHours;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+
+import media.mexm.mydmam.entity.FileEntity;
+import tv.hd3g.commons.testtools.Fake;
+import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
+import tv.hd3g.transfertfiles.CachedFileAttributes;
+
+@ExtendWith(MockToolsExtendsJunit.class)
+class StoredFileStateTest {
+
+	@Mock
+	CachedFileAttributes file;
+	@Fake
+	String realm;
+	@Fake
+	String storage;
+	@Fake
+	String name;
+	@Fake(min = 1, max = 100)
+	long length;
+	@Fake(min = 10000, max = 1000000)
+	long modified;
+
+	StoredFileState state;
+	long watchLast;
+
+	@BeforeEach
+	void init() {
+		when(file.length()).thenReturn(length);
+		when(file.lastModified()).thenReturn(modified);
+		watchLast = System.currentTimeMillis() - 10_000;
+		state = new StoredFileState("00", "01", false,
+				Math.round(modified / 1000d) * 1000, length, watchLast, false, false, false);
+	}
+
+	@AfterEach
+	void ends() {
+		verify(file, atLeast(0)).length();
+		verify(file, atLeast(0)).lastModified();
+	}
+
+	@Test
+	void testOf() {
+		when(file.getPath()).thenReturn("/" + name);
+		when(file.getParentPath()).thenReturn("/");
+		when(file.isDirectory()).thenReturn(false);
+		final var entity = new FileEntity(realm, storage, file);
+
+		assertThat(StoredFileState.of(entity)).isEqualTo(new StoredFileState(
+				entity.getHashPath(),
+				entity.getParentHashPath(),
+				false,
+				entity.getModified().getTime(),
+				length,
+				entity.getWatchLast().getTime(),
+				false,
+				false,
+				false));
+		verify(file, atLeast(1)).getPath();
+		verify(file, atLeast(1)).getParentPath();
+		verify(file, atLeast(1)).isDirectory();
+	}
+
+	@Test
+	void testUpdate_same() {
+		final var updated = state.update(file);
+		assertThat(updated.watchLastIsSame()).isTrue();
+		assertThat(updated.watchLast()).isEqualTo(watchLast);
+		assertThat(updated.watchDoneButChanged()).isFalse();
+		assertThat(updated.isTimeQualified(ZERO)).isTrue();
+		assertThat(updated.isTimeQualified(ofHours(1))).isFalse();
+	}
+
+	@Test
+	void testUpdate_changed() {
+		when(file.length()).thenReturn(length + 1);
+		final var updated = state.setMarkedAsDone().update(file);
+
+		assertThat(updated.length()).isEqualTo(length + 1);
+		assertThat(updated.watchLastIsSame()).isFalse();
+		assertThat(updated.watchLast()).isGreaterThan(watchLast);
+		assertThat(updated.watchMarkedAsDone()).isTrue();
+		assertThat(updated.watchDoneButChanged()).isTrue();
+		assertThat(updated.isTimeQualified(ZERO)).isFalse();
+		assertThat(updated.resetDoneButChanged().watchDoneButChanged()).isFalse();
+	}
+
+	@Test
+	void testUpdate_doneDirectory() {
+		final var directory = new StoredFileState("00", "01", true, 0, 0, watchLast, true, false, false);
+		assertThat(directory.update(file)).isSameAs(directory);
+		assertThat(directory.isTimeQualified(ofHours(1))).isTrue();
+	}
+
+}
@@ -0,0 +1,254 @@
+/*
+ * This file is part of mydmam.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * Copyright (C) Media ex Machina 2026
+ *
+ */
+package media.mexm.mydmam.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+
+import lombok.extern.slf4j.Slf4j;
+import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.pathindexing.ScannedDirectory;
+import media.mexm.mydmam.pathindexing.StoredFileState;
+import tv.hd3g.commons.testtools.Fake;
+import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
+import tv.hd3g.transfertfiles.CachedFileAttributes;
+
+@SpringBootTest(webEnvironment = WebEnvironment.NONE)
+@ActiveProfiles({ "Default" })
+@ExtendWith(MockToolsExtendsJunit.class)
+@Slf4j
+class FileBulkDaoImplTest {
+
+	static final int ITEMS_TO_ADD = FileBulkDaoImpl.ROWS_BY_STATEMENT * 2 + 1;
+	static final int THROUGHPUT_ITEMS = 10_000;
+
+	@Autowired
+	FileBulkDao fileBulkDao;
+	@Autowired
+	FileRepository fileRepository;
+	@Autowired
+	FileDao fileDao;
+
+	@Fake
+	String basePath;
+	@Fake
+	String realm;
+	@Fake
+	String storage;
+	@Fake(min = 1, max = 100)
+	long length;
+	@Fake(min = 10000, max = 1000000)
+	long modified;
+	@Mock
+	CachedFileAttributes firstDetectionFile;
+
+	@BeforeEach
+	void init() {
+		fileRepository.deleteAll();
+	}
+
+	private List<FileEntity> makeEntities(final int count) {
+		final var parentPath = "/" + basePath;
+		final var entities = IntStream.range(0, count)
+				.mapToObj(i -> {
+					when(firstDetectionFile.getPath()).thenReturn(parentPath + "/" + i);
+					when(firstDetectionFile.getParentPath()).thenReturn(parentPath);
+					when(firstDetectionFile.lastModified()).thenReturn(modified);
+					when(firstDetectionFile.length()).thenReturn(length);
+					when(firstDetectionFile.isDirectory()).thenReturn(false);
+					return new FileEntity(realm, storage, firstDetectionFile);
+				}).toList();
+		reset(firstDetectionFile);
+		return entities;
+	}
+
+	private List<FileEntity> getAllStored() {
+		return fileDao.getStoragePageAfterHashPath(realm, storage, "", Integer.MAX_VALUE);
+	}
+
+	@Test
+	void testInsert() {
+		final var entities = makeEntities(ITEMS_TO_ADD);
+		fileBulkDao.insert(entities);
+
+		final var stored = getAllStored();
+		assertThat(stored).hasSize(ITEMS_TO_ADD);
+		assertThat(stored).allSatisfy(f -> {
+			assertThat(f.getId()).isNotNull();
+			assertThat(f.getLength()).isEqualTo(length);
+			assertThat(f.isDirectory()).isFalse();
+			assertThat(f.isWatchMarkedAsDone()).isFalse();
+		});
+		assertThat(stored.stream().map(FileEntity::getHashPath))
+				.containsExactlyInAnyOrderElementsOf(entities.stream().map(FileEntity::getHashPath).toList());
+	}
+
+	@Test
+	void testInsert_empty() {
+		fileBulkDao.insert(List.of());
+		assertThat(fileRepository.count()).isZero();
+	}
+
+	@Test
+	void testUpdateWatch() {
+		fileBulkDao.insert(makeEntities(ITEMS_TO_ADD));
+		final var newModified = new Timestamp(modified + 1000);
+		fileBulkDao.updateWatch(realm, storage, getAllStored().stream()
+				.map(StoredFileState::of)
+				.map(s -> new StoredFileState(
+						s.hashPath(),
+						s.parentHashPath(),
+						s.directory(),
+						newModified.getTime(),
+						length + 1,
+						s.watchLast(),
+						true,
+						s.watchLastIsSame(),
+						s.watchDoneButChanged()))
+				.toList());
+
+		assertThat(getAllStored()).allSatisfy(f -> {
+			assertThat(f.isWatchMarkedAsDone()).isTrue();
+			assertThat(f.getLength()).isEqualTo(length + 1);
+			assertThat(f.getModified()).isEqualTo(newModified);
+		});
+	}
+
+	@Test
+	void testDeleteByHashPath() {
+		fileBulkDao.insert(makeEntities(ITEMS_TO_ADD));
+		final var stored = getAllStored();
+		fileBulkDao.deleteByHashPath(realm, storage, stored.subList(1, ITEMS_TO_ADD).stream()
+				.map(FileEntity::getHashPath)
+				.toList());
+
+		assertThat(getAllStored())
+				.extracting(FileEntity::getHashPath)
+				.containsExactly(stored.get(0).getHashPath());
+		fileBulkDao.deleteByHashPath(realm, storage, List.of());
+	}
+
+	@Test
+	void testUpdateDirectoryStates() {
+		fileBulkDao.insert(makeEntities(ITEMS_TO_ADD));
+		final var updated = getAllStored().get(0);
+		fileBulkDao.updateDirectoryStates(realm, storage,
+				List.of(new ScannedDirectory(updated.getPath(), modified, ITEMS_TO_ADD)));
+
+		assertThat(getAllStored()).allSatisfy(f -> {
+			if (f.getHashPath().equals(updated.getHashPath())) {
+				assertThat(f.getDirLastModified()).isEqualTo(modified);
+				assertThat(f.getDirChildren()).isEqualTo(ITEMS_TO_ADD);
+			} else {
+				assertThat(f.getDirLastModified()).isNull();
+				assertThat(f.getDirChildren()).isNull();
+			}
+		});
+		fileBulkDao.updateDirectoryStates(realm, storage, List.of());
+	}
+
+	@Test
+	void testGeneration() {
+		assertThat(fileBulkDao.lockGeneration(realm, storage)).isZero();
+
+		fileBulkDao.insert(makeEntities(1));
+		assertThat(fileBulkDao.lockGeneration(realm, storage)).isEqualTo(1);
+
+		final var stored = getAllStored();
+		fileBulkDao.updateWatch(realm, storage, stored.stream()
+				.map(StoredFileState::of)
+				.map(StoredFileState::setMarkedAsDone)
+				.toList());
+		assertThat(fileBulkDao.lockGeneration(realm, storage)).isEqualTo(2);
+
+		fileBulkDao.updateDirectoryStates(realm, storage,
+				List.of(new ScannedDirectory(stored.get(0).getPath(), modified, 0)));
+		assertThat(fileBulkDao.lockGeneration(realm, storage)).isEqualTo(3);
+
+		fileBulkDao.deleteByHashPath(realm, storage, List.of(stored.get(0).getHashPath()));
+		assertThat(fileBulkDao.lockGeneration(realm, storage)).isEqualTo(4);
+
+		fileBulkDao.bumpGeneration(realm, storage);
+		assertThat(fileBulkDao.lockGeneration(realm, storage)).isEqualTo(5);
+
+		/**
+		 * Nothing to write, nothing bumped
+		 */
+		fileBulkDao.insert(List.of());
+		fileBulkDao.updateWatch(realm, storage, List.of());
+		fileBulkDao.deleteByHashPath(realm, storage, List.of());
+		fileBulkDao.updateDirectoryStates(realm, storage, List.of());
+		assertThat(fileBulkDao.lockGeneration(realm, storage)).isEqualTo(5);
+		assertThat(fileBulkDao.lockGeneration(realm, storage + "-other")).isZero();
+	}
+
+	/**
+	 * Compare with the JPA path. Run it with a MariaDB datasource to get real figures.
+	 */
+	@Test
+	void testThroughput() {
+		var start = System.nanoTime();
+		fileRepository.saveAll(makeEntities(THROUGHPUT_ITEMS));
+		final var jpaDuration = System.nanoTime() - start;
+		fileRepository.deleteAll();
+
+		final var entities = makeEntities(THROUGHPUT_ITEMS);
+		start = System.nanoTime();
+		fileBulkDao.insert(entities);
+		final var bulkDuration = System.nanoTime() - start;
+
+		final var stored = getAllStored();
+		final var states = stored.stream()
+				.map(StoredFileState::of)
+				.map(StoredFileState::setMarkedAsDone)
+				.toList();
+		start = System.nanoTime();
+		fileBulkDao.updateWatch(realm, storage, states);
+		final var updateDuration = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		fileBulkDao.deleteByHashPath(realm, storage, stored.stream().map(FileEntity::getHashPath).toList());
+		final var deleteDuration = System.nanoTime() - start;
+
+		log.info("Insert {} files, rows/sec: JPA saveAll={}, bulk insert={}; bulk update={}, bulk delete={}",
+				THROUGHPUT_ITEMS,
+				rowsBySec(jpaDuration),
+				rowsBySec(bulkDuration),
+				rowsBySec(updateDuration),
+				rowsBySec(deleteDuration));
+		assertThat(fileRepository.count()).isZero();
+	}
+
+	private static long rowsBySec(final long durationNanos) {
+		return THROUGHPUT_ITEMS * 1_000_000_000L / Math.max(1, durationNanos);
+	}
+
+}
@@ -23,7 +23,10 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.IntStream;
 
@@ -38,6 +41,7 @@ import org.springframework.test.context.ActiveProfiles;
 
 import jakarta.transaction.Transactional;
 import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.pathindexing.StoredFileState;
 import media.mexm.mydmam.tools.SortOrder;
 import tv.hd3g.commons.testtools.Fake;
 import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
@@ -153,4 +157,106 @@ class FileDaoImplTest {
 		assertThat(collectedFiles).size().isEqualTo(ITEMS_TO_ADD);
 	}
 
+	@Test
+	void testGetRealmPageAfterId() {
+		final var size = ITEMS_TO_ADD / 3;
+		final var collectedIds = new ArrayList<Integer>(ITEMS_TO_ADD);
+		var afterId = 0;
+		List<FileEntity> page;
+		do {
+			page = fileDao.getRealmPageAfterId(realm, afterId, size);
+			assertThat(page).size().isLessThanOrEqualTo(size);
+			page.forEach(f -> collectedIds.add(f.getId()));
+			if (page.isEmpty() == false) {
+				afterId = page.getLast().getId();
+			}
+		} while (page.isEmpty() == false);
+
+		assertThat(collectedIds)
+				.hasSize(ITEMS_TO_ADD)
+				.isSorted()
+				.doesNotHaveDuplicates();
+		assertThat(fileDao.getRealmPageAfterId(realm + "NOPE", 0, size)).isEmpty();
+	}
+
+	@Test
+	void testGetStoragePageAfterHashPath() {
+		final var size = ITEMS_TO_ADD / 3;
+		final var collectedHashPaths = new ArrayList<String>(ITEMS_TO_ADD);
+		var afterHashPath = "";
+		List<FileEntity> page;
+		do {
+			page = fileDao.getStoragePageAfterHashPath(realm, storage, afterHashPath, size);
+			assertThat(page).size().isLessThanOrEqualTo(size);
+			page.forEach(f -> collectedHashPaths.add(f.getHashPath()));
+			if (page.isEmpty() == false) {
+				afterHashPath = page.getLast().getHashPath();
+			}
+		} while (page.isEmpty() == false);
+
+		assertThat(collectedHashPaths)
+				.hasSize(ITEMS_TO_ADD)
+				.isSorted()
+				.doesNotHaveDuplicates();
+		assertThat(fileDao.getStoragePageAfterHashPath(realm, storage + "NOPE", "", size)).isEmpty();
+	}
+
+	@Test
+	void testGetStoredStatePageAfterHashPath() {
+		final var expected = fileDao.getStoragePageAfterHashPath(realm, storage, "", ITEMS_TO_ADD).stream()
+				.map(StoredFileState::of)
+				.toList();
+		final var size = ITEMS_TO_ADD / 3;
+		final var collected = new ArrayList<StoredFileState>(ITEMS_TO_ADD);
+		var afterHashPath = "";
+		List<StoredFileState> page;
+		do {
+			page = fileDao.getStoredStatePageAfterHashPath(realm, storage, afterHashPath, size);
+			assertThat(page).size().isLessThanOrEqualTo(size);
+			collected.addAll(page);
+			if (page.isEmpty() == false) {
+				afterHashPath = page.getLast().hashPath();
+			}
+		} while (page.isEmpty() == false);
+
+		assertThat(collected).containsExactlyElementsOf(expected);
+		assertThat(fileDao.getStoredStatePageAfterHashPath(realm, storage + "NOPE", "", size)).isEmpty();
+	}
+
+	@Test
+	void testGetPathsByHashPath() {
+		final var path = "/" + basePath + "/" + baseName + from;
+		final var hashPath = FileEntity.hashPath(realm, storage, path);
+
+		assertThat(fileDao.getPathsByHashPath(List.of(hashPath, parentHashPath)))
+				.isEqualTo(Map.of(hashPath, path));
+		assertThat(fileDao.getPathsByHashPath(List.of())).isEmpty();
+	}
+
+	@Test
+	void testGetKnownDirectoriesByPath() {
+		when(firstDetectionFile.getPath()).thenReturn(parentPath);
+		when(firstDetectionFile.getParentPath()).thenReturn("/");
+		when(firstDetectionFile.lastModified()).thenReturn(modified);
+		when(firstDetectionFile.length()).thenReturn(0L);
+		when(firstDetectionFile.isDirectory()).thenReturn(true);
+		fileRepository.saveAndFlush(new FileEntity(realm, storage, firstDetectionFile));
+		reset(firstDetectionFile);
+
+		final var known = fileDao.getKnownDirectoriesByPath(realm, storage);
+		assertThat(known).containsOnlyKeys("/", parentPath);
+		assertEquals(1, known.get("/").storedChildren());
+		assertEquals(1, known.get("/").pendingChildren());
+		assertThat(known.get("/").childDirectories()).containsExactly(parentPath);
+		final var directory = known.get(parentPath);
+		assertThat(directory.lastModified()).isNull();
+		assertThat(directory.children()).isNull();
+		assertEquals(ITEMS_TO_ADD, directory.storedChildren());
+		assertEquals(ITEMS_TO_ADD, directory.pendingChildren());
+		assertThat(directory.childDirectories()).isEmpty();
+		assertFalse(directory.isUnchanged(modified));
+
+		assertThat(fileDao.getKnownDirectoriesByPath(realm, storage + "NOPE")).isEmpty();
+	}
+
 }
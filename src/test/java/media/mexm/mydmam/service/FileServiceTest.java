@@ -20,13 +20,19 @@ import static java.util.Optional.empty;
 import static media.mexm.mydmam.indexer.SearchConstraintCondition.MUST_NOT;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -276,10 +282,13 @@ class FileServiceTest {
 			when(selectedFileDir.getHashPath()).thenReturn(hashPathSelectedFileDir);
 			when(selectedDir.getHashPath()).thenReturn(hashPathSelectedDir);
 			when(selectedDir.isDirectory()).thenReturn(true);
-			when(realmIndexer.getHashPathsByRecursiveSearch(
-					storageName,
-					pathSelectedDir,
-					MUST_NOT)).thenReturn(Set.of(hashPathSubFile));
+			doAnswer(invocation -> {
+				final Consumer<String> onHashPath = invocation.getArgument(3);
+				onHashPath.accept(hashPathSubFile);
+				onHashPath.accept(hashPathSelectedDir);
+				return null;
+			}).when(realmIndexer).forEachHashPathByRecursiveSearch(
+					eq(storageName), eq(pathSelectedDir), eq(MUST_NOT), any());
 
 			when(fileRepository.getByHashPath(Set.of(hashPathSubFile), realmName))
 					.thenReturn(Set.of(fileEntitySubFile));
@@ -304,10 +313,11 @@ class FileServiceTest {
 			verify(selectedDir, atLeastOnce()).getStorage();
 			verify(selectedDir, atLeastOnce()).getPath();
 			verify(realmIndexer, times(1))
-					.getHashPathsByRecursiveSearch(
-							storageName,
-							pathSelectedDir,
-							MUST_NOT);
+					.forEachHashPathByRecursiveSearch(
+							eq(storageName),
+							eq(pathSelectedDir),
+							eq(MUST_NOT),
+							any());
 			verify(fileRepository, times(1))
 					.getByHashPath(Set.of(hashPathSubFile), realmName);
 
@@ -323,5 +333,51 @@ class FileServiceTest {
 			verify(selectedDir, atLeastOnce()).getPath();
 		}
 
+		@Test
+		void testFullRecursive_resolveByChunks() {
+			when(selectedFileDir.getHashPath()).thenReturn(hashPathSelectedFileDir);
+			when(selectedDir.getHashPath()).thenReturn(hashPathSelectedDir);
+			when(selectedDir.isDirectory()).thenReturn(true);
+			final var subHashPaths = IntStream.range(0, FileServiceImpl.RESOLVE_CHUNK_SIZE + 1)
+					.mapToObj(i -> hashPathSubFile + i)
+					.toList();
+			doAnswer(invocation -> {
+				final Consumer<String> onHashPath = invocation.getArgument(3);
+				subHashPaths.forEach(onHashPath);
+				return null;
+			}).when(realmIndexer).forEachHashPathByRecursiveSearch(
+					eq(storageName), eq(pathSelectedDir), eq(MUST_NOT), any());
+			when(fileRepository.getByHashPath(anySet(), eq(realmName))).thenReturn(Set.of());
+
+			final var result = fileService.resolveHashPaths(
+					hashPaths,
+					limitCategory,
+					limitStorageClasses,
+					realmName,
+					true);
+			assertThat(result).hasSize(2).contains(selectedFileDir, selectedDir);
+
+			verify(fileRepository, times(1))
+					.getByHashPath(Set.copyOf(subHashPaths.subList(0, FileServiceImpl.RESOLVE_CHUNK_SIZE)), realmName);
+			verify(fileRepository, times(1))
+					.getByHashPath(Set.of(subHashPaths.getLast()), realmName);
+
+			verify(selectedFileDir, atLeastOnce()).getHashPath();
+			verify(selectedDir, atLeastOnce()).getHashPath();
+			verify(selectedDir, atLeastOnce()).isDirectory();
+			verify(realmIndexer, times(1))
+					.forEachHashPathByRecursiveSearch(
+							eq(storageName),
+							eq(pathSelectedDir),
+							eq(MUST_NOT),
+							any());
+			verify(selectedFileDir, atLeastOnce()).getRealm();
+			verify(selectedDir, atLeastOnce()).getRealm();
+			verify(selectedFileDir, atLeastOnce()).getStorage();
+			verify(selectedDir, atLeastOnce()).getStorage();
+			verify(selectedFileDir, atLeastOnce()).getPath();
+			verify(selectedDir, atLeastOnce()).getPath();
+		}
+
 	}
 }
@@ -20,6 +20,7 @@ import static java.io.File.createTempFile;
 import static java.io.File.separator;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toUnmodifiableSet;
 import static media.mexm.mydmam.audittrail.AuditTrailObjectType.RENDERED_FILE_ENTRY;
 import static media.mexm.mydmam.entity.FileEntity.hashPath;
 import static media.mexm.mydmam.service.MediaAssetService.MEDIA_ASSET_AUDIT_ISSUER;
@@ -34,6 +35,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.verify;
@@ -52,6 +54,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.junit.jupiter.api.AfterEach;
@@ -80,16 +83,20 @@ import media.mexm.mydmam.component.Indexer;
 import media.mexm.mydmam.component.MimeTypeDetector;
 import media.mexm.mydmam.configuration.MyDMAMConfigurationProperties;
 import media.mexm.mydmam.configuration.RealmConf;
+import media.mexm.mydmam.configuration.RealmIndexConf;
 import media.mexm.mydmam.entity.AssetRenderedFileEntity;
 import media.mexm.mydmam.entity.AssetTextExtractedFileEntity;
 import media.mexm.mydmam.entity.FileEntity;
 import media.mexm.mydmam.entity.FileMetadataEntity;
+import media.mexm.mydmam.indexer.RealmIndexRebuild;
 import media.mexm.mydmam.indexer.RealmIndexer;
+import media.mexm.mydmam.indexer.TextExtractedSource;
 import media.mexm.mydmam.pathindexing.RealmStorageConfiguredEnv;
 import media.mexm.mydmam.repository.AssetRenderedFileDao;
 import media.mexm.mydmam.repository.AssetRenderedFileRepository;
 import media.mexm.mydmam.repository.AssetTextExtractedFileDao;
 import media.mexm.mydmam.repository.AssetTextExtractedFileRepository;
+import media.mexm.mydmam.repository.FileDao;
 import media.mexm.mydmam.repository.FileMetadataDao;
 import media.mexm.mydmam.repository.FileMetadataRepository;
 import media.mexm.mydmam.repository.FileRepository;
@@ -110,6 +117,8 @@ class MediaAssetServiceTest {
     @MockitoBean
     FileMetadataRepository fileMetadataRepository;
     @MockitoBean
+    FileDao fileDao;
+    @MockitoBean
     FileMetadataDao fileMetadataDao;
     @MockitoBean
     MyDMAMConfigurationProperties configuration;
@@ -154,9 +163,15 @@ class MediaAssetServiceTest {
     RealmIndexer realmIndexer;
     @Mock
     FileEntity fileEntity;
+    @Mock
+    RealmIndexRebuild rebuild;
 
     @Captor
     ArgumentCaptor<AssetTextExtractedFileEntity> assetTextExtractedFileEntityCaptor;
+    @Captor
+    ArgumentCaptor<List<TextExtractedSource>> textsCaptor;
+    @Captor
+    ArgumentCaptor<Set<String>> hashPathsCaptor;
 
     @Fake
     String realmName;
@@ -234,6 +249,7 @@ class MediaAssetServiceTest {
     void ends() {
         verifyNoMoreInteractions(
                 fileRepository,
+                fileDao,
                 assetRenderedFileDao,
                 assetRenderedFileRepository,
                 fileMetadataDao,
@@ -589,9 +605,13 @@ class MediaAssetServiceTest {
                 .thenReturn(Set.of(assetTextExtractedFileEntity));
 
         final var count = new AtomicInteger(0);
-        final BiConsumer<AssetTextExtractedFileEntity, String> onTextExtracted = (atefe, text) -> {
+        final BiConsumer<AssetTextExtractedFileEntity, TextExtractedSource> onTextExtracted = (atefe, source) -> {
             assertThat(atefe).isEqualTo(assetTextExtractedFileEntity);
-            assertThat(text).isEqualTo(fullText);
+            try (final var reader = source.open()) {
+                assertThat(reader.readAllAsString()).isEqualTo(fullText);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
             count.incrementAndGet();
         };
 
@@ -611,6 +631,93 @@ class MediaAssetServiceTest {
         assertThat(count.get()).isEqualTo(1);
     }
 
+    @Test
+    void testRebuildIndexer() {
+        when(realmConf.index()).thenReturn(new RealmIndexConf(32, false, 0, 2, 2000, 16, 500, 1000));
+        when(rebuild.getCheckpoint()).thenReturn(fileId);
+        when(fileDao.getRealmPageAfterId(realmName, fileId, 1000))
+                .thenReturn(List.of(fileEntity))
+                .thenReturn(List.of());
+        when(fileMetadataEntity.getFile()).thenReturn(fileEntity);
+        when(fileMetadataRepository.getByFiles(List.of(fileEntity))).thenReturn(Set.of(fileMetadataEntity));
+        when(assetTextExtractedFileRepository.getAllTextExtracted(List.of(fileEntity)))
+                .thenReturn(Set.of(assetTextExtractedFileEntity));
+
+        mas.rebuildIndexer(realmName, rebuild);
+
+        verify(realmConf, times(1)).index();
+        verify(rebuild, times(1)).getCheckpoint();
+        verify(fileDao, times(2)).getRealmPageAfterId(realmName, fileId, 1000);
+        verify(fileMetadataRepository, times(1)).getByFiles(List.of(fileEntity));
+        verify(assetTextExtractedFileRepository, times(1)).getAllTextExtracted(List.of(fileEntity));
+        verify(rebuild, times(1)).add(eq(fileEntity), eq(List.of(fileMetadataEntity)), textsCaptor.capture());
+        assertThat(textsCaptor.getValue()).hasSize(1);
+        verify(rebuild, times(1)).checkpoint(fileId);
+
+        verify(fileMetadataEntity, times(1)).getFile();
+        verify(assetTextExtractedFileEntity, times(1)).getFile();
+        verify(realmConf, atLeastOnce()).renderedMetadataDirectory();
+        verify(fileEntity, atLeastOnce()).getRealm();
+        verify(fileEntity, atLeastOnce()).getId();
+        verify(assetTextExtractedFileEntity, atLeastOnce()).getId();
+        verify(assetTextExtractedFileEntity, atLeastOnce()).getName();
+        verify(assetTextExtractedFileEntity, atLeastOnce()).isGzipEncoded();
+        verify(assetTextExtractedFileEntity, atLeastOnce()).getRenderedFileNamePrefix();
+    }
+
+    @Test
+    void testReplayIndexerJournals() {
+        when(configuration.getRealmNames()).thenReturn(Set.of(realmName));
+        when(realmIndexer.getJournalToReplay()).thenReturn(Set.of(fileHashpath));
+        when(fileRepository.getByHashPath(Set.of(fileHashpath), realmName)).thenReturn(Set.of(fileEntity));
+        when(fileMetadataRepository.getByFile(fileEntity)).thenReturn(Set.of());
+
+        mas.replayIndexerJournals();
+
+        verify(indexer, times(2)).getIndexerByRealm(realmName);
+        verify(realmIndexer, times(1)).getJournalToReplay();
+        verify(fileRepository, times(1)).getByHashPath(Set.of(fileHashpath), realmName);
+        verify(realmIndexer, times(1)).updateAsset(fileEntity, Set.of(), List.of());
+        verify(realmIndexer, times(1)).endJournalReplay();
+        verify(fileEntity, atLeastOnce()).getRealm();
+        verify(fileMetadataRepository, times(1)).getByFile(fileEntity);
+        verify(assetTextExtractedFileRepository, times(1)).getAllTextExtracted(fileEntity);
+    }
+
+    @Test
+    void testReplayIndexerJournals_byChunks() {
+        final var toReplay = IntStream.range(0, MediaAssetServiceImpl.JOURNAL_REPLAY_CHUNK_SIZE + 1)
+                .mapToObj(i -> fileHashpath + i)
+                .collect(toUnmodifiableSet());
+        when(configuration.getRealmNames()).thenReturn(Set.of(realmName));
+        when(realmIndexer.getJournalToReplay()).thenReturn(toReplay);
+        when(fileRepository.getByHashPath(anySet(), eq(realmName))).thenReturn(Set.of());
+
+        mas.replayIndexerJournals();
+
+        verify(fileRepository, times(2)).getByHashPath(hashPathsCaptor.capture(), eq(realmName));
+        assertThat(hashPathsCaptor.getAllValues())
+                .extracting(Set::size)
+                .containsExactlyInAnyOrder(MediaAssetServiceImpl.JOURNAL_REPLAY_CHUNK_SIZE, 1);
+        assertThat(hashPathsCaptor.getAllValues().stream().flatMap(Set::stream))
+                .containsExactlyInAnyOrderElementsOf(toReplay);
+
+        verify(indexer, times(1)).getIndexerByRealm(realmName);
+        verify(realmIndexer, times(1)).getJournalToReplay();
+        verify(realmIndexer, times(1)).endJournalReplay();
+    }
+
+    @Test
+    void testReplayIndexerJournals_empty() {
+        when(configuration.getRealmNames()).thenReturn(Set.of(realmName));
+        when(realmIndexer.getJournalToReplay()).thenReturn(Set.of());
+
+        mas.replayIndexerJournals();
+
+        verify(indexer, times(1)).getIndexerByRealm(realmName);
+        verify(realmIndexer, times(1)).getJournalToReplay();
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = { false, true })
     void testGetRelativePath(final boolean isGzip) {
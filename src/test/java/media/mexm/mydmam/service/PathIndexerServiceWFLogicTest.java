@@ -16,10 +16,13 @@
  */
 package media.mexm.mydmam.service;
 
+import static media.mexm.mydmam.service.PathIndexerServiceImpl.SCAN_DIFF_CHUNK_SIZE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -27,8 +30,10 @@ import static org.mockito.internal.verification.VerificationModeFactory.atLeastO
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -43,11 +48,12 @@ import org.springframework.test.context.ActiveProfiles;
 
 import jakarta.transaction.Transactional;
 import media.mexm.mydmam.entity.FileEntity;
+import media.mexm.mydmam.pathindexing.StorageTreeScanner;
+import media.mexm.mydmam.pathindexing.StorageTreeScanResult;
 import media.mexm.mydmam.repository.FileRepository;
 import tv.hd3g.commons.testtools.Fake;
 import tv.hd3g.commons.testtools.MockToolsExtendsJunit;
 import tv.hd3g.jobkit.watchfolder.ObservedFolder;
-import tv.hd3g.jobkit.watchfolder.WatchedFileScanner;
 import tv.hd3g.jobkit.watchfolder.WatchedFiles;
 import tv.hd3g.transfertfiles.AbstractFileSystemURL;
 import tv.hd3g.transfertfiles.CachedFileAttributes;
@@ -64,7 +70,7 @@ class PathIndexerServiceWFLogicTest {
 	@Mock
 	ObservedFolder observedFolder;
 	@Mock
-	WatchedFileScanner watchedFileScanner;
+	StorageTreeScanner watchedFileScanner;
 	@Mock
 	AbstractFileSystemURL fileSystem;
 
@@ -156,7 +162,8 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * First, add
 		 */
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.updated().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
@@ -166,7 +173,8 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * Second, update
 		 */
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertEquals(1, watchedFilesResult.founded().size());
 		assertEquals(file, watchedFilesResult.founded().stream().findFirst().get());
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -177,7 +185,8 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * Third, nothing new
 		 */
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -187,8 +196,9 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * Fourth, remove deleted
 		 */
-		when(watchedFileScanner.scan(fileSystem)).thenReturn(List.of());
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap())).thenReturn(scanResult(List.of()));
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertThat(watchedFilesResult.losted()).size().isEqualTo(1);
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -198,7 +208,7 @@ class PathIndexerServiceWFLogicTest {
 		assertEquals(repositorySize, repository.count());
 
 		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
-		verify(watchedFileScanner, times(4)).scan(fileSystem);
+		verify(watchedFileScanner, times(4)).scan(eq(fileSystem), anyMap());
 	}
 
 	@Test
@@ -209,14 +219,15 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * First + Second, add and "confirm"
 		 */
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
 
 		/**
 		 * Third
 		 */
 		when(file.length()).thenReturn(length + 1l);
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -225,7 +236,8 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * Fourth, confirm
 		 */
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertEquals(1, watchedFilesResult.totalFiles());
@@ -234,7 +246,7 @@ class PathIndexerServiceWFLogicTest {
 		assertEquals(path, watchedFilesResult.updated().iterator().next().getPath());
 
 		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
-		verify(watchedFileScanner, times(4)).scan(fileSystem);
+		verify(watchedFileScanner, times(4)).scan(eq(fileSystem), anyMap());
 	}
 
 	@Test
@@ -245,14 +257,15 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * First + Second, add and "confirm"
 		 */
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
 
 		/**
 		 * Third
 		 */
 		when(file.lastModified()).thenReturn(lastModified + 2000l);
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -261,7 +274,8 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * Fourth, confirm
 		 */
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertEquals(1, watchedFilesResult.totalFiles());
@@ -270,7 +284,7 @@ class PathIndexerServiceWFLogicTest {
 		assertEquals(path, watchedFilesResult.updated().iterator().next().getPath());
 
 		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
-		verify(watchedFileScanner, times(4)).scan(fileSystem);
+		verify(watchedFileScanner, times(4)).scan(eq(fileSystem), anyMap());
 	}
 
 	@Test
@@ -281,13 +295,14 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * First, add
 		 */
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
 
 		/**
 		 * Second, growing
 		 */
 		when(file.length()).thenReturn(length + 1l);
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -297,7 +312,8 @@ class PathIndexerServiceWFLogicTest {
 		 * Third, growing
 		 */
 		when(file.length()).thenReturn(length + 2l);
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -306,7 +322,8 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * Fourth, confirm
 		 */
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.updated().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertEquals(1, watchedFilesResult.totalFiles());
@@ -315,7 +332,7 @@ class PathIndexerServiceWFLogicTest {
 		assertEquals(path, watchedFilesResult.founded().iterator().next().getPath());
 
 		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
-		verify(watchedFileScanner, times(4)).scan(fileSystem);
+		verify(watchedFileScanner, times(4)).scan(eq(fileSystem), anyMap());
 	}
 
 	@Test
@@ -326,14 +343,15 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * First + second, add + confirm
 		 */
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
 
 		/**
 		 * Second, growing
 		 */
 		when(file.length()).thenReturn(length + 1l);
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -343,7 +361,8 @@ class PathIndexerServiceWFLogicTest {
 		 * Third, growing again
 		 */
 		when(file.length()).thenReturn(length + 2l);
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertTrue(watchedFilesResult.updated().isEmpty());
@@ -352,7 +371,8 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * Fourth, confirm
 		 */
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertTrue(watchedFilesResult.founded().isEmpty());
 		assertTrue(watchedFilesResult.losted().isEmpty());
 		assertEquals(1, watchedFilesResult.totalFiles());
@@ -361,7 +381,7 @@ class PathIndexerServiceWFLogicTest {
 		assertEquals(path, watchedFilesResult.updated().iterator().next().getPath());
 
 		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
-		verify(watchedFileScanner, times(5)).scan(fileSystem);
+		verify(watchedFileScanner, times(5)).scan(eq(fileSystem), anyMap());
 	}
 
 	@Test
@@ -371,44 +391,46 @@ class PathIndexerServiceWFLogicTest {
 		/**
 		 * First, add
 		 */
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
 
 		/**
 		 * Second, remove added
 		 */
-		when(watchedFileScanner.scan(fileSystem)).thenReturn(List.of());
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap())).thenReturn(scanResult(List.of()));
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertThat(watchedFilesResult.losted()).isEmpty();
 		assertThat(watchedFilesResult.founded()).isEmpty();
 		assertThat(watchedFilesResult.updated()).isEmpty();
 		assertEquals(0, watchedFilesResult.totalFiles());
 
 		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
-		verify(watchedFileScanner, times(2)).scan(fileSystem);
+		verify(watchedFileScanner, times(2)).scan(eq(fileSystem), anyMap());
 	}
 
 	@Test
 	void testLost_nonEmptyDir() {
 		prepareUpdate();
-		when(watchedFileScanner.scan(fileSystem)).thenReturn(List.of(file, anotherFile));
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap())).thenReturn(scanResult(List.of(file, anotherFile)));
 
 		/**
 		 * First, add
 		 */
-		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
 
 		/**
 		 * Second, remove added
 		 */
-		when(watchedFileScanner.scan(fileSystem)).thenReturn(List.of(anotherFile));
-		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem);
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap())).thenReturn(scanResult(List.of(anotherFile)));
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
 		assertThat(watchedFilesResult.losted()).isEmpty();
 		assertThat(watchedFilesResult.updated()).isEmpty();
 		assertThat(watchedFilesResult.founded()).size().isEqualTo(1);
 		assertEquals(anotherFile, watchedFilesResult.founded().stream().findFirst().get());
 
 		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
-		verify(watchedFileScanner, times(2)).scan(fileSystem);
+		verify(watchedFileScanner, times(2)).scan(eq(fileSystem), anyMap());
 		verify(anotherFile, atLeastOnce()).getPath();
 		verify(anotherFile, atLeastOnce()).isDirectory();
 		verify(anotherFile, atLeastOnce()).length();
@@ -416,6 +438,117 @@ class PathIndexerServiceWFLogicTest {
 		verify(anotherFile, atLeastOnce()).getParentPath();
 	}
 
+	@Test
+	void testAddDelete_severalChunks() {
+		final var repositorySize = prepareUpdate();
+		final var files = IntStream.range(0, SCAN_DIFF_CHUNK_SIZE * 2 + 1)
+				.mapToObj(i -> {
+					final var f = Mockito.mock(CachedFileAttributes.class);
+					when(f.getPath()).thenReturn(path + "/" + i);
+					when(f.getParentPath()).thenReturn(path);
+					when(f.isDirectory()).thenReturn(false);
+					when(f.length()).thenReturn(length);
+					when(f.lastModified()).thenReturn(lastModified);
+					return f;
+				})
+				.toList();
+		final var withFile = new ArrayList<>(files);
+		withFile.add(file);
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap())).thenReturn(scanResult(withFile));
+
+		/**
+		 * First, add
+		 */
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
+		assertThat(watchedFilesResult.founded()).isEmpty();
+		assertEquals(files.size() + 1, watchedFilesResult.totalFiles());
+		assertEquals(repositorySize + files.size() + 1, repository.count());
+
+		/**
+		 * Second, all founded
+		 */
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
+		assertThat(watchedFilesResult.founded()).size().isEqualTo(files.size() + 1);
+		assertThat(watchedFilesResult.losted()).isEmpty();
+
+		/**
+		 * Third, half removed
+		 */
+		final var kept = files.subList(0, files.size() / 2);
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap())).thenReturn(scanResult(kept));
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				true, null);
+		assertThat(watchedFilesResult.founded()).isEmpty();
+		assertThat(watchedFilesResult.updated()).isEmpty();
+		assertThat(watchedFilesResult.losted()).size().isEqualTo(files.size() + 1 - kept.size());
+		assertEquals(kept.size(), watchedFilesResult.totalFiles());
+		assertEquals(repositorySize + kept.size(), repository.count());
+
+		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
+		verify(watchedFileScanner, times(3)).scan(eq(fileSystem), anyMap());
+	}
+
+	@Test
+	void testIncremental_skippedDirectory() {
+		final var repositorySize = prepareUpdate();
+
+		/**
+		 * First + second, add + confirm
+		 */
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, null);
+
+		/**
+		 * Third, parent directory not listed: the file row is kept
+		 */
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap()))
+				.thenReturn(new StorageTreeScanResult(List.of(), Set.of("/parent/" + path), List.of()));
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				false, null);
+		assertThat(watchedFilesResult.founded()).isEmpty();
+		assertThat(watchedFilesResult.losted()).isEmpty();
+		assertThat(watchedFilesResult.updated()).isEmpty();
+		assertEquals(1, watchedFilesResult.totalFiles());
+		assertEquals(repositorySize + 1, repository.count());
+
+		/**
+		 * Fourth, parent directory listed again, file is gone
+		 */
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap())).thenReturn(scanResult(List.of()));
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				false, null);
+		assertThat(watchedFilesResult.losted()).size().isEqualTo(1);
+		assertEquals(0, watchedFilesResult.totalFiles());
+
+		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
+		verify(watchedFileScanner, times(4)).scan(eq(fileSystem), anyMap());
+	}
+
+	@Test
+	void testTouchedDirectories() {
+		final var repositorySize = prepareUpdate();
+		final var touched = Set.of("/parent");
+		when(watchedFileScanner.scanTouched(eq(fileSystem), anyMap(), eq(touched)))
+				.thenReturn(scanResult(List.of(file)));
+
+		watchedFilesResult = pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem,
+				false, touched);
+		assertThat(watchedFilesResult.founded()).isEmpty();
+		assertEquals(1, watchedFilesResult.totalFiles());
+		assertEquals(repositorySize + 1, repository.count());
+
+		/**
+		 * Ignored on full scans
+		 */
+		pis.updateFoundedFiles(watchedFileScanner, realm, storage, observedFolder, fileSystem, true, touched);
+
+		verify(observedFolder, atLeastOnce()).getMinFixedStateTime();
+		verify(watchedFileScanner, times(1)).scanTouched(eq(fileSystem), anyMap(), eq(touched));
+		verify(watchedFileScanner, times(1)).scan(eq(fileSystem), anyMap());
+	}
+
 	@Test
 	void testReset() {
 		pis.resetFoundedFiles(realm, storage, observedFolder, Set.of(file));
@@ -433,11 +566,15 @@ class PathIndexerServiceWFLogicTest {
 				() -> pis.resetFoundedFiles(realm, storage, observedFolder, emptySet));
 	}
 
+	private static StorageTreeScanResult scanResult(final List<CachedFileAttributes> detected) {
+		return new StorageTreeScanResult(detected, Set.of(), List.of());
+	}
+
 	private int prepareUpdate() {
 		final var repositorySize = prepareAnotherEntityOutsideTest();
 		when(file.isDirectory()).thenReturn(directory);
 		when(anotherFile.isDirectory()).thenReturn(directory);
-		when(watchedFileScanner.scan(fileSystem)).thenReturn(List.of(file));
+		when(watchedFileScanner.scan(eq(fileSystem), anyMap())).thenReturn(scanResult(List.of(file)));
 		when(observedFolder.getMinFixedStateTime()).thenReturn(Duration.ofMillis(-1000));
 		return repositorySize;
 	}
@@ -34,17 +34,31 @@ class DelayedSyncConfigurationTest {
 
 	@Test
 	void testDelayedSyncConfiguration_maxEntries() {
-		new DelayedSyncConfiguration(1000, ONE_HOUR);
-		new DelayedSyncConfiguration(2, ONE_HOUR);
+		new DelayedSyncConfiguration(1000, ONE_HOUR, 1, 1000);
+		new DelayedSyncConfiguration(2, ONE_HOUR, 1, 1000);
 
-		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(1, ONE_HOUR));
-		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(0, ONE_HOUR));
-		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(-1, ONE_HOUR));
+		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(1, ONE_HOUR, 1, 1000));
+		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(0, ONE_HOUR, 1, 1000));
+		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(-1, ONE_HOUR, 1, 1000));
 	}
 
 	@Test
 	void testDelayedSyncConfiguration_maxDelay() {
-		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(1, ZERO));
+		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(1, ZERO, 1, 1000));
+	}
+
+	@Test
+	void testDelayedSyncConfiguration_flushWorkers() {
+		new DelayedSyncConfiguration(2, ONE_HOUR, 4, 1000);
+
+		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(2, ONE_HOUR, 0, 1000));
+	}
+
+	@Test
+	void testDelayedSyncConfiguration_maxQueuedEntries() {
+		new DelayedSyncConfiguration(1000, ONE_HOUR, 1, 1000);
+
+		assertThrows(IllegalArgumentException.class, () -> new DelayedSyncConfiguration(1000, ONE_HOUR, 1, 999));
 	}
 
 }
@@ -16,8 +16,12 @@
  */
 package media.mexm.mydmam.tools;
 
+import static java.lang.Thread.onSpinWait;
 import static java.lang.Thread.sleep;
+import static java.util.concurrent.CompletableFuture.runAsync;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -26,6 +30,10 @@ import static org.mockito.internal.verification.VerificationModeFactory.times;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
@@ -60,14 +68,19 @@ class DelayedSyncTest {
 	void init() {
 		when(delayedSyncConfiguration.maxDelay()).thenReturn(Duration.ofHours(1000));
 		when(delayedSyncConfiguration.maxEntries()).thenReturn(maxEntries);
+		when(delayedSyncConfiguration.flushWorkers()).thenReturn(1);
+		when(delayedSyncConfiguration.maxQueuedEntries()).thenReturn(maxEntries * 10);
 
 		ds = new DelayedSync<>(delayedSyncConfiguration, onSync);
 	}
 
 	@AfterEach
 	void ends() {
+		ds.close();
 		verify(delayedSyncConfiguration, atLeastOnce()).maxEntries();
 		verify(delayedSyncConfiguration, atLeastOnce()).maxDelay();
+		verify(delayedSyncConfiguration, atLeastOnce()).flushWorkers();
+		verify(delayedSyncConfiguration, atLeastOnce()).maxQueuedEntries();
 	}
 
 	static Object makeObject() {
@@ -84,18 +97,55 @@ class DelayedSyncTest {
 				});
 
 		ds.add(makeObject());
+		ds.waitToSync();
 		verify(onSync, times(1)).accept(onSyncCaptor.capture());
 		final var values = onSyncCaptor.getValue();
 		assertThat(values).hasSize(maxEntries);
 
 		verifyNoInteractions(values.toArray());
 
-		ds.add(makeObject());
+		final var stats = ds.getStats();
+		assertThat(stats.syncs()).isEqualTo(1);
+		assertThat(stats.syncedEntries()).isEqualTo(maxEntries);
+		assertThat(stats.maxBatchSize()).isEqualTo(maxEntries);
+		assertThat(stats.queued()).isZero();
+		assertThat(stats.backpressureWaits()).isZero();
+	}
+
+	@Test
+	void testAdd_backpressure() throws InterruptedException {
+		final var onSyncLock = new CountDownLatch(1);
+		doAnswer(_ -> {
+			onSyncLock.await();
+			return null;
+		}).when(onSync).accept(any());
+		when(delayedSyncConfiguration.maxQueuedEntries()).thenReturn(maxEntries);
+		ds.close();
+		ds = new DelayedSync<>(delayedSyncConfiguration, onSync);
+
+		final var totalEntries = maxEntries * 2 + 1;
+		final var producer = runAsync(() -> IntStream.range(0, totalEntries).forEach(_ -> ds.add(makeObject())));
+		while (ds.getStats().backpressureWaits() == 0) {
+			onSpinWait();
+		}
+		assertThat(producer).isNotDone();
+		assertThat(ds.getStats().queued()).isLessThanOrEqualTo(maxEntries);
+
+		onSyncLock.countDown();
+		producer.join();
+		ds.close();
+
+		verify(onSync, atLeastOnce()).accept(onSyncCaptor.capture());
+		final var values = onSyncCaptor.getAllValues().stream().flatMap(List::stream).toList();
+		assertThat(values).hasSize(totalEntries);
+		verifyNoInteractions(values.toArray());
+		assertThat(ds.getStats().backpressureWaits()).isPositive();
 	}
 
 	@Test
 	void testAdd_timeout() {
 		when(delayedSyncConfiguration.maxDelay()).thenReturn(Duration.ofMillis(1));
+		ds.close();
 		ds = new DelayedSync<>(delayedSyncConfiguration, onSync);
 		ds.add(makeObject());
 		ds.waitToSync();
@@ -109,6 +159,7 @@ class DelayedSyncTest {
 	@Test
 	void testMultipleAdd_timeout() {
 		when(delayedSyncConfiguration.maxDelay()).thenReturn(Duration.ofMillis(1));
+		ds.close();
 		ds = new DelayedSync<>(delayedSyncConfiguration, onSync);
 
 		IntStream.range(0, maxEntries / 2)
@@ -133,6 +184,7 @@ class DelayedSyncTest {
 	@Test
 	void testMultipleAdd_max_timeout() {
 		when(delayedSyncConfiguration.maxDelay()).thenReturn(Duration.ofMillis(1));
+		ds.close();
 		ds = new DelayedSync<>(delayedSyncConfiguration, onSync);
 
 		final var totalEntries = maxEntries * 2;
@@ -156,4 +208,54 @@ class DelayedSyncTest {
 		verifyNoInteractions(values.toArray());
 	}
 
+	@Test
+	void testClose() {
+		final var count = maxEntries / 2;
+		IntStream.range(0, count).forEach(_ -> ds.add(makeObject()));
+		verifyNoInteractions(onSync);
+
+		ds.close();
+
+		verify(onSync, times(1)).accept(onSyncCaptor.capture());
+		final var values = onSyncCaptor.getValue();
+		assertThat(values).hasSize(count);
+		verifyNoInteractions(values.toArray());
+	}
+
+	@Test
+	void testSyncOrder_multipleWorkers() throws InterruptedException {
+		when(delayedSyncConfiguration.maxDelay()).thenReturn(Duration.ofMillis(1));
+		when(delayedSyncConfiguration.flushWorkers()).thenReturn(2);
+		ds.close();
+
+		final var store = new ConcurrentHashMap<Object, Object>();
+		final var firstSyncStarted = new CountDownLatch(1);
+		final var firstSyncLock = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			final List<Object> batch = invocation.getArgument(0);
+			if (firstSyncStarted.getCount() > 0) {
+				firstSyncStarted.countDown();
+				firstSyncLock.await();
+			}
+			batch.stream()
+					.map(Entry.class::cast)
+					.forEach(entry -> store.put(entry.getKey(), entry.getValue()));
+			return null;
+		}).when(onSync).accept(any());
+		ds = new DelayedSync<>(delayedSyncConfiguration, onSync);
+
+		ds.add(Map.entry("key", "first"));
+		firstSyncStarted.await();
+		ds.add(Map.entry("key", "last"));
+		while (ds.getStats().queued() > 0) {
+			onSpinWait();
+		}
+		sleep(10); // NOSONAR S2925
+		firstSyncLock.countDown();
+		ds.waitToSync();
+
+		assertThat(store).containsExactly(Map.entry("key", "last"));
+		verify(onSync, times(2)).accept(any());
+	}
+
 }